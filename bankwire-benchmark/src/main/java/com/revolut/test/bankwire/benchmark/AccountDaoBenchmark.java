@@ -0,0 +1,57 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.dto.Account;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Account store lookups and balance updates, on the heap or off-heap store; credit and debit hit the sender account
+ * picked by the workload.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountDaoBenchmark {
+
+    @Benchmark
+    public Optional<Account> findByAccountNumber(Accounts accounts, Cursor cursor) {
+        accounts.sampler.next(cursor);
+        return accounts.accountDao.findByAccountNumber(accounts.accountNumbers[cursor.from]);
+    }
+
+    /**
+     * Looks up a fresh copy of the account number, as a request handler does after parsing it, so the store can neither
+     * match the key by reference nor reuse its cached hash.
+     */
+    @Benchmark
+    public Optional<Account> findByParsedAccountNumber(Accounts accounts, Cursor cursor) {
+        accounts.sampler.next(cursor);
+        return accounts.accountDao.findByAccountNumber(new String(accounts.accountNumbers[cursor.from].toCharArray()));
+    }
+
+    @Benchmark
+    public Account creditAccount(Accounts accounts, Cursor cursor) throws Exception {
+        accounts.sampler.next(cursor);
+        Account account = accounts.accountsByIndex[cursor.from];
+        accounts.accountDao.creditAccount(account, 1L);
+        return account;
+    }
+
+    @Benchmark
+    public Account deductAccount(Accounts accounts, Cursor cursor) throws Exception {
+        accounts.sampler.next(cursor);
+        Account account = accounts.accountsByIndex[cursor.from];
+        accounts.accountDao.deductAccount(account, 1L);
+        return account;
+    }
+}
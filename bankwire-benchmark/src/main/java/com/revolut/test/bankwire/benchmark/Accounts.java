@@ -0,0 +1,71 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.OffHeapAccountDao;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.UUID;
+
+/**
+ * Account store shared by all benchmark threads, with the workload picking which accounts they hit.
+ */
+@State(Scope.Benchmark)
+public class Accounts {
+
+    @Param({"uniform", "zipf", "pingpong", "fanin", "fanout"})
+    public String workload;
+
+    @Param({"10000"})
+    public int accounts;
+
+    /**
+     * Accounts 0 up to hotAccounts - 1 take credits in striped cells.
+     */
+    @Param({"0"})
+    public int hotAccounts;
+
+    /**
+     * heap for AccountDaoImpl, offheap for OffHeapAccountDao, which cannot take hot accounts or run the netting and
+     * combining engines.
+     */
+    @Param({"heap"})
+    public String store;
+
+    AccountDao accountDao;
+
+    String[] accountNumbers;
+
+    Account[] accountsByIndex;
+
+    Workload sampler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        accountNumbers = new String[accounts];
+        accountsByIndex = new Account[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountNumbers[i] = new UUID(0, i).toString();
+        }
+        accountDao = "offheap".equals(store) ? new OffHeapAccountDao(accounts)
+                : new AccountDaoImpl(new DisabledJournal(), new HashSet<>(Arrays.asList(accountNumbers).subList(0, hotAccounts)), 0);
+        for (int i = 0; i < accounts; i++) {
+            accountsByIndex[i] = accountDao.createAccount(new AccountBuilder().setAccountNumber(accountNumbers[i]).setUser(new User("bench", "mark"))
+                    .setCurrency(CurrencyUnit.EUR).setMoney(Money.of(CurrencyUnit.EUR, 1_000_000_000L)).setCreatedDate(new Date()).createAccount());
+        }
+        sampler = Workload.of(workload, accounts);
+    }
+}
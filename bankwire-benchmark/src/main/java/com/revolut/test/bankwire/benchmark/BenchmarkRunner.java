@@ -0,0 +1,38 @@
+package com.revolut.test.bankwire.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmarks once per thread count, 1, 2, 4, ... up to twice the number of cores, with the GC profiler for
+ * allocation rates. Any other JMH command line option is passed through, -t pins a single thread count.
+ * <p>
+ * Usage: java -jar target/benchmarks.jar [JMH options] [benchmark regex]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        List<Integer> threadCounts = new ArrayList<>();
+        if (commandLineOptions.getThreads().hasValue()) {
+            threadCounts.add(commandLineOptions.getThreads().get());
+        } else {
+            int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+            for (int threads = 1; threads < maxThreads; threads *= 2) {
+                threadCounts.add(threads);
+            }
+            threadCounts.add(maxThreads);
+        }
+
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder().parent(commandLineOptions).threads(threads).addProfiler(GCProfiler.class).build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.revolut.test.bankwire.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Per thread position in the workload.
+ */
+@State(Scope.Thread)
+public class Cursor {
+
+    int from;
+
+    int to;
+
+    boolean forward;
+
+    long sequence;
+
+    String prefix;
+
+    @Setup(Level.Trial)
+    public void setUp(ThreadParams threadParams) {
+        forward = threadParams.getThreadIndex() % 2 == 0;
+        prefix = "bench-" + threadParams.getThreadIndex() + "-";
+    }
+
+    String nextTransferId() {
+        return prefix + sequence++;
+    }
+}
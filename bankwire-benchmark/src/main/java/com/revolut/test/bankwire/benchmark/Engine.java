@@ -0,0 +1,80 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.engine.CasTransferEngine;
+import com.revolut.test.bankwire.engine.CombiningTransferEngine;
+import com.revolut.test.bankwire.engine.NettingTransferEngine;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.engine.PartitionedTransferEngine;
+import com.revolut.test.bankwire.engine.SpinLockTransferEngine;
+import com.revolut.test.bankwire.engine.TransferEngine;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer engine and TransferDaoImpl over the benchmark accounts, built the way DaoModule builds them.
+ */
+@State(Scope.Benchmark)
+public class Engine {
+
+    @Param({"ordered", "spin", "cas", "partitioned", "netting", "combining"})
+    public String engine;
+
+    TransferEngine transferEngine;
+
+    TransferDao transferDao;
+
+    @Setup(Level.Trial)
+    public void setUp(Accounts accounts) {
+        long timeOut = TimeUnit.SECONDS.toNanos(3);
+        switch (engine) {
+            case "ordered":
+                transferEngine = new OrderedLockTransferEngine(accounts.accountDao, timeOut);
+                break;
+            case "spin":
+                transferEngine = new SpinLockTransferEngine(accounts.accountDao, timeOut);
+                break;
+            case "cas":
+                transferEngine = new CasTransferEngine(accounts.accountDao);
+                break;
+            case "partitioned":
+                transferEngine = new PartitionedTransferEngine(accounts.accountDao, timeOut, Runtime.getRuntime().availableProcessors(), 1024);
+                break;
+            case "combining":
+                transferEngine = new CombiningTransferEngine(accounts.accountDao, timeOut, 64);
+                break;
+            case "netting":
+                transferEngine = new NettingTransferEngine(accounts.accountDao, timeOut, TimeUnit.MILLISECONDS.toNanos(1));
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown transfer engine %s", engine));
+        }
+        transferDao = new TransferDaoImpl(transferEngine, accounts.accountDao, new DisabledJournal());
+    }
+
+    /**
+     * TransferDaoImpl keeps every transfer, drop them so the heap does not grow across iterations.
+     */
+    @Setup(Level.Iteration)
+    public void clearTransfers() {
+        transferDao.clearTransfers();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (transferEngine instanceof PartitionedTransferEngine) {
+            ((PartitionedTransferEngine) transferEngine).shutdown();
+        }
+        if (transferEngine instanceof NettingTransferEngine) {
+            ((NettingTransferEngine) transferEngine).shutdown();
+        }
+    }
+}
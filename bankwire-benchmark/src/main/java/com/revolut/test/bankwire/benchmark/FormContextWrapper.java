@@ -0,0 +1,71 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.context.ContextWrapper;
+import com.revolut.test.bankwire.json.RequestJsonReader;
+import io.javalin.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ContextWrapper answering from a map of form parameters, or from a JSON body once one is set, and keeping the last
+ * response instead of writing it.
+ */
+class FormContextWrapper implements ContextWrapper {
+
+    final Map<String, String> formParams = new HashMap<>();
+
+    final RequestJsonReader jsonReader = new RequestJsonReader();
+
+    String jsonBody;
+
+    Object body;
+
+    int status;
+
+    @Override
+    public String pathParam(Context context, String param) {
+        return null;
+    }
+
+    @Override
+    public String formParam(Context context, String param) {
+        return formParams.get(param);
+    }
+
+    @Override
+    public String queryParam(Context context, String param) {
+        return null;
+    }
+
+    @Override
+    public String header(Context context, String header) {
+        return jsonBody != null && header.equals("Content-Type") ? "application/json" : null;
+    }
+
+    @Override
+    public <T> T bodyAsClass(Context context, Class<T> clazz) {
+        return jsonReader.fromJson(jsonBody, clazz);
+    }
+
+    @Override
+    public void json(Context context, Object object) {
+        json(context, object, 200);
+    }
+
+    @Override
+    public void result(Context context, String result, String contentType, int status) {
+        json(context, result, status);
+    }
+
+    @Override
+    public void json(Context context, Object object, int status) {
+        this.body = object;
+        this.status = status;
+    }
+
+    @Override
+    public void jsonPage(Context context, Iterable<?> items, Object nextCursor, int status) {
+        json(context, items, status);
+    }
+}
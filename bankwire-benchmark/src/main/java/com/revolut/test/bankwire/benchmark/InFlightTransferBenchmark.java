@@ -0,0 +1,147 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import com.revolut.test.bankwire.thread.VirtualThreads;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds a hot account's lock while a burst of transfers out of it arrives, the way a blocked POST /transfer holds its
+ * request thread, and reports how many transfers are in flight, the platform threads and memory that costs, and how
+ * long the burst takes to drain once the lock is released.
+ * <p>
+ * Setups: platform runs the transfers on a pool of Jetty's default 200 platform threads, platform-unbounded on one
+ * platform thread per transfer, virtual on one virtual thread per transfer (Java 21 or later). Run each setup in its
+ * own JVM so the memory figures do not mix, with -Djdk.tracePinnedThreads=full to check that no carrier is pinned.
+ * <p>
+ * Usage: java -cp target/benchmarks.jar com.revolut.test.bankwire.benchmark.InFlightTransferBenchmark setup [transfers]
+ */
+public class InFlightTransferBenchmark {
+
+    private static final int JETTY_DEFAULT_THREADS = 200;
+
+    public static void main(String[] args) throws Exception {
+        String setup = args.length > 0 ? args[0] : "platform";
+        int transfers = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        AccountDao accountDao = new AccountDaoImpl();
+        Account hot = accountDao.createAccount(createAccount("hot"));
+        for (int i = 0; i < transfers; i++) {
+            accountDao.createAccount(createAccount(String.valueOf(i)));
+        }
+        TransferDao transferDao = new TransferDaoImpl(new OrderedLockTransferEngine(accountDao, TimeUnit.MINUTES.toNanos(5)), accountDao, new DisabledJournal());
+
+        long rssBefore = residentBytes();
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        ExecutorService executor = executor(setup, transfers);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(transfers);
+
+        hot.getLock().lock();
+        long submitted = System.nanoTime();
+        for (int i = 0; i < transfers; i++) {
+            String receiver = String.valueOf(i);
+            executor.execute(() -> {
+                inFlight.incrementAndGet();
+                try {
+                    transferDao.transferMoney(new TransferBuilder().setTransferId("t" + receiver).setFromAccountNumber("hot").setToAccountNumber(receiver)
+                            .setCurrency(CurrencyUnit.EUR).setMoney(Money.of(CurrencyUnit.EUR, BigDecimal.ONE)).setCreatedDate(new Date()).createTransfer());
+                } catch (Exception exception) {
+                    failures.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        awaitStable(inFlight);
+        long blocked = inFlight.get();
+        long rssBlocked = residentBytes();
+        long heapBlocked = usedHeap();
+        int threadsBlocked = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        long released = System.nanoTime();
+        hot.getLock().unlock();
+        done.await();
+        long drained = System.nanoTime();
+        executor.shutdown();
+
+        System.out.printf("%-18s transfers=%,d in-flight=%,d platform-threads=+%,d rss=+%,dKB heap=+%,dKB blocked-after=%,dms drain=%,dms failures=%d%n",
+                setup, transfers, blocked, threadsBlocked - threadsBefore, (rssBlocked - rssBefore) / 1024, (heapBlocked - heapBefore) / 1024,
+                TimeUnit.NANOSECONDS.toMillis(released - submitted), TimeUnit.NANOSECONDS.toMillis(drained - released), failures.get());
+    }
+
+    private static ExecutorService executor(String setup, int transfers) {
+        switch (setup) {
+            case "platform":
+                return Executors.newFixedThreadPool(JETTY_DEFAULT_THREADS);
+            case "platform-unbounded":
+                return Executors.newFixedThreadPool(transfers);
+            case "virtual":
+                return VirtualThreads.newThreadPerTaskExecutor("transfer-");
+            default:
+                throw new IllegalArgumentException(String.format("Unknown setup %s", setup));
+        }
+    }
+
+    /**
+     * Waits until no new transfer has started for half a second.
+     */
+    private static void awaitStable(AtomicInteger inFlight) throws InterruptedException {
+        int last = -1;
+        while (inFlight.get() != last) {
+            last = inFlight.get();
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * VmRSS from /proc, 0 where it is not available.
+     */
+    private static long residentBytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException exception) {
+            return 0;
+        }
+        return 0;
+    }
+
+    private static Account createAccount(String accountNumber) {
+        return new AccountBuilder().setAccountNumber(accountNumber).setUser(new User("bench", "mark")).setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 1_000_000)).setCreatedDate(new Date()).createAccount();
+    }
+}
@@ -0,0 +1,120 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.journal.AccountStoreRecovery;
+import com.revolut.test.bankwire.journal.JournalReader;
+import com.revolut.test.bankwire.journal.MappedJournal;
+import com.revolut.test.bankwire.journal.SnapshotStore;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A restart into an empty store: the newest snapshot loaded and the journal tail after it replayed. Every run
+ * recovers the same directory, written once per trial; run it on one thread, -t 1, as BenchmarkRunner otherwise
+ * starts concurrent restarts.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecoveryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Journaled {
+
+        @Param({"1000000"})
+        int accounts;
+
+        /**
+         * Transfers journaled after the snapshot.
+         */
+        @Param({"100000"})
+        int transfers;
+
+        /**
+         * Recovery threads, 0 for the number of cores.
+         */
+        @Param({"0"})
+        int partitions;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            directory = Files.createTempDirectory("bankwire-recovery");
+            MappedJournal journal = new MappedJournal(directory, 256 * 1024 * 1024, TimeUnit.MILLISECONDS.toNanos(1), 4096);
+            AccountDao accountDao = new AccountDaoImpl(journal);
+            TransferDao transferDao = new TransferDaoImpl(new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3)), accountDao, journal);
+            String[] accountNumbers = new String[Math.min(accounts, 10_000)];
+            for (int i = 0; i < accounts; i++) {
+                String accountNumber = new UUID(0, i).toString();
+                accountDao.restoreAccount(new AccountBuilder().setAccountNumber(accountNumber).setUser(new User("bench", "mark"))
+                        .setCurrency(CurrencyUnit.EUR).setMoney(Money.of(CurrencyUnit.EUR, 1_000_000L)).setCreatedDate(new Date()).createAccount());
+                if (i < accountNumbers.length) {
+                    accountNumbers[i] = accountNumber;
+                }
+            }
+            new SnapshotStore(directory).write(accountDao, journal);
+
+            Random random = new Random(42);
+            for (int i = 0; i < transfers; i++) {
+                String from = accountNumbers[random.nextInt(accountNumbers.length)];
+                String to = accountNumbers[random.nextInt(accountNumbers.length)];
+                if (!from.equals(to)) {
+                    transferDao.transferMoney(new TransferBuilder().setTransferId(UUID.randomUUID().toString()).setFromAccountNumber(from)
+                            .setToAccountNumber(to).setCurrency(CurrencyUnit.EUR).setMoney(Money.of(CurrencyUnit.EUR, 1)).setCreatedDate(new Date())
+                            .createTransfer());
+                }
+            }
+            journal.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public AccountDao recover(Journaled journaled) throws Exception {
+        AccountDao accountDao = new AccountDaoImpl();
+        int partitions = journaled.partitions > 0 ? journaled.partitions : Runtime.getRuntime().availableProcessors();
+        new AccountStoreRecovery(new SnapshotStore(journaled.directory), new JournalReader(journaled.directory), partitions).recover(accountDao);
+        return accountDao;
+    }
+}
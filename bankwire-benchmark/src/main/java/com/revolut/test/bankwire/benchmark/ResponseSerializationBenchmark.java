@@ -0,0 +1,144 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializer;
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.json.ResponseJsonWriter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One response body written to a discarding stream: format=gson is the reflective Gson mapping the API used before,
+ * with the String it built encoded the way Javalin sent it, format=streaming is ResponseJsonWriter. The bytes rate
+ * over the write rate is the body length per response; the GC profiler of BenchmarkRunner gives the allocation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Response {
+
+        /**
+         * account, transfer, or page (100 transfers, the default page size of GET /transfers).
+         */
+        @Param({"account", "transfer", "page"})
+        String body;
+
+        @Param({"gson", "streaming"})
+        String format;
+
+        Object value;
+
+        Gson gson;
+
+        ResponseJsonWriter jsonWriter;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            switch (body) {
+                case "account":
+                    value = new AccountBuilder().setUser(new User("Jane", "Doe"))
+                            .setAccountNumber(UUID.randomUUID().toString())
+                            .setCurrency(CurrencyUnit.EUR)
+                            .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal("1234.56")))
+                            .setCreatedDate(new Date())
+                            .createAccount();
+                    break;
+                case "transfer":
+                    value = createTransfer(1);
+                    break;
+                case "page":
+                    List<Transfer> transfers = new ArrayList<>();
+                    for (int sequence = 1; sequence <= 100; sequence++) {
+                        transfers.add(createTransfer(sequence));
+                    }
+                    value = transfers;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown body " + body);
+            }
+            JsonSerializer<Account> accountSerializer = (account, type, context) -> {
+                JsonObject json = new JsonObject();
+                json.addProperty("accountNumber", account.getAccountNumber());
+                json.add("user", context.serialize(account.getUser()));
+                json.add("money", context.serialize(account.getMoney()));
+                json.add("currency", context.serialize(account.getCurrency()));
+                json.add("createdDate", context.serialize(account.getCreatedDate()));
+                return json;
+            };
+            gson = new GsonBuilder().registerTypeAdapter(Account.class, accountSerializer).create();
+            jsonWriter = new ResponseJsonWriter();
+        }
+
+        private Transfer createTransfer(long sequence) {
+            Transfer transfer = new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                    .setFromAccountNumber(UUID.randomUUID().toString())
+                    .setToAccountNumber(UUID.randomUUID().toString())
+                    .setCurrency(CurrencyUnit.EUR)
+                    .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal("15.00")))
+                    .setCreatedDate(new Date())
+                    .createTransfer();
+            transfer.setSequence(sequence);
+            return transfer;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Sink extends OutputStream {
+
+        public long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    @Benchmark
+    public void write(Response response, Sink sink) throws IOException {
+        if (response.format.equals("gson")) {
+            sink.write(response.gson.toJson(response.value).getBytes(StandardCharsets.UTF_8));
+        } else {
+            response.jsonWriter.write(response.value, sink);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.controller.TransferController;
+import com.revolut.test.bankwire.controller.TransferControllerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POST /transfer from parsed form parameters to the response body: validation, account lookups, money parsing and
+ * the transfer itself. The Javalin context is stubbed, so HTTP and JSON writing are left out; body=json decodes a
+ * JSON transfer object instead of reading form parameters, the building of the JSON text is included.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferControllerBenchmark {
+
+    @State(Scope.Thread)
+    public static class Request {
+
+        @Param({"form", "json"})
+        String body;
+
+        FormContextWrapper contextWrapper;
+
+        TransferController transferController;
+
+        @Setup(Level.Trial)
+        public void setUp(Accounts accounts, Engine engine) {
+            contextWrapper = new FormContextWrapper();
+            transferController = new TransferControllerImpl(contextWrapper, engine.transferDao, accounts.accountDao);
+            contextWrapper.formParams.put("money", "0.01");
+        }
+    }
+
+    @Benchmark
+    public Object transferMoney(Accounts accounts, Cursor cursor, Request request) {
+        accounts.sampler.next(cursor);
+        if (request.body.equals("json")) {
+            request.contextWrapper.jsonBody = "{\"senderAccountNumber\":\"" + accounts.accountNumbers[cursor.from]
+                    + "\",\"receiverAccountNumber\":\"" + accounts.accountNumbers[cursor.to] + "\",\"money\":\"0.01\"}";
+        } else {
+            request.contextWrapper.formParams.put("senderAccountNumber", accounts.accountNumbers[cursor.from]);
+            request.contextWrapper.formParams.put("receiverAccountNumber", accounts.accountNumbers[cursor.to]);
+        }
+        request.transferController.transferMoney(null);
+        if (request.contextWrapper.status != 200) {
+            throw new IllegalStateException(String.valueOf(request.contextWrapper.body));
+        }
+        return request.contextWrapper.body;
+    }
+}
@@ -0,0 +1,39 @@
+package com.revolut.test.bankwire.benchmark;
+
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransferDaoImpl.transferMoney through each transfer engine.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferDaoBenchmark {
+
+    private static final Money AMOUNT = Money.of(CurrencyUnit.EUR, new BigDecimal("0.01"));
+
+    @Benchmark
+    public Transfer transferMoney(Accounts accounts, Engine engine, Cursor cursor) throws Exception {
+        accounts.sampler.next(cursor);
+        Transfer transfer = new TransferBuilder().setTransferId(cursor.nextTransferId())
+                .setFromAccountNumber(accounts.accountNumbers[cursor.from]).setToAccountNumber(accounts.accountNumbers[cursor.to])
+                .setCurrency(CurrencyUnit.EUR).setMoney(AMOUNT).setCreatedDate(new Date()).createTransfer();
+        return engine.transferDao.transferMoney(transfer);
+    }
+}
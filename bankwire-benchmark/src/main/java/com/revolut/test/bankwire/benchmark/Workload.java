@@ -0,0 +1,123 @@
+package com.revolut.test.bankwire.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the sender and receiver account of the next operation.
+ * <ul>
+ * <li>uniform: any two distinct accounts</li>
+ * <li>zipf: both accounts drawn from a Zipf(1) distribution, so a few hot accounts take most of the traffic</li>
+ * <li>pingpong: every thread moves money back and forth between accounts 0 and 1, half of them starting in the
+ * opposite direction</li>
+ * <li>fanin: any account pays account 0, the way customers pay one merchant</li>
+ * <li>fanout: account 0 pays any account, the way a payroll account pays out</li>
+ * </ul>
+ */
+abstract class Workload {
+
+    static Workload of(String name, int accounts) {
+        switch (name) {
+            case "uniform":
+                return new Uniform(accounts);
+            case "zipf":
+                return new Zipf(accounts, 1.0);
+            case "pingpong":
+                return new PingPong();
+            case "fanin":
+                return new FanIn(accounts);
+            case "fanout":
+                return new FanOut(accounts);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown workload %s", name));
+        }
+    }
+
+    abstract void next(Cursor cursor);
+
+    private static class Uniform extends Workload {
+
+        private final int accounts;
+
+        private Uniform(int accounts) {
+            this.accounts = accounts;
+        }
+
+        @Override
+        void next(Cursor cursor) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            cursor.from = random.nextInt(accounts);
+            cursor.to = (cursor.from + 1 + random.nextInt(accounts - 1)) % accounts;
+        }
+    }
+
+    private static class Zipf extends Workload {
+
+        private final double[] cumulative;
+
+        private Zipf(int accounts, double exponent) {
+            cumulative = new double[accounts];
+            double sum = 0;
+            for (int rank = 0; rank < accounts; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < accounts; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        @Override
+        void next(Cursor cursor) {
+            cursor.from = sample();
+            do {
+                cursor.to = sample();
+            } while (cursor.to == cursor.from);
+        }
+
+        private int sample() {
+            int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+        }
+    }
+
+    private static class PingPong extends Workload {
+
+        @Override
+        void next(Cursor cursor) {
+            cursor.forward = !cursor.forward;
+            cursor.from = cursor.forward ? 0 : 1;
+            cursor.to = cursor.forward ? 1 : 0;
+        }
+    }
+
+    private static class FanIn extends Workload {
+
+        private final int accounts;
+
+        private FanIn(int accounts) {
+            this.accounts = accounts;
+        }
+
+        @Override
+        void next(Cursor cursor) {
+            cursor.from = 1 + ThreadLocalRandom.current().nextInt(accounts - 1);
+            cursor.to = 0;
+        }
+    }
+
+    private static class FanOut extends Workload {
+
+        private final int accounts;
+
+        private FanOut(int accounts) {
+            this.accounts = accounts;
+        }
+
+        @Override
+        void next(Cursor cursor) {
+            cursor.from = 0;
+            cursor.to = 1 + ThreadLocalRandom.current().nextInt(accounts - 1);
+        }
+    }
+}
@@ -1,54 +1,95 @@
-package com.revolut.test.bankwire;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.revolut.test.bankwire.configuration.ApplicationComponent;
-import com.revolut.test.bankwire.configuration.DaggerApplicationComponent;
-import com.revolut.test.bankwire.controller.AccountController;
-import com.revolut.test.bankwire.controller.TransferController;
-import io.javalin.Javalin;
-import io.javalin.json.JavalinJson;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-
-public class Application {
-
-    private static final Logger LOG = LoggerFactory.getLogger(Application.class);
-
-    private static final int PORT = 7000;
-
-    public static void main(String args[]) {
-        ApplicationComponent applicationComponent = DaggerApplicationComponent.create();
-        AccountController accountController = applicationComponent.accountController();
-        TransferController transferController = applicationComponent.transferController();
-
-        final Gson gson = new GsonBuilder().create();
-        JavalinJson.setFromJsonMapper(gson::fromJson);
-        JavalinJson.setToJsonMapper(gson::toJson);
-
-
-        Javalin app = Javalin.create()
-                .port(PORT)
-                .start();
-
-
-        app.get("/accounts", accountController::findAllAccounts);
-        app.get("/account/:id", accountController::findByAccountNumber);
-
-        app.delete("/account/:id", accountController::deleteAccount);
-        app.post("/account", accountController::createAccount);
-
-        app.get("/transfers", transferController::getAllTransfers);
-        app.get("/transfer/:id", transferController::findTransferById);
-
-        app.post("/transfer", transferController::transferMoney);
-
-        app.exception(Exception.class, (exception, context) -> {
-            context.status(500);
-            LOG.error("error occurred", exception);
-        });
-
-    }
-
-}
+package com.revolut.test.bankwire;
+
+import com.revolut.test.bankwire.async.TransferSubmitter;
+import com.revolut.test.bankwire.configuration.ApplicationComponent;
+import com.revolut.test.bankwire.configuration.DaggerApplicationComponent;
+import com.revolut.test.bankwire.controller.AccountController;
+import com.revolut.test.bankwire.controller.MetricsController;
+import com.revolut.test.bankwire.controller.TransferController;
+import com.revolut.test.bankwire.engine.BatchTransferEngine;
+import com.revolut.test.bankwire.journal.Journal;
+import com.revolut.test.bankwire.journal.SnapshotScheduler;
+import com.revolut.test.bankwire.json.RequestJsonReader;
+import com.revolut.test.bankwire.json.ResponseJsonWriter;
+import com.revolut.test.bankwire.metrics.TimedHandler;
+import com.revolut.test.bankwire.tcp.TransferServer;
+import com.revolut.test.bankwire.thread.VirtualThreadPool;
+import io.javalin.Javalin;
+import io.javalin.json.JavalinJson;
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+
+public class Application {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Application.class);
+
+    private static final int PORT = 7000;
+
+    public static void main(String args[]) {
+        ApplicationComponent applicationComponent = DaggerApplicationComponent.create();
+        AccountController accountController = applicationComponent.accountController();
+        TransferController transferController = applicationComponent.transferController();
+        MetricsController metricsController = applicationComponent.metricsController();
+        TransferSubmitter transferSubmitter = applicationComponent.transferSubmitter();
+        Journal journal = applicationComponent.journal();
+        TransferServer transferServer = applicationComponent.transferServer();
+        SnapshotScheduler snapshotScheduler = applicationComponent.snapshotScheduler();
+        snapshotScheduler.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            transferServer.close();
+            transferSubmitter.close();
+            snapshotScheduler.close();
+            try {
+                journal.close();
+            } catch (IOException exception) {
+                LOG.error("journal could not be closed", exception);
+            }
+        }));
+
+        JavalinJson.setFromJsonMapper(new RequestJsonReader()::fromJson);
+        JavalinJson.setToJsonMapper(new ResponseJsonWriter()::toJson);
+
+
+        Javalin app = Javalin.create()
+                .port(PORT);
+        if (applicationComponent.applicationConfig().isVirtualThreads()) {
+            app.server(() -> new Server(new VirtualThreadPool()));
+        }
+        app.start();
+        try {
+            transferServer.start();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+
+        app.get("/accounts", new TimedHandler("GET /accounts", accountController::findAllAccounts));
+        app.get("/account/:id", new TimedHandler("GET /account/:id", accountController::findByAccountNumber));
+        app.get("/account/:id/transfers", new TimedHandler("GET /account/:id/transfers", transferController::findAccountTransfers));
+
+        app.delete("/account/:id", new TimedHandler("DELETE /account/:id", accountController::deleteAccount));
+        app.post("/account", new TimedHandler("POST /account", accountController::createAccount));
+
+        app.get("/transfers", new TimedHandler("GET /transfers", transferController::getAllTransfers));
+        app.get("/transfer/:id", new TimedHandler("GET /transfer/:id", transferController::findTransferById));
+
+        app.post("/transfer", new TimedHandler("POST /transfer", transferController::transferMoney));
+        if (applicationComponent.transferEngine() instanceof BatchTransferEngine) {
+            app.post("/transfers/batch", new TimedHandler("POST /transfers/batch", transferController::transferBatch));
+        }
+
+        app.get("/metrics", metricsController::metrics);
+
+        app.exception(Exception.class, (exception, context) -> {
+            context.status(500);
+            LOG.error("error occurred", exception);
+        });
+
+    }
+
+}
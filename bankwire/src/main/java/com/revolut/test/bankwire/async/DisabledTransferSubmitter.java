@@ -0,0 +1,28 @@
+package com.revolut.test.bankwire.async;
+
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferStatus;
+
+import java.util.Optional;
+
+public class DisabledTransferSubmitter implements TransferSubmitter {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public TransferStatus submit(Transfer transfer) {
+        throw new UnsupportedOperationException("Asynchronous transfers are disabled");
+    }
+
+    @Override
+    public Optional<TransferStatus> findStatus(String transferId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,136 @@
+package com.revolut.test.bankwire.async;
+
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferStatus;
+import com.revolut.test.bankwire.repo.TransferDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs submitted transfers on an executor, so a burst on hot accounts waits there instead of holding HTTP threads.
+ * At most maxInFlight transfers are queued or running at once. Only the newest maxFailed FAILED statuses are kept.
+ */
+public class ExecutorTransferSubmitter implements TransferSubmitter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutorTransferSubmitter.class);
+
+    private final TransferDao transferDao;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Map<String, TransferStatus> statuses = new ConcurrentHashMap<>();
+    private final Queue<String> failed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final int maxFailed;
+
+    /**
+     * Fixed pool of platform threads with room for queueSize waiting transfers.
+     */
+    public ExecutorTransferSubmitter(TransferDao transferDao, int threads, int queueSize, int maxFailed) {
+        this(transferDao, fixedThreadPool(threads), threads + queueSize, maxFailed);
+    }
+
+    public ExecutorTransferSubmitter(TransferDao transferDao, ExecutorService executor, int maxInFlight, int maxFailed) {
+        this.transferDao = transferDao;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.maxFailed = maxFailed;
+    }
+
+    private static ExecutorService fixedThreadPool(int threads) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "transfer-async-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public TransferStatus submit(Transfer transfer) {
+        if (!inFlight.tryAcquire()) {
+            throw new RejectedExecutionException(String.format("%d transfers in flight", maxInFlight));
+        }
+        TransferStatus pending = TransferStatus.pending(transfer.getTransferId());
+        statuses.put(transfer.getTransferId(), pending);
+        try {
+            executor.execute(() -> {
+                try {
+                    execute(transfer);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            statuses.remove(transfer.getTransferId(), pending);
+            inFlight.release();
+            throw exception;
+        }
+        return pending;
+    }
+
+    @Override
+    public Optional<TransferStatus> findStatus(String transferId) {
+        return Optional.ofNullable(statuses.get(transferId));
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Stops taking transfers and waits for the queued ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOG.error("{} queued transfers did not finish before shutdown", getInFlight());
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Transfer transfer) {
+        String failure;
+        try {
+            transferDao.transferMoney(transfer);
+            failure = transfer.getSequence() == 0 ? String.format("Transfer UnSuccessfully %s timed out waiting for account", transfer.getTransferId()) : null;
+        } catch (Exception exception) {
+            failure = exception.getMessage();
+        }
+        if (failure == null) {
+            statuses.remove(transfer.getTransferId());
+            return;
+        }
+        statuses.put(transfer.getTransferId(), TransferStatus.failed(transfer.getTransferId(), failure));
+        failed.add(transfer.getTransferId());
+        if (failedCount.incrementAndGet() > maxFailed) {
+            String oldest = failed.poll();
+            if (oldest != null) {
+                failedCount.decrementAndGet();
+                statuses.remove(oldest);
+            }
+        }
+    }
+}
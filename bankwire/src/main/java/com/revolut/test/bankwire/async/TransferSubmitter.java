@@ -0,0 +1,27 @@
+package com.revolut.test.bankwire.async;
+
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferStatus;
+
+import java.io.Closeable;
+import java.util.Optional;
+
+/**
+ * Runs transfers off the request thread. A submitted transfer is PENDING until it either commits, after which it is
+ * found through TransferDao, or fails, after which its FAILED status is kept for a while.
+ */
+public interface TransferSubmitter extends Closeable {
+
+    boolean isEnabled();
+
+    /**
+     * Throws RejectedExecutionException when the queue is full.
+     */
+    TransferStatus submit(Transfer transfer);
+
+    Optional<TransferStatus> findStatus(String transferId);
+
+    @Override
+    void close();
+
+}
@@ -1,22 +1,44 @@
-package com.revolut.test.bankwire.configuration;
-
-import com.revolut.test.bankwire.configuration.module.ControllerModule;
-import com.revolut.test.bankwire.configuration.module.DaoModule;
-import com.revolut.test.bankwire.controller.AccountController;
-import com.revolut.test.bankwire.controller.TransferController;
-import dagger.Component;
-
-import javax.inject.Singleton;
-
-@Singleton
-@Component(modules = {
-        ControllerModule.class,
-        DaoModule.class
-})
-public interface ApplicationComponent {
-
-    AccountController accountController();
-
-    TransferController transferController();
-
-}
+package com.revolut.test.bankwire.configuration;
+
+import com.revolut.test.bankwire.async.TransferSubmitter;
+import com.revolut.test.bankwire.configuration.module.ConfigurationModule;
+import com.revolut.test.bankwire.configuration.module.ControllerModule;
+import com.revolut.test.bankwire.configuration.module.DaoModule;
+import com.revolut.test.bankwire.controller.AccountController;
+import com.revolut.test.bankwire.controller.MetricsController;
+import com.revolut.test.bankwire.controller.TransferController;
+import com.revolut.test.bankwire.engine.TransferEngine;
+import com.revolut.test.bankwire.journal.Journal;
+import com.revolut.test.bankwire.journal.SnapshotScheduler;
+import com.revolut.test.bankwire.tcp.TransferServer;
+import dagger.Component;
+
+import javax.inject.Singleton;
+
+@Singleton
+@Component(modules = {
+        ConfigurationModule.class,
+        ControllerModule.class,
+        DaoModule.class
+})
+public interface ApplicationComponent {
+
+    ApplicationConfig applicationConfig();
+
+    AccountController accountController();
+
+    TransferController transferController();
+
+    MetricsController metricsController();
+
+    TransferSubmitter transferSubmitter();
+
+    TransferServer transferServer();
+
+    TransferEngine transferEngine();
+
+    Journal journal();
+
+    SnapshotScheduler snapshotScheduler();
+
+}
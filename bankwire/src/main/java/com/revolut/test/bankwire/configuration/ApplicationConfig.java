@@ -0,0 +1,240 @@
+package com.revolut.test.bankwire.configuration;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class ApplicationConfig {
+
+    public static final String TRANSFER_ENGINE = "bankwire.transfer.engine";
+    public static final String TRANSFER_LOCK_TIMEOUT_MILLIS = "bankwire.transfer.lockTimeoutMillis";
+    public static final String TRANSFER_PARTITIONS = "bankwire.transfer.partitions";
+    public static final String TRANSFER_RING_SIZE = "bankwire.transfer.ringSize";
+    public static final String TRANSFER_COMBINE_BATCH_SIZE = "bankwire.transfer.combineBatchSize";
+    public static final String SETTLEMENT_INTERVAL_MILLIS = "bankwire.settlement.intervalMillis";
+    public static final String TRANSFER_ASYNC = "bankwire.transfer.async";
+    public static final String TRANSFER_ASYNC_THREADS = "bankwire.transfer.async.threads";
+    public static final String TRANSFER_ASYNC_QUEUE_SIZE = "bankwire.transfer.async.queueSize";
+    public static final String TRANSFER_ASYNC_MAX_FAILED = "bankwire.transfer.async.maxFailed";
+    public static final String HOT_ACCOUNTS = "bankwire.hotAccounts";
+    public static final String HOT_ACCOUNTS_CONTENTION_THRESHOLD = "bankwire.hotAccounts.contentionThreshold";
+    public static final String JOURNAL_ENABLED = "bankwire.journal.enabled";
+    public static final String JOURNAL_DIR = "bankwire.journal.dir";
+    public static final String JOURNAL_SEGMENT_BYTES = "bankwire.journal.segmentBytes";
+    public static final String JOURNAL_COMMIT_INTERVAL_MICROS = "bankwire.journal.commitIntervalMicros";
+    public static final String JOURNAL_COMMIT_BATCH_SIZE = "bankwire.journal.commitBatchSize";
+    public static final String SNAPSHOT_INTERVAL_SECONDS = "bankwire.snapshot.intervalSeconds";
+    public static final String RECOVERY_THREADS = "bankwire.recovery.threads";
+    public static final String HISTORY_ARCHIVE_ENABLED = "bankwire.history.archive.enabled";
+    public static final String HISTORY_ARCHIVE_DIR = "bankwire.history.archive.dir";
+    public static final String HISTORY_HOT_TRANSFERS = "bankwire.history.hotTransfers";
+    public static final String HISTORY_SEGMENT_TRANSFERS = "bankwire.history.segmentTransfers";
+    public static final String ACCOUNTS_STORE = "bankwire.accounts.store";
+    public static final String ACCOUNTS_CAPACITY = "bankwire.accounts.capacity";
+    public static final String THREADS = "bankwire.threads";
+    public static final String TCP_ENABLED = "bankwire.tcp.enabled";
+    public static final String TCP_PORT = "bankwire.tcp.port";
+    public static final String TCP_THREADS = "bankwire.tcp.threads";
+    public static final String TCP_MAX_IN_FLIGHT = "bankwire.tcp.maxInFlight";
+    public static final String IDEMPOTENCY_MAX_KEYS = "bankwire.idempotency.maxKeys";
+    public static final String IDEMPOTENCY_TTL_SECONDS = "bankwire.idempotency.ttlSeconds";
+
+    public static final String ENGINE_ORDERED = "ordered";
+    public static final String ENGINE_SPIN = "spin";
+    public static final String ENGINE_PARTITIONED = "partitioned";
+    public static final String ENGINE_CAS = "cas";
+    public static final String ENGINE_NETTING = "netting";
+    public static final String ENGINE_COMBINING = "combining";
+
+    public static final String STORE_HEAP = "heap";
+    public static final String STORE_OFF_HEAP = "offheap";
+
+    public static final String THREADS_PLATFORM = "platform";
+    public static final String THREADS_VIRTUAL = "virtual";
+
+    private final Properties properties;
+
+    public ApplicationConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static ApplicationConfig fromSystemProperties() {
+        return new ApplicationConfig(System.getProperties());
+    }
+
+    public String getTransferEngine() {
+        return getString(TRANSFER_ENGINE, ENGINE_ORDERED);
+    }
+
+    public long getTransferLockTimeoutNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(getLong(TRANSFER_LOCK_TIMEOUT_MILLIS, TimeUnit.SECONDS.toMillis(3)));
+    }
+
+    public int getTransferPartitions() {
+        return getInt(TRANSFER_PARTITIONS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getTransferRingSize() {
+        return getInt(TRANSFER_RING_SIZE, 1024);
+    }
+
+    public int getTransferCombineBatchSize() {
+        return getInt(TRANSFER_COMBINE_BATCH_SIZE, 64);
+    }
+
+    public long getSettlementIntervalNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(getLong(SETTLEMENT_INTERVAL_MILLIS, 10));
+    }
+
+    public boolean isTransferAsync() {
+        return getBoolean(TRANSFER_ASYNC, false);
+    }
+
+    public int getTransferAsyncThreads() {
+        return getInt(TRANSFER_ASYNC_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getTransferAsyncQueueSize() {
+        return getInt(TRANSFER_ASYNC_QUEUE_SIZE, 10_000);
+    }
+
+    public int getTransferAsyncMaxFailed() {
+        return getInt(TRANSFER_ASYNC_MAX_FAILED, 100_000);
+    }
+
+    public String getAccountsStore() {
+        return getString(ACCOUNTS_STORE, STORE_HEAP);
+    }
+
+    /**
+     * Accounts the off-heap store can ever hold; its index is allocated for this many up front.
+     */
+    public int getAccountsCapacity() {
+        return getInt(ACCOUNTS_CAPACITY, 1_000_000);
+    }
+
+    /**
+     * Serve requests and async transfers on virtual threads; needs Java 21 or later at run time.
+     */
+    public boolean isVirtualThreads() {
+        String threads = getString(THREADS, THREADS_PLATFORM);
+        if (!THREADS_PLATFORM.equals(threads) && !THREADS_VIRTUAL.equals(threads)) {
+            throw new IllegalArgumentException(String.format("Unknown %s %s", THREADS, threads));
+        }
+        return THREADS_VIRTUAL.equals(threads);
+    }
+
+    /**
+     * Accept binary transfer commands on a TCP port next to the HTTP routes.
+     */
+    public boolean isTcpEnabled() {
+        return getBoolean(TCP_ENABLED, false);
+    }
+
+    public int getTcpPort() {
+        return getInt(TCP_PORT, 7001);
+    }
+
+    /**
+     * Platform threads running the transfers read from TCP connections; transfers wait on account locks and the
+     * journal, so this is a multiple of the cores.
+     */
+    public int getTcpThreads() {
+        return getInt(TCP_THREADS, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Unanswered commands per connection before the connection stops being read.
+     */
+    public int getTcpMaxInFlight() {
+        return getInt(TCP_MAX_IN_FLIGHT, 1024);
+    }
+
+    /**
+     * Comma separated account numbers whose credits go to striped cells from creation.
+     */
+    public Set<String> getHotAccounts() {
+        return Arrays.stream(getString(HOT_ACCOUNTS, "").split(","))
+                .map(String::trim)
+                .filter(accountNumber -> !accountNumber.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    public int getHotAccountsContentionThreshold() {
+        return getInt(HOT_ACCOUNTS_CONTENTION_THRESHOLD, 0);
+    }
+
+    public boolean isJournalEnabled() {
+        return getBoolean(JOURNAL_ENABLED, false);
+    }
+
+    public String getJournalDir() {
+        return getString(JOURNAL_DIR, "journal");
+    }
+
+    public int getJournalSegmentBytes() {
+        return getInt(JOURNAL_SEGMENT_BYTES, 64 * 1024 * 1024);
+    }
+
+    public long getJournalCommitIntervalNanos() {
+        return TimeUnit.MICROSECONDS.toNanos(getLong(JOURNAL_COMMIT_INTERVAL_MICROS, 1000));
+    }
+
+    public int getJournalCommitBatchSize() {
+        return getInt(JOURNAL_COMMIT_BATCH_SIZE, 256);
+    }
+
+    public long getSnapshotIntervalSeconds() {
+        return getLong(SNAPSHOT_INTERVAL_SECONDS, TimeUnit.MINUTES.toSeconds(5));
+    }
+
+    public int getRecoveryThreads() {
+        return getInt(RECOVERY_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public boolean isHistoryArchiveEnabled() {
+        return getBoolean(HISTORY_ARCHIVE_ENABLED, false);
+    }
+
+    public String getHistoryArchiveDir() {
+        return getString(HISTORY_ARCHIVE_DIR, "history");
+    }
+
+    public int getHistoryHotTransfers() {
+        return getInt(HISTORY_HOT_TRANSFERS, 100_000);
+    }
+
+    public int getHistorySegmentTransfers() {
+        return getInt(HISTORY_SEGMENT_TRANSFERS, 65_536);
+    }
+
+    public int getIdempotencyMaxKeys() {
+        return getInt(IDEMPOTENCY_MAX_KEYS, 100_000);
+    }
+
+    public long getIdempotencyTtlSeconds() {
+        return getLong(IDEMPOTENCY_TTL_SECONDS, TimeUnit.DAYS.toSeconds(1));
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,17 @@
+package com.revolut.test.bankwire.configuration.module;
+
+import com.revolut.test.bankwire.configuration.ApplicationConfig;
+import dagger.Module;
+import dagger.Provides;
+
+import javax.inject.Singleton;
+
+@Module
+public class ConfigurationModule {
+
+    @Provides
+    @Singleton
+    ApplicationConfig applicationConfig() {
+        return ApplicationConfig.fromSystemProperties();
+    }
+}
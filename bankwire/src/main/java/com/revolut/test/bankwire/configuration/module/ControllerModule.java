@@ -1,39 +1,111 @@
-package com.revolut.test.bankwire.configuration.module;
-
-import com.revolut.test.bankwire.context.ContextWrapper;
-import com.revolut.test.bankwire.context.ContextWrapperImpl;
-import com.revolut.test.bankwire.controller.AccountController;
-import com.revolut.test.bankwire.controller.AccountControllerImpl;
-import com.revolut.test.bankwire.controller.TransferController;
-import com.revolut.test.bankwire.controller.TransferControllerImpl;
-import com.revolut.test.bankwire.repo.AccountDao;
-import com.revolut.test.bankwire.repo.TransferDao;
-import dagger.Module;
-import dagger.Provides;
-
-import javax.inject.Inject;
-import javax.inject.Singleton;
-
-@Module
-public class ControllerModule {
-
-    @Provides
-    @Singleton
-    ContextWrapper contextWrapper() {
-        return new ContextWrapperImpl();
-    }
-
-    @Inject
-    @Provides
-    @Singleton
-    AccountController accountController(final ContextWrapper contextWrapper, final AccountDao accountDao) {
-        return new AccountControllerImpl(contextWrapper, accountDao);
-    }
-
-    @Inject
-    @Provides
-    @Singleton
-    TransferController transferController(final ContextWrapper contextWrapper, final TransferDao transferDao, final AccountDao accountDao) {
-        return new TransferControllerImpl(contextWrapper, transferDao, accountDao);
-    }
-}
+package com.revolut.test.bankwire.configuration.module;
+
+import com.revolut.test.bankwire.async.DisabledTransferSubmitter;
+import com.revolut.test.bankwire.async.ExecutorTransferSubmitter;
+import com.revolut.test.bankwire.async.TransferSubmitter;
+import com.revolut.test.bankwire.configuration.ApplicationConfig;
+import com.revolut.test.bankwire.context.ContextWrapper;
+import com.revolut.test.bankwire.context.ContextWrapperImpl;
+import com.revolut.test.bankwire.controller.AccountController;
+import com.revolut.test.bankwire.controller.AccountControllerImpl;
+import com.revolut.test.bankwire.controller.MetricsController;
+import com.revolut.test.bankwire.controller.MetricsControllerImpl;
+import com.revolut.test.bankwire.controller.TransferController;
+import com.revolut.test.bankwire.controller.TransferControllerImpl;
+import com.revolut.test.bankwire.idempotency.IdempotencyCache;
+import com.revolut.test.bankwire.idempotency.IdempotencyCacheImpl;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.tcp.DisabledTransferServer;
+import com.revolut.test.bankwire.tcp.NioTransferServer;
+import com.revolut.test.bankwire.tcp.TransferServer;
+import com.revolut.test.bankwire.thread.VirtualThreads;
+import dagger.Module;
+import dagger.Provides;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Module
+public class ControllerModule {
+
+    @Provides
+    @Singleton
+    ContextWrapper contextWrapper() {
+        return new ContextWrapperImpl();
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    AccountController accountController(final ContextWrapper contextWrapper, final AccountDao accountDao) {
+        return new AccountControllerImpl(contextWrapper, accountDao);
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    IdempotencyCache idempotencyCache(final ApplicationConfig config) {
+        IdempotencyCache idempotencyCache = new IdempotencyCacheImpl(config.getIdempotencyMaxKeys(), config.getIdempotencyTtlSeconds());
+        Metrics.gauge("bankwire_idempotency_keys", "Idempotency keys held", idempotencyCache::size);
+        return idempotencyCache;
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    TransferSubmitter transferSubmitter(final ApplicationConfig config, final TransferDao transferDao) {
+        if (!config.isTransferAsync()) {
+            return new DisabledTransferSubmitter();
+        }
+        ExecutorTransferSubmitter transferSubmitter = config.isVirtualThreads()
+                ? new ExecutorTransferSubmitter(transferDao, VirtualThreads.newThreadPerTaskExecutor("transfer-async-"),
+                config.getTransferAsyncThreads() + config.getTransferAsyncQueueSize(), config.getTransferAsyncMaxFailed())
+                : new ExecutorTransferSubmitter(transferDao, config.getTransferAsyncThreads(),
+                config.getTransferAsyncQueueSize(), config.getTransferAsyncMaxFailed());
+        Metrics.gauge("bankwire_async_transfers_in_flight", "Async transfers queued or running", transferSubmitter::getInFlight);
+        return transferSubmitter;
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    TransferController transferController(final ContextWrapper contextWrapper, final TransferDao transferDao, final AccountDao accountDao,
+                                          final IdempotencyCache idempotencyCache, final TransferSubmitter transferSubmitter) {
+        return new TransferControllerImpl(contextWrapper, transferDao, accountDao, idempotencyCache, transferSubmitter);
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    TransferServer transferServer(final ApplicationConfig config, final TransferDao transferDao, final AccountDao accountDao) {
+        if (!config.isTcpEnabled()) {
+            return new DisabledTransferServer();
+        }
+        ExecutorService executor;
+        if (config.isVirtualThreads()) {
+            executor = VirtualThreads.newThreadPerTaskExecutor("transfer-tcp-");
+        } else {
+            AtomicInteger threadIndex = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(config.getTcpThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "transfer-tcp-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        NioTransferServer transferServer = new NioTransferServer(transferDao, accountDao, executor, config.getTcpPort(), config.getTcpMaxInFlight());
+        Metrics.gauge("bankwire_tcp_connections", "Open binary transfer connections", transferServer::getConnections);
+        return transferServer;
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    MetricsController metricsController(final ContextWrapper contextWrapper) {
+        return new MetricsControllerImpl(contextWrapper);
+    }
+}
@@ -1,32 +1,178 @@
-package com.revolut.test.bankwire.configuration.module;
-
-import com.revolut.test.bankwire.repo.AccountDao;
-import com.revolut.test.bankwire.repo.AccountDaoImpl;
-import com.revolut.test.bankwire.repo.TransferDao;
-import com.revolut.test.bankwire.repo.TransferDaoImpl;
-import dagger.Module;
-import dagger.Provides;
-
-import javax.inject.Inject;
-import javax.inject.Singleton;
-
-@Module
-public class DaoModule {
-
-    @Inject
-    @Provides
-    @Singleton
-    AccountDao accountDao() {
-        return new AccountDaoImpl();
-    }
-
-
-    @Inject
-    @Provides
-    @Singleton
-    TransferDao transferDao(AccountDao accountDao) {
-        return new TransferDaoImpl(accountDao);
-    }
-
-
-}
+package com.revolut.test.bankwire.configuration.module;
+
+import com.revolut.test.bankwire.configuration.ApplicationConfig;
+import com.revolut.test.bankwire.engine.CasTransferEngine;
+import com.revolut.test.bankwire.engine.CombiningTransferEngine;
+import com.revolut.test.bankwire.engine.NettingTransferEngine;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.engine.PartitionedTransferEngine;
+import com.revolut.test.bankwire.engine.SpinLockTransferEngine;
+import com.revolut.test.bankwire.engine.TransferEngine;
+import com.revolut.test.bankwire.history.DisabledTransferArchive;
+import com.revolut.test.bankwire.history.MappedTransferArchive;
+import com.revolut.test.bankwire.history.TransferArchive;
+import com.revolut.test.bankwire.journal.AccountStoreRecovery;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.journal.Journal;
+import com.revolut.test.bankwire.journal.JournalReader;
+import com.revolut.test.bankwire.journal.MappedJournal;
+import com.revolut.test.bankwire.journal.SnapshotScheduler;
+import com.revolut.test.bankwire.journal.SnapshotStore;
+import com.revolut.test.bankwire.journal.TransferHistoryRecovery;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.OffHeapAccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import dagger.Module;
+import dagger.Provides;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+@Module
+public class DaoModule {
+
+    @Inject
+    @Provides
+    @Singleton
+    AccountDao accountDao(ApplicationConfig applicationConfig, Journal journal, SnapshotStore snapshotStore) {
+        AccountDao accountDao = createAccountDao(applicationConfig, journal);
+        if (journal.isEnabled()) {
+            try {
+                new AccountStoreRecovery(snapshotStore, new JournalReader(Paths.get(applicationConfig.getJournalDir())),
+                        applicationConfig.getRecoveryThreads()).recover(accountDao);
+            } catch (Exception exception) {
+                throw new IllegalStateException("Account store could not be recovered", exception);
+            }
+        }
+        Metrics.gauge("bankwire_accounts", "Accounts in the store", accountDao::countAccounts);
+        return accountDao;
+    }
+
+    /**
+     * Off-heap accounts are views made per lookup, so they cannot be hot and do not suit the netting and combining
+     * engines, which tell accounts apart by reference.
+     */
+    private AccountDao createAccountDao(ApplicationConfig applicationConfig, Journal journal) {
+        switch (applicationConfig.getAccountsStore()) {
+            case ApplicationConfig.STORE_HEAP:
+                return new AccountDaoImpl(journal, applicationConfig.getHotAccounts(), applicationConfig.getHotAccountsContentionThreshold());
+            case ApplicationConfig.STORE_OFF_HEAP:
+                String transferEngine = applicationConfig.getTransferEngine();
+                if (ApplicationConfig.ENGINE_NETTING.equals(transferEngine) || ApplicationConfig.ENGINE_COMBINING.equals(transferEngine)) {
+                    throw new IllegalArgumentException(String.format("Off-heap accounts do not work with the %s transfer engine", transferEngine));
+                }
+                if (!applicationConfig.getHotAccounts().isEmpty() || applicationConfig.getHotAccountsContentionThreshold() > 0) {
+                    throw new IllegalArgumentException("Off-heap accounts cannot be hot");
+                }
+                return new OffHeapAccountDao(journal, applicationConfig.getAccountsCapacity());
+            default:
+                throw new IllegalArgumentException(String.format("Unknown account store %s", applicationConfig.getAccountsStore()));
+        }
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    SnapshotStore snapshotStore(ApplicationConfig applicationConfig) {
+        return new SnapshotStore(Paths.get(applicationConfig.getJournalDir()));
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    SnapshotScheduler snapshotScheduler(ApplicationConfig applicationConfig, SnapshotStore snapshotStore, AccountDao accountDao, TransferDao transferDao,
+                                        Journal journal) {
+        return new SnapshotScheduler(snapshotStore, accountDao, transferDao, journal, applicationConfig.getSnapshotIntervalSeconds());
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    Journal journal(ApplicationConfig applicationConfig) {
+        if (!applicationConfig.isJournalEnabled()) {
+            return new DisabledJournal();
+        }
+        String transferEngine = applicationConfig.getTransferEngine();
+        if (!ApplicationConfig.ENGINE_ORDERED.equals(transferEngine) && !ApplicationConfig.ENGINE_SPIN.equals(transferEngine)
+                && !ApplicationConfig.ENGINE_COMBINING.equals(transferEngine)) {
+            throw new IllegalArgumentException(String.format("Journal needs a transfer engine holding both account locks, not %s", transferEngine));
+        }
+        try {
+            MappedJournal journal = new MappedJournal(Paths.get(applicationConfig.getJournalDir()), applicationConfig.getJournalSegmentBytes(),
+                    applicationConfig.getJournalCommitIntervalNanos(), applicationConfig.getJournalCommitBatchSize());
+            Metrics.gauge("bankwire_journal_position_bytes", "Journal position after the last appended record", journal::getPosition);
+            Metrics.gauge("bankwire_journal_flushes", "Journal forces to disk since start", journal::getFlushCount);
+            return journal;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Journal could not be opened", exception);
+        }
+    }
+
+
+    @Inject
+    @Provides
+    @Singleton
+    TransferEngine transferEngine(ApplicationConfig applicationConfig, AccountDao accountDao) {
+        long timeOut = applicationConfig.getTransferLockTimeoutNanos();
+        switch (applicationConfig.getTransferEngine()) {
+            case ApplicationConfig.ENGINE_SPIN:
+                return new SpinLockTransferEngine(accountDao, timeOut);
+            case ApplicationConfig.ENGINE_ORDERED:
+                return new OrderedLockTransferEngine(accountDao, timeOut);
+            case ApplicationConfig.ENGINE_COMBINING:
+                return new CombiningTransferEngine(accountDao, timeOut, applicationConfig.getTransferCombineBatchSize());
+            case ApplicationConfig.ENGINE_PARTITIONED:
+                return new PartitionedTransferEngine(accountDao, timeOut, applicationConfig.getTransferPartitions(), applicationConfig.getTransferRingSize());
+            case ApplicationConfig.ENGINE_CAS:
+                return new CasTransferEngine(accountDao);
+            case ApplicationConfig.ENGINE_NETTING:
+                NettingTransferEngine nettingEngine = new NettingTransferEngine(accountDao, timeOut, applicationConfig.getSettlementIntervalNanos());
+                Metrics.gauge("bankwire_settlement_pending", "Transfers waiting for the next settlement cycle", nettingEngine::countPending);
+                return nettingEngine;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown transfer engine %s", applicationConfig.getTransferEngine()));
+        }
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    TransferArchive transferArchive(ApplicationConfig applicationConfig) {
+        if (!applicationConfig.isHistoryArchiveEnabled()) {
+            return new DisabledTransferArchive();
+        }
+        try {
+            MappedTransferArchive transferArchive = new MappedTransferArchive(Paths.get(applicationConfig.getHistoryArchiveDir()));
+            Metrics.gauge("bankwire_transfers_archived", "Transfers moved from the heap to archive segments", transferArchive::countTransfers);
+            return transferArchive;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Transfer archive could not be opened", exception);
+        }
+    }
+
+    @Inject
+    @Provides
+    @Singleton
+    TransferDao transferDao(ApplicationConfig applicationConfig, TransferEngine transferEngine, AccountDao accountDao, Journal journal,
+                            TransferArchive transferArchive) {
+        TransferDaoImpl transferDao = new TransferDaoImpl(transferEngine, accountDao, journal, transferArchive,
+                applicationConfig.getHistoryHotTransfers(), applicationConfig.getHistorySegmentTransfers());
+        if (journal.isEnabled()) {
+            try {
+                new TransferHistoryRecovery(new JournalReader(Paths.get(applicationConfig.getJournalDir()))).recover(transferDao);
+            } catch (Exception exception) {
+                throw new IllegalStateException("Transfer history could not be recovered", exception);
+            }
+        }
+        Metrics.gauge("bankwire_transfers", "Transfers in the store", transferDao::countTransfers);
+        return transferDao;
+    }
+
+
+}
@@ -1,15 +1,28 @@
-package com.revolut.test.bankwire.context;
-
-import io.javalin.Context;
-
-public interface ContextWrapper {
-
-    String pathParam(Context context, String param);
-
-    String formParam(Context context, String param);
-
-    void json(Context context, Object object);
-
-    void json(Context context, Object object, int status);
-
-}
+package com.revolut.test.bankwire.context;
+
+import io.javalin.Context;
+
+public interface ContextWrapper {
+
+    String pathParam(Context context, String param);
+
+    String formParam(Context context, String param);
+
+    String queryParam(Context context, String param);
+
+    String header(Context context, String header);
+
+    <T> T bodyAsClass(Context context, Class<T> clazz);
+
+    void json(Context context, Object object);
+
+    void result(Context context, String result, String contentType, int status);
+
+    void json(Context context, Object object, int status);
+
+    /**
+     * Writes {"items":[...],"nextCursor":...} straight to the response stream one item at a time.
+     */
+    void jsonPage(Context context, Iterable<?> items, Object nextCursor, int status);
+
+}
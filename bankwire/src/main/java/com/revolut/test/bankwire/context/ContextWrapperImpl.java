@@ -1,26 +1,67 @@
-package com.revolut.test.bankwire.context;
-
-import io.javalin.Context;
-
-public class ContextWrapperImpl implements ContextWrapper {
-
-    @Override
-    public String pathParam(Context context, String param) {
-        return context.pathParam(param);
-    }
-
-    @Override
-    public String formParam(Context context, String param) {
-        return context.formParam(param);
-    }
-
-    @Override
-    public void json(Context context, Object object) {
-        context.json(object);
-    }
-
-    @Override
-    public void json(Context context, Object object, int status) {
-        context.status(status).json(object);
-    }
-}
+package com.revolut.test.bankwire.context;
+
+import com.revolut.test.bankwire.json.ResponseJsonWriter;
+import io.javalin.Context;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public class ContextWrapperImpl implements ContextWrapper {
+
+    private final ResponseJsonWriter jsonWriter = new ResponseJsonWriter();
+
+    @Override
+    public String pathParam(Context context, String param) {
+        return context.pathParam(param);
+    }
+
+    @Override
+    public String formParam(Context context, String param) {
+        return context.formParam(param);
+    }
+
+    @Override
+    public String queryParam(Context context, String param) {
+        return context.queryParam(param);
+    }
+
+    @Override
+    public String header(Context context, String header) {
+        return context.header(header);
+    }
+
+    @Override
+    public <T> T bodyAsClass(Context context, Class<T> clazz) {
+        return context.bodyAsClass(clazz);
+    }
+
+    @Override
+    public void json(Context context, Object object) {
+        json(context, object, 200);
+    }
+
+    @Override
+    public void result(Context context, String result, String contentType, int status) {
+        context.status(status).contentType(contentType).result(result);
+    }
+
+    @Override
+    public void json(Context context, Object object, int status) {
+        context.status(status).contentType("application/json");
+        try {
+            jsonWriter.write(object, context.res.getOutputStream());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void jsonPage(Context context, Iterable<?> items, Object nextCursor, int status) {
+        context.status(status).contentType("application/json");
+        try {
+            jsonWriter.writePage(items, nextCursor, context.res.getOutputStream());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
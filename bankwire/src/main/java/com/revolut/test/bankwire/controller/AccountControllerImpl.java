@@ -1,114 +1,159 @@
-package com.revolut.test.bankwire.controller;
-
-import com.revolut.test.bankwire.context.ContextWrapper;
-import com.revolut.test.bankwire.dto.Account;
-import com.revolut.test.bankwire.dto.AccountBuilder;
-import com.revolut.test.bankwire.dto.User;
-import com.revolut.test.bankwire.repo.AccountDao;
-import io.javalin.Context;
-import org.joda.money.CurrencyUnit;
-import org.joda.money.Money;
-
-import javax.inject.Inject;
-import java.math.BigDecimal;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
-
-public class AccountControllerImpl implements AccountController {
-
-    private AccountDao accountDao;
-
-    private ContextWrapper contextWrapper;
-
-    @Inject
-    public AccountControllerImpl(final ContextWrapper contextWrapper, final AccountDao accountDao) {
-        this.contextWrapper = contextWrapper;
-        this.accountDao = accountDao;
-    }
-
-    @Override
-    public void findByAccountNumber(final Context context) {
-
-        String accountNumber = contextWrapper.pathParam(context, "id");
-
-        Optional<Account> account = accountDao.findByAccountNumber(contextWrapper.pathParam(context, "id"));
-
-        if (account.isPresent()) {
-            contextWrapper.json(context, account.get(), 200);
-        } else {
-            contextWrapper.json(context, String.format("Account %s does not exist", accountNumber), 404);
-        }
-    }
-
-
-    @Override
-    public void findAllAccounts(Context context) {
-        // TODO Auto-generated method stub
-        List<Account> accounts = accountDao.findAllAccounts();
-        contextWrapper.json(context, accounts, 200);
-    }
-
-    @Override
-    public void createAccount(Context context) {
-        String firstName = contextWrapper.formParam(context, "firstName");
-        String lastName = contextWrapper.formParam(context, "lastName");
-        if (firstName == null || lastName == null) {
-            contextWrapper.json(context, "First Name and Last Name are Mandatory", 400);
-            return;
-        }
-
-        Optional<Account> accountOptional = createAccountObject(context);
-
-        if (!accountOptional.isPresent()) {
-            contextWrapper.json(context, "Invalid money or currency format", 400);
-            return;
-        }
-
-        try {
-            Account account = accountDao.createAccount(accountOptional.get());
-            contextWrapper.json(context, account, 200);
-        } catch (Exception exception) {
-            contextWrapper.json(context, exception.getMessage(), 500);
-        }
-
-
-    }
-
-    @Override
-    public void deleteAccount(Context context) {
-
-        String accountNumber = contextWrapper.pathParam(context, "id");
-
-        try {
-            accountDao.deleteAccount(accountNumber);
-            contextWrapper.json(context, String.format("Account %s deleted Successfully", accountNumber), 200);
-        } catch (Exception exception) {
-            contextWrapper.json(context, exception.getMessage(), 400);
-        }
-
-
-    }
-
-    private Optional<Money> parseMoney(Context context) {
-        try {
-            String money = contextWrapper.formParam(context, "money");
-            String currency = contextWrapper.formParam(context, "currencyCode");
-            return Optional.of(Money.of(CurrencyUnit.of(currency), new BigDecimal(money)));
-        } catch (Exception exception) {
-            return Optional.empty();
-        }
-    }
-
-    private Optional<Account> createAccountObject(Context context) {
-        String firstName = contextWrapper.formParam(context, "firstName");
-        String lastName = contextWrapper.formParam(context, "lastName");
-        String currency = contextWrapper.formParam(context, "currencyCode");
-
-        return parseMoney(context).map(money -> new AccountBuilder().setAccountNumber(UUID.randomUUID().toString())
-                .setMoney(money).setCurrency(CurrencyUnit.of(currency)).setUser(new User(firstName, lastName)).setCreatedDate(new Date()).createAccount());
-
-    }
-
-}
+package com.revolut.test.bankwire.controller;
+
+import com.revolut.test.bankwire.context.ContextWrapper;
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.AccountRequest;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.repo.AccountDao;
+import io.javalin.Context;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public class AccountControllerImpl implements AccountController {
+
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+
+    private static final int MAX_PAGE_LIMIT = 1000;
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private AccountDao accountDao;
+
+    private ContextWrapper contextWrapper;
+
+    @Inject
+    public AccountControllerImpl(final ContextWrapper contextWrapper, final AccountDao accountDao) {
+        this.contextWrapper = contextWrapper;
+        this.accountDao = accountDao;
+    }
+
+    @Override
+    public void findByAccountNumber(final Context context) {
+
+        String accountNumber = contextWrapper.pathParam(context, "id");
+
+        Optional<Account> account = accountDao.findByAccountNumber(contextWrapper.pathParam(context, "id"));
+
+        if (account.isPresent()) {
+            contextWrapper.json(context, account.get(), 200);
+        } else {
+            contextWrapper.json(context, String.format("Account %s does not exist", accountNumber), 404);
+        }
+    }
+
+
+    @Override
+    public void findAllAccounts(Context context) {
+        String cursor = contextWrapper.queryParam(context, "cursor");
+        CurrencyUnit currency;
+        int limit;
+        try {
+            String currencyCode = contextWrapper.queryParam(context, "currency");
+            currency = currencyCode == null ? null : CurrencyUnit.of(currencyCode);
+            limit = parseLimit(contextWrapper.queryParam(context, "limit"));
+        } catch (IllegalArgumentException exception) {
+            contextWrapper.json(context, String.format("currency must be an ISO code and limit between 1 and %d", MAX_PAGE_LIMIT), 400);
+            return;
+        }
+
+        List<Account> accounts = accountDao.findAccounts(cursor, currency, limit);
+        String nextCursor = accounts.isEmpty() ? cursor : accounts.get(accounts.size() - 1).getAccountNumber();
+        contextWrapper.jsonPage(context, accounts, nextCursor, 200);
+    }
+
+    private int parseLimit(String limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        int value = Integer.parseInt(limit);
+        if (value < 1 || value > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException(limit);
+        }
+        return value;
+    }
+
+    /**
+     * The account is sent as form parameters or, with Content-Type application/json, as one JSON object.
+     */
+    @Override
+    public void createAccount(Context context) {
+        AccountRequest request = readAccountRequest(context);
+        if (request == null) {
+            contextWrapper.json(context, "body must be a JSON account object", 400);
+            return;
+        }
+        if (request.getFirstName() == null || request.getLastName() == null) {
+            contextWrapper.json(context, "First Name and Last Name are Mandatory", 400);
+            return;
+        }
+
+        Optional<Account> accountOptional = createAccountObject(request);
+
+        if (!accountOptional.isPresent()) {
+            contextWrapper.json(context, "Invalid money or currency format", 400);
+            return;
+        }
+
+        try {
+            Account account = accountDao.createAccount(accountOptional.get());
+            contextWrapper.json(context, account, 200);
+        } catch (Exception exception) {
+            contextWrapper.json(context, exception.getMessage(), 500);
+        }
+
+
+    }
+
+    @Override
+    public void deleteAccount(Context context) {
+
+        String accountNumber = contextWrapper.pathParam(context, "id");
+
+        try {
+            accountDao.deleteAccount(accountNumber);
+            contextWrapper.json(context, String.format("Account %s deleted Successfully", accountNumber), 200);
+        } catch (Exception exception) {
+            contextWrapper.json(context, exception.getMessage(), 400);
+        }
+
+
+    }
+
+    /**
+     * Reads the account once, from the JSON body or the form parameters; null when the JSON body is not an account.
+     */
+    private AccountRequest readAccountRequest(Context context) {
+        String contentType = contextWrapper.header(context, "Content-Type");
+        if (contentType != null && contentType.startsWith(JSON_CONTENT_TYPE)) {
+            try {
+                return contextWrapper.bodyAsClass(context, AccountRequest.class);
+            } catch (Exception exception) {
+                return null;
+            }
+        }
+        return new AccountRequest(contextWrapper.formParam(context, "firstName"), contextWrapper.formParam(context, "lastName"),
+                contextWrapper.formParam(context, "money"), contextWrapper.formParam(context, "currencyCode"));
+    }
+
+    private Optional<Account> createAccountObject(AccountRequest request) {
+        CurrencyUnit currency;
+        Money money;
+        try {
+            currency = CurrencyUnit.of(request.getCurrencyCode());
+            money = Money.of(currency, new BigDecimal(request.getMoney()));
+        } catch (Exception exception) {
+            return Optional.empty();
+        }
+        return Optional.of(new AccountBuilder().setAccountNumber(UUID.randomUUID().toString())
+                .setMoney(money).setCurrency(currency).setUser(new User(request.getFirstName(), request.getLastName())).setCreatedDate(new Date()).createAccount());
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.revolut.test.bankwire.controller;
+
+import io.javalin.Context;
+
+public interface MetricsController {
+
+    void metrics(Context context);
+
+}
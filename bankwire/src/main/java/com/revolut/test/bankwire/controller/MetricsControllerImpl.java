@@ -0,0 +1,33 @@
+package com.revolut.test.bankwire.controller;
+
+import com.revolut.test.bankwire.context.ContextWrapper;
+import com.revolut.test.bankwire.metrics.Metrics;
+import io.javalin.Context;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+public class MetricsControllerImpl implements MetricsController {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private ContextWrapper contextWrapper;
+
+    @Inject
+    public MetricsControllerImpl(ContextWrapper contextWrapper) {
+        this.contextWrapper = contextWrapper;
+    }
+
+    @Override
+    public void metrics(Context context) {
+        StringWriter writer = new StringWriter();
+        try {
+            Metrics.write(writer);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        contextWrapper.result(context, writer.toString(), CONTENT_TYPE, 200);
+    }
+}
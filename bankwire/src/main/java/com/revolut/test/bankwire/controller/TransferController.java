@@ -1,13 +1,17 @@
-package com.revolut.test.bankwire.controller;
-
-import io.javalin.Context;
-
-public interface TransferController {
-
-    void findTransferById(Context context);
-
-    void getAllTransfers(Context context);
-
-    void transferMoney(Context context);
-
-}
+package com.revolut.test.bankwire.controller;
+
+import io.javalin.Context;
+
+public interface TransferController {
+
+    void findTransferById(Context context);
+
+    void getAllTransfers(Context context);
+
+    void findAccountTransfers(Context context);
+
+    void transferMoney(Context context);
+
+    void transferBatch(Context context);
+
+}
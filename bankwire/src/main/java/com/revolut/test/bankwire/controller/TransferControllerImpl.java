@@ -1,101 +1,299 @@
-package com.revolut.test.bankwire.controller;
-
-
-import com.revolut.test.bankwire.context.ContextWrapper;
-import com.revolut.test.bankwire.dto.Account;
-import com.revolut.test.bankwire.dto.Transfer;
-import com.revolut.test.bankwire.dto.TransferBuilder;
-import com.revolut.test.bankwire.repo.AccountDao;
-import com.revolut.test.bankwire.repo.TransferDao;
-import com.revolut.test.bankwire.validation.Validation;
-import io.javalin.Context;
-import org.joda.money.CurrencyUnit;
-import org.joda.money.Money;
-
-import javax.inject.Inject;
-import java.math.BigDecimal;
-import java.util.Date;
-import java.util.Optional;
-import java.util.Queue;
-import java.util.UUID;
-
-public class TransferControllerImpl implements TransferController {
-
-    private TransferDao transferDao;
-
-    private ContextWrapper contextWrapper;
-
-    private AccountDao accountDao;
-
-    @Inject
-    public TransferControllerImpl(ContextWrapper contextWrapper, TransferDao transferDao, AccountDao accountDao) {
-        this.transferDao = transferDao;
-        this.contextWrapper = contextWrapper;
-        this.accountDao = accountDao;
-    }
-
-
-    @Override
-    public void findTransferById(Context context) {
-
-        String transferId = contextWrapper.pathParam(context, "id");
-
-        Optional<Transfer> transfer = transferDao.findByTransferId(transferId);
-        if (transfer.isPresent()) {
-            contextWrapper.json(context, transfer.get(), 200);
-        } else {
-            contextWrapper.json(context, String.format("transfer with id %s not found ", transferId), 404);
-        }
-    }
-
-    @Override
-    public void getAllTransfers(Context context) {
-        Queue<Transfer> transfers = transferDao.findAllTransfers();
-        contextWrapper.json(context, transfers, 200);
-
-    }
-
-    @Override
-    public void transferMoney(Context context) {
-
-        String senderAccountNumber = contextWrapper.formParam(context, "senderAccountNumber");
-        String receiverAccountNumber = contextWrapper.formParam(context, "receiverAccountNumber");
-        String moneyStr = contextWrapper.formParam(context, "money");
-
-        try {
-            Validation.validateMoneyTransferRequestParam(senderAccountNumber, receiverAccountNumber);
-
-            Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(senderAccountNumber);
-            Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(receiverAccountNumber);
-            Validation.validateMoneyTransfer(senderAccountOptional, receiverAccountOptional);
-
-            Optional<Transfer> transferOptional = createTransferObject(context, senderAccountOptional.get().getCurrency());
-            if (!transferOptional.isPresent()) {
-                contextWrapper.json(context, String.format("Money format invalid", moneyStr), 400);
-                return;
-            }
-
-            Transfer transfer = transferDao.transferMoney(transferOptional.get());
-            contextWrapper.json(context, transfer, 200);
-
-        } catch (
-                Exception exception) {
-            contextWrapper.json(context, exception.getMessage(), 400);
-        }
-    }
-
-    private Optional<Money> parseMoney(Context context, CurrencyUnit currencyUnit) {
-        try {
-            String money = contextWrapper.formParam(context, "money");
-            return Optional.of(Money.of(currencyUnit, new BigDecimal(money)));
-        } catch (Exception exception) {
-            return Optional.empty();
-        }
-    }
-
-    private Optional<Transfer> createTransferObject(Context context, CurrencyUnit currencyUnit) {
-        String senderAccountNumber = contextWrapper.formParam(context, "senderAccountNumber");
-        String receiverAccountNumber = contextWrapper.formParam(context, "receiverAccountNumber");
-        return parseMoney(context, currencyUnit).map(money -> new TransferBuilder().setTransferId(UUID.randomUUID().toString()).setCurrency(currencyUnit).setMoney(money).setFromAccountNumber(senderAccountNumber).setToAccountNumber(receiverAccountNumber).setCreatedDate(new Date()).createTransfer());
-    }
-}
+package com.revolut.test.bankwire.controller;
+
+
+import com.revolut.test.bankwire.async.DisabledTransferSubmitter;
+import com.revolut.test.bankwire.async.TransferSubmitter;
+import com.revolut.test.bankwire.context.ContextWrapper;
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.TransferRequest;
+import com.revolut.test.bankwire.dto.TransferResult;
+import com.revolut.test.bankwire.dto.TransferStatus;
+import com.revolut.test.bankwire.exception.BatchTransferException;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.exception.IdempotencyKeyReusedException;
+import com.revolut.test.bankwire.exception.InValidMoneyFormatException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.idempotency.IdempotencyCache;
+import com.revolut.test.bankwire.idempotency.IdempotencyCacheImpl;
+import com.revolut.test.bankwire.idempotency.IdempotentResponse;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.validation.Validation;
+import io.javalin.Context;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import javax.inject.Inject;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class TransferControllerImpl implements TransferController {
+
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+
+    private static final int MAX_PAGE_LIMIT = 1000;
+
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private TransferDao transferDao;
+
+    private ContextWrapper contextWrapper;
+
+    private AccountDao accountDao;
+
+    private IdempotencyCache idempotencyCache;
+
+    private TransferSubmitter transferSubmitter;
+
+    public TransferControllerImpl(ContextWrapper contextWrapper, TransferDao transferDao, AccountDao accountDao) {
+        this(contextWrapper, transferDao, accountDao, new IdempotencyCacheImpl(100_000, TimeUnit.DAYS.toSeconds(1)), new DisabledTransferSubmitter());
+    }
+
+    @Inject
+    public TransferControllerImpl(ContextWrapper contextWrapper, TransferDao transferDao, AccountDao accountDao, IdempotencyCache idempotencyCache,
+                                  TransferSubmitter transferSubmitter) {
+        this.transferDao = transferDao;
+        this.contextWrapper = contextWrapper;
+        this.accountDao = accountDao;
+        this.idempotencyCache = idempotencyCache;
+        this.transferSubmitter = transferSubmitter;
+    }
+
+
+    @Override
+    public void findTransferById(Context context) {
+
+        String transferId = contextWrapper.pathParam(context, "id");
+
+        Optional<Transfer> transfer = transferDao.findByTransferId(transferId);
+        Optional<TransferStatus> transferStatus;
+        if (transfer.isPresent()) {
+            contextWrapper.json(context, transfer.get(), 200);
+        } else if ((transferStatus = transferSubmitter.findStatus(transferId)).isPresent()) {
+            contextWrapper.json(context, transferStatus.get(), transferStatus.get().isPending() ? 202 : 400);
+        } else {
+            contextWrapper.json(context, String.format("transfer with id %s not found ", transferId), 404);
+        }
+    }
+
+    @Override
+    public void getAllTransfers(Context context) {
+        long cursor;
+        int limit;
+        try {
+            cursor = parseCursor(contextWrapper.queryParam(context, "cursor"));
+            limit = parseLimit(contextWrapper.queryParam(context, "limit"));
+        } catch (NumberFormatException exception) {
+            contextWrapper.json(context, String.format("cursor must be a sequence number and limit between 1 and %d", MAX_PAGE_LIMIT), 400);
+            return;
+        }
+
+        List<Transfer> transfers = transferDao.findTransfers(cursor, limit);
+        long nextCursor = transfers.isEmpty() ? cursor : transfers.get(transfers.size() - 1).getSequence();
+        contextWrapper.jsonPage(context, transfers, nextCursor, 200);
+
+    }
+
+    /**
+     * Pages through the transfers the account sent or received, oldest first. The cursor is the number of the
+     * account's transfers already read.
+     */
+    @Override
+    public void findAccountTransfers(Context context) {
+        String accountNumber = contextWrapper.pathParam(context, "id");
+        long cursor;
+        int limit;
+        try {
+            cursor = parseCursor(contextWrapper.queryParam(context, "cursor"));
+            limit = parseLimit(contextWrapper.queryParam(context, "limit"));
+        } catch (NumberFormatException exception) {
+            contextWrapper.json(context, String.format("cursor must be a transfer count and limit between 1 and %d", MAX_PAGE_LIMIT), 400);
+            return;
+        }
+        if (!accountDao.findByAccountNumber(accountNumber).isPresent()) {
+            contextWrapper.json(context, String.format("Account %s does not exist", accountNumber), 404);
+            return;
+        }
+
+        List<Transfer> transfers = transferDao.findAccountTransfers(accountNumber, cursor, limit);
+        contextWrapper.jsonPage(context, transfers, cursor + transfers.size(), 200);
+    }
+
+    private long parseCursor(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        long value = Long.parseLong(cursor);
+        if (value < 0) {
+            throw new NumberFormatException(cursor);
+        }
+        return value;
+    }
+
+    private int parseLimit(String limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        int value = Integer.parseInt(limit);
+        if (value < 1 || value > MAX_PAGE_LIMIT) {
+            throw new NumberFormatException(limit);
+        }
+        return value;
+    }
+
+    /**
+     * A request carrying an Idempotency-Key header is executed once per key; retries get the stored response. With
+     * asynchronous transfers on, a valid transfer is queued and answered with 202 and its PENDING status. The transfer
+     * is sent as form parameters or, with Content-Type application/json, as one JSON object.
+     */
+    @Override
+    public void transferMoney(Context context) {
+
+        TransferRequest request = readTransferRequest(context);
+        if (request == null) {
+            contextWrapper.json(context, "body must be a JSON transfer object", 400);
+            return;
+        }
+
+        String idempotencyKey = contextWrapper.header(context, IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null) {
+            IdempotentResponse response = executeTransfer(request);
+            contextWrapper.json(context, response.getBody(), response.getStatus());
+            return;
+        }
+
+        String fingerprint = String.join("|", request.getSenderAccountNumber(), request.getReceiverAccountNumber(), request.getMoney());
+        try {
+            IdempotentResponse response = idempotencyCache.execute(idempotencyKey, fingerprint, () -> executeTransfer(request));
+            contextWrapper.json(context, response.getBody(), response.getStatus());
+        } catch (IdempotencyKeyReusedException exception) {
+            contextWrapper.json(context, exception.getMessage(), 422);
+        } catch (Exception exception) {
+            contextWrapper.json(context, exception.getMessage(), 400);
+        }
+    }
+
+    /**
+     * Reads the transfer once, from the JSON body or the form parameters; null when the JSON body is not a transfer.
+     */
+    private TransferRequest readTransferRequest(Context context) {
+        String contentType = contextWrapper.header(context, "Content-Type");
+        if (contentType != null && contentType.startsWith(JSON_CONTENT_TYPE)) {
+            try {
+                return contextWrapper.bodyAsClass(context, TransferRequest.class);
+            } catch (Exception exception) {
+                return null;
+            }
+        }
+        return new TransferRequest(contextWrapper.formParam(context, "senderAccountNumber"),
+                contextWrapper.formParam(context, "receiverAccountNumber"), contextWrapper.formParam(context, "money"));
+    }
+
+    private IdempotentResponse executeTransfer(TransferRequest request) {
+        try {
+            Transfer transfer = createTransferObject(request);
+            if (transferSubmitter.isEnabled()) {
+                return IdempotentResponse.of(202, transferSubmitter.submit(transfer));
+            }
+            return IdempotentResponse.of(200, transferDao.transferMoney(transfer));
+
+        } catch (RejectedExecutionException exception) {
+            return IdempotentResponse.retryable(503, "Transfer UnSuccessfully too many transfers queued");
+        } catch (TransferTimedOutException | ExecutionInterruptedException | UncheckedIOException exception) {
+            return IdempotentResponse.retryable(400, exception.getMessage());
+        } catch (
+                Exception exception) {
+            return IdempotentResponse.of(400, exception.getMessage());
+        }
+    }
+
+    /**
+     * Every transfer of the batch is validated before any is executed; the batch is then applied all or nothing and
+     * answered with one result per transfer, in request order.
+     */
+    @Override
+    public void transferBatch(Context context) {
+        TransferRequest[] requests;
+        try {
+            requests = contextWrapper.bodyAsClass(context, TransferRequest[].class);
+        } catch (Exception exception) {
+            requests = null;
+        }
+        if (requests == null || requests.length == 0 || requests.length > MAX_BATCH_SIZE) {
+            contextWrapper.json(context, String.format("body must be a JSON array of 1 to %d transfers", MAX_BATCH_SIZE), 400);
+            return;
+        }
+
+        List<Transfer> transfers = new ArrayList<>(requests.length);
+        String[] rejections = new String[requests.length];
+        boolean rejected = false;
+        for (int leg = 0; leg < requests.length; leg++) {
+            try {
+                transfers.add(createTransferObject(requests[leg]));
+            } catch (Exception exception) {
+                rejections[leg] = exception.getMessage();
+                rejected = true;
+            }
+        }
+        if (rejected) {
+            List<TransferResult> results = new ArrayList<>(requests.length);
+            for (int leg = 0; leg < requests.length; leg++) {
+                results.add(rejections[leg] != null ? TransferResult.rejected(leg, rejections[leg]) : TransferResult.aborted(leg, null));
+            }
+            contextWrapper.json(context, results, 400);
+            return;
+        }
+
+        List<TransferResult> results = new ArrayList<>(requests.length);
+        try {
+            List<Transfer> committed = transferDao.transferBatch(transfers);
+            for (int leg = 0; leg < committed.size(); leg++) {
+                results.add(TransferResult.committed(leg, committed.get(leg)));
+            }
+            contextWrapper.json(context, results, 200);
+        } catch (BatchTransferException exception) {
+            for (int leg = 0; leg < transfers.size(); leg++) {
+                results.add(leg == exception.getLeg() ? TransferResult.rejected(leg, exception.getMessage())
+                        : TransferResult.aborted(leg, exception.getLeg() < 0 ? exception.getMessage() : null));
+            }
+            contextWrapper.json(context, results, 400);
+        } catch (Exception exception) {
+            for (int leg = 0; leg < transfers.size(); leg++) {
+                results.add(TransferResult.aborted(leg, exception.getMessage()));
+            }
+            contextWrapper.json(context, results, 400);
+        }
+    }
+
+    private Transfer createTransferObject(TransferRequest request) throws Exception {
+        Validation.validateMoneyTransferRequestParam(request.getSenderAccountNumber(), request.getReceiverAccountNumber());
+
+        Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(request.getSenderAccountNumber());
+        Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(request.getReceiverAccountNumber());
+        Validation.validateMoneyTransfer(senderAccountOptional, receiverAccountOptional);
+
+        CurrencyUnit currencyUnit = senderAccountOptional.get().getCurrency();
+        Money money;
+        try {
+            money = Money.of(currencyUnit, new BigDecimal(request.getMoney()));
+        } catch (Exception exception) {
+            throw new InValidMoneyFormatException("Money format invalid");
+        }
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString()).setCurrency(currencyUnit).setMoney(money)
+                .setFromAccountNumber(request.getSenderAccountNumber()).setToAccountNumber(request.getReceiverAccountNumber())
+                .setCreatedDate(new Date()).createTransfer();
+    }
+}
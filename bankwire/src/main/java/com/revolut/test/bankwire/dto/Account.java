@@ -1,82 +1,230 @@
-package com.revolut.test.bankwire.dto;
-
-import org.joda.money.CurrencyUnit;
-import org.joda.money.Money;
-
-import java.util.Date;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
-
-public class Account {
-
-    private String accountNumber;
-
-    private User user;
-
-    private Money money;
-
-    private CurrencyUnit currency;
-
-    private Date createdDate;
-
-
-    private Lock lock;
-
-    public Account(String accountNumber, User user, Money money, CurrencyUnit currency, Date createdDate) {
-        this.accountNumber = accountNumber;
-        this.user = user;
-        this.money = money;
-        this.currency = currency;
-        this.createdDate = createdDate;
-        this.lock = new ReentrantLock();
-    }
-
-    public Lock getLock() {
-        return lock;
-    }
-
-    public void setLock(Lock lock) {
-        this.lock = lock;
-    }
-
-    public String getAccountNumber() {
-        return accountNumber;
-    }
-
-    public void setAccountNumber(String accountNumber) {
-        this.accountNumber = accountNumber;
-    }
-
-    public Money getMoney() {
-        return money;
-    }
-
-    public void setMoney(Money money) {
-        this.money = money;
-    }
-
-    public CurrencyUnit getCurrency() {
-        return currency;
-    }
-
-    public void setCurrency(CurrencyUnit currency) {
-        this.currency = currency;
-    }
-
-    public User getUser() {
-        return user;
-    }
-
-    public void setUser(User user) {
-        this.user = user;
-    }
-
-    public Date getCreatedDate() {
-        return createdDate;
-    }
-
-    public void setCreatedDate(Date createdDate) {
-        this.createdDate = createdDate;
-    }
-}
+package com.revolut.test.bankwire.dto;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+public class Account {
+
+    private static final AtomicLongFieldUpdater<Account> BALANCE = AtomicLongFieldUpdater.newUpdater(Account.class, "balance");
+
+    private static final AtomicReferenceFieldUpdater<Account, HotCredits> HOT_CREDITS = AtomicReferenceFieldUpdater.newUpdater(Account.class, HotCredits.class, "hotCredits");
+
+    private static final AtomicIntegerFieldUpdater<Account> CONTENTIONS = AtomicIntegerFieldUpdater.newUpdater(Account.class, "contentions");
+
+    /**
+     * Largest credit added to a hot account without its fold lock. A thread has at most one such credit between its
+     * check and its add, so all credits racing past the check together stay below the headroom.
+     */
+    private static final long HOT_CREDIT_LIMIT = 1L << 31;
+
+    private static final long HOT_HEADROOM = HOT_CREDIT_LIMIT * Integer.MAX_VALUE;
+
+    /**
+     * Highest balance a hot account is credited to; the range above it is left for credits racing past the check, so
+     * the pending credits can always be folded.
+     */
+    public static final long HOT_BALANCE_LIMIT = Long.MAX_VALUE - HOT_HEADROOM;
+
+    private String accountNumber;
+
+    private User user;
+
+    private volatile long balance;
+
+    private volatile HotCredits hotCredits;
+
+    private volatile int contentions;
+
+    private CurrencyUnit currency;
+
+    private Date createdDate;
+
+
+    private Lock lock;
+
+    public Account(String accountNumber, User user, Money money, CurrencyUnit currency, Date createdDate) {
+        this.accountNumber = accountNumber;
+        this.user = user;
+        this.balance = money == null ? 0 : money.getAmountMinorLong();
+        this.currency = currency;
+        this.createdDate = createdDate;
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * For views over accounts held outside the heap, which keep their fields and lock state in the store.
+     */
+    protected Account(String accountNumber, Lock lock) {
+        this.accountNumber = accountNumber;
+        this.lock = lock;
+    }
+
+    public Lock getLock() {
+        return lock;
+    }
+
+    public void setLock(Lock lock) {
+        this.lock = lock;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public Money getMoney() {
+        return currency == null ? null : Money.ofMinor(currency, getBalance());
+    }
+
+    public void setMoney(Money money) {
+        this.balance = money.getAmountMinorLong();
+    }
+
+    /**
+     * Balance as a count of the currency's minor unit, e.g. cents. On a hot account the pending credits are folded
+     * in first, so the figure is exact.
+     */
+    public long getBalance() {
+        HotCredits credits = hotCredits;
+        if (credits != null) {
+            credits.fold();
+        }
+        return balance;
+    }
+
+    public void setBalance(long balance) {
+        this.balance = balance;
+    }
+
+    /**
+     * Replaces the balance only if it still holds the expected value. The balance word is the whole optimistic state:
+     * an update is a function of the balance alone, so a balance that changed and came back is still safe to replace.
+     */
+    public boolean compareAndSetBalance(long expected, long updated) {
+        return BALANCE.compareAndSet(this, expected, updated);
+    }
+
+    public boolean isHot() {
+        return hotCredits != null;
+    }
+
+    /**
+     * From now on credits go to striped cells instead of the balance, so concurrent credits neither contend on the
+     * balance nor need the account lock. Returns false if the account was already hot.
+     */
+    public boolean markHot() {
+        return HOT_CREDITS.compareAndSet(this, null, new HotCredits());
+    }
+
+    /**
+     * Adds to the pending credits of a hot account; they reach the balance on the next exact read or debit. Throws
+     * ArithmeticException, crediting nothing, if the balance and the pending credits would pass HOT_BALANCE_LIMIT.
+     * Large credits, and any credit close to the limit, are checked and added under the fold lock.
+     */
+    public void addHotCredit(long amount) {
+        HotCredits credits = hotCredits;
+        if (amount <= HOT_CREDIT_LIMIT && credits.total() <= HOT_BALANCE_LIMIT - amount) {
+            credits.cells.add(amount);
+            return;
+        }
+        credits.foldLock.lock();
+        try {
+            if (Math.addExact(credits.total(), amount) > HOT_BALANCE_LIMIT) {
+                throw new ArithmeticException("long overflow");
+            }
+            credits.cells.add(amount);
+        } finally {
+            credits.foldLock.unlock();
+        }
+    }
+
+    /**
+     * Counts one more time this account was found locked while being credited, returning the new count.
+     */
+    public int recordContention() {
+        return CONTENTIONS.incrementAndGet(this);
+    }
+
+    public CurrencyUnit getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(CurrencyUnit currency) {
+        this.currency = currency;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Date createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    /**
+     * Pending credits of a hot account. Folds are serialized and take out exactly what they add to the balance, so
+     * the cells never go negative and the balance never exceeds the money really credited. Credits only pass the
+     * check while the total is at most HOT_BALANCE_LIMIT, and those racing past it fit in the headroom above, so the
+     * total never overflows and a fold always succeeds.
+     */
+    private class HotCredits {
+
+        private final LongAdder cells = new LongAdder();
+
+        private final Lock foldLock = new ReentrantLock();
+
+        /**
+         * Balance plus pending credits. The cells are read before the balance, so a concurrent fold can only make
+         * the figure too high; it saturates rather than overflows.
+         */
+        private long total() {
+            long pending = cells.sum();
+            try {
+                return Math.addExact(balance, pending);
+            } catch (ArithmeticException exception) {
+                return Long.MAX_VALUE;
+            }
+        }
+
+        private void fold() {
+            if (cells.sum() == 0) {
+                return;
+            }
+            foldLock.lock();
+            try {
+                long pending = cells.sum();
+                if (pending != 0) {
+                    while (true) {
+                        long current = balance;
+                        if (BALANCE.compareAndSet(Account.this, current, Math.addExact(current, pending))) {
+                            break;
+                        }
+                    }
+                    cells.add(-pending);
+                }
+            } finally {
+                foldLock.unlock();
+            }
+        }
+    }
+}
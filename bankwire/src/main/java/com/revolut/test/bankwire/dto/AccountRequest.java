@@ -0,0 +1,35 @@
+package com.revolut.test.bankwire.dto;
+
+public class AccountRequest {
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String money;
+
+    private final String currencyCode;
+
+    public AccountRequest(String firstName, String lastName, String money, String currencyCode) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.money = money;
+        this.currencyCode = currencyCode;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getMoney() {
+        return money;
+    }
+
+    public String getCurrencyCode() {
+        return currencyCode;
+    }
+}
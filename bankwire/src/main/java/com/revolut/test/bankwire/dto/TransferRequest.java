@@ -0,0 +1,28 @@
+package com.revolut.test.bankwire.dto;
+
+public class TransferRequest {
+
+    private final String senderAccountNumber;
+
+    private final String receiverAccountNumber;
+
+    private final String money;
+
+    public TransferRequest(String senderAccountNumber, String receiverAccountNumber, String money) {
+        this.senderAccountNumber = senderAccountNumber;
+        this.receiverAccountNumber = receiverAccountNumber;
+        this.money = money;
+    }
+
+    public String getSenderAccountNumber() {
+        return senderAccountNumber;
+    }
+
+    public String getReceiverAccountNumber() {
+        return receiverAccountNumber;
+    }
+
+    public String getMoney() {
+        return money;
+    }
+}
@@ -0,0 +1,60 @@
+package com.revolut.test.bankwire.dto;
+
+/**
+ * Outcome of one transfer of a batch.
+ */
+public class TransferResult {
+
+    public enum Status {
+        COMMITTED, REJECTED, ABORTED
+    }
+
+    private final int index;
+
+    private final Status status;
+
+    private final Transfer transfer;
+
+    private final String message;
+
+    private TransferResult(int index, Status status, Transfer transfer, String message) {
+        this.index = index;
+        this.status = status;
+        this.transfer = transfer;
+        this.message = message;
+    }
+
+    public static TransferResult committed(int index, Transfer transfer) {
+        return new TransferResult(index, Status.COMMITTED, transfer, null);
+    }
+
+    /**
+     * The transfer that failed the batch.
+     */
+    public static TransferResult rejected(int index, String message) {
+        return new TransferResult(index, Status.REJECTED, null, message);
+    }
+
+    /**
+     * A transfer that was not applied because the batch failed.
+     */
+    public static TransferResult aborted(int index, String message) {
+        return new TransferResult(index, Status.ABORTED, null, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Transfer getTransfer() {
+        return transfer;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
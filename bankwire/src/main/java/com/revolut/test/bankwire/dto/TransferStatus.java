@@ -0,0 +1,47 @@
+package com.revolut.test.bankwire.dto;
+
+/**
+ * State of a transfer submitted asynchronously that is not committed yet; committed transfers are looked up as usual.
+ */
+public class TransferStatus {
+
+    public enum Status {
+        PENDING, FAILED
+    }
+
+    private final String transferId;
+
+    private final Status status;
+
+    private final String message;
+
+    private TransferStatus(String transferId, Status status, String message) {
+        this.transferId = transferId;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static TransferStatus pending(String transferId) {
+        return new TransferStatus(transferId, Status.PENDING, null);
+    }
+
+    public static TransferStatus failed(String transferId, String message) {
+        return new TransferStatus(transferId, Status.FAILED, message);
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isPending() {
+        return status == Status.PENDING;
+    }
+}
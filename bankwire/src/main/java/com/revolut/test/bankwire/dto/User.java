@@ -1,16 +1,22 @@
-package com.revolut.test.bankwire.dto;
-
-public class User {
-
-    private String firstName;
-
-    private String lastName;
-
-
-    public User(String firstName, String lastName) {
-        this.firstName = firstName;
-        this.lastName = lastName;
-    }
-
-
-}
+package com.revolut.test.bankwire.dto;
+
+public class User {
+
+    private String firstName;
+
+    private String lastName;
+
+
+    public User(String firstName, String lastName) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+}
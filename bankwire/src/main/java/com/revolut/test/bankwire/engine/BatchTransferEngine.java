@@ -0,0 +1,19 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A transfer engine that can hold every account of a batch at once. Only these engines get the batch route.
+ */
+public interface BatchTransferEngine extends TransferEngine {
+
+    /**
+     * Applies all of the transfers or none of them. The committer is invoked for each transfer, in order, once the
+     * whole batch has been applied and while all of its accounts are still held.
+     */
+    List<Transfer> executeAll(List<Transfer> transfers, Consumer<Transfer> committer) throws Exception;
+
+}
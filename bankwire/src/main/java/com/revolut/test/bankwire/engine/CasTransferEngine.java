@@ -0,0 +1,58 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.validation.Validation;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Moves money without account locks: the sender is debited with a compare-and-set that refuses to go below zero,
+ * then the receiver is credited the same way. If the credit cannot be applied the sender is refunded; a refund that
+ * fails too is escalated as an IllegalStateException. Readers may briefly see the amount in flight between the two
+ * legs; use the ordered lock engine when both legs must become visible together.
+ */
+public class CasTransferEngine implements TransferEngine {
+
+    private final AccountDao accountDao;
+
+    public CasTransferEngine(AccountDao accountDao) {
+        this.accountDao = accountDao;
+    }
+
+    @Override
+    public Transfer execute(Transfer transfer, Consumer<Transfer> committer) throws Exception {
+        Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+        Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+        Validation.validateAccountTransfer(senderAccountOptional, receiverAccountOptional, transfer);
+        Account senderAccount = senderAccountOptional.get();
+        Account receiverAccount = receiverAccountOptional.get();
+
+        accountDao.deductAccount(senderAccount, transfer.getAmount());
+        try {
+            accountDao.creditAccount(receiverAccount, transfer.getAmount());
+        } catch (Exception exception) {
+            refund(transfer, senderAccount, exception);
+            throw exception;
+        } finally {
+            transfer.setRunning(false);
+        }
+        committer.accept(transfer);
+        return transfer;
+    }
+
+    /**
+     * A refund that fails leaves the amount debited from the sender and credited nowhere, so it must not pass for the
+     * credit failure it followed.
+     */
+    private void refund(Transfer transfer, Account senderAccount, Exception creditFailure) {
+        try {
+            accountDao.creditAccount(senderAccount, transfer.getAmount());
+        } catch (Exception refundFailure) {
+            creditFailure.addSuppressed(refundFailure);
+            throw new IllegalStateException(String.format("Transfer %s could not be refunded", transfer.getTransferId()), creditFailure);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.LatencyHistogram;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.validation.Validation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * Queues every transfer behind its sender account. Whichever thread holds the sender's lock drains up to maxBatch
+ * queued transfers and applies them under that one hold, checking the sender once per batch and the balance per
+ * transfer, so threads paying out of a busy account wait for a single combiner instead of each taking the lock.
+ * <p>
+ * While holding the sender the combiner only waits for receivers numbered above it, keeping the ordered engine's
+ * lock order. A transfer whose receiver is numbered below the sender and busy is handed back to its own thread,
+ * which runs it through the ordered engine.
+ */
+public class CombiningTransferEngine implements BatchTransferEngine {
+
+    private static final LatencyHistogram LOCK_WAIT = Metrics.histogram("bankwire_transfer_stage_seconds", "Time spent per transfer stage", "stage", "lock_wait");
+    private static final Counter LOCK_TIMEOUTS = Metrics.counter("bankwire_lock_timeouts_total", "Transfers that gave up waiting for an account", "engine", "combining");
+    private static final Counter BATCHES = Metrics.counter("bankwire_combined_batches_total", "Batches applied by a combining thread under one sender lock hold");
+    private static final Counter COMBINED = Metrics.counter("bankwire_combined_transfers_total", "Transfers applied in combined batches");
+    private static final Counter HANDED_BACK = Metrics.counter("bankwire_combined_handed_back_total", "Transfers handed back to the ordered engine because their receiver was busy");
+
+    private final AccountDao accountDao;
+    private final long timeOut;
+    private final int maxBatch;
+    private final OrderedLockTransferEngine orderedEngine;
+    private final Map<Account, Queue<Request>> queues = new ConcurrentHashMap<>();
+
+    public CombiningTransferEngine(AccountDao accountDao, long timeOut, int maxBatch) {
+        this.accountDao = accountDao;
+        this.timeOut = timeOut;
+        this.maxBatch = maxBatch;
+        this.orderedEngine = new OrderedLockTransferEngine(accountDao, timeOut);
+    }
+
+    @Override
+    public List<Transfer> executeAll(List<Transfer> transfers, Consumer<Transfer> committer) throws Exception {
+        return orderedEngine.executeAll(transfers, committer);
+    }
+
+    @Override
+    public Transfer execute(Transfer transfer, Consumer<Transfer> committer) throws Exception {
+        long start = System.nanoTime();
+        long stopTime = start + timeOut;
+        try {
+            Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+            Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+            Validation.validateAccountTransfer(senderAccountOptional, receiverAccountOptional, transfer);
+            Account senderAccount = senderAccountOptional.get();
+
+            Request request = new Request(transfer, committer, receiverAccountOptional.get(), stopTime);
+            Queue<Request> queue = queues.computeIfAbsent(senderAccount, account -> new ConcurrentLinkedQueue<>());
+            queue.add(request);
+            while (!request.ticket.isDone()) {
+                if (!acquire(senderAccount.getLock(), stopTime, request)) {
+                    break;
+                }
+                try {
+                    combine(senderAccount, queue);
+                } finally {
+                    senderAccount.getLock().unlock();
+                }
+            }
+            LOCK_WAIT.recordSince(start);
+
+            await(request);
+            if (request.handedBack) {
+                return orderedEngine.execute(transfer, committer);
+            }
+            return transfer;
+        } finally {
+            transfer.setRunning(false);
+        }
+    }
+
+    /**
+     * Returns false once the request no longer needs this thread to combine: either its ticket was cancelled, which
+     * throws, or a combiner already started it.
+     */
+    private boolean acquire(Lock lock, long stopTime, Request request) throws Exception {
+        try {
+            if (lock.tryLock(stopTime - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            if (request.ticket.cancelPending()) {
+                LOCK_TIMEOUTS.increment();
+                throw new TransferTimedOutException(String.format("Transfer UnSuccessfully %s timed out waiting for account", request.transfer.getTransferId()));
+            }
+            return false;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            if (request.ticket.cancelPending()) {
+                throw new ExecutionInterruptedException("Transfer UnSuccessfully interrupted", exception);
+            }
+            return false;
+        }
+    }
+
+    private void await(Request request) throws Exception {
+        try {
+            request.ticket.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof Exception) {
+                throw (Exception) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    private void combine(Account senderAccount, Queue<Request> queue) {
+        boolean registered = accountDao.findByAccountNumber(senderAccount.getAccountNumber()).orElse(null) == senderAccount;
+        if (!registered) {
+            queues.remove(senderAccount, queue);
+        }
+        int combined = 0;
+        Request request;
+        while (combined < maxBatch && (request = queue.poll()) != null) {
+            if (!request.ticket.start()) {
+                continue;
+            }
+            combined++;
+            try {
+                if (!registered) {
+                    throw new AccountNotFoundException("Transfer UnSuccessfully Sender Account does not exist");
+                }
+                apply(senderAccount, request);
+                request.ticket.complete(request.transfer);
+            } catch (Exception exception) {
+                request.ticket.completeExceptionally(exception);
+            }
+        }
+        if (combined > 0) {
+            BATCHES.increment();
+            COMBINED.add(combined);
+        }
+    }
+
+    private void apply(Account senderAccount, Request request) throws Exception {
+        Transfer transfer = request.transfer;
+        Account receiverAccount = request.receiverAccount;
+        boolean receiverHot = receiverAccount.isHot();
+        if (!receiverHot && !lockReceiver(senderAccount, receiverAccount, request)) {
+            request.handedBack = true;
+            HANDED_BACK.increment();
+            return;
+        }
+        try {
+            if (accountDao.findByAccountNumber(transfer.getToAccountNumber()).orElse(null) != receiverAccount) {
+                throw new AccountNotFoundException("Transfer UnSuccessfully Receiver Account does not exist");
+            }
+            accountDao.deductAccount(senderAccount, transfer.getAmount());
+            try {
+                accountDao.creditAccount(receiverAccount, transfer.getAmount());
+            } catch (Exception exception) {
+                refund(transfer, senderAccount, exception);
+                throw exception;
+            }
+            request.committer.accept(transfer);
+        } finally {
+            if (!receiverHot) {
+                receiverAccount.getLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * A refund that fails leaves the amount debited from the sender and credited nowhere, so it must not pass for the
+     * credit failure it followed.
+     */
+    private void refund(Transfer transfer, Account senderAccount, Exception creditFailure) {
+        try {
+            accountDao.creditAccount(senderAccount, transfer.getAmount());
+        } catch (Exception refundFailure) {
+            creditFailure.addSuppressed(refundFailure);
+            throw new IllegalStateException(String.format("Transfer %s could not be refunded", transfer.getTransferId()), creditFailure);
+        }
+    }
+
+    /**
+     * Waits for the receiver only when it comes after the sender in account number order; returns false when it is
+     * busy and comes before.
+     */
+    private boolean lockReceiver(Account senderAccount, Account receiverAccount, Request request) throws Exception {
+        Lock lock = receiverAccount.getLock();
+        if (lock.tryLock()) {
+            return true;
+        }
+        accountDao.recordCreditContention(receiverAccount);
+        if (receiverAccount.getAccountNumber().compareTo(senderAccount.getAccountNumber()) < 0) {
+            return false;
+        }
+        try {
+            if (lock.tryLock(request.stopTime - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Transfer UnSuccessfully interrupted", exception);
+        }
+        LOCK_TIMEOUTS.increment();
+        throw new TransferTimedOutException(String.format("Transfer UnSuccessfully %s timed out waiting for account", request.transfer.getTransferId()));
+    }
+
+    private static class Request {
+
+        private final Transfer transfer;
+
+        private final Consumer<Transfer> committer;
+
+        private final Account receiverAccount;
+
+        private final long stopTime;
+
+        private final TransferTicket ticket = new TransferTicket();
+
+        private boolean handedBack;
+
+        private Request(Transfer transfer, Consumer<Transfer> committer, Account receiverAccount, long stopTime) {
+            this.transfer = transfer;
+            this.committer = committer;
+            this.receiverAccount = receiverAccount;
+            this.stopTime = stopTime;
+        }
+    }
+}
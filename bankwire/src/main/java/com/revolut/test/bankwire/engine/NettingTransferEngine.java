@@ -0,0 +1,381 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.LatencyHistogram;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.validation.Validation;
+import org.joda.money.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Records transfers in a pending ledger and settles it every interval. A cycle locks each account it touches once, in
+ * account number order, nets the positions of the whole ledger in one parallel pass and applies each account's net
+ * in a single balance update, so a circular flow costs one lock per account per cycle instead of two per hop.
+ * <p>
+ * A transfer is only accepted while its sender's settled balance, less the transfers it already has pending, covers
+ * it. Money owed to the sender in the same cycle is not counted, so no net can take an account below zero even when
+ * other transfers of the cycle fail. Every net is checked against the locked balances before any is applied, and the
+ * transfers to an account whose balance the cycle would overflow are rejected, so a cycle is applied whole. The caller
+ * waits for its cycle, so a returned transfer has moved the money.
+ */
+public class NettingTransferEngine implements TransferEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettingTransferEngine.class);
+    private static final LatencyHistogram SETTLEMENT = Metrics.histogram("bankwire_settlement_seconds", "Time to settle one netting cycle");
+    private static final Counter TIMEOUTS = Metrics.counter("bankwire_lock_timeouts_total", "Transfers that gave up waiting for an account", "engine", "netting");
+
+    private final AccountDao accountDao;
+    private final long timeOut;
+    private final BlockingQueue<PendingTransfer> ledger = new LinkedBlockingQueue<>();
+    private final Map<Account, Position> available = new ConcurrentHashMap<>();
+    private final Lock settling = new ReentrantLock();
+    private final ScheduledExecutorService settler;
+
+    public NettingTransferEngine(AccountDao accountDao, long timeOut, long intervalNanos) {
+        this.accountDao = accountDao;
+        this.timeOut = timeOut;
+        this.settler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transfer-settlement");
+            thread.setDaemon(true);
+            return thread;
+        });
+        settler.scheduleWithFixedDelay(this::settle, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Transfer execute(Transfer transfer, Consumer<Transfer> committer) throws Exception {
+        try {
+            Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+            Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+            Validation.validateMoneyTransfer(senderAccountOptional, receiverAccountOptional);
+            Account senderAccount = senderAccountOptional.get();
+            reserve(senderAccount, transfer.getAmount());
+
+            PendingTransfer pending = new PendingTransfer(transfer, committer, senderAccount, receiverAccountOptional.get());
+            ledger.add(pending);
+            return await(pending);
+        } finally {
+            transfer.setRunning(false);
+        }
+    }
+
+    /**
+     * Settles every transfer pending so far. Runs on the settlement thread every interval.
+     */
+    public void settle() {
+        settling.lock();
+        try {
+            List<PendingTransfer> cycle = new ArrayList<>();
+            List<PendingTransfer> drained = new ArrayList<>();
+            ledger.drainTo(drained);
+            for (PendingTransfer pending : drained) {
+                if (pending.ticket.start()) {
+                    cycle.add(pending);
+                }
+            }
+            if (cycle.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                settle(cycle);
+            } catch (RuntimeException exception) {
+                LOG.error("settlement cycle failed", exception);
+                for (PendingTransfer pending : cycle) {
+                    pending.ticket.completeExceptionally(exception);
+                }
+            } finally {
+                SETTLEMENT.recordSince(start);
+            }
+        } finally {
+            settling.unlock();
+        }
+    }
+
+    public int countPending() {
+        return ledger.size();
+    }
+
+    public int countPositions() {
+        return available.size();
+    }
+
+    /**
+     * Stops the settlement thread once the transfers already pending are settled.
+     */
+    public void shutdown() {
+        settler.shutdown();
+        try {
+            settler.awaitTermination(TimeUnit.NANOSECONDS.toMillis(timeOut), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        settle();
+    }
+
+    private Transfer await(PendingTransfer pending) throws Exception {
+        try {
+            try {
+                return pending.ticket.get(timeOut, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException exception) {
+                if (pending.ticket.cancelPending()) {
+                    release(pending.sender, pending.transfer.getAmount());
+                    TIMEOUTS.increment();
+                    throw new TransferTimedOutException(String.format("Transfer UnSuccessfully %s timed out waiting for settlement", pending.transfer.getTransferId()));
+                }
+                return pending.ticket.get();
+            }
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof Exception) {
+                throw (Exception) exception.getCause();
+            }
+            throw exception;
+        } catch (InterruptedException exception) {
+            if (pending.ticket.cancelPending()) {
+                release(pending.sender, pending.transfer.getAmount());
+            }
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Transfer UnSuccessfully interrupted", exception);
+        }
+    }
+
+    private void settle(List<PendingTransfer> cycle) {
+        TreeSet<String> accountNumbers = new TreeSet<>();
+        for (PendingTransfer pending : cycle) {
+            accountNumbers.add(pending.sender.getAccountNumber());
+            accountNumbers.add(pending.receiver.getAccountNumber());
+        }
+
+        NavigableMap<String, Account> locked = new TreeMap<>();
+        try {
+            for (String accountNumber : accountNumbers) {
+                Optional<Account> account = accountDao.findByAccountNumber(accountNumber);
+                if (!account.isPresent()) {
+                    continue;
+                }
+                account.get().getLock().lock();
+                if (accountDao.findByAccountNumber(accountNumber).orElse(null) != account.get()) {
+                    account.get().getLock().unlock();
+                    continue;
+                }
+                locked.put(accountNumber, account.get());
+            }
+
+            List<PendingTransfer> settled = new ArrayList<>(cycle.size());
+            for (PendingTransfer pending : cycle) {
+                if (locked.get(pending.sender.getAccountNumber()) != pending.sender) {
+                    available.remove(pending.sender);
+                    pending.ticket.completeExceptionally(new AccountNotFoundException("Transfer UnSuccessfully Sender Account does not exist"));
+                } else if (locked.get(pending.receiver.getAccountNumber()) != pending.receiver) {
+                    available.remove(pending.receiver);
+                    release(pending.sender, pending.transfer.getAmount());
+                    pending.ticket.completeExceptionally(new AccountNotFoundException("Transfer UnSuccessfully Receiver Account does not exist"));
+                } else {
+                    settled.add(pending);
+                }
+            }
+
+            Map<Account, Net> nets = net(settled);
+            Set<Account> overflowing = overflowing(nets);
+            while (!overflowing.isEmpty()) {
+                List<PendingTransfer> fitting = new ArrayList<>(settled.size());
+                for (PendingTransfer pending : settled) {
+                    if (overflowing.contains(pending.receiver)) {
+                        release(pending.sender, pending.transfer.getAmount());
+                        pending.ticket.completeExceptionally(new ArithmeticException(String.format("Transfer UnSuccessfully Receiver Account %s balance would overflow",
+                                pending.receiver.getAccountNumber())));
+                    } else {
+                        fitting.add(pending);
+                    }
+                }
+                settled = fitting;
+                nets = net(settled);
+                overflowing = overflowing(nets);
+            }
+
+            for (Map.Entry<Account, Net> entry : nets.entrySet()) {
+                apply(entry.getKey(), entry.getValue());
+            }
+            for (PendingTransfer pending : settled) {
+                pending.committer.accept(pending.transfer);
+                pending.ticket.complete(pending.transfer);
+            }
+        } finally {
+            for (Account account : locked.descendingMap().values()) {
+                account.getLock().unlock();
+            }
+        }
+    }
+
+    private static Map<Account, Net> net(List<PendingTransfer> settled) {
+        return settled.parallelStream().collect(HashMap::new, (map, pending) -> {
+            Net senderNet = map.computeIfAbsent(pending.sender, account -> new Net());
+            senderNet.debits += pending.transfer.getAmount();
+            senderNet.transfers++;
+            map.computeIfAbsent(pending.receiver, account -> new Net()).credit(pending.transfer.getAmount());
+        }, (left, right) -> right.forEach((account, net) -> left.merge(account, net, Net::merge)));
+    }
+
+    /**
+     * Accounts whose locked balance their net would overflow. Only credits can, since the reservations keep every
+     * net from taking an account below zero; dropping the transfers to these accounts may push a sender's net up, so
+     * the caller nets again until none overflows.
+     */
+    private static Set<Account> overflowing(Map<Account, Net> nets) {
+        Set<Account> overflowing = new HashSet<>();
+        for (Map.Entry<Account, Net> entry : nets.entrySet()) {
+            Net net = entry.getValue();
+            try {
+                if (net.overflowed) {
+                    throw new ArithmeticException("long overflow");
+                }
+                Math.addExact(entry.getKey().getBalance(), net.credits - net.debits);
+            } catch (ArithmeticException exception) {
+                overflowing.add(entry.getKey());
+            }
+        }
+        return overflowing;
+    }
+
+    /**
+     * Moves the balance first and only then makes the credits available, so a concurrent acceptance may see too
+     * little money but never too much. The position is held across the move, so it is not made afresh from a balance
+     * that already has the credits.
+     */
+    private void apply(Account account, Net net) {
+        available.compute(account, (key, position) -> (position == null ? new Position(key.getBalance()) : position).hold(0, 1));
+        long amount = net.credits - net.debits;
+        boolean moved = false;
+        try {
+            if (amount > 0) {
+                accountDao.creditAccount(account, amount);
+            } else if (amount < 0) {
+                accountDao.deductAccount(account, -amount);
+            }
+            moved = true;
+        } catch (Exception exception) {
+            throw new IllegalStateException(String.format("Net of account %s could not be applied", account.getAccountNumber()), exception);
+        } finally {
+            long credits = moved ? net.credits : 0;
+            available.computeIfPresent(account, (key, position) -> position.hold(credits, -1 - net.transfers));
+        }
+    }
+
+    private void reserve(Account account, long amount) throws InSufficientAccountBalanceException {
+        long[] funds = new long[1];
+        available.compute(account, (key, position) -> {
+            Position reserved = position == null ? new Position(key.getBalance()) : position;
+            funds[0] = reserved.funds;
+            return funds[0] < amount ? reserved.hold(0, 0) : reserved.hold(-amount, 1);
+        });
+        if (funds[0] < amount) {
+            throw new InSufficientAccountBalanceException(String.format("InSufficient Account Balance %s", Money.ofMinor(account.getCurrency(), funds[0])));
+        }
+    }
+
+    private void release(Account account, long amount) {
+        available.computeIfPresent(account, (key, position) -> position.hold(amount, -1));
+    }
+
+    private static class PendingTransfer {
+
+        private final Transfer transfer;
+
+        private final Consumer<Transfer> committer;
+
+        private final Account sender;
+
+        private final Account receiver;
+
+        private final TransferTicket ticket = new TransferTicket();
+
+        private PendingTransfer(Transfer transfer, Consumer<Transfer> committer, Account sender, Account receiver) {
+            this.transfer = transfer;
+            this.committer = committer;
+            this.sender = sender;
+            this.receiver = receiver;
+        }
+    }
+
+    /**
+     * Settled balance less the pending debits of one account. It is made from the balance when a transfer or a cycle
+     * first needs it and dropped once nothing holds it, so only accounts with transfers in flight keep one; balances
+     * only move while a cycle holds the position. Only changed inside the map's compute calls, which serialize it.
+     */
+    private static class Position {
+
+        private long funds;
+
+        private int holds;
+
+        private Position(long funds) {
+            this.funds = funds;
+        }
+
+        /**
+         * Returns the position, or null to drop it once its last hold is gone.
+         */
+        private Position hold(long funds, int holds) {
+            this.funds += funds;
+            this.holds += holds;
+            return this.holds == 0 ? null : this;
+        }
+    }
+
+    private static class Net {
+
+        private long credits;
+
+        private long debits;
+
+        private int transfers;
+
+        private boolean overflowed;
+
+        private void credit(long amount) {
+            try {
+                credits = Math.addExact(credits, amount);
+            } catch (ArithmeticException exception) {
+                overflowed = true;
+            }
+        }
+
+        private Net merge(Net other) {
+            credit(other.credits);
+            debits += other.debits;
+            transfers += other.transfers;
+            overflowed |= other.overflowed;
+            return this;
+        }
+    }
+}
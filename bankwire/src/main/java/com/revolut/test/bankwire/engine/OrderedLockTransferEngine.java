@@ -0,0 +1,219 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.BatchTransferException;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.LatencyHistogram;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.validation.Validation;
+import org.joda.money.Money;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * Takes the sender and receiver locks in ascending account number order, so two transfers over the same pair of
+ * accounts can never wait on each other in a cycle. Each acquisition blocks for at most the remaining time out.
+ */
+public class OrderedLockTransferEngine implements BatchTransferEngine {
+
+    private static final LatencyHistogram LOCK_WAIT = Metrics.histogram("bankwire_transfer_stage_seconds", "Time spent per transfer stage", "stage", "lock_wait");
+    private static final Counter LOCK_TIMEOUTS = Metrics.counter("bankwire_lock_timeouts_total", "Transfers that gave up waiting for an account", "engine", "ordered");
+
+    private final long timeOut;
+    private final AccountDao accountDao;
+
+    public OrderedLockTransferEngine(AccountDao accountDao, long timeOut) {
+        this.accountDao = accountDao;
+        this.timeOut = timeOut;
+    }
+
+    @Override
+    public Transfer execute(Transfer transfer, Consumer<Transfer> committer) throws Exception {
+        long stopTime = System.nanoTime() + timeOut;
+
+        Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+        Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+        Validation.validateAccountTransfer(senderAccountOptional, receiverAccountOptional, transfer);
+        Account senderAccount = senderAccountOptional.get();
+        Account receiverAccount = receiverAccountOptional.get();
+        if (receiverAccount.isHot()) {
+            return executeToHotAccount(transfer, senderAccount, receiverAccount, stopTime, committer);
+        }
+
+        boolean senderFirst = senderAccount.getAccountNumber().compareTo(receiverAccount.getAccountNumber()) <= 0;
+        Lock firstLock = senderFirst ? senderAccount.getLock() : receiverAccount.getLock();
+        Lock secondLock = senderFirst ? receiverAccount.getLock() : senderAccount.getLock();
+
+        acquire(firstLock, stopTime, transfer.getTransferId(), senderFirst ? null : receiverAccount);
+        try {
+            if (secondLock != firstLock) {
+                acquire(secondLock, stopTime, transfer.getTransferId(), senderFirst ? receiverAccount : null);
+            }
+            try {
+                Validation.validateAccountTransfer(accountDao.findByAccountNumber(transfer.getFromAccountNumber()), accountDao.findByAccountNumber(transfer.getToAccountNumber()), transfer);
+                accountDao.deductAccount(senderAccount, transfer.getAmount());
+                try {
+                    accountDao.creditAccount(receiverAccount, transfer.getAmount());
+                } catch (Exception exception) {
+                    refund(transfer, senderAccount, exception);
+                    throw exception;
+                }
+                committer.accept(transfer);
+            } finally {
+                if (secondLock != firstLock) {
+                    secondLock.unlock();
+                }
+            }
+        } finally {
+            firstLock.unlock();
+            transfer.setRunning(false);
+        }
+        return transfer;
+    }
+
+    /**
+     * A hot receiver is credited without its lock, so only the sender is held. The receiver may be deleted between
+     * the check and the credit, in which case the sender is refunded.
+     */
+    private Transfer executeToHotAccount(Transfer transfer, Account senderAccount, Account receiverAccount, long stopTime, Consumer<Transfer> committer) throws Exception {
+        acquire(senderAccount.getLock(), stopTime, transfer.getTransferId(), null);
+        try {
+            Validation.validateAccountTransfer(accountDao.findByAccountNumber(transfer.getFromAccountNumber()), accountDao.findByAccountNumber(transfer.getToAccountNumber()), transfer);
+            accountDao.deductAccount(senderAccount, transfer.getAmount());
+            try {
+                accountDao.creditAccount(receiverAccount, transfer.getAmount());
+            } catch (Exception exception) {
+                refund(transfer, senderAccount, exception);
+                throw exception;
+            }
+            committer.accept(transfer);
+        } finally {
+            senderAccount.getLock().unlock();
+            transfer.setRunning(false);
+        }
+        return transfer;
+    }
+
+    /**
+     * Takes every account of the batch in one pass in ascending account number order, checks the whole batch against
+     * running balances so a transfer may spend money credited by an earlier one, and only then applies it.
+     */
+    @Override
+    public List<Transfer> executeAll(List<Transfer> transfers, Consumer<Transfer> committer) throws Exception {
+        long stopTime = System.nanoTime() + timeOut;
+
+        NavigableMap<String, Account> accounts = new TreeMap<>();
+        for (int leg = 0; leg < transfers.size(); leg++) {
+            Transfer transfer = transfers.get(leg);
+            try {
+                Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+                Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+                Validation.validateMoneyTransfer(senderAccountOptional, receiverAccountOptional);
+                accounts.put(transfer.getFromAccountNumber(), senderAccountOptional.get());
+                accounts.put(transfer.getToAccountNumber(), receiverAccountOptional.get());
+            } catch (Exception exception) {
+                throw new BatchTransferException(exception.getMessage(), exception, leg);
+            }
+        }
+
+        List<Lock> locks = new ArrayList<>(accounts.size());
+        try {
+            for (Account account : accounts.values()) {
+                acquire(account.getLock(), stopTime, transfers.get(0).getTransferId(), null);
+                locks.add(account.getLock());
+            }
+
+            Map<String, Long> balances = new HashMap<>();
+            for (int leg = 0; leg < transfers.size(); leg++) {
+                Transfer transfer = transfers.get(leg);
+                try {
+                    Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+                    Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+                    Validation.validateMoneyTransfer(senderAccountOptional, receiverAccountOptional);
+                    if (!senderAccountOptional.get().equals(accounts.get(transfer.getFromAccountNumber()))
+                            || !receiverAccountOptional.get().equals(accounts.get(transfer.getToAccountNumber()))) {
+                        throw new AccountNotFoundException("Transfer UnSuccessfully Account was replaced");
+                    }
+                    long senderBalance = balances.getOrDefault(transfer.getFromAccountNumber(), senderAccountOptional.get().getBalance());
+                    if (senderBalance < transfer.getAmount()) {
+                        throw new InSufficientAccountBalanceException(String.format("InSufficient Account Balance %s",
+                                Money.ofMinor(senderAccountOptional.get().getCurrency(), senderBalance)));
+                    }
+                    long receiverBalance = balances.getOrDefault(transfer.getToAccountNumber(), receiverAccountOptional.get().getBalance());
+                    balances.put(transfer.getFromAccountNumber(), senderBalance - transfer.getAmount());
+                    balances.put(transfer.getToAccountNumber(), Math.addExact(receiverBalance, transfer.getAmount()));
+                } catch (Exception exception) {
+                    throw new BatchTransferException(exception.getMessage(), exception, leg);
+                }
+            }
+
+            for (Transfer transfer : transfers) {
+                accountDao.deductAccount(accounts.get(transfer.getFromAccountNumber()), transfer.getAmount());
+                accountDao.creditAccount(accounts.get(transfer.getToAccountNumber()), transfer.getAmount());
+            }
+            for (Transfer transfer : transfers) {
+                committer.accept(transfer);
+            }
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+            for (Transfer transfer : transfers) {
+                transfer.setRunning(false);
+            }
+        }
+        return transfers;
+    }
+
+    /**
+     * A refund that fails leaves the amount debited from the sender and credited nowhere, so it must not pass for the
+     * credit failure it followed.
+     */
+    private void refund(Transfer transfer, Account senderAccount, Exception creditFailure) {
+        try {
+            accountDao.creditAccount(senderAccount, transfer.getAmount());
+        } catch (Exception refundFailure) {
+            creditFailure.addSuppressed(refundFailure);
+            throw new IllegalStateException(String.format("Transfer %s could not be refunded", transfer.getTransferId()), creditFailure);
+        }
+    }
+
+    /**
+     * When the lock belongs to the receiver, finding it taken is reported as credit contention.
+     */
+    private void acquire(Lock lock, long stopTime, String transferId, Account receiverAccount) throws Exception {
+        long start = System.nanoTime();
+        try {
+            if (receiverAccount != null) {
+                if (lock.tryLock()) {
+                    return;
+                }
+                accountDao.recordCreditContention(receiverAccount);
+            }
+            if (!lock.tryLock(stopTime - start, TimeUnit.NANOSECONDS)) {
+                LOCK_TIMEOUTS.increment();
+                throw new TransferTimedOutException(String.format("Transfer UnSuccessfully %s timed out waiting for account", transferId));
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Transfer UnSuccessfully interrupted", exception);
+        } finally {
+            LOCK_WAIT.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.validation.Validation;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Routes every transfer to the single thread that owns the sender account's partition. Balances are only ever
+ * written by the owning partition thread, so no account lock is taken. When the receiver lives on another
+ * partition the sender partition debits and hands a credit leg to the receiver partition, which hands a refund
+ * back to the sender partition if the credit cannot be applied; a refund that fails too is escalated as an
+ * IllegalStateException.
+ */
+public class PartitionedTransferEngine implements TransferEngine {
+
+    private static final int IDLE_SPINS = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Counter TIMEOUTS = Metrics.counter("bankwire_lock_timeouts_total", "Transfers that gave up waiting for an account", "engine", "partitioned");
+
+    private final AccountDao accountDao;
+    private final long timeOut;
+    private final Partition[] partitions;
+
+    public PartitionedTransferEngine(AccountDao accountDao, long timeOut, int partitionCount, int ringSize) {
+        this.accountDao = accountDao;
+        this.timeOut = timeOut;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, ringSize);
+        }
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+    }
+
+    @Override
+    public Transfer execute(Transfer transfer, Consumer<Transfer> committer) throws Exception {
+        TransferTicket ticket = submit(transfer, committer);
+        try {
+            try {
+                return ticket.get(timeOut, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException exception) {
+                if (ticket.cancelPending()) {
+                    TIMEOUTS.increment();
+                    throw new TransferTimedOutException(String.format("Transfer UnSuccessfully %s timed out waiting for account", transfer.getTransferId()));
+                }
+                return ticket.get();
+            }
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof Exception) {
+                throw (Exception) exception.getCause();
+            }
+            throw exception;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Transfer UnSuccessfully interrupted", exception);
+        }
+    }
+
+    public TransferTicket submit(Transfer transfer, Consumer<Transfer> committer) {
+        TransferTicket ticket = new TransferTicket();
+        try {
+            Validation.validateMoneyTransferRequestParam(transfer.getFromAccountNumber(), transfer.getToAccountNumber());
+        } catch (Exception exception) {
+            ticket.completeExceptionally(exception);
+            return ticket;
+        }
+
+        Partition partition = partitionOf(transfer.getFromAccountNumber());
+        long sequence = partition.ring.claim();
+        TransferCommand command = partition.ring.get(sequence);
+        command.transfer = transfer;
+        command.committer = committer;
+        command.ticket = ticket;
+        partition.ring.publish(sequence);
+        partition.wake();
+        return ticket;
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    public void shutdown() {
+        for (Partition partition : partitions) {
+            partition.running = false;
+            LockSupport.unpark(partition.thread);
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.thread.join(TimeUnit.NANOSECONDS.toMillis(timeOut));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Partition partitionOf(String accountNumber) {
+        return partitions[(accountNumber.hashCode() & Integer.MAX_VALUE) % partitions.length];
+    }
+
+    private static class TransferCommand {
+
+        private Transfer transfer;
+
+        private Consumer<Transfer> committer;
+
+        private TransferTicket ticket;
+
+        private void clear() {
+            transfer = null;
+            committer = null;
+            ticket = null;
+        }
+    }
+
+    private class Partition implements Runnable {
+
+        private final RingBuffer<TransferCommand> ring;
+        private final Queue<Runnable> legs = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile boolean sleeping;
+
+        private Partition(int index, int ringSize) {
+            this.ring = new RingBuffer<>(ringSize, TransferCommand::new);
+            this.thread = new Thread(this, "transfer-partition-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                if (drain()) {
+                    idle = 0;
+                } else if (++idle > IDLE_SPINS) {
+                    sleeping = true;
+                    if (legs.isEmpty() && ring.isEmpty()) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    sleeping = false;
+                }
+            }
+        }
+
+        private boolean drain() {
+            boolean worked = false;
+            Runnable leg;
+            while ((leg = legs.poll()) != null) {
+                leg.run();
+                worked = true;
+            }
+            TransferCommand command = ring.peek();
+            if (command != null) {
+                Transfer transfer = command.transfer;
+                Consumer<Transfer> committer = command.committer;
+                TransferTicket ticket = command.ticket;
+                command.clear();
+                ring.release();
+                debit(transfer, committer, ticket);
+                worked = true;
+            }
+            return worked;
+        }
+
+        private void wake() {
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void handOff(Runnable leg) {
+            legs.add(leg);
+            wake();
+        }
+
+        private void debit(Transfer transfer, Consumer<Transfer> committer, TransferTicket ticket) {
+            if (!ticket.start()) {
+                return;
+            }
+            try {
+                Optional<Account> senderAccount = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+                Optional<Account> receiverAccount = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+                Validation.validateAccountTransfer(senderAccount, receiverAccount, transfer);
+                accountDao.deductAccount(senderAccount.get(), transfer.getAmount());
+
+                Partition receiverPartition = partitionOf(transfer.getToAccountNumber());
+                if (receiverPartition == this) {
+                    credit(transfer, committer, ticket);
+                } else {
+                    receiverPartition.handOff(() -> receiverPartition.credit(transfer, committer, ticket));
+                }
+            } catch (Exception exception) {
+                ticket.completeExceptionally(exception);
+            }
+        }
+
+        /**
+         * Every failure to credit is refunded on the sender partition, which was debited already. A committer that
+         * throws has reversed both legs itself, so its failure is only reported.
+         */
+        private void credit(Transfer transfer, Consumer<Transfer> committer, TransferTicket ticket) {
+            try {
+                Optional<Account> receiverAccount = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+                if (!receiverAccount.isPresent()) {
+                    throw new AccountNotFoundException("Transfer UnSuccessfully Receiver Account does not exist");
+                }
+                accountDao.creditAccount(receiverAccount.get(), transfer.getAmount());
+            } catch (Exception exception) {
+                Partition senderPartition = partitionOf(transfer.getFromAccountNumber());
+                senderPartition.handOff(() -> senderPartition.refund(transfer, ticket, exception));
+                return;
+            }
+            try {
+                committer.accept(transfer);
+                transfer.setRunning(false);
+                ticket.complete(transfer);
+            } catch (Exception exception) {
+                ticket.completeExceptionally(exception);
+            }
+        }
+
+        /**
+         * A refund that fails leaves the amount debited from the sender and credited nowhere, so it must not pass for the
+         * credit failure it followed.
+         */
+        private void refund(Transfer transfer, TransferTicket ticket, Exception creditFailure) {
+            try {
+                Optional<Account> senderAccount = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+                if (!senderAccount.isPresent()) {
+                    throw new AccountNotFoundException("Transfer UnSuccessfully Sender Account does not exist");
+                }
+                accountDao.creditAccount(senderAccount.get(), transfer.getAmount());
+            } catch (Exception refundFailure) {
+                creditFailure.addSuppressed(refundFailure);
+                ticket.completeExceptionally(new IllegalStateException(String.format("Transfer %s could not be refunded", transfer.getTransferId()), creditFailure));
+                return;
+            }
+            ticket.completeExceptionally(creditFailure);
+        }
+    }
+}
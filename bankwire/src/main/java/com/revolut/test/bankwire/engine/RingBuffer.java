@@ -0,0 +1,73 @@
+package com.revolut.test.bankwire.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Bounded multi-producer, single-consumer ring of pre-allocated slots. Producers claim a sequence, fill the slot it
+ * maps to and publish it; the single consumer reads published slots in sequence order and releases them for reuse.
+ */
+public class RingBuffer<T> {
+
+    private static final long CLAIM_BACK_OFF_NANOS = 1_000;
+
+    private final Object[] slots;
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private final int mask;
+    private volatile long head;
+
+    public RingBuffer(int capacity, Supplier<T> slotFactory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(String.format("Ring capacity %d must be a power of two", capacity));
+        }
+        this.slots = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = slotFactory.get();
+            published.set(i, i - capacity);
+        }
+    }
+
+    public long claim() {
+        long sequence = tail.getAndIncrement();
+        while (sequence - head >= slots.length) {
+            LockSupport.parkNanos(CLAIM_BACK_OFF_NANOS);
+        }
+        return sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Returns the next published slot for the consumer, or null when the producers have not caught up.
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        long sequence = head;
+        int index = (int) sequence & mask;
+        return published.get(index) == sequence ? (T) slots[index] : null;
+    }
+
+    public void release() {
+        head = head + 1;
+    }
+
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
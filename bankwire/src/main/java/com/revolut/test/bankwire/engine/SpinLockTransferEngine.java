@@ -0,0 +1,111 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.LatencyHistogram;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.validation.Validation;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Try-locks the sender and the receiver and backs off for a random delay when either is taken. A hot receiver is
+ * credited without its lock, with the sender refunded if the receiver disappeared.
+ */
+public class SpinLockTransferEngine implements BatchTransferEngine {
+
+    private static final Random random = new Random();
+    private static final long FIXED_DELAY = 1;
+    private static final long RANDOM_DELAY = 2;
+    private static final LatencyHistogram LOCK_WAIT = Metrics.histogram("bankwire_transfer_stage_seconds", "Time spent per transfer stage", "stage", "lock_wait");
+    private static final Counter LOCK_RETRIES = Metrics.counter("bankwire_lock_retries_total", "Attempts that failed to try-lock both accounts", "engine", "spin");
+    private static final Counter LOCK_TIMEOUTS = Metrics.counter("bankwire_lock_timeouts_total", "Transfers that gave up waiting for an account", "engine", "spin");
+    private final long timeOut;
+    private final AccountDao accountDao;
+    private final OrderedLockTransferEngine batchEngine;
+
+    public SpinLockTransferEngine(AccountDao accountDao, long timeOut) {
+        this.accountDao = accountDao;
+        this.timeOut = timeOut;
+        this.batchEngine = new OrderedLockTransferEngine(accountDao, timeOut);
+    }
+
+    /**
+     * Batches take the same account locks in account number order; single transfers only ever try-lock, so the two
+     * can run side by side without deadlocking.
+     */
+    @Override
+    public List<Transfer> executeAll(List<Transfer> transfers, Consumer<Transfer> committer) throws Exception {
+        return batchEngine.executeAll(transfers, committer);
+    }
+
+    @Override
+    public Transfer execute(Transfer transfer, Consumer<Transfer> committer) throws Exception {
+
+        long start = System.nanoTime();
+        long stopTime = start + timeOut;
+        while (transfer.isRunning()) {
+
+            Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
+            Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
+            Validation.validateAccountTransfer(senderAccountOptional, receiverAccountOptional, transfer);
+            Account senderAccount = senderAccountOptional.get();
+            Account receiverAccount = receiverAccountOptional.get();
+
+            if (senderAccount.getLock().tryLock()) {
+                try {
+                    boolean receiverHot = receiverAccount.isHot();
+                    if (receiverHot || receiverAccount.getLock().tryLock()) {
+                        LOCK_WAIT.recordSince(start);
+                        try {
+                            Validation.validateAccountTransfer(accountDao.findByAccountNumber(transfer.getFromAccountNumber()), accountDao.findByAccountNumber(transfer.getToAccountNumber()), transfer);
+                            accountDao.deductAccount(senderAccount, transfer.getAmount());
+                            try {
+                                accountDao.creditAccount(receiverAccount, transfer.getAmount());
+                            } catch (Exception exception) {
+                                accountDao.creditAccount(senderAccount, transfer.getAmount());
+                                throw exception;
+                            }
+                            committer.accept(transfer);
+                            transfer.setRunning(false);
+                        } finally {
+                            if (!receiverHot) {
+                                receiverAccount.getLock().unlock();
+                            }
+                        }
+                    } else {
+                        accountDao.recordCreditContention(receiverAccount);
+                    }
+                } finally {
+                    senderAccount.getLock().unlock();
+                }
+            }
+
+
+            if (!transfer.isRunning()) {
+                break;
+            }
+            LOCK_RETRIES.increment();
+
+            if (System.nanoTime() > stopTime) {
+                LOCK_WAIT.recordSince(start);
+                LOCK_TIMEOUTS.increment();
+                transfer.setRunning(false);
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(FIXED_DELAY + random.nextLong() % RANDOM_DELAY);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(exception);
+            }
+        }
+        return transfer;
+    }
+}
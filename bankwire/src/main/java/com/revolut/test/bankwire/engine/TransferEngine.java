@@ -0,0 +1,15 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.util.function.Consumer;
+
+public interface TransferEngine {
+
+    /**
+     * Moves the money of the given transfer between the two accounts. The committer is invoked exactly once,
+     * while both legs are still held, once the transfer has been applied.
+     */
+    Transfer execute(Transfer transfer, Consumer<Transfer> committer) throws Exception;
+
+}
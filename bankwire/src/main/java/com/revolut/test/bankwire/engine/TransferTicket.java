@@ -0,0 +1,33 @@
+package com.revolut.test.bankwire.engine;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Result of a transfer handed to an asynchronous engine. A pending ticket is either started by the engine or
+ * cancelled by the caller, never both, so a caller that gave up waiting knows no money moved.
+ */
+public class TransferTicket extends CompletableFuture<Transfer> {
+
+    private static final int PENDING = 0;
+    private static final int STARTED = 1;
+    private static final int CANCELLED = 2;
+
+    private static final AtomicIntegerFieldUpdater<TransferTicket> STATE = AtomicIntegerFieldUpdater.newUpdater(TransferTicket.class, "state");
+
+    private volatile int state = PENDING;
+
+    public boolean start() {
+        return STATE.compareAndSet(this, PENDING, STARTED);
+    }
+
+    public boolean cancelPending() {
+        if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+            cancel(false);
+            return true;
+        }
+        return false;
+    }
+}
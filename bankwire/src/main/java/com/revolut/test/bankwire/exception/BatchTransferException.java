@@ -0,0 +1,46 @@
+package com.revolut.test.bankwire.exception;
+
+public class BatchTransferException extends Exception {
+
+    private int leg = -1;
+
+    public BatchTransferException() {
+        super();
+        // TODO Auto-generated constructor stub
+    }
+
+    public BatchTransferException(String message, Throwable cause, boolean enableSuppression,
+                                  boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+        // TODO Auto-generated constructor stub
+    }
+
+    public BatchTransferException(String message, Throwable cause) {
+        super(message, cause);
+        // TODO Auto-generated constructor stub
+    }
+
+    public BatchTransferException(String message) {
+        super(message);
+        // TODO Auto-generated constructor stub
+    }
+
+    public BatchTransferException(Throwable cause) {
+        super(cause);
+        // TODO Auto-generated constructor stub
+    }
+
+    public BatchTransferException(String message, Throwable cause, int leg) {
+        super(message, cause);
+        this.leg = leg;
+    }
+
+    /**
+     * Index of the transfer that failed the batch, or -1 when the batch failed as a whole.
+     */
+    public int getLeg() {
+        return leg;
+    }
+
+
+}
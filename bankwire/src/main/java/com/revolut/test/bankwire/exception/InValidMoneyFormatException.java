@@ -1,32 +1,32 @@
-package com.revolut.test.bankwire.exception;
-
-public class InValidMoneyFormatException extends Exception {
-
-    public InValidMoneyFormatException() {
-        super();
-        // TODO Auto-generated constructor stub
-    }
-
-    public InValidMoneyFormatException(String message, Throwable cause, boolean enableSuppression,
-                                       boolean writableStackTrace) {
-        super(message, cause, enableSuppression, writableStackTrace);
-        // TODO Auto-generated constructor stub
-    }
-
-    public InValidMoneyFormatException(String message, Throwable cause) {
-        super(message, cause);
-        // TODO Auto-generated constructor stub
-    }
-
-    public InValidMoneyFormatException(String message) {
-        super(message);
-        // TODO Auto-generated constructor stub
-    }
-
-    public InValidMoneyFormatException(Throwable cause) {
-        super(cause);
-        // TODO Auto-generated constructor stub
-    }
-
-
-}
+package com.revolut.test.bankwire.exception;
+
+public class InValidMoneyFormatException extends Exception {
+
+    public InValidMoneyFormatException() {
+        super();
+        // TODO Auto-generated constructor stub
+    }
+
+    public InValidMoneyFormatException(String message, Throwable cause, boolean enableSuppression,
+                                       boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+        // TODO Auto-generated constructor stub
+    }
+
+    public InValidMoneyFormatException(String message, Throwable cause) {
+        super(message, cause);
+        // TODO Auto-generated constructor stub
+    }
+
+    public InValidMoneyFormatException(String message) {
+        super(message);
+        // TODO Auto-generated constructor stub
+    }
+
+    public InValidMoneyFormatException(Throwable cause) {
+        super(cause);
+        // TODO Auto-generated constructor stub
+    }
+
+
+}
@@ -0,0 +1,32 @@
+package com.revolut.test.bankwire.exception;
+
+public class TransferTimedOutException extends Exception {
+
+    public TransferTimedOutException() {
+        super();
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferTimedOutException(String message, Throwable cause, boolean enableSuppression,
+                                     boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferTimedOutException(String message, Throwable cause) {
+        super(message, cause);
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferTimedOutException(String message) {
+        super(message);
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferTimedOutException(Throwable cause) {
+        super(cause);
+        // TODO Auto-generated constructor stub
+    }
+
+
+}
@@ -1,32 +1,32 @@
-package com.revolut.test.bankwire.exception;
-
-public class TransferToSameAccountException extends Exception {
-
-    public TransferToSameAccountException() {
-        super();
-        // TODO Auto-generated constructor stub
-    }
-
-    public TransferToSameAccountException(String message, Throwable cause, boolean enableSuppression,
-                                          boolean writableStackTrace) {
-        super(message, cause, enableSuppression, writableStackTrace);
-        // TODO Auto-generated constructor stub
-    }
-
-    public TransferToSameAccountException(String message, Throwable cause) {
-        super(message, cause);
-        // TODO Auto-generated constructor stub
-    }
-
-    public TransferToSameAccountException(String message) {
-        super(message);
-        // TODO Auto-generated constructor stub
-    }
-
-    public TransferToSameAccountException(Throwable cause) {
-        super(cause);
-        // TODO Auto-generated constructor stub
-    }
-
-
-}
+package com.revolut.test.bankwire.exception;
+
+public class TransferToSameAccountException extends Exception {
+
+    public TransferToSameAccountException() {
+        super();
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferToSameAccountException(String message, Throwable cause, boolean enableSuppression,
+                                          boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferToSameAccountException(String message, Throwable cause) {
+        super(message, cause);
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferToSameAccountException(String message) {
+        super(message);
+        // TODO Auto-generated constructor stub
+    }
+
+    public TransferToSameAccountException(Throwable cause) {
+        super(cause);
+        // TODO Auto-generated constructor stub
+    }
+
+
+}
@@ -0,0 +1,54 @@
+package com.revolut.test.bankwire.history;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class DisabledTransferArchive implements TransferArchive {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public long getLastSequence() {
+        return 0;
+    }
+
+    @Override
+    public void archive(List<Transfer> transfers) {
+        throw new UnsupportedOperationException("Transfer archive is disabled");
+    }
+
+    @Override
+    public Optional<Transfer> findByTransferId(String transferId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transfer> findTransfers(long afterSequence, int limit) {
+        return new ArrayList<>(0);
+    }
+
+    @Override
+    public long countAccountTransfers(String accountNumber) {
+        return 0;
+    }
+
+    @Override
+    public List<Transfer> findAccountTransfers(String accountNumber, long offset, int limit) {
+        return new ArrayList<>(0);
+    }
+
+    @Override
+    public long countTransfers() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+    }
+}
@@ -0,0 +1,273 @@
+package com.revolut.test.bankwire.history;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps archived transfers in immutable memory-mapped segment files named after the first and last sequence they
+ * hold. Each archived batch becomes a segment; once the newest MERGE_SEGMENTS segments are of a similar size they are
+ * merged into one, up to MERGE_LIMIT transfers, so the number of segments to search and of mappings grows with the
+ * logarithm of the history rather than with it. Lookups by transfer id or account skip the segments whose filter rules
+ * the key out. Readers take no lock; a new batch or merge is published by swapping a single immutable state.
+ * <p>
+ * Segments are durable once archived, so the archive opens with the segments left by the previous run and its
+ * sequence continues from theirs; a segment that was still being written, or already merged into another, is
+ * deleted.
+ */
+public class MappedTransferArchive implements TransferArchive {
+
+    static final String SEGMENT_SUFFIX = ".transfers";
+
+    static final int MERGE_SEGMENTS = 4;
+
+    static final int MERGE_LIMIT = 1 << 22;
+
+    private static final State EMPTY = new State(new TransferSegment[0], 0, 0);
+
+    private final Path directory;
+
+    private volatile State state = EMPTY;
+
+    public MappedTransferArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        openSegments();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long getLastSequence() {
+        return state.lastSequence;
+    }
+
+    @Override
+    public synchronized void archive(List<Transfer> transfers) throws IOException {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        State current = state;
+        long firstSequence = transfers.get(0).getSequence();
+        if (firstSequence <= current.lastSequence) {
+            throw new IllegalArgumentException(String.format("Transfer %d is already archived", firstSequence));
+        }
+        TransferSegment segment = TransferSegment.write(segmentFile(firstSequence, firstSequence + transfers.size() - 1), transfers);
+        TransferSegment[] segments = Arrays.copyOf(current.segments, current.segments.length + 1);
+        segments[segments.length - 1] = segment;
+        state = new State(segments, segment.lastSequence(), current.count + segment.count());
+        merge();
+    }
+
+    /**
+     * Merges the newest MERGE_SEGMENTS segments while none is more than twice the size of another, so equal batches
+     * are merged into segments MERGE_SEGMENTS times their size, and those again.
+     */
+    private void merge() throws IOException {
+        while (true) {
+            State current = state;
+            if (current.segments.length < MERGE_SEGMENTS) {
+                return;
+            }
+            List<TransferSegment> sources = Arrays.asList(current.segments).subList(current.segments.length - MERGE_SEGMENTS, current.segments.length);
+            long count = 0;
+            int smallest = Integer.MAX_VALUE;
+            int largest = 0;
+            for (TransferSegment source : sources) {
+                count += source.count();
+                smallest = Math.min(smallest, source.count());
+                largest = Math.max(largest, source.count());
+            }
+            if (largest > 2L * smallest || count > MERGE_LIMIT || TransferSegment.mergedBytes(sources) > Integer.MAX_VALUE) {
+                return;
+            }
+            TransferSegment merged = TransferSegment.merge(segmentFile(sources.get(0).firstSequence(),
+                    sources.get(sources.size() - 1).lastSequence()), sources);
+            TransferSegment[] segments = Arrays.copyOf(current.segments, current.segments.length - MERGE_SEGMENTS + 1);
+            segments[segments.length - 1] = merged;
+            state = new State(segments, current.lastSequence, current.count);
+            for (TransferSegment source : sources) {
+                try {
+                    Files.deleteIfExists(source.file());
+                } catch (IOException exception) {
+                    // still mapped where the platform forbids deleting it; the merged segment covers it on the next open
+                }
+            }
+        }
+    }
+
+    @Override
+    public Optional<Transfer> findByTransferId(String transferId) {
+        long hash = TransferSegment.transferIdHash(transferId);
+        TransferSegment[] segments = state.segments;
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (!segments[i].mightContain(hash)) {
+                continue;
+            }
+            Transfer transfer = segments[i].findByTransferId(transferId);
+            if (transfer != null) {
+                return Optional.of(transfer);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transfer> findTransfers(long afterSequence, int limit) {
+        List<Transfer> page = new ArrayList<>(Math.min(limit, 1024));
+        TransferSegment[] segments = state.segments;
+        int low = 0;
+        int high = segments.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segments[middle].lastSequence() > afterSequence) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        for (int i = low; i < segments.length && page.size() < limit; i++) {
+            page.addAll(segments[i].after(afterSequence, limit - page.size()));
+        }
+        return page;
+    }
+
+    @Override
+    public long countAccountTransfers(String accountNumber) {
+        long hash = TransferSegment.accountHash(accountNumber);
+        long count = 0;
+        for (TransferSegment segment : state.segments) {
+            if (segment.mightContain(hash)) {
+                count += segment.countAccountTransfers(accountNumber);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Transfer> findAccountTransfers(String accountNumber, long offset, int limit) {
+        long hash = TransferSegment.accountHash(accountNumber);
+        List<Transfer> page = new ArrayList<>(Math.min(limit, 1024));
+        for (TransferSegment segment : state.segments) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (!segment.mightContain(hash)) {
+                continue;
+            }
+            int count = segment.countAccountTransfers(accountNumber);
+            if (offset >= count) {
+                offset -= count;
+                continue;
+            }
+            page.addAll(segment.accountTransfers(accountNumber, (int) offset, limit - page.size()));
+            offset = 0;
+        }
+        return page;
+    }
+
+    @Override
+    public long countTransfers() {
+        return state.count;
+    }
+
+    @Override
+    public synchronized void clear() throws IOException {
+        state = EMPTY;
+        deleteSegments();
+    }
+
+    private Path segmentFile(long firstSequence, long lastSequence) {
+        return directory.resolve(String.format("%020d-%020d%s", firstSequence, lastSequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Opens the segments in sequence order, a merged segment before the ones it was merged from, which are deleted
+     * without being mapped.
+     */
+    private void openSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listed = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) listed::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX + TransferSegment.TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    if (sequence(file, 0) < 0 || sequence(file, 1) < 0) {
+                        throw new IOException(String.format("Transfer segment %s is not named after its sequences", name));
+                    }
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong((Path file) -> sequence(file, 0)).thenComparing(file -> -sequence(file, 1)));
+        State current = EMPTY;
+        for (Path file : files) {
+            if (sequence(file, 1) <= current.lastSequence) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            TransferSegment segment = TransferSegment.open(file);
+            if (segment.firstSequence() != sequence(file, 0) || segment.lastSequence() != sequence(file, 1)) {
+                throw new IOException(String.format("Transfer segment %s does not hold the sequences it is named after", file.getFileName()));
+            }
+            if (segment.firstSequence() <= current.lastSequence) {
+                throw new IOException(String.format("Transfer segment %s overlaps the segments before it", file.getFileName()));
+            }
+            TransferSegment[] segments = Arrays.copyOf(current.segments, current.segments.length + 1);
+            segments[segments.length - 1] = segment;
+            current = new State(segments, segment.lastSequence(), current.count + segment.count());
+        }
+        state = current;
+    }
+
+    /**
+     * First (part 0) or last (part 1) sequence a segment file is named after.
+     */
+    private static long sequence(Path file, int part) {
+        String name = file.getFileName().toString();
+        String[] sequences = name.substring(0, name.length() - SEGMENT_SUFFIX.length()).split("-");
+        try {
+            return sequences.length == 2 ? Long.parseLong(sequences[part]) : -1;
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    private void deleteSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX) || name.endsWith(SEGMENT_SUFFIX + TransferSegment.TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static final class State {
+
+        private final TransferSegment[] segments;
+
+        private final long lastSequence;
+
+        private final long count;
+
+        private State(TransferSegment[] segments, long lastSequence, long count) {
+            this.segments = segments;
+            this.lastSequence = lastSequence;
+            this.count = count;
+        }
+    }
+}
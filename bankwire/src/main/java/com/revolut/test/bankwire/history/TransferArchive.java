@@ -0,0 +1,39 @@
+package com.revolut.test.bankwire.history;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cold tier of the transfer history. Transfers leave the heap in batches of consecutive sequences, oldest first, and
+ * are read back from the archive from then on.
+ */
+public interface TransferArchive {
+
+    boolean isEnabled();
+
+    /**
+     * Sequence of the newest archived transfer, 0 when nothing is archived. Changes only once a batch can be read.
+     */
+    long getLastSequence();
+
+    /**
+     * Archives transfers with consecutive sequences, all above getLastSequence.
+     */
+    void archive(List<Transfer> transfers) throws IOException;
+
+    Optional<Transfer> findByTransferId(String transferId);
+
+    List<Transfer> findTransfers(long afterSequence, int limit);
+
+    long countAccountTransfers(String accountNumber);
+
+    List<Transfer> findAccountTransfers(String accountNumber, long offset, int limit);
+
+    long countTransfers();
+
+    void clear() throws IOException;
+
+}
@@ -0,0 +1,655 @@
+package com.revolut.test.bankwire.history;
+
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An immutable, memory-mapped file of consecutive transfers. Nothing but the mapping is kept on the heap; transfers
+ * are decoded when read.
+ * <p>
+ * Layout: int magic, int count, long first sequence, int id index offset, int account index offset, int filter offset,
+ * then an int offset per record, the records, the id index, the account index and the filter. A record is long sequence, long amount, long
+ * created time and the transfer id, sender, receiver and currency code, each a short length (-1 for null) and UTF-8.
+ * The id index holds record numbers sorted by transfer id; the account index holds record number * 2 + side (0
+ * sender, 1 receiver) sorted by account number, then record number, so one account's entries are a run in sequence
+ * order. The filter is a Bloom filter of the transfer ids and account numbers, so a lookup skips most segments that
+ * do not hold its key without searching them.
+ */
+final class TransferSegment {
+
+    private static final int MAGIC = 0x42575454;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+
+    private static final int RECORD_FIXED_BYTES = 3 * Long.BYTES;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int RECORD_BITS = 24;
+
+    private static final long RECORD_MASK = (1L << RECORD_BITS) - 1;
+
+    private static final int ID_PREFIX_BYTES = 5;
+
+    private static final int FILTER_BYTES_PER_TRANSFER = 3;
+
+    private static final int FILTER_PROBES = 5;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long ID_SEED = 0xcbf29ce484222325L;
+
+    private static final long ACCOUNT_SEED = 0x9e3779b97f4a7c15L;
+
+    static final int MAX_TRANSFERS = 1 << RECORD_BITS;
+
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path file;
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    private final long firstSequence;
+
+    private final int idIndex;
+
+    private final int accountIndex;
+
+    private final int filter;
+
+    private TransferSegment(Path file, ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a transfer segment");
+        }
+        this.file = file;
+        this.buffer = buffer;
+        this.count = buffer.getInt(4);
+        this.firstSequence = buffer.getLong(8);
+        this.idIndex = buffer.getInt(16);
+        this.accountIndex = buffer.getInt(20);
+        this.filter = buffer.getInt(24);
+        if (count < 0 || accountIndex + 2L * count * Integer.BYTES != filter || (long) filter + filterBytes(count) != buffer.capacity()) {
+            throw new IOException("Transfer segment is truncated");
+        }
+    }
+
+    /**
+     * Maps a segment written by a previous run.
+     */
+    static TransferSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TransferSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the transfers, which must have consecutive sequences. The segment is written and forced under a temporary
+     * name and then renamed into place, so a segment found after a crash is whole.
+     */
+    static TransferSegment write(Path file, List<Transfer> transfers) throws IOException {
+        int count = transfers.size();
+        if (count > MAX_TRANSFERS) {
+            throw new IllegalArgumentException(String.format("A segment holds at most %d transfers", MAX_TRANSFERS));
+        }
+        byte[][][] fields = new byte[count][][];
+        long length = HEADER_BYTES + (long) count * Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            Transfer transfer = transfers.get(i);
+            if (transfer.getSequence() != transfers.get(0).getSequence() + i) {
+                throw new IllegalArgumentException(String.format("Transfer %d is out of sequence", transfer.getSequence()));
+            }
+            fields[i] = new byte[][]{
+                    bytes(transfer.getTransferId()),
+                    bytes(transfer.getFromAccountNumber()),
+                    bytes(transfer.getToAccountNumber()),
+                    bytes(transfer.getCurrency() == null ? null : transfer.getCurrency().getCode())
+            };
+            length += RECORD_FIXED_BYTES;
+            for (byte[] field : fields[i]) {
+                length += Short.BYTES + (field == null ? 0 : field.length);
+            }
+        }
+        length += 3L * count * Integer.BYTES + filterBytes(count);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Transfer segment of %d bytes is too large", length));
+        }
+
+        return create(file, (int) length, out -> {
+            int offsets = HEADER_BYTES;
+            out.position(offsets + count * Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                Transfer transfer = transfers.get(i);
+                out.putInt(offsets + i * Integer.BYTES, out.position());
+                out.putLong(transfer.getSequence())
+                        .putLong(transfer.getAmount())
+                        .putLong(transfer.getCreatedDate() == null ? NO_DATE : transfer.getCreatedDate().getTime());
+                for (byte[] field : fields[i]) {
+                    if (field == null) {
+                        out.putShort((short) -1);
+                    } else {
+                        out.putShort((short) field.length).put(field);
+                    }
+                }
+            }
+
+            int idIndex = out.position();
+            for (int record : sortById(fields)) {
+                out.putInt(record);
+            }
+
+            int accountIndex = out.position();
+            for (int entry : groupByAccount(transfers, fields)) {
+                out.putInt(entry);
+            }
+
+            putHeader(out, count, count == 0 ? 0 : transfers.get(0).getSequence(), idIndex, accountIndex);
+        });
+    }
+
+    /**
+     * Merges segments of consecutive sequences into one, copying their records and merging their sorted indexes
+     * without decoding a transfer.
+     */
+    static TransferSegment merge(Path file, List<TransferSegment> sources) throws IOException {
+        long length = mergedBytes(sources);
+        long count = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            if (i > 0 && sources.get(i).firstSequence != sources.get(i - 1).lastSequence() + 1) {
+                throw new IllegalArgumentException(String.format("Segment %d is out of sequence", sources.get(i).firstSequence));
+            }
+            count += sources.get(i).count;
+        }
+        if (count > MAX_TRANSFERS) {
+            throw new IllegalArgumentException(String.format("A segment holds at most %d transfers", MAX_TRANSFERS));
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Transfer segment of %d bytes is too large", length));
+        }
+
+        int total = (int) count;
+        return create(file, (int) length, out -> {
+            int[] bases = new int[sources.size()];
+            out.position(HEADER_BYTES + total * Integer.BYTES);
+            int base = 0;
+            for (int i = 0; i < sources.size(); i++) {
+                TransferSegment source = sources.get(i);
+                bases[i] = base;
+                int shift = out.position() - source.firstRecord();
+                for (int record = 0; record < source.count; record++) {
+                    out.putInt(HEADER_BYTES + (base + record) * Integer.BYTES, source.recordOffset(record) + shift);
+                }
+                ByteBuffer records = source.buffer.duplicate();
+                records.limit(source.idIndex).position(source.firstRecord());
+                out.put(records);
+                base += source.count;
+            }
+
+            int idIndex = out.position();
+            mergeIndex(sources, bases, out, true);
+
+            int accountIndex = out.position();
+            mergeIndex(sources, bases, out, false);
+
+            putHeader(out, total, sources.get(0).firstSequence, idIndex, accountIndex);
+        });
+    }
+
+    /**
+     * Size of the segment merged from the given ones.
+     */
+    static long mergedBytes(List<TransferSegment> sources) {
+        long count = 0;
+        long records = 0;
+        for (TransferSegment source : sources) {
+            count += source.count;
+            records += source.idIndex - source.firstRecord();
+        }
+        return HEADER_BYTES + 4L * count * Integer.BYTES + records + filterBytes(count);
+    }
+
+    /**
+     * Fills a new segment under a temporary name, forces it and renames it into place, so a segment found after a
+     * crash is whole.
+     */
+    private static TransferSegment create(Path file, int length, Consumer<MappedByteBuffer> writer) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        Files.deleteIfExists(temp);
+        TransferSegment segment;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            writer.accept(out);
+            out.force();
+            segment = new TransferSegment(file, out);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        return segment;
+    }
+
+    /**
+     * Writes the filter after the account index, at the buffer's position, and then the header.
+     */
+    private static void putHeader(ByteBuffer out, int count, long firstSequence, int idIndex, int accountIndex) {
+        int filter = out.position();
+        int bits = filterBytes(count) * Byte.SIZE;
+        for (int record = 0; record < count; record++) {
+            int offset = out.getInt(HEADER_BYTES + record * Integer.BYTES) + RECORD_FIXED_BYTES;
+            for (int field = 0; field < 3; field++) {
+                if (out.getShort(offset) >= 0) {
+                    long hash = hash(out, offset, field == 0 ? ID_SEED : ACCOUNT_SEED);
+                    for (int probe = 0; probe < FILTER_PROBES; probe++) {
+                        int bit = bit(hash, probe, bits);
+                        out.put(filter + (bit >>> 3), (byte) (out.get(filter + (bit >>> 3)) | 1 << (bit & 7)));
+                    }
+                }
+                offset = skipString(out, offset);
+            }
+        }
+        out.putInt(0, MAGIC)
+                .putInt(4, count)
+                .putLong(8, firstSequence)
+                .putInt(16, idIndex)
+                .putInt(20, accountIndex)
+                .putInt(24, filter);
+    }
+
+    /**
+     * Merges the id or account index runs of the sources, taking the older segment first on equal keys so an
+     * account's entries stay in sequence order.
+     */
+    private static void mergeIndex(List<TransferSegment> sources, int[] bases, ByteBuffer out, boolean ids) {
+        int entriesPerRecord = ids ? 1 : 2;
+        int[] next = new int[sources.size()];
+        while (true) {
+            int lowest = -1;
+            int lowestKey = 0;
+            for (int i = 0; i < sources.size(); i++) {
+                TransferSegment source = sources.get(i);
+                if (next[i] == entriesPerRecord * source.count) {
+                    continue;
+                }
+                int key = ids ? source.idField(source.idEntry(next[i])) : source.accountField(source.accountEntry(next[i]));
+                if (lowest < 0 || compare(source.buffer, key, sources.get(lowest).buffer, lowestKey) < 0) {
+                    lowest = i;
+                    lowestKey = key;
+                }
+            }
+            if (lowest < 0) {
+                return;
+            }
+            TransferSegment source = sources.get(lowest);
+            int entry = ids ? source.idEntry(next[lowest]) : source.accountEntry(next[lowest]);
+            next[lowest]++;
+            out.putInt(entry + entriesPerRecord * bases[lowest]);
+        }
+    }
+
+    /**
+     * Sorts record numbers by transfer id on a long holding the first five id bytes above the record number, sign
+     * flipped to sort unsigned, so only ids sharing those bytes are compared in full.
+     */
+    private static int[] sortById(byte[][][] fields) {
+        long[] keys = new long[fields.length];
+        for (int record = 0; record < fields.length; record++) {
+            byte[] id = fields[record][0];
+            long prefix = 0;
+            for (int i = 0; i < ID_PREFIX_BYTES; i++) {
+                prefix = (prefix << 8) | (id != null && i < id.length ? id[i] & 0xFF : 0);
+            }
+            keys[record] = ((prefix << RECORD_BITS) | record) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        int[] records = new int[fields.length];
+        for (int start = 0; start < keys.length; ) {
+            int end = start + 1;
+            while (end < keys.length && keys[end] >>> RECORD_BITS == keys[start] >>> RECORD_BITS) {
+                end++;
+            }
+            if (end - start == 1) {
+                records[start] = (int) (keys[start] & RECORD_MASK);
+            } else {
+                Integer[] ties = new Integer[end - start];
+                for (int i = 0; i < ties.length; i++) {
+                    ties[i] = (int) (keys[start + i] & RECORD_MASK);
+                }
+                Arrays.sort(ties, (left, right) -> compare(fields[left][0], fields[right][0]));
+                for (int i = 0; i < ties.length; i++) {
+                    records[start + i] = ties[i];
+                }
+            }
+            start = end;
+        }
+        return records;
+    }
+
+    /**
+     * Orders the account entries by account number, then entry, by hashing them into one group per account and
+     * sorting only the groups.
+     */
+    private static int[] groupByAccount(List<Transfer> transfers, byte[][][] fields) {
+        int entries = 2 * transfers.size();
+        Map<String, Integer> groups = new HashMap<>();
+        List<byte[]> groupKeys = new ArrayList<>();
+        int[] groupOf = new int[entries];
+        int[] groupSizes = new int[entries];
+        for (int entry = 0; entry < entries; entry++) {
+            Transfer transfer = transfers.get(entry >> 1);
+            String accountNumber = (entry & 1) == 0 ? transfer.getFromAccountNumber() : transfer.getToAccountNumber();
+            Integer group = groups.get(accountNumber);
+            if (group == null) {
+                group = groupKeys.size();
+                groups.put(accountNumber, group);
+                groupKeys.add(fields[entry >> 1][1 + (entry & 1)]);
+            }
+            groupOf[entry] = group;
+            groupSizes[group]++;
+        }
+        Integer[] order = new Integer[groupKeys.size()];
+        for (int group = 0; group < order.length; group++) {
+            order[group] = group;
+        }
+        Arrays.sort(order, (left, right) -> compare(groupKeys.get(left), groupKeys.get(right)));
+        int[] groupStarts = new int[order.length];
+        int start = 0;
+        for (Integer group : order) {
+            groupStarts[group] = start;
+            start += groupSizes[group];
+        }
+        int[] sorted = new int[entries];
+        for (int entry = 0; entry < entries; entry++) {
+            sorted[groupStarts[groupOf[entry]]++] = entry;
+        }
+        return sorted;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    long lastSequence() {
+        return firstSequence + count - 1;
+    }
+
+    /**
+     * False when the segment certainly holds no transfer with the id or account of the hash.
+     */
+    boolean mightContain(long hash) {
+        int bits = filterBytes(count) * Byte.SIZE;
+        for (int probe = 0; probe < FILTER_PROBES; probe++) {
+            int bit = bit(hash, probe, bits);
+            if ((buffer.get(filter + (bit >>> 3)) & 1 << (bit & 7)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long transferIdHash(String transferId) {
+        return hash(transferId.getBytes(StandardCharsets.UTF_8), ID_SEED);
+    }
+
+    static long accountHash(String accountNumber) {
+        return hash(accountNumber.getBytes(StandardCharsets.UTF_8), ACCOUNT_SEED);
+    }
+
+    Transfer get(int record) {
+        int offset = recordOffset(record);
+        long sequence = buffer.getLong(offset);
+        long amount = buffer.getLong(offset + Long.BYTES);
+        long time = buffer.getLong(offset + 2 * Long.BYTES);
+        offset += RECORD_FIXED_BYTES;
+        String transferId = readString(offset);
+        offset = skipString(buffer, offset);
+        String fromAccountNumber = readString(offset);
+        offset = skipString(buffer, offset);
+        String toAccountNumber = readString(offset);
+        offset = skipString(buffer, offset);
+        String currencyCode = readString(offset);
+
+        CurrencyUnit currency = currencyCode == null ? null : CurrencyUnit.of(currencyCode);
+        Transfer transfer = new TransferBuilder().setTransferId(transferId)
+                .setFromAccountNumber(fromAccountNumber)
+                .setToAccountNumber(toAccountNumber)
+                .setCurrency(currency)
+                .setMoney(currency == null ? null : Money.ofMinor(currency, amount))
+                .setCreatedDate(time == NO_DATE ? null : new Date(time))
+                .createTransfer();
+        transfer.setSequence(sequence);
+        return transfer;
+    }
+
+    /**
+     * Returns up to limit transfers with a sequence above the given one.
+     */
+    List<Transfer> after(long afterSequence, int limit) {
+        int from = (int) Math.max(0, afterSequence + 1 - firstSequence);
+        int to = (int) Math.min(count, (long) from + limit);
+        List<Transfer> page = new ArrayList<>(Math.max(0, to - from));
+        for (int record = from; record < to; record++) {
+            page.add(get(record));
+        }
+        return page;
+    }
+
+    Transfer findByTransferId(String transferId) {
+        byte[] key = transferId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = idEntry(middle);
+            int comparison = compare(idField(record), key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return get(record);
+            }
+        }
+        return null;
+    }
+
+    int countAccountTransfers(String accountNumber) {
+        byte[] key = accountNumber.getBytes(StandardCharsets.UTF_8);
+        return accountBound(key, false) - accountBound(key, true);
+    }
+
+    /**
+     * Returns up to limit of the account's transfers in this segment, skipping the first offset ones.
+     */
+    List<Transfer> accountTransfers(String accountNumber, int offset, int limit) {
+        byte[] key = accountNumber.getBytes(StandardCharsets.UTF_8);
+        int from = accountBound(key, true) + offset;
+        int to = (int) Math.min(accountBound(key, false), (long) from + limit);
+        List<Transfer> page = new ArrayList<>(Math.max(0, to - from));
+        for (int entry = from; entry < to; entry++) {
+            page.add(get(accountEntry(entry) >> 1));
+        }
+        return page;
+    }
+
+    /**
+     * First account index entry at or, if not lower, after the key's run.
+     */
+    private int accountBound(byte[] key, boolean lower) {
+        int low = 0;
+        int high = 2 * count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(accountField(accountEntry(middle)), key);
+            if (comparison < 0 || (!lower && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int recordOffset(int record) {
+        return buffer.getInt(HEADER_BYTES + record * Integer.BYTES);
+    }
+
+    private int firstRecord() {
+        return HEADER_BYTES + count * Integer.BYTES;
+    }
+
+    private int idEntry(int index) {
+        return buffer.getInt(idIndex + index * Integer.BYTES);
+    }
+
+    private int accountEntry(int index) {
+        return buffer.getInt(accountIndex + index * Integer.BYTES);
+    }
+
+    private int idField(int record) {
+        return recordOffset(record) + RECORD_FIXED_BYTES;
+    }
+
+    /**
+     * Offset of the sender or, for an odd entry, the receiver account number of the entry's record.
+     */
+    private int accountField(int entry) {
+        int offset = skipString(buffer, idField(entry >> 1));
+        return (entry & 1) == 1 ? skipString(buffer, offset) : offset;
+    }
+
+    private static int skipString(ByteBuffer buffer, int offset) {
+        short length = buffer.getShort(offset);
+        return offset + Short.BYTES + Math.max(0, length);
+    }
+
+    private String readString(int offset) {
+        short length = buffer.getShort(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer field = buffer.duplicate();
+        field.position(offset + Short.BYTES);
+        field.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the string stored at the offset with the key, bytes unsigned, null before everything.
+     */
+    private int compare(int offset, byte[] key) {
+        short length = buffer.getShort(offset);
+        if (length < 0) {
+            return -1;
+        }
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(offset + Short.BYTES + i) & 0xFF) - (key[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private static int compare(ByteBuffer left, int leftOffset, ByteBuffer right, int rightOffset) {
+        short leftLength = left.getShort(leftOffset);
+        short rightLength = right.getShort(rightOffset);
+        if (leftLength < 0 || rightLength < 0) {
+            return leftLength == rightLength ? 0 : leftLength < 0 ? -1 : 1;
+        }
+        int common = Math.min(leftLength, rightLength);
+        for (int i = 0; i < common; i++) {
+            int difference = (left.get(leftOffset + Short.BYTES + i) & 0xFF) - (right.get(rightOffset + Short.BYTES + i) & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return leftLength - rightLength;
+    }
+
+    private static int compare(byte[] left, byte[] right) {
+        if (left == null || right == null) {
+            return left == right ? 0 : left == null ? -1 : 1;
+        }
+        int common = Math.min(left.length, right.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (left[i] & 0xFF) - (right[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return left.length - right.length;
+    }
+
+    private static int filterBytes(long count) {
+        return (int) Math.max(Long.BYTES, count * FILTER_BYTES_PER_TRANSFER);
+    }
+
+    /**
+     * Bit of the probe, by double hashing on the two halves of the hash.
+     */
+    private static int bit(long hash, int probe, int bits) {
+        return Math.floorMod((int) hash + probe * (int) (hash >>> 32), bits);
+    }
+
+    private static long hash(ByteBuffer buffer, int offset, long seed) {
+        long hash = seed;
+        short length = buffer.getShort(offset);
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (buffer.get(offset + Short.BYTES + i) & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long hash(byte[] key, long seed) {
+        long hash = seed;
+        for (byte value : key) {
+            hash = (hash ^ (value & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ hash >>> 33) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ hash >>> 33) * 0xc4ceb93fe1a85ec5L;
+        return hash ^ hash >>> 33;
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Transfer field of %d bytes is too long", bytes.length));
+        }
+        return bytes;
+    }
+}
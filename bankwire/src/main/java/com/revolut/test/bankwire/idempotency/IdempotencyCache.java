@@ -0,0 +1,18 @@
+package com.revolut.test.bankwire.idempotency;
+
+import com.revolut.test.bankwire.exception.IdempotencyKeyReusedException;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyCache {
+
+    /**
+     * Runs the request once per key and answers every later request with the same key with the first response; a
+     * request arriving while the first is still running waits for it. The fingerprint identifies the request
+     * parameters, a key sent again with different ones is refused.
+     */
+    IdempotentResponse execute(String key, String fingerprint, Supplier<IdempotentResponse> request) throws IdempotencyKeyReusedException;
+
+    int size();
+
+}
@@ -0,0 +1,127 @@
+package com.revolut.test.bankwire.idempotency;
+
+import com.revolut.test.bankwire.exception.IdempotencyKeyReusedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps at most maxKeys responses for ttl each. Every key expires ttl after it was first seen and keys never move in
+ * the insertion order queue, so it stays in expiry order and eviction stops at the first key it may not evict. A key
+ * whose response is not kept stays queued, counted against maxKeys, until eviction reaches it. A key still running
+ * is never evicted for room, since a retry would then run the request a second time; eviction passes over it, leaving
+ * it in place, to the next key.
+ */
+public class IdempotencyCacheImpl implements IdempotencyCache {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final int maxKeys;
+
+    private final long ttlNanos;
+
+    private final LongSupplier nanoClock;
+
+    public IdempotencyCacheImpl(int maxKeys, long ttlSeconds) {
+        this(maxKeys, ttlSeconds, System::nanoTime);
+    }
+
+    public IdempotencyCacheImpl(int maxKeys, long ttlSeconds, LongSupplier nanoClock) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("maxKeys must be at least 1");
+        }
+        this.maxKeys = maxKeys;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public IdempotentResponse execute(String key, String fingerprint, Supplier<IdempotentResponse> request) throws IdempotencyKeyReusedException {
+        long now = nanoClock.getAsLong();
+        evict(now);
+
+        Entry entry = new Entry(key, fingerprint, now + ttlNanos);
+        Entry current = entries.compute(key, (k, existing) -> existing == null || existing.isExpired(now) ? entry : existing);
+        if (current != entry) {
+            if (!current.fingerprint.equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException(String.format("Idempotency-Key %s was already used for a different transfer", key));
+            }
+            return current.response.join();
+        }
+        order.add(entry);
+        queued.incrementAndGet();
+        evict(now);
+
+        IdempotentResponse response;
+        try {
+            response = request.get();
+        } catch (RuntimeException exception) {
+            forget(entry);
+            entry.response.completeExceptionally(exception);
+            throw exception;
+        }
+        if (response.isRetryable()) {
+            forget(entry);
+        }
+        entry.response.complete(response);
+        return response;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    private void forget(Entry entry) {
+        entry.forgotten = true;
+        entries.remove(entry.key, entry);
+    }
+
+    /**
+     * Removing a key past running ones scans the queue from its head, so it costs one step per request in flight.
+     */
+    private void evict(long now) {
+        for (Entry entry : order) {
+            boolean dead = entry.forgotten || entry.isExpired(now);
+            if (!dead && queued.get() <= maxKeys) {
+                return;
+            }
+            if ((dead || entry.response.isDone()) && order.remove(entry)) {
+                queued.decrementAndGet();
+                entries.remove(entry.key, entry);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String key;
+
+        private final String fingerprint;
+
+        private final long expiresAt;
+
+        private final CompletableFuture<IdempotentResponse> response = new CompletableFuture<>();
+
+        private volatile boolean forgotten;
+
+        private Entry(String key, String fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
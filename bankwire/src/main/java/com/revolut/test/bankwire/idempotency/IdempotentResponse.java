@@ -0,0 +1,42 @@
+package com.revolut.test.bankwire.idempotency;
+
+/**
+ * Status and body of a request answered under an idempotency key.
+ */
+public class IdempotentResponse {
+
+    private final int status;
+
+    private final Object body;
+
+    private final boolean retryable;
+
+    private IdempotentResponse(int status, Object body, boolean retryable) {
+        this.status = status;
+        this.body = body;
+        this.retryable = retryable;
+    }
+
+    public static IdempotentResponse of(int status, Object body) {
+        return new IdempotentResponse(status, body, false);
+    }
+
+    /**
+     * A response to a request that changed nothing and may succeed if sent again, so it is not kept for the key.
+     */
+    public static IdempotentResponse retryable(int status, Object body) {
+        return new IdempotentResponse(status, body, true);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Object getBody() {
+        return body;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,112 @@
+package com.revolut.test.bankwire.journal;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.repo.AccountDao;
+import org.joda.money.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds the account store from the newest snapshot and the journal written after it. The journal tail is read
+ * once and split by account partition; each partition then replays its records in journal order on its own thread.
+ * A transfer is split into its two legs, which is safe because each leg only sets its account's balance.
+ */
+public class AccountStoreRecovery {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountStoreRecovery.class);
+
+    private final SnapshotStore snapshotStore;
+    private final JournalReader journalReader;
+    private final int partitions;
+
+    public AccountStoreRecovery(SnapshotStore snapshotStore, JournalReader journalReader, int partitions) {
+        this.snapshotStore = snapshotStore;
+        this.journalReader = journalReader;
+        this.partitions = partitions;
+    }
+
+    public void recover(AccountDao accountDao) throws Exception {
+        long startTime = System.nanoTime();
+        ExecutorService executorService = Executors.newFixedThreadPool(partitions);
+        try {
+            long position = snapshotStore.load(accountDao, executorService);
+
+            List<List<JournalRecord>> tails = new ArrayList<>(partitions);
+            for (int i = 0; i < partitions; i++) {
+                tails.add(new ArrayList<>());
+            }
+            long[] records = new long[1];
+            journalReader.read(position, record -> {
+                int partition = partition(record.getAccountNumber());
+                tails.get(partition).add(record);
+                if (record.getType() == MappedJournal.TRANSFER && partition(record.getToAccountNumber()) != partition) {
+                    tails.get(partition(record.getToAccountNumber())).add(record);
+                }
+                records[0]++;
+            });
+
+            List<Callable<Void>> replays = new ArrayList<>(partitions);
+            for (int i = 0; i < partitions; i++) {
+                int partition = i;
+                replays.add(() -> {
+                    replay(accountDao, tails.get(partition), partition);
+                    return null;
+                });
+            }
+            for (Future<Void> replay : executorService.invokeAll(replays)) {
+                replay.get();
+            }
+
+            LOG.info("account store recovered from snapshot at {} and {} journal records in {} ms", position, records[0],
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private void replay(AccountDao accountDao, List<JournalRecord> records, int partition) {
+        for (JournalRecord record : records) {
+            switch (record.getType()) {
+                case MappedJournal.ACCOUNT_CREATED:
+                    accountDao.restoreAccount(new Account(record.getAccountNumber(), new User(record.getFirstName(), record.getLastName()),
+                            record.getCurrency() == null ? null : Money.ofMinor(record.getCurrency(), record.getBalance()),
+                            record.getCurrency(), record.getCreatedDate()));
+                    break;
+                case MappedJournal.ACCOUNT_DELETED:
+                    accountDao.evictAccount(record.getAccountNumber());
+                    break;
+                case MappedJournal.TRANSFER:
+                    if (partition(record.getAccountNumber()) == partition) {
+                        restoreBalance(accountDao, record.getAccountNumber(), record.getBalance());
+                    }
+                    if (partition(record.getToAccountNumber()) == partition) {
+                        restoreBalance(accountDao, record.getToAccountNumber(), record.getToBalance());
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Unknown journal record type %d", record.getType()));
+            }
+        }
+    }
+
+    private void restoreBalance(AccountDao accountDao, String accountNumber, long balance) {
+        Optional<Account> account = accountDao.findByAccountNumber(accountNumber);
+        if (account.isPresent()) {
+            account.get().setBalance(balance);
+        }
+    }
+
+    private int partition(String accountNumber) {
+        return Math.floorMod(accountNumber.hashCode(), partitions);
+    }
+}
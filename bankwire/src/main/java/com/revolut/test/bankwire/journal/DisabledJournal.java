@@ -0,0 +1,51 @@
+package com.revolut.test.bankwire.journal;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.util.List;
+
+public class DisabledJournal implements Journal {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public long appendAccountCreated(Account account) {
+        return 0;
+    }
+
+    @Override
+    public long appendAccountDeleted(String accountNumber) {
+        return 0;
+    }
+
+    @Override
+    public long appendTransfer(Transfer transfer, long senderBalance, long receiverBalance) {
+        return 0;
+    }
+
+    @Override
+    public long appendTransfers(List<Transfer> transfers, long[] senderBalances, long[] receiverBalances) {
+        return 0;
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+    }
+
+    @Override
+    public long getPosition() {
+        return 0;
+    }
+
+    @Override
+    public void deleteBefore(long position) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
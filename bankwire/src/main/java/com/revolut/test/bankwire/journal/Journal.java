@@ -0,0 +1,45 @@
+package com.revolut.test.bankwire.journal;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Write-ahead log of account and transfer changes. Appends return the journal position just after the record;
+ * the change may only be reported to the client once awaitDurable has returned for that position.
+ */
+public interface Journal extends Closeable {
+
+    boolean isEnabled();
+
+    long appendAccountCreated(Account account) throws IOException;
+
+    long appendAccountDeleted(String accountNumber) throws IOException;
+
+    /**
+     * Appends the transfer with its sequence, which the caller assigns in journal order.
+     */
+    long appendTransfer(Transfer transfer, long senderBalance, long receiverBalance) throws IOException;
+
+    /**
+     * Appends a batch as a single record, so replay sees all of its transfers or none.
+     */
+    long appendTransfers(List<Transfer> transfers, long[] senderBalances, long[] receiverBalances) throws IOException;
+
+    void awaitDurable(long position) throws Exception;
+
+    /**
+     * Position just after the last appended record.
+     */
+    long getPosition();
+
+    /**
+     * Drops segments holding only records before the position, once a snapshot covers them and the transfer archive
+     * holds their transfers.
+     */
+    void deleteBefore(long position) throws IOException;
+
+}
@@ -0,0 +1,108 @@
+package com.revolut.test.bankwire.journal;
+
+import org.joda.money.CurrencyUnit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Reads the intact records of every segment in journal order, starting at a record boundary.
+ */
+public class JournalReader {
+
+    private final Path directory;
+
+    public JournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    public void read(long fromPosition, Consumer<JournalRecord> consumer) throws IOException {
+        for (Path file : MappedJournal.segments(directory)) {
+            long start = MappedJournal.segmentStart(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (start + size <= fromPosition) {
+                    continue;
+                }
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int end = MappedJournal.validLength(segment);
+                int offset = (int) Math.max(0, fromPosition - start);
+                while (offset < end) {
+                    int length = segment.getInt(offset);
+                    ByteBuffer body = segment.duplicate();
+                    body.limit(offset + MappedJournal.HEADER_BYTES + length).position(offset + MappedJournal.HEADER_BYTES);
+                    offset += MappedJournal.HEADER_BYTES + length;
+                    decode(body, start + offset, consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the record ending at the given journal position.
+     */
+    private static void decode(ByteBuffer body, long position, Consumer<JournalRecord> consumer) {
+        byte type = body.get();
+        switch (type) {
+            case MappedJournal.ACCOUNT_CREATED: {
+                long balance = body.getLong();
+                Date createdDate = date(body.getLong());
+                String accountNumber = string(body);
+                String currency = string(body);
+                String firstName = string(body);
+                String lastName = string(body);
+                consumer.accept(JournalRecord.accountCreated(position, accountNumber, balance, currency == null ? null : CurrencyUnit.of(currency),
+                        firstName, lastName, createdDate));
+                break;
+            }
+            case MappedJournal.ACCOUNT_DELETED:
+                consumer.accept(JournalRecord.accountDeleted(position, string(body)));
+                break;
+            case MappedJournal.TRANSFER:
+                consumer.accept(transfer(body, position));
+                break;
+            case MappedJournal.TRANSFER_BATCH:
+                for (int count = body.getInt(); count > 0; count--) {
+                    consumer.accept(transfer(body, position));
+                }
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unknown journal record type %d", type));
+        }
+    }
+
+    private static JournalRecord transfer(ByteBuffer body, long position) {
+        long sequence = body.getLong();
+        long amount = body.getLong();
+        Date createdDate = date(body.getLong());
+        long senderBalance = body.getLong();
+        long receiverBalance = body.getLong();
+        String transferId = string(body);
+        String fromAccountNumber = string(body);
+        String toAccountNumber = string(body);
+        String currency = string(body);
+        return JournalRecord.transfer(position, sequence, transferId, fromAccountNumber, senderBalance, toAccountNumber, receiverBalance, amount,
+                currency == null ? null : CurrencyUnit.of(currency), createdDate);
+    }
+
+    private static String string(ByteBuffer body) {
+        short length = body.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Date date(long time) {
+        return time == MappedJournal.NO_DATE ? null : new Date(time);
+    }
+}
@@ -0,0 +1,125 @@
+package com.revolut.test.bankwire.journal;
+
+import org.joda.money.CurrencyUnit;
+
+import java.util.Date;
+
+/**
+ * A decoded journal record, holding what replay needs to rebuild the account store and the transfer history.
+ */
+public class JournalRecord {
+
+    private final byte type;
+    private final long position;
+    private final long sequence;
+    private final String transferId;
+    private final String accountNumber;
+    private final long balance;
+    private final String toAccountNumber;
+    private final long toBalance;
+    private final long amount;
+    private final CurrencyUnit currency;
+    private final String firstName;
+    private final String lastName;
+    private final Date createdDate;
+
+    private JournalRecord(byte type, long position, long sequence, String transferId, String accountNumber, long balance, String toAccountNumber, long toBalance,
+                          long amount, CurrencyUnit currency, String firstName, String lastName, Date createdDate) {
+        this.type = type;
+        this.position = position;
+        this.sequence = sequence;
+        this.transferId = transferId;
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.toAccountNumber = toAccountNumber;
+        this.toBalance = toBalance;
+        this.amount = amount;
+        this.currency = currency;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.createdDate = createdDate;
+    }
+
+    static JournalRecord accountCreated(long position, String accountNumber, long balance, CurrencyUnit currency, String firstName,
+                                        String lastName, Date createdDate) {
+        return new JournalRecord(MappedJournal.ACCOUNT_CREATED, position, 0, null, accountNumber, balance, null, 0, 0, currency, firstName, lastName,
+                createdDate);
+    }
+
+    static JournalRecord accountDeleted(long position, String accountNumber) {
+        return new JournalRecord(MappedJournal.ACCOUNT_DELETED, position, 0, null, accountNumber, 0, null, 0, 0, null, null, null, null);
+    }
+
+    static JournalRecord transfer(long position, long sequence, String transferId, String fromAccountNumber, long senderBalance,
+                                  String toAccountNumber, long receiverBalance, long amount, CurrencyUnit currency, Date createdDate) {
+        return new JournalRecord(MappedJournal.TRANSFER, position, sequence, transferId, fromAccountNumber, senderBalance, toAccountNumber,
+                receiverBalance, amount, currency, null, null, createdDate);
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * Journal position just after the record; the transfers of a batch share it.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Sequence of a transfer.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    /**
+     * Created or deleted account, or the sender of a transfer.
+     */
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    /**
+     * Balance of the created account, or the sender's balance after the transfer.
+     */
+    public long getBalance() {
+        return balance;
+    }
+
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    public long getToBalance() {
+        return toBalance;
+    }
+
+    /**
+     * Amount of a transfer in the currency's minor unit.
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    public CurrencyUnit getCurrency() {
+        return currency;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+}
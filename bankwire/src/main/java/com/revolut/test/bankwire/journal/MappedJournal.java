@@ -0,0 +1,451 @@
+package com.revolut.test.bankwire.journal;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.exception.JournalFailedException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Appends records to memory-mapped segment files and makes them durable in groups. An append only copies the
+ * record into the mapping; a single flusher thread forces the segment once the commit interval has passed or the
+ * batch size is reached, and releases every caller waiting on a position covered by that force.
+ * <p>
+ * A record is an int body length, the CRC32 of the body and the body, whose first byte is the record type.
+ * Segments are named after the journal position they start at. A transfer record carries the transfer's sequence,
+ * so the history can be replayed past what its archive already holds.
+ */
+public class MappedJournal implements Journal {
+
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    static final int HEADER_BYTES = 8;
+
+    static final byte ACCOUNT_CREATED = 1;
+
+    static final byte ACCOUNT_DELETED = 2;
+
+    static final byte TRANSFER = 3;
+
+    static final byte TRANSFER_BATCH = 4;
+
+    static final long NO_DATE = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long commitIntervalNanos;
+    private final int commitBatchSize;
+
+    private final Lock appendLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long appendedPosition;
+    private final AtomicLong appendedRecords = new AtomicLong();
+
+    private final Lock commitLock = new ReentrantLock();
+    private final Condition durable = commitLock.newCondition();
+    private volatile long durablePosition;
+    private volatile long durableRecords;
+    private final AtomicLong flushes = new AtomicLong();
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private final Thread flusher;
+
+    public MappedJournal(Path directory, int segmentBytes, long commitIntervalNanos, int commitBatchSize) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.commitIntervalNanos = commitIntervalNanos;
+        this.commitBatchSize = Math.max(1, commitBatchSize);
+
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            openSegment(segmentStart(last));
+            segment.position(validLength(segment));
+        }
+        appendedPosition = segmentStart + segment.position();
+        durablePosition = appendedPosition;
+
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long appendAccountCreated(Account account) throws IOException {
+        byte[] accountNumber = bytes(account.getAccountNumber());
+        byte[] currency = bytes(account.getCurrency() == null ? null : account.getCurrency().getCode());
+        User user = account.getUser();
+        byte[] firstName = bytes(user == null ? null : user.getFirstName());
+        byte[] lastName = bytes(user == null ? null : user.getLastName());
+        int length = 1 + 2 * Long.BYTES + size(accountNumber) + size(currency) + size(firstName) + size(lastName);
+
+        appendLock.lock();
+        try {
+            int offset = reserve(length);
+            segment.put(ACCOUNT_CREATED)
+                    .putLong(account.getBalance())
+                    .putLong(time(account.getCreatedDate()));
+            putBytes(accountNumber);
+            putBytes(currency);
+            putBytes(firstName);
+            putBytes(lastName);
+            return seal(offset, length);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public long appendAccountDeleted(String accountNumber) throws IOException {
+        byte[] number = bytes(accountNumber);
+        int length = 1 + size(number);
+
+        appendLock.lock();
+        try {
+            int offset = reserve(length);
+            segment.put(ACCOUNT_DELETED);
+            putBytes(number);
+            return seal(offset, length);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public long appendTransfer(Transfer transfer, long senderBalance, long receiverBalance) throws IOException {
+        byte[][] fields = transferFields(transfer);
+        int length = 1 + transferLength(fields);
+
+        appendLock.lock();
+        try {
+            int offset = reserve(length);
+            segment.put(TRANSFER);
+            putTransfer(transfer, senderBalance, receiverBalance, fields);
+            return seal(offset, length);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public long appendTransfers(List<Transfer> transfers, long[] senderBalances, long[] receiverBalances) throws IOException {
+        byte[][][] fields = new byte[transfers.size()][][];
+        int length = 1 + Integer.BYTES;
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = transferFields(transfers.get(i));
+            length += transferLength(fields[i]);
+        }
+
+        appendLock.lock();
+        try {
+            int offset = reserve(length);
+            segment.put(TRANSFER_BATCH).putInt(fields.length);
+            for (int i = 0; i < fields.length; i++) {
+                putTransfer(transfers.get(i), senderBalances[i], receiverBalances[i], fields[i]);
+            }
+            return seal(offset, length);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private byte[][] transferFields(Transfer transfer) {
+        return new byte[][]{
+                bytes(transfer.getTransferId()),
+                bytes(transfer.getFromAccountNumber()),
+                bytes(transfer.getToAccountNumber()),
+                bytes(transfer.getCurrency() == null ? null : transfer.getCurrency().getCode())
+        };
+    }
+
+    private int transferLength(byte[][] fields) {
+        int length = 5 * Long.BYTES;
+        for (byte[] field : fields) {
+            length += size(field);
+        }
+        return length;
+    }
+
+    private void putTransfer(Transfer transfer, long senderBalance, long receiverBalance, byte[][] fields) {
+        segment.putLong(transfer.getSequence())
+                .putLong(transfer.getAmount())
+                .putLong(time(transfer.getCreatedDate()))
+                .putLong(senderBalance)
+                .putLong(receiverBalance);
+        for (byte[] field : fields) {
+            putBytes(field);
+        }
+    }
+
+    @Override
+    public void awaitDurable(long position) throws Exception {
+        if (durablePosition >= position) {
+            return;
+        }
+        commitLock.lock();
+        try {
+            while (durablePosition < position) {
+                if (failure != null) {
+                    throw new JournalFailedException("Journal is not writable", failure);
+                }
+                if (closed) {
+                    throw new JournalFailedException("Journal closed before the record was durable");
+                }
+                durable.await();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Interrupted waiting for the journal", exception);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    @Override
+    public long getPosition() {
+        appendLock.lock();
+        try {
+            return appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteBefore(long position) throws IOException {
+        long currentStart;
+        appendLock.lock();
+        try {
+            currentStart = segmentStart;
+        } finally {
+            appendLock.unlock();
+        }
+        for (Path file : segments(directory)) {
+            long start = segmentStart(file);
+            if (start != currentStart && start + Files.size(file) <= position) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Number of times the journal has been forced to disk.
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            channel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((left, right) -> Long.compare(segmentStart(left), segmentStart(right)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Length of the run of intact records at the start of the segment; a torn or zeroed record ends it.
+     */
+    static int validLength(ByteBuffer segment) {
+        CRC32 checksum = new CRC32();
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segment.capacity()) {
+            int length = segment.getInt(offset);
+            if (length <= 0 || length > segment.capacity() - offset - HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer body = segment.duplicate();
+            body.limit(offset + HEADER_BYTES + length).position(offset + HEADER_BYTES);
+            checksum.reset();
+            checksum.update(body);
+            if ((int) checksum.getValue() != segment.getInt(offset + Integer.BYTES)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private void openSegment(long start) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", start, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segmentStart = start;
+    }
+
+    /**
+     * Makes room for the record, rolling to a new segment if it does not fit, and returns the offset of its header.
+     */
+    private int reserve(int length) throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal is not writable", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal closed");
+        }
+        if (length > segmentBytes - HEADER_BYTES) {
+            throw new IOException(String.format("Journal record of %d bytes does not fit a segment", length));
+        }
+        if (segment.remaining() < HEADER_BYTES + length) {
+            try {
+                segment.force();
+            } catch (Exception exception) {
+                failure = new IOException("Journal force failed", exception);
+                LockSupport.unpark(flusher);
+                throw failure;
+            }
+            channel.close();
+            openSegment(segmentStart + segmentBytes);
+        }
+        int offset = segment.position();
+        segment.position(offset + HEADER_BYTES);
+        return offset;
+    }
+
+    private long seal(int offset, int length) {
+        ByteBuffer body = segment.duplicate();
+        body.limit(offset + HEADER_BYTES + length).position(offset + HEADER_BYTES);
+        crc.reset();
+        crc.update(body);
+        segment.putInt(offset + Integer.BYTES, (int) crc.getValue());
+        segment.putInt(offset, length);
+
+        appendedPosition = segmentStart + segment.position();
+        long pending = appendedRecords.incrementAndGet() - durableRecords;
+        if (pending == 1 || pending >= commitBatchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return appendedPosition;
+    }
+
+    private void flushLoop() {
+        while (!closed && failure == null) {
+            if (appendedRecords.get() == durableRecords) {
+                LockSupport.park(this);
+                continue;
+            }
+            long deadline = System.nanoTime() + commitIntervalNanos;
+            long remaining;
+            while (!closed && appendedRecords.get() - durableRecords < commitBatchSize
+                    && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        MappedByteBuffer buffer;
+        long position;
+        long records;
+        appendLock.lock();
+        try {
+            buffer = segment;
+            position = appendedPosition;
+            records = appendedRecords.get();
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (position != durablePosition && failure == null) {
+            try {
+                buffer.force();
+                flushes.incrementAndGet();
+            } catch (Exception exception) {
+                failure = new IOException("Journal force failed", exception);
+            }
+        }
+
+        commitLock.lock();
+        try {
+            if (failure == null) {
+                durableRecords = records;
+                durablePosition = position;
+            }
+            durable.signalAll();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void putBytes(byte[] value) {
+        if (value == null) {
+            segment.putShort((short) -1);
+            return;
+        }
+        segment.putShort((short) value.length).put(value);
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Journal field of %d bytes is too long", bytes.length));
+        }
+        return bytes;
+    }
+
+    private static int size(byte[] value) {
+        return Short.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static long time(Date date) {
+        return date == null ? NO_DATE : date.getTime();
+    }
+}
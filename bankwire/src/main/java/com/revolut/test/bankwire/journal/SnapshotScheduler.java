@@ -0,0 +1,70 @@
+package com.revolut.test.bankwire.journal;
+
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshots the account store in the background and drops the snapshots and journal segments the new one covers,
+ * keeping the journal segments that hold transfers the archive does not hold yet.
+ */
+public class SnapshotScheduler implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotScheduler.class);
+
+    private final SnapshotStore snapshotStore;
+    private final AccountDao accountDao;
+    private final TransferDao transferDao;
+    private final Journal journal;
+    private final long intervalSeconds;
+    private ScheduledExecutorService executorService;
+
+    public SnapshotScheduler(SnapshotStore snapshotStore, AccountDao accountDao, TransferDao transferDao, Journal journal, long intervalSeconds) {
+        this.snapshotStore = snapshotStore;
+        this.accountDao = accountDao;
+        this.transferDao = transferDao;
+        this.journal = journal;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public synchronized void start() {
+        if (!journal.isEnabled() || intervalSeconds <= 0 || executorService != null) {
+            return;
+        }
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::snapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void snapshot() {
+        try {
+            long position = snapshotStore.write(accountDao, journal);
+            snapshotStore.deleteBefore(position);
+            journal.deleteBefore(Math.min(position, transferDao.getRetainedJournalPosition()));
+        } catch (Exception exception) {
+            LOG.error("account snapshot failed", exception);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executorService == null) {
+            return;
+        }
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.revolut.test.bankwire.journal;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.repo.AccountDao;
+import org.joda.money.CurrencyUnit;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Fuzzy snapshots of the account store. The journal position is taken before the walk over the accounts starts, and
+ * the walk runs alongside transfers, so an account may already show changes journaled after that position. Replay
+ * sets balances instead of adding to them, so replaying those changes again is harmless.
+ * <p>
+ * A snapshot is a directory of files, each holding a run of accounts in account number order. The files are loaded
+ * in parallel, and each loader inserts its accounts in order, which keeps the sorted account index cheap to rebuild.
+ * A snapshot is only renamed into place once every balance it holds is durable in the journal.
+ */
+public class SnapshotStore {
+
+    private static final int MAGIC = 0x42575350;
+
+    private static final int VERSION = 1;
+
+    private static final String PREFIX = "snapshot-";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int PAGE_SIZE = 4096;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 18;
+
+    private final Path directory;
+    private final int chunkSize;
+
+    public SnapshotStore(Path directory) {
+        this(directory, DEFAULT_CHUNK_SIZE);
+    }
+
+    public SnapshotStore(Path directory, int chunkSize) {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes a snapshot of the account store and returns the journal position replay has to start from.
+     */
+    public long write(AccountDao accountDao, Journal journal) throws Exception {
+        long position = journal.getPosition();
+        Path temp = directory.resolve(name(position) + TEMP_SUFFIX);
+        delete(temp);
+        Files.createDirectories(temp);
+
+        int chunk = 0;
+        String cursor = null;
+        List<Account> page = accountDao.findAccounts(null, null, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            try (FileOutputStream file = new FileOutputStream(temp.resolve(chunkFile(chunk++)).toFile())) {
+                CheckedOutputStream checksum = new CheckedOutputStream(file, new CRC32());
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(checksum, BUFFER_SIZE));
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(position);
+                long count = 0;
+                while (!page.isEmpty() && count < chunkSize) {
+                    int take = (int) Math.min(page.size(), chunkSize - count);
+                    for (Account account : page.subList(0, take)) {
+                        writeAccount(output, account);
+                    }
+                    count += take;
+                    cursor = page.get(take - 1).getAccountNumber();
+                    page = take < page.size() ? page.subList(take, page.size()) : accountDao.findAccounts(cursor, null, PAGE_SIZE);
+                }
+                output.writeByte(0);
+                output.writeLong(count);
+                output.flush();
+                output.writeInt((int) checksum.getChecksum().getValue());
+                output.flush();
+                file.getFD().sync();
+            }
+        }
+
+        journal.awaitDurable(journal.getPosition());
+        Files.move(temp, directory.resolve(name(position)), StandardCopyOption.ATOMIC_MOVE);
+        return position;
+    }
+
+    /**
+     * Restores the newest snapshot into the account store, one chunk per task, and returns the journal position
+     * replay has to start from.
+     */
+    public long load(AccountDao accountDao, ExecutorService executorService) throws Exception {
+        Optional<Path> latest = snapshots().stream().reduce((older, newer) -> newer);
+        if (!latest.isPresent()) {
+            return 0;
+        }
+        long position = position(latest.get());
+        List<Callable<Long>> loads = new ArrayList<>();
+        try (Stream<Path> files = Files.list(latest.get())) {
+            for (Path file : files.collect(Collectors.toList())) {
+                loads.add(() -> loadChunk(file, position, accountDao));
+            }
+        }
+        for (Future<Long> load : executorService.invokeAll(loads)) {
+            load.get();
+        }
+        return position;
+    }
+
+    /**
+     * Drops snapshots, and unfinished ones, older than the position.
+     */
+    public void deleteBefore(long position) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(this::isSnapshot).collect(Collectors.toList())) {
+                if (position(file) < position) {
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    private long loadChunk(Path file, long position, AccountDao accountDao) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = snapshot.capacity() - Integer.BYTES;
+            ByteBuffer content = snapshot.duplicate();
+            content.limit(Math.max(end, 0));
+            CRC32 checksum = new CRC32();
+            checksum.update(content);
+            if (end < HEADER_BYTES || (int) checksum.getValue() != snapshot.getInt(end)) {
+                throw new IOException(String.format("Snapshot file %s is corrupt", file));
+            }
+            if (snapshot.getInt() != MAGIC || snapshot.getInt() != VERSION || snapshot.getLong() != position) {
+                throw new IOException(String.format("Snapshot file %s is not a version %d snapshot at %d", file, VERSION, position));
+            }
+            long count = 0;
+            while (snapshot.get() != 0) {
+                accountDao.restoreAccount(readAccount(snapshot));
+                count++;
+            }
+            if (snapshot.getLong() != count) {
+                throw new IOException(String.format("Snapshot file %s is corrupt", file));
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The balance is read under the account lock, so it never shows a transfer whose journal record is not appended.
+     */
+    private void writeAccount(DataOutputStream output, Account account) throws IOException {
+        long balance;
+        account.getLock().lock();
+        try {
+            balance = account.getBalance();
+        } finally {
+            account.getLock().unlock();
+        }
+        User user = account.getUser();
+        output.writeByte(1);
+        writeString(output, account.getAccountNumber());
+        writeString(output, account.getCurrency() == null ? null : account.getCurrency().getCode());
+        writeString(output, user == null ? null : user.getFirstName());
+        writeString(output, user == null ? null : user.getLastName());
+        output.writeLong(balance);
+        output.writeLong(account.getCreatedDate() == null ? MappedJournal.NO_DATE : account.getCreatedDate().getTime());
+    }
+
+    private Account readAccount(ByteBuffer snapshot) {
+        String accountNumber = readString(snapshot);
+        String currencyCode = readString(snapshot);
+        String firstName = readString(snapshot);
+        String lastName = readString(snapshot);
+        long balance = snapshot.getLong();
+        long createdDate = snapshot.getLong();
+        Account account = new Account(accountNumber, new User(firstName, lastName), null, currencyCode == null ? null : CurrencyUnit.of(currencyCode),
+                createdDate == MappedJournal.NO_DATE ? null : new Date(createdDate));
+        account.setBalance(balance);
+        return account;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException(String.format("Snapshot field of %d bytes is too long", bytes.length));
+        }
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer snapshot) {
+        short length = snapshot.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        snapshot.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(this::isSnapshot)
+                    .filter(file -> !file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .sorted(Comparator.comparingLong(SnapshotStore::position))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private boolean isSnapshot(Path file) {
+        return Files.isDirectory(file) && file.getFileName().toString().startsWith(PREFIX);
+    }
+
+    private static long position(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        int end = name.endsWith(TEMP_SUFFIX) ? name.length() - TEMP_SUFFIX.length() : name.length();
+        return Long.parseLong(name.substring(PREFIX.length(), end));
+    }
+
+    private static String name(long position) {
+        return String.format("%s%020d", PREFIX, position);
+    }
+
+    private static String chunkFile(int chunk) {
+        return String.format("chunk-%06d.snapshot", chunk);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+}
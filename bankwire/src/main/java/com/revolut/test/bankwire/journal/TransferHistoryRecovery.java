@@ -0,0 +1,49 @@
+package com.revolut.test.bankwire.journal;
+
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.repo.TransferDao;
+import org.joda.money.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restores the transfers of the journal tail that the archive does not hold yet, in journal order, each leg of a
+ * batch as its own transfer. The archive already serves everything older, so startup reads only the tail.
+ */
+public class TransferHistoryRecovery {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransferHistoryRecovery.class);
+
+    private final JournalReader journalReader;
+
+    public TransferHistoryRecovery(JournalReader journalReader) {
+        this.journalReader = journalReader;
+    }
+
+    public void recover(TransferDao transferDao) throws IOException {
+        long startTime = System.nanoTime();
+        long[] transfers = new long[1];
+        journalReader.read(0, record -> {
+            if (record.getType() != MappedJournal.TRANSFER) {
+                return;
+            }
+            Transfer transfer = new TransferBuilder().setTransferId(record.getTransferId())
+                    .setFromAccountNumber(record.getAccountNumber())
+                    .setToAccountNumber(record.getToAccountNumber())
+                    .setCurrency(record.getCurrency())
+                    .setMoney(record.getCurrency() == null ? null : Money.ofMinor(record.getCurrency(), record.getAmount()))
+                    .setCreatedDate(record.getCreatedDate())
+                    .createTransfer();
+            transfer.setSequence(record.getSequence());
+            transfer.setJournalPosition(record.getPosition());
+            if (transferDao.restoreTransfer(transfer)) {
+                transfers[0]++;
+            }
+        });
+        LOG.info("transfer history recovered with {} transfers in {} ms", transfers[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+}
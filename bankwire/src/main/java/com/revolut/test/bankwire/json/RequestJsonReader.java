@@ -0,0 +1,130 @@
+package com.revolut.test.bankwire.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.revolut.test.bankwire.dto.AccountRequest;
+import com.revolut.test.bankwire.dto.TransferRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes request bodies into the immutable request objects in a single pass over the tokens. Values are kept as the
+ * text sent, so money may be "10.00" or 10.00 and never goes through a double; unknown fields are skipped.
+ */
+public class RequestJsonReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Returns null for an empty body.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fromJson(String json, Class<T> clazz) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            Object request;
+            if (clazz == TransferRequest.class) {
+                request = readTransferRequest(parser);
+            } else if (clazz == TransferRequest[].class) {
+                request = readTransferRequests(parser);
+            } else if (clazz == AccountRequest.class) {
+                request = readAccountRequest(parser);
+            } else {
+                throw new IllegalArgumentException(String.format("No JSON request format for %s", clazz.getName()));
+            }
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after the request");
+            }
+            return (T) request;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private TransferRequest[] readTransferRequests(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_ARRAY);
+        List<TransferRequest> requests = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            requests.add(readTransferRequest(parser));
+        }
+        return requests.toArray(new TransferRequest[0]);
+    }
+
+    private TransferRequest readTransferRequest(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        String senderAccountNumber = null;
+        String receiverAccountNumber = null;
+        String money = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "senderAccountNumber":
+                    senderAccountNumber = readText(parser);
+                    break;
+                case "receiverAccountNumber":
+                    receiverAccountNumber = readText(parser);
+                    break;
+                case "money":
+                    money = readText(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new TransferRequest(senderAccountNumber, receiverAccountNumber, money);
+    }
+
+    private AccountRequest readAccountRequest(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        String firstName = null;
+        String lastName = null;
+        String money = null;
+        String currencyCode = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "firstName":
+                    firstName = readText(parser);
+                    break;
+                case "lastName":
+                    lastName = readText(parser);
+                    break;
+                case "money":
+                    money = readText(parser);
+                    break;
+                case "currencyCode":
+                    currencyCode = readText(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new AccountRequest(firstName, lastName, money, currencyCode);
+    }
+
+    private String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING && !token.isNumeric()) {
+            throw new JsonParseException(parser, String.format("Expected a string or a number for %s", parser.getCurrentName()));
+        }
+        return parser.getText();
+    }
+
+    private void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token) {
+            throw new JsonParseException(parser, String.format("Expected %s", token.asString()));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.revolut.test.bankwire.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferResult;
+import com.revolut.test.bankwire.dto.TransferStatus;
+import com.revolut.test.bankwire.dto.User;
+import org.joda.money.CurrencyUnit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Writes API responses straight to the output stream, one hand-written method per response type, so no reflection
+ * or intermediate tree or String is built per response.
+ * <p>
+ * The schema is the one clients already read, fixed here instead of following the fields of the joda-money classes:
+ * money is {"money":{"currency":{...},"amount":60.00}}, dates are "Oct 18, 2026 5:38:11 AM" in the server's zone
+ * and null fields are left out.
+ */
+public class ResponseJsonWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM d, yyyy h:mm:ss a", Locale.US)
+            .withZone(ZoneId.systemDefault());
+
+    private static final SerializableString ITEMS = new SerializedString("items");
+    private static final SerializableString NEXT_CURSOR = new SerializedString("nextCursor");
+    private static final SerializableString ACCOUNT_NUMBER = new SerializedString("accountNumber");
+    private static final SerializableString USER = new SerializedString("user");
+    private static final SerializableString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializableString LAST_NAME = new SerializedString("lastName");
+    private static final SerializableString MONEY = new SerializedString("money");
+    private static final SerializableString CURRENCY = new SerializedString("currency");
+    private static final SerializableString CODE = new SerializedString("code");
+    private static final SerializableString NUMERIC_CODE = new SerializedString("numericCode");
+    private static final SerializableString DECIMAL_PLACES = new SerializedString("decimalPlaces");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString CREATED_DATE = new SerializedString("createdDate");
+    private static final SerializableString TRANSFER_ID = new SerializedString("transferId");
+    private static final SerializableString FROM_ACCOUNT_NUMBER = new SerializedString("fromAccountNumber");
+    private static final SerializableString TO_ACCOUNT_NUMBER = new SerializedString("toAccountNumber");
+    private static final SerializableString SEQUENCE = new SerializedString("sequence");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString MESSAGE = new SerializedString("message");
+    private static final SerializableString INDEX = new SerializedString("index");
+    private static final SerializableString TRANSFER = new SerializedString("transfer");
+
+    /**
+     * Writes the body without flushing or closing the stream, so a servlet response can still set its length.
+     */
+    public void write(Object body, OutputStream out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            writeValue(generator, body);
+        }
+    }
+
+    public void writePage(Iterable<?> items, Object nextCursor, OutputStream out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName(ITEMS);
+            writeValue(generator, items);
+            generator.writeFieldName(NEXT_CURSOR);
+            writeValue(generator, nextCursor);
+            generator.writeEndObject();
+        }
+    }
+
+    public String toJson(Object body) {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            writeValue(generator, body);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return json.toString();
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Account) {
+            writeAccount(generator, (Account) value);
+        } else if (value instanceof Transfer) {
+            writeTransfer(generator, (Transfer) value);
+        } else if (value instanceof TransferStatus) {
+            writeTransferStatus(generator, (TransferStatus) value);
+        } else if (value instanceof TransferResult) {
+            writeTransferResult(generator, (TransferResult) value);
+        } else if (value instanceof Long || value instanceof Integer) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Iterable) {
+            generator.writeStartArray();
+            for (Object item : (Iterable<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else {
+            throw new IllegalArgumentException(String.format("No JSON response format for %s", value.getClass().getName()));
+        }
+    }
+
+    private void writeAccount(JsonGenerator generator, Account account) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, ACCOUNT_NUMBER, account.getAccountNumber());
+        User user = account.getUser();
+        if (user != null) {
+            generator.writeFieldName(USER);
+            generator.writeStartObject();
+            writeString(generator, FIRST_NAME, user.getFirstName());
+            writeString(generator, LAST_NAME, user.getLastName());
+            generator.writeEndObject();
+        }
+        CurrencyUnit currency = account.getCurrency();
+        if (currency != null) {
+            writeMoney(generator, currency, account.getBalance());
+            writeCurrency(generator, CURRENCY, currency);
+        }
+        writeDate(generator, account.getCreatedDate());
+        generator.writeEndObject();
+    }
+
+    private void writeTransfer(JsonGenerator generator, Transfer transfer) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, TRANSFER_ID, transfer.getTransferId());
+        writeString(generator, FROM_ACCOUNT_NUMBER, transfer.getFromAccountNumber());
+        writeString(generator, TO_ACCOUNT_NUMBER, transfer.getToAccountNumber());
+        if (transfer.getMoney() != null) {
+            writeMoney(generator, transfer.getMoney().getCurrencyUnit(), transfer.getAmount());
+        }
+        if (transfer.getCurrency() != null) {
+            writeCurrency(generator, CURRENCY, transfer.getCurrency());
+        }
+        writeDate(generator, transfer.getCreatedDate());
+        generator.writeFieldName(SEQUENCE);
+        generator.writeNumber(transfer.getSequence());
+        generator.writeEndObject();
+    }
+
+    private void writeTransferStatus(JsonGenerator generator, TransferStatus transferStatus) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, TRANSFER_ID, transferStatus.getTransferId());
+        writeString(generator, STATUS, transferStatus.getStatus().name());
+        writeString(generator, MESSAGE, transferStatus.getMessage());
+        generator.writeEndObject();
+    }
+
+    private void writeTransferResult(JsonGenerator generator, TransferResult result) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(INDEX);
+        generator.writeNumber(result.getIndex());
+        writeString(generator, STATUS, result.getStatus().name());
+        if (result.getTransfer() != null) {
+            generator.writeFieldName(TRANSFER);
+            writeTransfer(generator, result.getTransfer());
+        }
+        writeString(generator, MESSAGE, result.getMessage());
+        generator.writeEndObject();
+    }
+
+    private void writeMoney(JsonGenerator generator, CurrencyUnit currency, long minorAmount) throws IOException {
+        generator.writeFieldName(MONEY);
+        generator.writeStartObject();
+        generator.writeFieldName(MONEY);
+        generator.writeStartObject();
+        writeCurrency(generator, CURRENCY, currency);
+        generator.writeFieldName(AMOUNT);
+        writeDecimal(generator, minorAmount, currency.getDecimalPlaces());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private void writeCurrency(JsonGenerator generator, SerializableString name, CurrencyUnit currency) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeStartObject();
+        writeString(generator, CODE, currency.getCode());
+        generator.writeFieldName(NUMERIC_CODE);
+        generator.writeNumber(currency.getNumericCode());
+        generator.writeFieldName(DECIMAL_PLACES);
+        generator.writeNumber(currency.getDecimalPlaces());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes minor units as a decimal with exactly the currency's scale, 6000 cents as 60.00, the way BigDecimal
+     * prints the joda-money amount.
+     */
+    private void writeDecimal(JsonGenerator generator, long minorAmount, int scale) throws IOException {
+        char[] digits = new char[24];
+        int position = digits.length;
+        long remaining = Math.abs(minorAmount);
+        for (int digit = 0; digit <= scale || remaining > 0; digit++) {
+            if (digit == scale && scale > 0) {
+                digits[--position] = '.';
+            }
+            digits[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        if (minorAmount < 0) {
+            digits[--position] = '-';
+        }
+        generator.writeRawValue(digits, position, digits.length - position);
+    }
+
+    private void writeDate(JsonGenerator generator, Date date) throws IOException {
+        if (date != null) {
+            generator.writeFieldName(CREATED_DATE);
+            generator.writeString(DATE_FORMAT.format(date.toInstant()));
+        }
+    }
+
+    private void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.revolut.test.bankwire.metrics;
+
+import io.javalin.Context;
+import io.javalin.Handler;
+
+/**
+ * Times a route and counts the requests it answers with a 4xx or 5xx status.
+ */
+public class TimedHandler implements Handler {
+
+    private final Handler handler;
+    private final LatencyHistogram latency;
+    private final Counter rejections;
+
+    public TimedHandler(String endpoint, Handler handler) {
+        this.handler = handler;
+        this.latency = Metrics.histogram("bankwire_request_seconds", "Request latency per endpoint", "endpoint", endpoint);
+        this.rejections = Metrics.counter("bankwire_request_rejections_total", "Requests answered with a 4xx or 5xx status", "endpoint", endpoint);
+    }
+
+    @Override
+    public void handle(Context context) throws Exception {
+        long start = System.nanoTime();
+        try {
+            handler.handle(context);
+        } catch (Exception exception) {
+            rejections.increment();
+            throw exception;
+        } finally {
+            latency.recordSince(start);
+        }
+        if (context.status() >= 400) {
+            rejections.increment();
+        }
+    }
+}
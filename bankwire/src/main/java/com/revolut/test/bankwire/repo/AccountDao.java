@@ -1,26 +1,49 @@
-package com.revolut.test.bankwire.repo;
-
-import com.revolut.test.bankwire.dto.Account;
-import org.joda.money.Money;
-
-import java.util.List;
-import java.util.Optional;
-
-
-public interface AccountDao {
-
-    Optional<Account> findByAccountNumber(String accountNumber);
-
-    List<Account> findAllAccounts();
-
-    Account createAccount(Account account) throws Exception;
-
-    Account deleteAccount(String accountNumber) throws Exception;
-
-    void deductAccount(Account account, Money money) throws Exception;
-
-    void creditAccount(Account account, Money money) throws Exception;
-
-    void clearAccounts();
-
-}
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Account;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.util.List;
+import java.util.Optional;
+
+
+public interface AccountDao {
+
+    Optional<Account> findByAccountNumber(String accountNumber);
+
+    List<Account> findAllAccounts();
+
+    List<Account> findAccounts(String afterAccountNumber, CurrencyUnit currency, int limit);
+
+    Account createAccount(Account account) throws Exception;
+
+    Account deleteAccount(String accountNumber) throws Exception;
+
+    void deductAccount(Account account, Money money) throws Exception;
+
+    void creditAccount(Account account, Money money) throws Exception;
+
+    void deductAccount(Account account, long amount) throws Exception;
+
+    void creditAccount(Account account, long amount) throws Exception;
+
+    /**
+     * Called when a transfer found the receiving account locked; an account contended often enough turns hot and
+     * takes credits without its lock.
+     */
+    void recordCreditContention(Account account);
+
+    void clearAccounts();
+
+    long countAccounts();
+
+    /**
+     * Puts an account recovered from a snapshot or the journal, replacing any held under its number, without
+     * journaling it again.
+     */
+    void restoreAccount(Account account);
+
+    void evictAccount(String accountNumber);
+
+}
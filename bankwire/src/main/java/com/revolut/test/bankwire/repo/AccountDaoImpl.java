@@ -1,73 +1,236 @@
-package com.revolut.test.bankwire.repo;
-
-import com.revolut.test.bankwire.dto.Account;
-import com.revolut.test.bankwire.exception.AccountAlreadyExistsException;
-import com.revolut.test.bankwire.exception.AccountNotFoundException;
-import org.joda.money.Money;
-
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-
-public class AccountDaoImpl implements AccountDao {
-
-    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
-
-    @Override
-    public Optional<Account> findByAccountNumber(String accountNumber) {
-        Account account = accounts.get(accountNumber);
-        if (account == null) {
-            return Optional.empty();
-        }
-        return Optional.of(accounts.get(accountNumber));
-    }
-
-    @Override
-    public List<Account> findAllAccounts() {
-        return accounts.values().stream().collect(Collectors.toList());
-    }
-
-    @Override
-    public Account createAccount(Account account) throws Exception {
-        if (accounts.containsKey(account.getAccountNumber())) {
-            throw new AccountAlreadyExistsException(String.format("Account %s already exists", account.getAccountNumber()));
-        }
-
-        accounts.put(account.getAccountNumber(), account);
-        return account;
-    }
-
-    @Override
-    public Account deleteAccount(String accountNumber) throws Exception {
-        if (!accounts.containsKey(accountNumber)) {
-            throw new AccountNotFoundException(String.format("Account %s not Found", accountNumber));
-        }
-        return accounts.remove(accountNumber);
-
-    }
-
-    @Override
-    public void deductAccount(Account account, Money money) throws Exception {
-        if (!accounts.containsKey(account.getAccountNumber())) {
-            throw new AccountNotFoundException(String.format("Account %s not Found", account.getAccountNumber()));
-        }
-        account.setMoney(account.getMoney().minus(money));
-        accounts.put(account.getAccountNumber(), account);
-    }
-
-    @Override
-    public void creditAccount(Account account, Money money) throws Exception {
-        if (!accounts.containsKey(account.getAccountNumber())) {
-            throw new AccountNotFoundException(String.format("Account %s not Found", account.getAccountNumber()));
-        }
-        account.setMoney(account.getMoney().plus(money));
-        accounts.put(account.getAccountNumber(), account);
-    }
-
-    @Override
-    public void clearAccounts() {
-        accounts.clear();
-    }
-}
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.exception.AccountAlreadyExistsException;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.journal.Journal;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.Metrics;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+public class AccountDaoImpl implements AccountDao {
+
+    private static final Counter BALANCE_RETRIES = Metrics.counter("bankwire_balance_cas_retries_total", "Balance updates retried after losing a compare-and-set");
+    private static final Counter HOT_ACCOUNTS = Metrics.counter("bankwire_hot_accounts_total", "Accounts switched to striped credits");
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    private final NavigableSet<String> accountNumbers = new ConcurrentSkipListSet<>();
+
+    private final Journal journal;
+
+    private final Set<String> hotAccountNumbers;
+
+    private final int hotContentionThreshold;
+
+    public AccountDaoImpl() {
+        this(new DisabledJournal());
+    }
+
+    public AccountDaoImpl(Journal journal) {
+        this(journal, Collections.emptySet(), 0);
+    }
+
+    /**
+     * Accounts listed in hotAccountNumbers are hot from creation; any other account turns hot once it has been found
+     * locked hotContentionThreshold times while being credited, 0 to never detect.
+     */
+    public AccountDaoImpl(Journal journal, Set<String> hotAccountNumbers, int hotContentionThreshold) {
+        if (journal.isEnabled() && (!hotAccountNumbers.isEmpty() || hotContentionThreshold > 0)) {
+            throw new IllegalArgumentException("Hot accounts need the journal off, their credits are not applied under the account lock");
+        }
+        this.journal = journal;
+        this.hotAccountNumbers = hotAccountNumbers;
+        this.hotContentionThreshold = hotContentionThreshold;
+    }
+
+    @Override
+    public Optional<Account> findByAccountNumber(String accountNumber) {
+        Account account = accounts.get(accountNumber);
+        if (account == null) {
+            return Optional.empty();
+        }
+        return Optional.of(accounts.get(accountNumber));
+    }
+
+    @Override
+    public List<Account> findAllAccounts() {
+        return accounts.values().stream().collect(Collectors.toList());
+    }
+
+    /**
+     * Walks the account numbers after the cursor in order. The walk is weakly consistent: accounts created or
+     * deleted while it runs may or may not be seen.
+     */
+    @Override
+    public List<Account> findAccounts(String afterAccountNumber, CurrencyUnit currency, int limit) {
+        List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+        NavigableSet<String> numbers = afterAccountNumber == null ? accountNumbers : accountNumbers.tailSet(afterAccountNumber, false);
+        for (String accountNumber : numbers) {
+            if (page.size() == limit) {
+                break;
+            }
+            Account account = accounts.get(accountNumber);
+            if (account != null && (currency == null || currency.equals(account.getCurrency()))) {
+                page.add(account);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * The account's lock is held until its creation is journaled, so no transfer touching it can be journaled first.
+     * It is listed before being journaled, so a snapshot started after the record always walks over it.
+     */
+    @Override
+    public Account createAccount(Account account) throws Exception {
+        long journalPosition;
+        account.getLock().lock();
+        try {
+            if (accounts.putIfAbsent(account.getAccountNumber(), account) != null) {
+                throw new AccountAlreadyExistsException(String.format("Account %s already exists", account.getAccountNumber()));
+            }
+            accountNumbers.add(account.getAccountNumber());
+            if (hotAccountNumbers.contains(account.getAccountNumber())) {
+                markHot(account);
+            }
+            try {
+                journalPosition = journal.appendAccountCreated(account);
+            } catch (IOException exception) {
+                accountNumbers.remove(account.getAccountNumber());
+                accounts.remove(account.getAccountNumber(), account);
+                throw exception;
+            }
+        } finally {
+            account.getLock().unlock();
+        }
+        journal.awaitDurable(journalPosition);
+        return account;
+    }
+
+    @Override
+    public Account deleteAccount(String accountNumber) throws Exception {
+        Account account = accounts.get(accountNumber);
+        if (account == null) {
+            throw new AccountNotFoundException(String.format("Account %s not Found", accountNumber));
+        }
+        long journalPosition;
+        account.getLock().lock();
+        try {
+            if (!accounts.remove(accountNumber, account)) {
+                throw new AccountNotFoundException(String.format("Account %s not Found", accountNumber));
+            }
+            accountNumbers.remove(accountNumber);
+            journalPosition = journal.appendAccountDeleted(accountNumber);
+        } finally {
+            account.getLock().unlock();
+        }
+        journal.awaitDurable(journalPosition);
+        return account;
+
+    }
+
+    @Override
+    public void deductAccount(Account account, Money money) throws Exception {
+        deductAccount(account, minorAmount(account, money));
+    }
+
+    @Override
+    public void creditAccount(Account account, Money money) throws Exception {
+        creditAccount(account, minorAmount(account, money));
+    }
+
+    @Override
+    public void deductAccount(Account account, long amount) throws Exception {
+        if (!accounts.containsKey(account.getAccountNumber())) {
+            throw new AccountNotFoundException(String.format("Account %s not Found", account.getAccountNumber()));
+        }
+        while (true) {
+            long balance = account.getBalance();
+            if (balance < amount) {
+                throw new InSufficientAccountBalanceException(String.format("InSufficient Account Balance %s", account.getMoney()));
+            }
+            if (account.compareAndSetBalance(balance, balance - amount)) {
+                return;
+            }
+            BALANCE_RETRIES.increment();
+        }
+    }
+
+    @Override
+    public void creditAccount(Account account, long amount) throws Exception {
+        if (!accounts.containsKey(account.getAccountNumber())) {
+            throw new AccountNotFoundException(String.format("Account %s not Found", account.getAccountNumber()));
+        }
+        if (account.isHot()) {
+            account.addHotCredit(amount);
+            return;
+        }
+        while (true) {
+            long balance = account.getBalance();
+            if (account.compareAndSetBalance(balance, Math.addExact(balance, amount))) {
+                return;
+            }
+            BALANCE_RETRIES.increment();
+        }
+    }
+
+    @Override
+    public void recordCreditContention(Account account) {
+        if (hotContentionThreshold > 0 && !account.isHot() && account.recordContention() >= hotContentionThreshold) {
+            markHot(account);
+        }
+    }
+
+    private void markHot(Account account) {
+        if (account.markHot()) {
+            HOT_ACCOUNTS.increment();
+        }
+    }
+
+    private long minorAmount(Account account, Money money) {
+        if (!money.getCurrencyUnit().equals(account.getCurrency())) {
+            throw new CurrencyMismatchException(account.getCurrency(), money.getCurrencyUnit());
+        }
+        return money.getAmountMinorLong();
+    }
+
+    @Override
+    public void clearAccounts() {
+        accounts.clear();
+        accountNumbers.clear();
+    }
+
+    @Override
+    public long countAccounts() {
+        return accounts.size();
+    }
+
+    @Override
+    public void restoreAccount(Account account) {
+        accounts.put(account.getAccountNumber(), account);
+        accountNumbers.add(account.getAccountNumber());
+    }
+
+    @Override
+    public void evictAccount(String accountNumber) {
+        accountNumbers.remove(accountNumber);
+        accounts.remove(accountNumber);
+    }
+}
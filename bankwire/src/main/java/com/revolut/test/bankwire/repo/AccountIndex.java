@@ -0,0 +1,146 @@
+package com.revolut.test.bankwire.repo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Open-addressing hash table in direct memory from account number to record slot, probed linearly. An entry is the
+ * 128-bit key of the account number as two longs, an int slot + 1, 0 when the entry is empty, and an int telling a
+ * UUID key from a hashed one. A UUID key matches on its two longs alone; a hashed key is confirmed against the
+ * account number in the record.
+ * <p>
+ * Removing an entry shifts the entries probed past it back instead of leaving a marker, so the table holds exactly
+ * one entry per account. Sized for twice the record capacity, it stays at most half full however often slots are
+ * freed and reused, and never grows. Not thread-safe: writers must be serialized and readers must validate what they
+ * read against them.
+ */
+final class AccountIndex {
+
+    private static final int ENTRY_BYTES = 24;
+
+    private static final int SLOT = 16;
+
+    private static final int KIND = 20;
+
+    private static final int EMPTY = 0;
+
+    private static final int UUID_KEY = 1;
+
+    private static final int HASHED_KEY = 2;
+
+    static final int MAX_CAPACITY = 1 << 25;
+
+    private final AccountRecords records;
+
+    private final ByteBuffer table;
+
+    private final int mask;
+
+    AccountIndex(AccountRecords records) {
+        if (records.getCapacity() > MAX_CAPACITY) {
+            throw new IllegalArgumentException(String.format("Account capacity %d is above %d", records.getCapacity(), MAX_CAPACITY));
+        }
+        int entries = Integer.highestOneBit(Math.max(records.getCapacity(), 1) * 2 - 1) << 1;
+        this.records = records;
+        this.table = ByteBuffer.allocateDirect(entries * ENTRY_BYTES);
+        this.mask = entries - 1;
+    }
+
+    /**
+     * Returns the slot of the account number, -1 if it has none.
+     */
+    int find(String accountNumber) {
+        int entry = findEntry(accountNumber);
+        return entry < 0 ? -1 : table.getInt(entry * ENTRY_BYTES + SLOT) - 1;
+    }
+
+    /**
+     * Adds an account number known to be absent.
+     */
+    void insert(String accountNumber, int slot) {
+        if (AccountKeys.isUuid(accountNumber)) {
+            insert(AccountKeys.uuidHigh(accountNumber), AccountKeys.uuidLow(accountNumber), UUID_KEY, slot);
+        } else {
+            byte[] bytes = accountNumber.getBytes(StandardCharsets.UTF_8);
+            insert(AccountKeys.hashHigh(bytes), AccountKeys.hashLow(bytes), HASHED_KEY, slot);
+        }
+    }
+
+    /**
+     * Removes the account number, returning its slot, -1 if it had none. Each later entry of the probe run whose home
+     * is not between the hole and itself moves into the hole, so no probe stops short of its key.
+     */
+    int remove(String accountNumber) {
+        int entry = findEntry(accountNumber);
+        if (entry < 0) {
+            return -1;
+        }
+        int slot = table.getInt(entry * ENTRY_BYTES + SLOT) - 1;
+        int hole = entry;
+        for (int next = (hole + 1) & mask; table.getInt(next * ENTRY_BYTES + SLOT) != EMPTY; next = (next + 1) & mask) {
+            int offset = next * ENTRY_BYTES;
+            int home = AccountKeys.spread(table.getLong(offset), table.getLong(offset + 8)) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                int holeOffset = hole * ENTRY_BYTES;
+                table.putLong(holeOffset, table.getLong(offset));
+                table.putLong(holeOffset + 8, table.getLong(offset + 8));
+                table.putInt(holeOffset + KIND, table.getInt(offset + KIND));
+                table.putInt(holeOffset + SLOT, table.getInt(offset + SLOT));
+                hole = next;
+            }
+        }
+        table.putInt(hole * ENTRY_BYTES + SLOT, EMPTY);
+        return slot;
+    }
+
+    void clear() {
+        for (int offset = 0; offset < table.capacity(); offset += Long.BYTES) {
+            table.putLong(offset, 0);
+        }
+    }
+
+    private int findEntry(String accountNumber) {
+        if (AccountKeys.isUuid(accountNumber)) {
+            return findEntry(AccountKeys.uuidHigh(accountNumber), AccountKeys.uuidLow(accountNumber), null);
+        }
+        byte[] bytes = accountNumber.getBytes(StandardCharsets.UTF_8);
+        return findEntry(AccountKeys.hashHigh(bytes), AccountKeys.hashLow(bytes), bytes);
+    }
+
+    /**
+     * Probes for a UUID key when accountNumber is null, for a hashed key of those bytes otherwise.
+     */
+    private int findEntry(long high, long low, byte[] accountNumber) {
+        int kind = accountNumber == null ? UUID_KEY : HASHED_KEY;
+        int entry = AccountKeys.spread(high, low) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int offset = entry * ENTRY_BYTES;
+            int value = table.getInt(offset + SLOT);
+            if (value == EMPTY) {
+                return -1;
+            }
+            if (table.getLong(offset) == high && table.getLong(offset + 8) == low && table.getInt(offset + KIND) == kind
+                    && (accountNumber == null || records.accountNumberEquals(value - 1, accountNumber))) {
+                return entry;
+            }
+            entry = (entry + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long high, long low, int kind, int slot) {
+        int entry = AccountKeys.spread(high, low) & mask;
+        while (true) {
+            int offset = entry * ENTRY_BYTES;
+            int value = table.getInt(offset + SLOT);
+            if (value == EMPTY) {
+                table.putLong(offset, high);
+                table.putLong(offset + 8, low);
+                table.putInt(offset + KIND, kind);
+                table.putInt(offset + SLOT, slot + 1);
+                return;
+            }
+            entry = (entry + 1) & mask;
+        }
+    }
+}
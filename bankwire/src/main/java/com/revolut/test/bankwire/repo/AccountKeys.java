@@ -0,0 +1,111 @@
+package com.revolut.test.bankwire.repo;
+
+import java.util.Arrays;
+
+/**
+ * 128-bit keys for account numbers. An account number in the lowercase UUID form the API hands out is its own key,
+ * the two longs of the UUID, and is told apart from any other account number without looking at its text; any
+ * other account number is keyed by a 128-bit hash of its UTF-8 bytes, and a match still has to be confirmed.
+ */
+final class AccountKeys {
+
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * Value of each lowercase hex digit below 128, -1 for any other character; a table keeps the branches out of
+     * parsing random digits.
+     */
+    private static final byte[] HEX_DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(HEX_DIGITS, (byte) -1);
+        for (int digit = 0; digit < 16; digit++) {
+            HEX_DIGITS[Character.forDigit(digit, 16)] = (byte) digit;
+        }
+    }
+
+    private AccountKeys() {
+    }
+
+    /**
+     * Whether the account number is exactly what UUID.toString makes, so its key turns back into the same text.
+     */
+    static boolean isUuid(String accountNumber) {
+        if (accountNumber.length() != UUID_LENGTH || accountNumber.charAt(8) != '-' || accountNumber.charAt(13) != '-'
+                || accountNumber.charAt(18) != '-' || accountNumber.charAt(23) != '-') {
+            return false;
+        }
+        int invalid = invalidDigits(accountNumber, 0, 8) | invalidDigits(accountNumber, 9, 13) | invalidDigits(accountNumber, 14, 18)
+                | invalidDigits(accountNumber, 19, 23) | invalidDigits(accountNumber, 24, UUID_LENGTH);
+        return invalid == 0;
+    }
+
+    /**
+     * The most significant bits of a UUID account number.
+     */
+    static long uuidHigh(String accountNumber) {
+        return parseHex(parseHex(parseHex(0, accountNumber, 0, 8), accountNumber, 9, 13), accountNumber, 14, 18);
+    }
+
+    /**
+     * The least significant bits of a UUID account number.
+     */
+    static long uuidLow(String accountNumber) {
+        return parseHex(parseHex(0, accountNumber, 19, 23), accountNumber, 24, UUID_LENGTH);
+    }
+
+    static long hashHigh(byte[] accountNumber) {
+        return hash(accountNumber, 0xcbf29ce484222325L);
+    }
+
+    static long hashLow(byte[] accountNumber) {
+        return hash(accountNumber, 0x9e3779b97f4a7c15L);
+    }
+
+    /**
+     * Spreads a key over the bits of an int, for picking a hash table bucket.
+     */
+    static int spread(long high, long low) {
+        long mixed = mix(high ^ Long.rotateLeft(low, 32));
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * Non-zero if any character in the range is not a lowercase hex digit.
+     */
+    private static int invalidDigits(String text, int from, int to) {
+        int invalid = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            invalid |= (c >>> 7) | (HEX_DIGITS[c & 0x7F] >>> 4);
+        }
+        return invalid;
+    }
+
+    /**
+     * The digits are known to be lowercase hex.
+     */
+    private static long parseHex(long value, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            value = (value << 4) | HEX_DIGITS[text.charAt(i)];
+        }
+        return value;
+    }
+
+    private static long hash(byte[] bytes, long seed) {
+        long hash = seed;
+        for (byte value : bytes) {
+            hash = (hash ^ (value & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
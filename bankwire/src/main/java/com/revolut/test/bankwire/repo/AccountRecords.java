@@ -0,0 +1,557 @@
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.User;
+import org.joda.money.CurrencyUnit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-width account records in direct memory, addressed by slot and allocated a chunk at a time.
+ * <p>
+ * Layout of a record: long balance, long created time, long lock owner thread id, int lock holds, byte
+ * state, 3 bytes currency code (zeros for none), byte flags, int generation, int next free slot, then the account
+ * number, first name and last name, each a length byte (255 for null) and UTF-8 padded to its fixed width.
+ * <p>
+ * Deleting an account bumps the generation of its slot, and a view carries the generation it was made for, so once
+ * the slot is reused the balance updates of an old view fail as they would for the deleted account. Deleted slots
+ * are chained through their next free slot field.
+ * <p>
+ * The balance, generation and lock fields of a slot are guarded by one of a fixed set of stripe locks, held only for
+ * the few loads and stores of an operation. The account lock handed out for a slot is a reentrant lock whose owner
+ * and hold count live in the record, waiting on its stripe's condition, so locking an account costs no heap object.
+ */
+final class AccountRecords {
+
+    static final int MAX_ACCOUNT_NUMBER_BYTES = 63;
+
+    static final int MAX_NAME_BYTES = 74;
+
+    static final byte FREE = 0;
+
+    static final byte LIVE = 1;
+
+    static final byte DELETED = 2;
+
+    private static final int RECORD_BYTES = 256;
+
+    private static final int BALANCE = 0;
+
+    private static final int CREATED_DATE = 8;
+
+    private static final int LOCK_OWNER = 16;
+
+    private static final int LOCK_HOLDS = 24;
+
+    private static final int STATE = 28;
+
+    private static final int CURRENCY = 29;
+
+    private static final int FLAGS = 32;
+
+    private static final int GENERATION = 33;
+
+    private static final int NEXT_FREE = 37;
+
+    private static final int ACCOUNT_NUMBER = 41;
+
+    private static final int FIRST_NAME = ACCOUNT_NUMBER + 1 + MAX_ACCOUNT_NUMBER_BYTES;
+
+    private static final int LAST_NAME = FIRST_NAME + 1 + MAX_NAME_BYTES;
+
+    private static final int HAS_USER = 1;
+
+    private static final int NULL_LENGTH = 0xFF;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final long NO_OWNER = 0;
+
+    private static final int CHUNK_BITS = 16;
+
+    private static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+
+    private static final int STRIPES = 4096;
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<ByteBuffer> chunks;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private final Condition[] released = new Condition[STRIPES];
+
+    AccountRecords(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Account capacity %d must be positive", capacity));
+        }
+        this.capacity = capacity;
+        this.chunks = new AtomicReferenceArray<>((capacity + CHUNK_RECORDS - 1) >>> CHUNK_BITS);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+            released[i] = stripes[i].newCondition();
+        }
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    static byte[] encodeAccountNumber(String accountNumber) {
+        byte[] bytes = accountNumber.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_ACCOUNT_NUMBER_BYTES) {
+            throw new IllegalArgumentException(String.format("Account number longer than %d bytes", MAX_ACCOUNT_NUMBER_BYTES));
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes every field of the account into the slot, keeping its generation. The slot must not be reachable by
+     * other threads yet, or be held through its account lock. A locked record is written already held once by the
+     * calling thread. Returns false, writing nothing, when another thread holds the lock, or any thread does for a
+     * locked write, as a thread with a view of the deleted account may for a freed slot.
+     */
+    boolean write(int slot, byte[] accountNumber, Account account, long balance, boolean locked) {
+        byte[] firstName = account.getUser() == null ? null : encodeName(account.getUser().getFirstName());
+        byte[] lastName = account.getUser() == null ? null : encodeName(account.getUser().getLastName());
+        ByteBuffer chunk = allocate(slot);
+        int offset = offset(slot);
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            if (chunk.getInt(offset + LOCK_HOLDS) != 0 && (locked || chunk.getLong(offset + LOCK_OWNER) != Thread.currentThread().getId())) {
+                return false;
+            }
+            chunk.putLong(offset + BALANCE, balance);
+            chunk.putLong(offset + CREATED_DATE, account.getCreatedDate() == null ? NO_DATE : account.getCreatedDate().getTime());
+            if (locked) {
+                chunk.putLong(offset + LOCK_OWNER, Thread.currentThread().getId());
+                chunk.putInt(offset + LOCK_HOLDS, 1);
+            }
+            CurrencyUnit currency = account.getCurrency();
+            for (int i = 0; i < 3; i++) {
+                chunk.put(offset + CURRENCY + i, currency == null ? 0 : (byte) currency.getCode().charAt(i));
+            }
+            chunk.put(offset + FLAGS, (byte) (account.getUser() == null ? 0 : HAS_USER));
+            putBytes(chunk, offset + ACCOUNT_NUMBER, accountNumber);
+            putBytes(chunk, offset + FIRST_NAME, firstName);
+            putBytes(chunk, offset + LAST_NAME, lastName);
+            chunk.put(offset + STATE, LIVE);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Marks the slot deleted, bumps its generation and chains it in front of the next free slot; its lock keeps
+     * working, so a thread waiting for it gets it and then finds the account gone, as with a heap account removed from
+     * the store.
+     */
+    void delete(int slot, int nextFree) {
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            chunk.put(offset + STATE, DELETED);
+            chunk.putInt(offset + GENERATION, (chunk.getInt(offset + GENERATION) + 1) & Integer.MAX_VALUE);
+            chunk.putInt(offset + NEXT_FREE, nextFree);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * The free slot chained after this deleted one, -1 for none.
+     */
+    int getNextFree(int slot) {
+        return chunk(slot).getInt(offset(slot) + NEXT_FREE);
+    }
+
+    void setNextFree(int slot, int nextFree) {
+        chunk(slot).putInt(offset(slot) + NEXT_FREE, nextFree);
+    }
+
+    /**
+     * The generation of the slot, never negative, 0 for a slot not written since the store was cleared.
+     */
+    int getGeneration(int slot) {
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            ByteBuffer chunk = chunk(slot);
+            return chunk == null ? 0 : chunk.getInt(offset(slot) + GENERATION);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Forgets every record. Views of the cleared accounts must not be used afterwards, their slots are handed out
+     * again.
+     */
+    void clear() {
+        for (int i = 0; i < chunks.length(); i++) {
+            chunks.set(i, null);
+        }
+    }
+
+    byte getState(int slot) {
+        ByteBuffer chunk = chunks.get(slot >>> CHUNK_BITS);
+        if (chunk == null) {
+            return FREE;
+        }
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            return chunk.get(offset(slot) + STATE);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    boolean isLive(int slot) {
+        return getState(slot) == LIVE;
+    }
+
+    long getBalance(int slot) {
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            return chunk(slot).getLong(offset(slot) + BALANCE);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Sets the balance unless the slot has moved on from the generation.
+     */
+    void setBalance(int slot, int generation, long balance) {
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            if (chunk.getInt(offset + GENERATION) == generation) {
+                chunk.putLong(offset + BALANCE, balance);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    boolean compareAndSetBalance(int slot, int generation, long expected, long updated) {
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            if (chunk.getInt(offset + GENERATION) != generation || chunk.getLong(offset + BALANCE) != expected) {
+                return false;
+            }
+            chunk.putLong(offset + BALANCE, updated);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Takes the amount off a live account's balance, returning the balance it had, which is below the amount when
+     * nothing was taken, or Long.MIN_VALUE when the account of the generation is deleted.
+     */
+    long deduct(int slot, int generation, long amount) {
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            if (chunk.get(offset + STATE) != LIVE || chunk.getInt(offset + GENERATION) != generation) {
+                return Long.MIN_VALUE;
+            }
+            long balance = chunk.getLong(offset + BALANCE);
+            if (balance >= amount) {
+                chunk.putLong(offset + BALANCE, balance - amount);
+            }
+            return balance;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Adds the amount to a live account's balance, returning false when the account of the generation is deleted.
+     */
+    boolean credit(int slot, int generation, long amount) {
+        ReentrantLock stripe = stripe(slot);
+        stripe.lock();
+        try {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            if (chunk.get(offset + STATE) != LIVE || chunk.getInt(offset + GENERATION) != generation) {
+                return false;
+            }
+            chunk.putLong(offset + BALANCE, Math.addExact(chunk.getLong(offset + BALANCE), amount));
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    CurrencyUnit getCurrency(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot) + CURRENCY;
+        if (chunk.get(offset) == 0) {
+            return null;
+        }
+        return CurrencyUnit.of(new String(new char[]{(char) chunk.get(offset), (char) chunk.get(offset + 1), (char) chunk.get(offset + 2)}));
+    }
+
+    Date getCreatedDate(int slot) {
+        long createdDate = chunk(slot).getLong(offset(slot) + CREATED_DATE);
+        return createdDate == NO_DATE ? null : new Date(createdDate);
+    }
+
+    User getUser(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        if ((chunk.get(offset + FLAGS) & HAS_USER) == 0) {
+            return null;
+        }
+        return new User(getString(chunk, offset + FIRST_NAME), getString(chunk, offset + LAST_NAME));
+    }
+
+    String getAccountNumber(int slot) {
+        return getString(chunk(slot), offset(slot) + ACCOUNT_NUMBER);
+    }
+
+    /**
+     * Safe to call on a slot read without synchronization: a slot whose chunk is not visible yet or was cleared matches
+     * nothing.
+     */
+    boolean accountNumberEquals(int slot, byte[] accountNumber) {
+        ByteBuffer chunk = chunks.get(slot >>> CHUNK_BITS);
+        int offset = offset(slot) + ACCOUNT_NUMBER;
+        if (chunk == null || (chunk.get(offset) & 0xFF) != accountNumber.length) {
+            return false;
+        }
+        for (int i = 0; i < accountNumber.length; i++) {
+            if (chunk.get(offset + 1 + i) != accountNumber[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders two slots by the UTF-8 bytes of their account numbers, which is String order for ASCII numbers.
+     */
+    int compareAccountNumbers(int slot, int otherSlot) {
+        ByteBuffer chunk = chunk(slot);
+        ByteBuffer otherChunk = chunk(otherSlot);
+        int offset = offset(slot) + ACCOUNT_NUMBER;
+        int otherOffset = offset(otherSlot) + ACCOUNT_NUMBER;
+        int length = chunk.get(offset) & 0xFF;
+        int otherLength = otherChunk.get(otherOffset) & 0xFF;
+        for (int i = 1; i <= Math.min(length, otherLength); i++) {
+            int compared = Integer.compare(chunk.get(offset + i) & 0xFF, otherChunk.get(otherOffset + i) & 0xFF);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, otherLength);
+    }
+
+    int compareAccountNumber(int slot, byte[] accountNumber) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot) + ACCOUNT_NUMBER;
+        int length = chunk.get(offset) & 0xFF;
+        for (int i = 0; i < Math.min(length, accountNumber.length); i++) {
+            int compared = Integer.compare(chunk.get(offset + 1 + i) & 0xFF, accountNumber[i] & 0xFF);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, accountNumber.length);
+    }
+
+    Lock lock(int slot) {
+        return new SlotLock(slot);
+    }
+
+    private static byte[] encodeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException(String.format("Name longer than %d bytes", MAX_NAME_BYTES));
+        }
+        return bytes;
+    }
+
+    private static void putBytes(ByteBuffer chunk, int offset, byte[] bytes) {
+        if (bytes == null) {
+            chunk.put(offset, (byte) NULL_LENGTH);
+            return;
+        }
+        chunk.put(offset, (byte) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            chunk.put(offset + 1 + i, bytes[i]);
+        }
+    }
+
+    private static String getString(ByteBuffer chunk, int offset) {
+        int length = chunk.get(offset) & 0xFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = chunk.get(offset + 1 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer allocate(int slot) {
+        if (slot < 0 || slot >= capacity) {
+            throw new IllegalStateException(String.format("Account store is full at %d accounts", capacity));
+        }
+        ByteBuffer chunk = chunks.get(slot >>> CHUNK_BITS);
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(Math.min(CHUNK_RECORDS, capacity - (slot & ~(CHUNK_RECORDS - 1))) * RECORD_BYTES);
+            chunks.set(slot >>> CHUNK_BITS, chunk);
+        }
+        return chunk;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks.get(slot >>> CHUNK_BITS);
+    }
+
+    private static int offset(int slot) {
+        return (slot & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+    }
+
+    private ReentrantLock stripe(int slot) {
+        return stripes[slot & (STRIPES - 1)];
+    }
+
+    /**
+     * The account lock of a slot. Any number of these may exist for one slot, they all share the state in the record.
+     */
+    private final class SlotLock implements Lock {
+
+        private final int slot;
+
+        private SlotLock(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public void lock() {
+            ReentrantLock stripe = stripe(slot);
+            stripe.lock();
+            try {
+                while (!tryAcquire()) {
+                    released[slot & (STRIPES - 1)].awaitUninterruptibly();
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            ReentrantLock stripe = stripe(slot);
+            stripe.lockInterruptibly();
+            try {
+                while (!tryAcquire()) {
+                    released[slot & (STRIPES - 1)].await();
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            ReentrantLock stripe = stripe(slot);
+            stripe.lock();
+            try {
+                return tryAcquire();
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long remaining = unit.toNanos(time);
+            ReentrantLock stripe = stripe(slot);
+            stripe.lockInterruptibly();
+            try {
+                while (!tryAcquire()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released[slot & (STRIPES - 1)].awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        @Override
+        public void unlock() {
+            ReentrantLock stripe = stripe(slot);
+            stripe.lock();
+            try {
+                ByteBuffer chunk = chunk(slot);
+                int offset = offset(slot);
+                if (chunk.getLong(offset + LOCK_OWNER) != Thread.currentThread().getId()) {
+                    throw new IllegalMonitorStateException();
+                }
+                int holds = chunk.getInt(offset + LOCK_HOLDS) - 1;
+                chunk.putInt(offset + LOCK_HOLDS, holds);
+                if (holds == 0) {
+                    chunk.putLong(offset + LOCK_OWNER, NO_OWNER);
+                    released[slot & (STRIPES - 1)].signalAll();
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Account locks have no conditions");
+        }
+
+        /**
+         * Called with the stripe held.
+         */
+        private boolean tryAcquire() {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            long owner = chunk.getLong(offset + LOCK_OWNER);
+            long self = Thread.currentThread().getId();
+            if (owner != NO_OWNER && owner != self) {
+                return false;
+            }
+            chunk.putLong(offset + LOCK_OWNER, self);
+            chunk.putInt(offset + LOCK_HOLDS, chunk.getInt(offset + LOCK_HOLDS) + 1);
+            return true;
+        }
+    }
+}
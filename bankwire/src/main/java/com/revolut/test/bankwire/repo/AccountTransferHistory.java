@@ -0,0 +1,66 @@
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The transfers one account sent or received that are still on the heap, in the order they were recorded. Transfers
+ * moved to the archive are trimmed from it.
+ */
+final class AccountTransferHistory {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Transfer[] transfers = new Transfer[INITIAL_CAPACITY];
+
+    private int size;
+
+    private long trimmedSequence;
+
+    synchronized void append(Transfer transfer) {
+        if (size == transfers.length) {
+            transfers = Arrays.copyOf(transfers, transfers.length * 2);
+        }
+        transfers[size++] = transfer;
+    }
+
+    /**
+     * Returns up to limit transfers with a sequence above afterSequence, skipping the first offset of them. An offset
+     * stays valid as the history grows, as entries are only ever appended.
+     */
+    synchronized List<Transfer> page(long afterSequence, long offset, int limit) {
+        List<Transfer> page = new ArrayList<>(Math.min(limit, 1024));
+        if (trimmedSequence >= afterSequence) {
+            for (long i = offset; i < size && page.size() < limit; i++) {
+                page.add(transfers[(int) i]);
+            }
+            return page;
+        }
+        long skipped = 0;
+        for (int i = 0; i < size && page.size() < limit; i++) {
+            if (transfers[i].getSequence() > afterSequence && skipped++ >= offset) {
+                page.add(transfers[i]);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Drops the transfers up to the sequence and returns whether the history is now empty.
+     */
+    synchronized boolean trim(long sequence) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (transfers[i].getSequence() > sequence) {
+                transfers[kept++] = transfers[i];
+            }
+        }
+        Arrays.fill(transfers, kept, size, null);
+        size = kept;
+        trimmedSequence = Math.max(trimmedSequence, sequence);
+        return size == 0;
+    }
+}
@@ -0,0 +1,129 @@
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.User;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.util.Date;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A view over one record of the off-heap store, made per lookup and reading its fields from the record each time.
+ * Views of the same record and generation are equal and share its lock and balance. Once the slot is reused for
+ * another account, the balance updates of a view of the deleted one change nothing and its getters read the new one.
+ */
+final class OffHeapAccount extends Account {
+
+    private final AccountRecords records;
+
+    private final int slot;
+
+    private final int generation;
+
+    OffHeapAccount(AccountRecords records, int slot, int generation, String accountNumber) {
+        super(accountNumber, records.lock(slot));
+        this.records = records;
+        this.slot = slot;
+        this.generation = generation;
+    }
+
+    AccountRecords getRecords() {
+        return records;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public Money getMoney() {
+        CurrencyUnit currency = getCurrency();
+        return currency == null ? null : Money.ofMinor(currency, getBalance());
+    }
+
+    @Override
+    public void setMoney(Money money) {
+        records.setBalance(slot, generation, money.getAmountMinorLong());
+    }
+
+    @Override
+    public long getBalance() {
+        return records.getBalance(slot);
+    }
+
+    @Override
+    public void setBalance(long balance) {
+        records.setBalance(slot, generation, balance);
+    }
+
+    @Override
+    public boolean compareAndSetBalance(long expected, long updated) {
+        return records.compareAndSetBalance(slot, generation, expected, updated);
+    }
+
+    @Override
+    public boolean isHot() {
+        return false;
+    }
+
+    @Override
+    public boolean markHot() {
+        return false;
+    }
+
+    @Override
+    public CurrencyUnit getCurrency() {
+        return records.getCurrency(slot);
+    }
+
+    @Override
+    public User getUser() {
+        return records.getUser(slot);
+    }
+
+    @Override
+    public Date getCreatedDate() {
+        return records.getCreatedDate(slot);
+    }
+
+    @Override
+    public void setLock(Lock lock) {
+        throw new UnsupportedOperationException("Off-heap accounts keep their lock in the record");
+    }
+
+    @Override
+    public void setAccountNumber(String accountNumber) {
+        throw new UnsupportedOperationException("Off-heap accounts are read-only but for their balance");
+    }
+
+    @Override
+    public void setCurrency(CurrencyUnit currency) {
+        throw new UnsupportedOperationException("Off-heap accounts are read-only but for their balance");
+    }
+
+    @Override
+    public void setUser(User user) {
+        throw new UnsupportedOperationException("Off-heap accounts are read-only but for their balance");
+    }
+
+    @Override
+    public void setCreatedDate(Date createdDate) {
+        throw new UnsupportedOperationException("Off-heap accounts are read-only but for their balance");
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof OffHeapAccount && ((OffHeapAccount) other).records == records && ((OffHeapAccount) other).slot == slot
+                && ((OffHeapAccount) other).generation == generation;
+    }
+
+    @Override
+    public int hashCode() {
+        return slot;
+    }
+}
@@ -0,0 +1,343 @@
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.exception.AccountAlreadyExistsException;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.journal.Journal;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps accounts as fixed-width records in direct memory, found through an off-heap hash index, so millions of
+ * accounts add next to nothing to the heap. A UUID account number is looked up as its two longs, parsed from the
+ * text without allocating and compared in the index without touching the record. Lookups return a fresh view over
+ * the record; nothing of an account is decoded onto the heap until a view's getters are called, which the API does
+ * when it writes the account out.
+ * <p>
+ * The capacity is fixed when the store is made. The slot of a deleted account is chained on a free list and reused
+ * by a later account once no thread holds its lock; a view of the deleted account keeps the generation the slot had,
+ * so it fails as deleted rather than touching the account now in the slot. Accounts are never hot. Listing accounts
+ * scans every record, keeping the first page in account number order.
+ */
+public class OffHeapAccountDao implements AccountDao {
+
+    private final AccountRecords records;
+
+    private final AccountIndex index;
+
+    private final StampedLock indexLock = new StampedLock();
+
+    private final Journal journal;
+
+    private volatile int nextSlot;
+
+    private int freeSlot = -1;
+
+    private volatile long count;
+
+    public OffHeapAccountDao(int capacity) {
+        this(new DisabledJournal(), capacity);
+    }
+
+    public OffHeapAccountDao(Journal journal, int capacity) {
+        this.records = new AccountRecords(capacity);
+        this.index = new AccountIndex(records);
+        this.journal = journal;
+    }
+
+    @Override
+    public Optional<Account> findByAccountNumber(String accountNumber) {
+        long located = findSlot(accountNumber);
+        return located < 0 ? Optional.empty() : Optional.of(new OffHeapAccount(records, slot(located), generation(located), accountNumber));
+    }
+
+    @Override
+    public List<Account> findAllAccounts() {
+        int slots = nextSlot;
+        List<Account> accounts = new ArrayList<>();
+        for (int slot = 0; slot < slots; slot++) {
+            int generation = records.getGeneration(slot);
+            if (records.isLive(slot)) {
+                accounts.add(new OffHeapAccount(records, slot, generation, records.getAccountNumber(slot)));
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Scans every record, keeping the lowest account numbers after the cursor in a heap of at most limit slots. Like
+     * the heap store's walk it is weakly consistent.
+     */
+    @Override
+    public List<Account> findAccounts(String afterAccountNumber, CurrencyUnit currency, int limit) {
+        byte[] after = afterAccountNumber == null ? null : afterAccountNumber.getBytes(StandardCharsets.UTF_8);
+        PriorityQueue<Integer> lowest = new PriorityQueue<>(Math.min(limit, 1024) + 1, (slot, otherSlot) -> records.compareAccountNumbers(otherSlot, slot));
+        int slots = nextSlot;
+        for (int slot = 0; slot < slots && limit > 0; slot++) {
+            if (!records.isLive(slot) || (after != null && records.compareAccountNumber(slot, after) <= 0)
+                    || (currency != null && !currency.equals(records.getCurrency(slot)))) {
+                continue;
+            }
+            if (lowest.size() < limit) {
+                lowest.add(slot);
+            } else if (records.compareAccountNumbers(slot, lowest.peek()) < 0) {
+                lowest.poll();
+                lowest.add(slot);
+            }
+        }
+        List<Account> page = new ArrayList<>(lowest.size());
+        while (!lowest.isEmpty()) {
+            int slot = lowest.poll();
+            page.add(new OffHeapAccount(records, slot, records.getGeneration(slot), records.getAccountNumber(slot)));
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * The record is written already locked by the calling thread and stays locked until its creation is journaled, so
+     * no transfer touching it can be journaled first.
+     */
+    @Override
+    public Account createAccount(Account account) throws Exception {
+        byte[] key = AccountRecords.encodeAccountNumber(account.getAccountNumber());
+        long balance = account.getBalance();
+        OffHeapAccount created;
+        long stamp = indexLock.writeLock();
+        try {
+            if (index.find(account.getAccountNumber()) >= 0) {
+                throw new AccountAlreadyExistsException(String.format("Account %s already exists", account.getAccountNumber()));
+            }
+            int slot = add(key, account, balance, true);
+            created = new OffHeapAccount(records, slot, records.getGeneration(slot), account.getAccountNumber());
+        } finally {
+            indexLock.unlockWrite(stamp);
+        }
+        long journalPosition;
+        try {
+            journalPosition = journal.appendAccountCreated(created);
+        } catch (IOException exception) {
+            evictAccount(account.getAccountNumber());
+            throw exception;
+        } finally {
+            created.getLock().unlock();
+        }
+        journal.awaitDurable(journalPosition);
+        return created;
+    }
+
+    /**
+     * Returns a heap copy of the deleted account, as its slot may hold another account by the time it is written out.
+     */
+    @Override
+    public Account deleteAccount(String accountNumber) throws Exception {
+        Optional<Account> found = findByAccountNumber(accountNumber);
+        if (!found.isPresent()) {
+            throw new AccountNotFoundException(String.format("Account %s not Found", accountNumber));
+        }
+        OffHeapAccount account = (OffHeapAccount) found.get();
+        Account deleted;
+        long journalPosition;
+        account.getLock().lock();
+        try {
+            deleted = new AccountBuilder().setAccountNumber(accountNumber)
+                    .setUser(account.getUser())
+                    .setMoney(account.getMoney())
+                    .setCurrency(account.getCurrency())
+                    .setCreatedDate(account.getCreatedDate())
+                    .createAccount();
+            long stamp = indexLock.writeLock();
+            try {
+                if (index.find(accountNumber) != account.getSlot() || records.getGeneration(account.getSlot()) != account.getGeneration()) {
+                    throw new AccountNotFoundException(String.format("Account %s not Found", accountNumber));
+                }
+                index.remove(accountNumber);
+                free(account.getSlot());
+            } finally {
+                indexLock.unlockWrite(stamp);
+            }
+            journalPosition = journal.appendAccountDeleted(accountNumber);
+        } finally {
+            account.getLock().unlock();
+        }
+        journal.awaitDurable(journalPosition);
+        return deleted;
+    }
+
+    @Override
+    public void deductAccount(Account account, Money money) throws Exception {
+        deductAccount(account, minorAmount(account, money));
+    }
+
+    @Override
+    public void creditAccount(Account account, Money money) throws Exception {
+        creditAccount(account, minorAmount(account, money));
+    }
+
+    @Override
+    public void deductAccount(Account account, long amount) throws Exception {
+        long located = locate(account);
+        int slot = slot(located);
+        long balance = located < 0 ? Long.MIN_VALUE : records.deduct(slot, generation(located), amount);
+        if (balance == Long.MIN_VALUE) {
+            throw new AccountNotFoundException(String.format("Account %s not Found", account.getAccountNumber()));
+        }
+        if (balance < amount) {
+            throw new InSufficientAccountBalanceException(String.format("InSufficient Account Balance %s", Money.ofMinor(records.getCurrency(slot), balance)));
+        }
+    }
+
+    @Override
+    public void creditAccount(Account account, long amount) throws Exception {
+        long located = locate(account);
+        if (located < 0 || !records.credit(slot(located), generation(located), amount)) {
+            throw new AccountNotFoundException(String.format("Account %s not Found", account.getAccountNumber()));
+        }
+    }
+
+    @Override
+    public void recordCreditContention(Account account) {
+    }
+
+    private long minorAmount(Account account, Money money) {
+        if (!money.getCurrencyUnit().equals(account.getCurrency())) {
+            throw new CurrencyMismatchException(account.getCurrency(), money.getCurrencyUnit());
+        }
+        return money.getAmountMinorLong();
+    }
+
+    @Override
+    public void clearAccounts() {
+        long stamp = indexLock.writeLock();
+        try {
+            index.clear();
+            records.clear();
+            nextSlot = 0;
+            freeSlot = -1;
+            count = 0;
+        } finally {
+            indexLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long countAccounts() {
+        return count;
+    }
+
+    /**
+     * An account already held is overwritten in its record, keeping its slot.
+     */
+    @Override
+    public void restoreAccount(Account account) {
+        byte[] key = AccountRecords.encodeAccountNumber(account.getAccountNumber());
+        long balance = account.getBalance();
+        long stamp = indexLock.writeLock();
+        try {
+            int slot = index.find(account.getAccountNumber());
+            if (slot < 0) {
+                add(key, account, balance, false);
+            } else {
+                records.write(slot, key, account, balance, false);
+            }
+        } finally {
+            indexLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void evictAccount(String accountNumber) {
+        long stamp = indexLock.writeLock();
+        try {
+            int slot = index.remove(accountNumber);
+            if (slot >= 0) {
+                free(slot);
+            }
+        } finally {
+            indexLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Takes the first free slot no thread holds the lock of, or a new one. Called with the index write lock held.
+     */
+    private int add(byte[] key, Account account, long balance, boolean locked) {
+        int previous = -1;
+        for (int slot = freeSlot; slot >= 0; previous = slot, slot = records.getNextFree(slot)) {
+            if (records.write(slot, key, account, balance, locked)) {
+                if (previous < 0) {
+                    freeSlot = records.getNextFree(slot);
+                } else {
+                    records.setNextFree(previous, records.getNextFree(slot));
+                }
+                index.insert(account.getAccountNumber(), slot);
+                count++;
+                return slot;
+            }
+        }
+        int slot = nextSlot;
+        records.write(slot, key, account, balance, locked);
+        index.insert(account.getAccountNumber(), slot);
+        nextSlot = slot + 1;
+        count++;
+        return slot;
+    }
+
+    /**
+     * Called with the index write lock held, after the account number is removed from the index.
+     */
+    private void free(int slot) {
+        records.delete(slot, freeSlot);
+        freeSlot = slot;
+        count--;
+    }
+
+    /**
+     * Probes the index without locking and probes again under the read lock only if a writer got in meanwhile.
+     * Returns the generation of the slot in the high half and the slot in the low half, -1 if there is none.
+     */
+    private long findSlot(String accountNumber) {
+        long stamp = indexLock.tryOptimisticRead();
+        int slot = index.find(accountNumber);
+        int generation = slot < 0 ? 0 : records.getGeneration(slot);
+        if (!indexLock.validate(stamp)) {
+            stamp = indexLock.readLock();
+            try {
+                slot = index.find(accountNumber);
+                generation = slot < 0 ? 0 : records.getGeneration(slot);
+            } finally {
+                indexLock.unlockRead(stamp);
+            }
+        }
+        return slot < 0 ? -1 : (long) generation << 32 | slot;
+    }
+
+    private long locate(Account account) {
+        if (account instanceof OffHeapAccount && ((OffHeapAccount) account).getRecords() == records) {
+            OffHeapAccount offHeapAccount = (OffHeapAccount) account;
+            return (long) offHeapAccount.getGeneration() << 32 | offHeapAccount.getSlot();
+        }
+        return findSlot(account.getAccountNumber());
+    }
+
+    private static int slot(long located) {
+        return (int) located;
+    }
+
+    private static int generation(long located) {
+        return (int) (located >>> 32);
+    }
+}
@@ -1,17 +1,42 @@
-package com.revolut.test.bankwire.repo;
-
-import com.revolut.test.bankwire.dto.Transfer;
-
-import java.util.Optional;
-import java.util.Queue;
-
-public interface TransferDao {
-
-    Optional<Transfer> findByTransferId(String transferId);
-
-    Queue<Transfer> findAllTransfers();
-
-    Transfer transferMoney(Transfer transfer) throws Exception;
-
-    void clearTransfers();
-}
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Transfer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+
+public interface TransferDao {
+
+    Optional<Transfer> findByTransferId(String transferId);
+
+    Queue<Transfer> findAllTransfers();
+
+    List<Transfer> findTransfers(long afterSequence, int limit);
+
+    List<Transfer> findAccountTransfers(String accountNumber, long offset, int limit);
+
+    Transfer transferMoney(Transfer transfer) throws Exception;
+
+    /**
+     * Needs a batch transfer engine; the batch route is only wired for one, and with any other engine the batch fails
+     * as a whole with a BatchTransferException.
+     */
+    List<Transfer> transferBatch(List<Transfer> transfers) throws Exception;
+
+    /**
+     * Adds a transfer recovered from the journal, with its journaled sequence, without moving any money. Returns
+     * false when the archive already holds it.
+     */
+    boolean restoreTransfer(Transfer transfer);
+
+    /**
+     * Journal position the transfer history still needs: journal segments ending at or before it hold only archived
+     * transfers. Long.MAX_VALUE when the history is not archived, since the heap alone does not survive a restart.
+     */
+    long getRetainedJournalPosition();
+
+    void clearTransfers();
+
+    long countTransfers();
+}
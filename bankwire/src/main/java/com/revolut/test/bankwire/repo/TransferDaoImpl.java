@@ -1,99 +1,506 @@
-package com.revolut.test.bankwire.repo;
-
-import com.revolut.test.bankwire.dto.Account;
-import com.revolut.test.bankwire.dto.Transfer;
-import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
-import com.revolut.test.bankwire.validation.Validation;
-
-import javax.inject.Inject;
-import java.util.Optional;
-import java.util.Queue;
-import java.util.Random;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-
-public class TransferDaoImpl implements TransferDao {
-
-    private static final long TIME_OUT = TimeUnit.SECONDS.toNanos(3);
-    private static final Random random = new Random();
-    private static final long FIXED_DELAY = 1;
-    private static final long RANDOM_DELAY = 2;
-    private Queue<Transfer> transfers = new LinkedBlockingQueue<>();
-    private AccountDao accountDao;
-
-
-    @Inject
-    public TransferDaoImpl(AccountDao accountDao) {
-        this.accountDao = accountDao;
-
-    }
-
-    @Override
-    public void clearTransfers() {
-        transfers.clear();
-    }
-
-    @Override
-    public Optional<Transfer> findByTransferId(String transferId) {
-        return transfers.stream().filter(transfer -> transfer.getTransferId().equals(transferId)).findFirst();
-
-    }
-
-    @Override
-    public Queue<Transfer> findAllTransfers() {
-        return transfers;
-    }
-
-
-    @Override
-    public Transfer transferMoney(Transfer transfer) throws Exception {
-
-        long stopTime = System.nanoTime() + TIME_OUT;
-        while (transfer.isRunning()) {
-
-            Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(transfer.getFromAccountNumber());
-            Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(transfer.getToAccountNumber());
-            validateAccountTransfer(senderAccountOptional, receiverAccountOptional, transfer);
-            Account senderAccount = senderAccountOptional.get();
-            Account receiverAccount = receiverAccountOptional.get();
-
-            if (senderAccount.getLock().tryLock()) {
-                try {
-                    if (receiverAccount.getLock().tryLock()) {
-                        try {
-                            validateAccountTransfer(accountDao.findByAccountNumber(transfer.getFromAccountNumber()), accountDao.findByAccountNumber(transfer.getToAccountNumber()), transfer);
-                            accountDao.deductAccount(senderAccount, transfer.getMoney());
-                            accountDao.creditAccount(receiverAccount, transfer.getMoney());
-                            transfers.add(transfer);
-                            transfer.setRunning(false);
-                        } finally {
-                            receiverAccount.getLock().unlock();
-                        }
-                    }
-                } finally {
-                    senderAccount.getLock().unlock();
-                }
-            }
-
-
-            if (System.nanoTime() > stopTime) {
-                transfer.setRunning(false);
-            }
-
-            try {
-                TimeUnit.NANOSECONDS.sleep(FIXED_DELAY + random.nextLong() % RANDOM_DELAY);
-            } catch (InterruptedException exception) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException(exception);
-            }
-        }
-        return transfer;
-    }
-
-    private void validateAccountTransfer(Optional<Account> senderAccount, Optional<Account> receiverAccount, Transfer transfer) throws Exception {
-        Validation.validateMoneyTransfer(senderAccount, receiverAccount);
-        if (senderAccount.get().getMoney().isLessThan(transfer.getMoney())) {
-            throw new InSufficientAccountBalanceException(String.format("InSufficient Account Balance %s", senderAccount.get().getMoney()));
-        }
-    }
-}
+package com.revolut.test.bankwire.repo;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.engine.BatchTransferEngine;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.engine.TransferEngine;
+import com.revolut.test.bankwire.exception.BatchTransferException;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.history.DisabledTransferArchive;
+import com.revolut.test.bankwire.history.TransferArchive;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.journal.Journal;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.LatencyHistogram;
+import com.revolut.test.bankwire.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the newest transfers on the heap. With an archive enabled, once more than hotTransfers + segmentTransfers
+ * transfers are on the heap, a background thread moves the oldest segmentTransfers of them to the archive; reads
+ * look in both tiers. New transfers wait, before taking any lock, while the archiver is a further segment behind.
+ * <p>
+ * With the journal on, sequences are taken in journal order, so the transfers the archive does not hold yet are the
+ * journal tail from the oldest of them on.
+ */
+public class TransferDaoImpl implements TransferDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransferDaoImpl.class);
+    private static final long TIME_OUT = TimeUnit.SECONDS.toNanos(3);
+    private static final long GAP_PARK = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int ALL_TRANSFERS_PAGE = 1024;
+    private static final LatencyHistogram EXECUTE = Metrics.histogram("bankwire_transfer_stage_seconds", "Time spent per transfer stage", "stage", "execute");
+    private static final LatencyHistogram JOURNAL_APPEND = Metrics.histogram("bankwire_transfer_stage_seconds", "Time spent per transfer stage", "stage", "journal_append");
+    private static final LatencyHistogram JOURNAL_DURABLE = Metrics.histogram("bankwire_transfer_stage_seconds", "Time spent per transfer stage", "stage", "journal_durable");
+    private static final Counter COMMITTED = Metrics.counter("bankwire_transfers_total", "Transfers by outcome", "outcome", "committed");
+    private static final Counter REJECTED = Metrics.counter("bankwire_transfers_total", "Transfers by outcome", "outcome", "rejected");
+    private ConcurrentNavigableMap<Long, Transfer> transfers = new ConcurrentSkipListMap<>();
+    private AtomicLong sequence = new AtomicLong();
+    private volatile long clearedSequence;
+    private Map<String, Transfer> transfersById = new ConcurrentHashMap<>();
+    private Map<String, AccountTransferHistory> transfersByAccount = new ConcurrentHashMap<>();
+    private TransferEngine transferEngine;
+    private AccountDao accountDao;
+    private Journal journal;
+    private TransferArchive archive;
+    private int hotTransfers;
+    private int segmentTransfers;
+    private ExecutorService archiver;
+    private final AtomicBoolean archiving = new AtomicBoolean();
+    private final Lock archiveLock = new ReentrantLock();
+    private final Condition archived = archiveLock.newCondition();
+    private volatile boolean archiveFailed;
+    private final Lock recordLock = new ReentrantLock();
+
+    public TransferDaoImpl(AccountDao accountDao) {
+        this(new OrderedLockTransferEngine(accountDao, TIME_OUT));
+    }
+
+    public TransferDaoImpl(TransferEngine transferEngine) {
+        this(transferEngine, null, new DisabledJournal());
+    }
+
+    @Inject
+    public TransferDaoImpl(TransferEngine transferEngine, AccountDao accountDao, Journal journal) {
+        this(transferEngine, accountDao, journal, new DisabledTransferArchive(), 0, 0);
+    }
+
+    public TransferDaoImpl(TransferEngine transferEngine, AccountDao accountDao, Journal journal, TransferArchive archive, int hotTransfers,
+                           int segmentTransfers) {
+        this.transferEngine = transferEngine;
+        this.accountDao = accountDao;
+        this.journal = journal;
+        this.archive = archive;
+        this.hotTransfers = hotTransfers;
+        this.segmentTransfers = segmentTransfers;
+        this.sequence.set(archive.getLastSequence());
+        if (archive.isEnabled()) {
+            this.archiver = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "transfer-archiver");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public void clearTransfers() {
+        clearedSequence = sequence.get();
+        transfers.clear();
+        transfersById.clear();
+        transfersByAccount.clear();
+        try {
+            archive.clear();
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Transfer archive could not be cleared", exception);
+        }
+        signalArchived();
+    }
+
+    /**
+     * A transfer is dropped from the heap only after the archive can serve it, so a miss here that the archive also
+     * misses is a real miss.
+     */
+    @Override
+    public Optional<Transfer> findByTransferId(String transferId) {
+        Transfer transfer = transfersById.get(transferId);
+        return transfer != null ? Optional.of(transfer) : archive.findByTransferId(transferId);
+    }
+
+    /**
+     * Reads both tiers a page at a time in commit order, up to the first transfer still being added.
+     */
+    @Override
+    public Queue<Transfer> findAllTransfers() {
+        Queue<Transfer> all = new ArrayDeque<>();
+        List<Transfer> page;
+        long afterSequence = 0;
+        do {
+            page = findTransfers(afterSequence, ALL_TRANSFERS_PAGE);
+            all.addAll(page);
+            if (!page.isEmpty()) {
+                afterSequence = page.get(page.size() - 1).getSequence();
+            }
+        } while (page.size() == ALL_TRANSFERS_PAGE);
+        return all;
+    }
+
+    /**
+     * Returns up to limit transfers committed after the given sequence, in commit order, from the archive and then
+     * the heap. A page read while a batch was being archived is read again.
+     */
+    @Override
+    public List<Transfer> findTransfers(long afterSequence, int limit) {
+        List<Transfer> page;
+        long archived;
+        do {
+            archived = archive.getLastSequence();
+            page = afterSequence < archived ? archive.findTransfers(afterSequence, limit) : new ArrayList<>(Math.min(limit, 1024));
+            if (page.size() < limit) {
+                long after = page.isEmpty() ? Math.max(afterSequence, archived) : page.get(page.size() - 1).getSequence();
+                page.addAll(findHotTransfers(after, limit - page.size()));
+            }
+        } while (archived != archive.getLastSequence());
+        return page;
+    }
+
+    /**
+     * A sequence is taken just before its transfer is added, so the page stops at the first sequence not added yet
+     * instead of skipping it.
+     */
+    private List<Transfer> findHotTransfers(long afterSequence, int limit) {
+        List<Transfer> page = new ArrayList<>(Math.min(limit, 1024));
+        long expected = Math.max(afterSequence, clearedSequence) + 1;
+        for (Map.Entry<Long, Transfer> entry : transfers.tailMap(afterSequence, false).entrySet()) {
+            if (page.size() == limit || entry.getKey() != expected) {
+                break;
+            }
+            page.add(entry.getValue());
+            expected++;
+        }
+        return page;
+    }
+
+    /**
+     * Returns up to limit of the transfers the account sent or received, skipping the first offset ones: its archived
+     * transfers in sequence order, then the ones on the heap in the order they were recorded. Reads only that
+     * account's history.
+     */
+    @Override
+    public List<Transfer> findAccountTransfers(String accountNumber, long offset, int limit) {
+        List<Transfer> page;
+        long archived;
+        do {
+            archived = archive.getLastSequence();
+            long archivedCount = archive.countAccountTransfers(accountNumber);
+            page = offset < archivedCount ? archive.findAccountTransfers(accountNumber, offset, limit) : new ArrayList<>(Math.min(limit, 1024));
+            AccountTransferHistory history = transfersByAccount.get(accountNumber);
+            if (page.size() < limit && history != null) {
+                page.addAll(history.page(archived, Math.max(0, offset - archivedCount), limit - page.size()));
+            }
+        } while (archived != archive.getLastSequence());
+        return page;
+    }
+
+    /**
+     * With the journal on, the transfer is appended while the engine still holds both account locks, so the journal
+     * sees each account's changes in the order they were applied, and the caller returns once the record is durable.
+     */
+    @Override
+    public Transfer transferMoney(Transfer transfer) throws Exception {
+        long start = System.nanoTime();
+        try {
+            awaitArchiver();
+            if (!journal.isEnabled()) {
+                return transferEngine.execute(transfer, this::record);
+            }
+            long[] journalPosition = new long[1];
+            transferEngine.execute(transfer, committed -> journalPosition[0] = journal(committed));
+            awaitDurable(journalPosition[0]);
+            return transfer;
+        } catch (Exception exception) {
+            REJECTED.increment();
+            throw exception;
+        } finally {
+            EXECUTE.recordSince(start);
+        }
+    }
+
+    /**
+     * An engine that cannot apply batches fails the batch as a whole, moving no money.
+     */
+    @Override
+    public List<Transfer> transferBatch(List<Transfer> transfers) throws Exception {
+        if (!(transferEngine instanceof BatchTransferEngine)) {
+            REJECTED.add(transfers.size());
+            throw new BatchTransferException(String.format("Transfer UnSuccessfully %s cannot apply batches", transferEngine.getClass().getSimpleName()));
+        }
+        BatchTransferEngine batchEngine = (BatchTransferEngine) transferEngine;
+        long start = System.nanoTime();
+        try {
+            awaitArchiver();
+            if (!journal.isEnabled()) {
+                return batchEngine.executeAll(transfers, this::record);
+            }
+            List<Transfer> committed = new ArrayList<>(transfers.size());
+            long[] journalPosition = new long[1];
+            batchEngine.executeAll(transfers, transfer -> {
+                committed.add(transfer);
+                if (committed.size() == transfers.size()) {
+                    journalPosition[0] = journal(committed);
+                }
+            });
+            awaitDurable(journalPosition[0]);
+            return transfers;
+        } catch (Exception exception) {
+            REJECTED.add(transfers.size());
+            throw exception;
+        } finally {
+            EXECUTE.recordSince(start);
+        }
+    }
+
+    @Override
+    public long countTransfers() {
+        return transfersById.size() + archive.countTransfers();
+    }
+
+    private void awaitDurable(long position) throws Exception {
+        long start = System.nanoTime();
+        journal.awaitDurable(position);
+        JOURNAL_DURABLE.recordSince(start);
+    }
+
+    /**
+     * Journals a whole batch as one record once its last transfer is committed. Each transfer carries the balances
+     * its accounts hold after the batch, which is what replay needs to restore.
+     */
+    private long journal(List<Transfer> transfers) {
+        Account[] senderAccounts = new Account[transfers.size()];
+        Account[] receiverAccounts = new Account[transfers.size()];
+        long[] senderBalances = new long[transfers.size()];
+        long[] receiverBalances = new long[transfers.size()];
+        for (int i = 0; i < transfers.size(); i++) {
+            senderAccounts[i] = accountDao.findByAccountNumber(transfers.get(i).getFromAccountNumber()).get();
+            receiverAccounts[i] = accountDao.findByAccountNumber(transfers.get(i).getToAccountNumber()).get();
+            senderBalances[i] = senderAccounts[i].getBalance();
+            receiverBalances[i] = receiverAccounts[i].getBalance();
+        }
+        long position;
+        long start = System.nanoTime();
+        recordLock.lock();
+        try {
+            long first = sequence.get() + 1;
+            for (int i = 0; i < transfers.size(); i++) {
+                transfers.get(i).setSequence(first + i);
+            }
+            position = journal.appendTransfers(transfers, senderBalances, receiverBalances);
+            sequence.set(first + transfers.size() - 1);
+        } catch (IOException exception) {
+            for (int i = transfers.size() - 1; i >= 0; i--) {
+                transfers.get(i).setSequence(0);
+                reverse(transfers.get(i), senderAccounts[i], receiverAccounts[i]);
+            }
+            throw new UncheckedIOException("Transfer UnSuccessfully could not be journaled", exception);
+        } finally {
+            recordLock.unlock();
+            JOURNAL_APPEND.recordSince(start);
+        }
+        for (Transfer transfer : transfers) {
+            transfer.setJournalPosition(position);
+            COMMITTED.increment();
+            add(transfer);
+        }
+        return position;
+    }
+
+    private long journal(Transfer transfer) {
+        Account senderAccount = accountDao.findByAccountNumber(transfer.getFromAccountNumber()).get();
+        Account receiverAccount = accountDao.findByAccountNumber(transfer.getToAccountNumber()).get();
+        long position;
+        long start = System.nanoTime();
+        recordLock.lock();
+        try {
+            transfer.setSequence(sequence.get() + 1);
+            position = journal.appendTransfer(transfer, senderAccount.getBalance(), receiverAccount.getBalance());
+            sequence.set(transfer.getSequence());
+        } catch (IOException exception) {
+            transfer.setSequence(0);
+            reverse(transfer, senderAccount, receiverAccount);
+            throw new UncheckedIOException("Transfer UnSuccessfully could not be journaled", exception);
+        } finally {
+            recordLock.unlock();
+            JOURNAL_APPEND.recordSince(start);
+        }
+        transfer.setJournalPosition(position);
+        COMMITTED.increment();
+        add(transfer);
+        return position;
+    }
+
+    private void reverse(Transfer transfer, Account senderAccount, Account receiverAccount) {
+        try {
+            accountDao.deductAccount(receiverAccount, transfer.getAmount());
+            accountDao.creditAccount(senderAccount, transfer.getAmount());
+        } catch (Exception exception) {
+            throw new IllegalStateException(String.format("Transfer %s could not be reversed", transfer.getTransferId()), exception);
+        }
+    }
+
+    /**
+     * Transfers are restored in journal order and wait for the archiver like new ones, so replaying a long tail keeps
+     * the heap as flat as live traffic does. Transfers before the first one restored that the archive does not hold
+     * either were dropped with their journal segments, so the history starts after them.
+     */
+    @Override
+    public boolean restoreTransfer(Transfer transfer) {
+        if (transfer.getSequence() <= archive.getLastSequence()) {
+            return false;
+        }
+        if (transfer.getSequence() <= sequence.get() || (transfer.getSequence() > sequence.get() + 1 && heapTransfers() > 0)) {
+            throw new IllegalStateException(String.format("Transfer %d restored out of order", transfer.getSequence()));
+        }
+        try {
+            awaitArchiver();
+        } catch (ExecutionInterruptedException exception) {
+            throw new IllegalStateException("Interrupted restoring the transfer history", exception);
+        }
+        if (transfer.getSequence() > sequence.get() + 1) {
+            clearedSequence = transfer.getSequence() - 1;
+        }
+        transfer.setRunning(false);
+        sequence.set(transfer.getSequence());
+        add(transfer);
+        return true;
+    }
+
+    /**
+     * Read under the record lock, so no transfer is between its journal append and its sequence. A transfer that has
+     * its sequence but is not on the heap yet pins the whole journal until the next call.
+     */
+    @Override
+    public long getRetainedJournalPosition() {
+        if (!archive.isEnabled()) {
+            return Long.MAX_VALUE;
+        }
+        recordLock.lock();
+        try {
+            long archivedSequence = archivedSequence();
+            if (sequence.get() <= archivedSequence) {
+                return Long.MAX_VALUE;
+            }
+            Transfer oldest = transfers.get(archivedSequence + 1);
+            return oldest == null ? 0 : oldest.getJournalPosition() - 1;
+        } finally {
+            recordLock.unlock();
+        }
+    }
+
+    private void record(Transfer transfer) {
+        transfer.setSequence(sequence.incrementAndGet());
+        COMMITTED.increment();
+        add(transfer);
+    }
+
+    private void add(Transfer transfer) {
+        transfers.put(transfer.getSequence(), transfer);
+        transfersById.putIfAbsent(transfer.getTransferId(), transfer);
+        transfersByAccount.compute(transfer.getFromAccountNumber(), (accountNumber, history) -> append(history, transfer));
+        if (!transfer.getToAccountNumber().equals(transfer.getFromAccountNumber())) {
+            transfersByAccount.compute(transfer.getToAccountNumber(), (accountNumber, history) -> append(history, transfer));
+        }
+        if (archiver != null && heapTransfers() >= (long) hotTransfers + segmentTransfers && archiving.compareAndSet(false, true)) {
+            archiver.execute(this::archiveOldest);
+        }
+    }
+
+    private void awaitArchiver() throws ExecutionInterruptedException {
+        long limit = (long) hotTransfers + 2L * segmentTransfers;
+        if (archiver == null || archiveFailed || heapTransfers() < limit) {
+            return;
+        }
+        archiveLock.lock();
+        try {
+            while (!archiveFailed && heapTransfers() >= limit) {
+                archived.await();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Interrupted waiting for transfers to be archived", exception);
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private void signalArchived() {
+        archiveLock.lock();
+        try {
+            archived.signalAll();
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private long heapTransfers() {
+        return sequence.get() - archivedSequence();
+    }
+
+    private static AccountTransferHistory append(AccountTransferHistory history, Transfer transfer) {
+        AccountTransferHistory appended = history == null ? new AccountTransferHistory() : history;
+        appended.append(transfer);
+        return appended;
+    }
+
+    private long archivedSequence() {
+        return Math.max(archive.getLastSequence(), clearedSequence);
+    }
+
+    /**
+     * Moves the oldest transfers to the archive one segment at a time, then drops them from the heap. A batch must
+     * have consecutive sequences, so archiving parks briefly while a transfer is still being added. If the archive
+     * fails, archiving stops and transfers stay on the heap.
+     */
+    private void archiveOldest() {
+        do {
+            try {
+                archiveSegments();
+            } catch (Exception exception) {
+                LOG.error("transfers could not be archived, keeping them on the heap", exception);
+                archiveFailed = true;
+                return;
+            } finally {
+                signalArchived();
+            }
+            archiving.set(false);
+        } while (heapTransfers() >= (long) hotTransfers + segmentTransfers && archiving.compareAndSet(false, true));
+    }
+
+    private void archiveSegments() throws IOException {
+        while (heapTransfers() >= (long) hotTransfers + segmentTransfers) {
+            List<Transfer> batch = findHotTransfers(archivedSequence(), segmentTransfers);
+            if (batch.size() < segmentTransfers) {
+                LockSupport.parkNanos(GAP_PARK);
+                continue;
+            }
+            archive.archive(batch);
+            long lastSequence = batch.get(batch.size() - 1).getSequence();
+            transfers.headMap(lastSequence, true).clear();
+            Set<String> accountNumbers = new HashSet<>();
+            for (Transfer transfer : batch) {
+                transfersById.remove(transfer.getTransferId(), transfer);
+                accountNumbers.add(transfer.getFromAccountNumber());
+                accountNumbers.add(transfer.getToAccountNumber());
+            }
+            for (String accountNumber : accountNumbers) {
+                transfersByAccount.computeIfPresent(accountNumber, (key, history) -> history.trim(lastSequence) ? null : history);
+            }
+            signalArchived();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.revolut.test.bankwire.tcp;
+
+public class DisabledTransferServer implements TransferServer {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,349 @@
+package com.revolut.test.bankwire.tcp;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.exception.ExecutionInterruptedException;
+import com.revolut.test.bankwire.exception.InValidMoneyFormatException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.LatencyHistogram;
+import com.revolut.test.bankwire.metrics.Metrics;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.validation.Validation;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts TransferFrames commands on long-lived connections. One selector thread reads and writes every connection
+ * and never blocks on a transfer: each decoded command runs on the executor through the same validation and
+ * TransferDao.transferMoney as POST /transfer, and its ack is queued back to the selector.
+ * <p>
+ * Clients may pipeline commands; a connection stops being read while maxInFlight of its commands are unanswered.
+ * A malformed frame closes the connection, the commands already read still run.
+ */
+public class NioTransferServer implements TransferServer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioTransferServer.class);
+    private static final LatencyHistogram LATENCY = Metrics.histogram("bankwire_request_seconds", "Request latency per endpoint", "endpoint", "TCP transfer");
+    private static final Counter REJECTIONS = Metrics.counter("bankwire_request_rejections_total", "Requests answered with a 4xx or 5xx status", "endpoint", "TCP transfer");
+    private static final Counter PROTOCOL_ERRORS = Metrics.counter("bankwire_tcp_protocol_errors_total", "Connections closed on a malformed frame");
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final TransferDao transferDao;
+    private final AccountDao accountDao;
+    private final ExecutorService executor;
+    private final int port;
+    private final int maxInFlight;
+    private final Queue<Connection> flushes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public NioTransferServer(TransferDao transferDao, AccountDao accountDao, ExecutorService executor, int port, int maxInFlight) {
+        this.transferDao = transferDao;
+        this.accountDao = accountDao;
+        this.executor = executor;
+        this.port = port;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::select, "transfer-tcp-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        LOG.info("binary transfer channel listening on port {}", getPort());
+    }
+
+    /**
+     * The bound port, the ephemeral one when started on port 0.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Stops accepting and reading, then waits for the transfers already read; their acks are not sent.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOG.error("transfers read from TCP connections did not finish before shutdown");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void select() {
+        try {
+            while (running) {
+                selector.select();
+                Connection flushed;
+                while ((flushed = flushes.poll()) != null) {
+                    flushed.flushScheduled.set(false);
+                    handle(flushed, SelectionKey.OP_WRITE);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        handle((Connection) key.attachment(), key.readyOps());
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            LOG.error("binary transfer channel stopped", exception);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    close((Connection) key.attachment());
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException exception) {
+                LOG.error("binary transfer channel could not be closed", exception);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.incrementAndGet();
+        }
+    }
+
+    private void handle(Connection connection, int readyOps) {
+        if (connection.closed) {
+            return;
+        }
+        try {
+            if ((readyOps & SelectionKey.OP_READ) != 0) {
+                if (connection.channel.read(connection.in) < 0) {
+                    close(connection);
+                    return;
+                }
+                readCommands(connection);
+            }
+            if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+                writeAcks(connection);
+            }
+        } catch (IOException exception) {
+            if (exception instanceof ProtocolException) {
+                PROTOCOL_ERRORS.increment();
+                LOG.warn("closing {}: {}", connection.channel, exception.getMessage());
+            }
+            close(connection);
+        } catch (RuntimeException exception) {
+            LOG.error("closing {}", connection.channel, exception);
+            close(connection);
+        }
+    }
+
+    private void readCommands(Connection connection) throws IOException {
+        connection.in.flip();
+        try {
+            TransferFrames.Command command;
+            while (connection.inFlight < maxInFlight && (command = TransferFrames.readCommand(connection.in)) != null) {
+                connection.inFlight++;
+                dispatch(connection, command);
+            }
+        } finally {
+            connection.in.compact();
+        }
+        setInterest(connection, SelectionKey.OP_READ, connection.inFlight < maxInFlight);
+    }
+
+    private void dispatch(Connection connection, TransferFrames.Command command) {
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> complete(connection, execute(command), start));
+        } catch (RejectedExecutionException exception) {
+            complete(connection, new TransferFrames.Ack(command.getCorrelationId(), TransferFrames.RETRY, 0, "Transfer UnSuccessfully server is shutting down"), start);
+        }
+    }
+
+    private TransferFrames.Ack execute(TransferFrames.Command command) {
+        try {
+            Validation.validateMoneyTransferRequestParam(command.getSenderAccountNumber(), command.getReceiverAccountNumber());
+            Optional<Account> senderAccountOptional = accountDao.findByAccountNumber(command.getSenderAccountNumber());
+            Optional<Account> receiverAccountOptional = accountDao.findByAccountNumber(command.getReceiverAccountNumber());
+            Validation.validateMoneyTransfer(senderAccountOptional, receiverAccountOptional);
+            if (command.getAmount() <= 0) {
+                throw new InValidMoneyFormatException("Money format invalid");
+            }
+
+            CurrencyUnit currencyUnit = senderAccountOptional.get().getCurrency();
+            Transfer transfer = new TransferBuilder().setTransferId(UUID.randomUUID().toString()).setCurrency(currencyUnit)
+                    .setMoney(Money.ofMinor(currencyUnit, command.getAmount()))
+                    .setFromAccountNumber(command.getSenderAccountNumber()).setToAccountNumber(command.getReceiverAccountNumber())
+                    .setCreatedDate(new Date()).createTransfer();
+            transferDao.transferMoney(transfer);
+            if (transfer.getSequence() == 0) {
+                return new TransferFrames.Ack(command.getCorrelationId(), TransferFrames.RETRY, 0,
+                        String.format("Transfer UnSuccessfully %s timed out waiting for account", transfer.getTransferId()));
+            }
+            return new TransferFrames.Ack(command.getCorrelationId(), TransferFrames.COMMITTED, transfer.getSequence(), transfer.getTransferId());
+        } catch (TransferTimedOutException | ExecutionInterruptedException | UncheckedIOException exception) {
+            return new TransferFrames.Ack(command.getCorrelationId(), TransferFrames.RETRY, 0, exception.getMessage());
+        } catch (Exception exception) {
+            return new TransferFrames.Ack(command.getCorrelationId(), TransferFrames.REJECTED, 0, exception.getMessage());
+        }
+    }
+
+    /**
+     * Runs on the executor; wakes the selector only for the first ack queued since the connection was last flushed.
+     */
+    private void complete(Connection connection, TransferFrames.Ack ack, long start) {
+        LATENCY.recordSince(start);
+        if (ack.getStatus() != TransferFrames.COMMITTED) {
+            REJECTIONS.increment();
+        }
+        connection.acks.add(ack);
+        if (connection.flushScheduled.compareAndSet(false, true)) {
+            flushes.add(connection);
+            selector.wakeup();
+        }
+    }
+
+    private void writeAcks(Connection connection) throws IOException {
+        while (true) {
+            TransferFrames.Ack ack;
+            while (connection.out.remaining() >= 4 + TransferFrames.MAX_ACK_LENGTH && (ack = connection.acks.poll()) != null) {
+                TransferFrames.writeAck(connection.out, ack);
+                connection.inFlight--;
+            }
+            connection.out.flip();
+            connection.channel.write(connection.out);
+            boolean unsent = connection.out.hasRemaining();
+            connection.out.compact();
+            if (unsent || connection.acks.isEmpty()) {
+                setInterest(connection, SelectionKey.OP_WRITE, unsent);
+                break;
+            }
+        }
+        if ((connection.key.interestOps() & SelectionKey.OP_READ) == 0 && connection.inFlight < maxInFlight) {
+            readCommands(connection);
+        }
+    }
+
+    private void setInterest(Connection connection, int op, boolean on) {
+        int interestOps = connection.key.interestOps();
+        int updated = on ? interestOps | op : interestOps & ~op;
+        if (updated != interestOps) {
+            connection.key.interestOps(updated);
+        }
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connection.key.cancel();
+        connections.decrementAndGet();
+        try {
+            connection.channel.close();
+        } catch (IOException exception) {
+            LOG.warn("connection {} could not be closed", connection.channel, exception);
+        }
+    }
+
+    private static class Connection {
+
+        private final SocketChannel channel;
+
+        private final ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+
+        private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        private final Queue<TransferFrames.Ack> acks = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+        private SelectionKey key;
+
+        /**
+         * Commands read and not yet written back; only touched by the selector thread.
+         */
+        private int inFlight;
+
+        private boolean closed;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.revolut.test.bankwire.tcp;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frames of the binary transfer channel, big-endian, each preceded by its length in an int that does not count
+ * itself:
+ * <pre>
+ * command: long correlationId, long amount in minor units of the sender's currency,
+ *          short length + UTF-8 sender account number, short length + UTF-8 receiver account number
+ * ack:     long correlationId, byte status, long transfer sequence (0 unless committed),
+ *          short length + UTF-8 transfer id when committed, the error message otherwise
+ * </pre>
+ * Acks carry the correlation id of their command and may come back in a different order than the commands were sent.
+ */
+public final class TransferFrames {
+
+    public static final byte COMMITTED = 0;
+
+    /**
+     * The transfer was refused and changed nothing: unknown account, insufficient balance, invalid amount...
+     */
+    public static final byte REJECTED = 1;
+
+    /**
+     * The transfer changed nothing and may succeed if sent again: a lock or journal timeout, or a server shutting down.
+     */
+    public static final byte RETRY = 2;
+
+    public static final int MAX_ACCOUNT_NUMBER_BYTES = 256;
+
+    public static final int MAX_COMMAND_LENGTH = 8 + 8 + 2 + MAX_ACCOUNT_NUMBER_BYTES + 2 + MAX_ACCOUNT_NUMBER_BYTES;
+
+    public static final int MAX_TEXT_CHARS = 1024;
+
+    public static final int MAX_ACK_LENGTH = 8 + 1 + 8 + 2 + MAX_TEXT_CHARS * 3;
+
+    private static final int MIN_COMMAND_LENGTH = 8 + 8 + 2 + 2;
+
+    private TransferFrames() {
+    }
+
+    public static void writeCommand(ByteBuffer buffer, Command command) {
+        byte[] sender = command.senderAccountNumber.getBytes(StandardCharsets.UTF_8);
+        byte[] receiver = command.receiverAccountNumber.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(8 + 8 + 2 + sender.length + 2 + receiver.length);
+        buffer.putLong(command.correlationId);
+        buffer.putLong(command.amount);
+        buffer.putShort((short) sender.length).put(sender);
+        buffer.putShort((short) receiver.length).put(receiver);
+    }
+
+    /**
+     * Reads the next command if the buffer holds all of it, otherwise returns null and leaves the buffer as it was.
+     * A frame that cannot be a command throws, the stream cannot be resynchronised after it.
+     */
+    public static Command readCommand(ByteBuffer buffer) throws ProtocolException {
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length < MIN_COMMAND_LENGTH || length > MAX_COMMAND_LENGTH) {
+            throw new ProtocolException(String.format("Command length %d out of range", length));
+        }
+        if (buffer.remaining() < 4 + length) {
+            return null;
+        }
+        int end = buffer.position() + 4 + length;
+        buffer.getInt();
+        long correlationId = buffer.getLong();
+        long amount = buffer.getLong();
+        String senderAccountNumber = readString(buffer, end, MAX_ACCOUNT_NUMBER_BYTES);
+        String receiverAccountNumber = readString(buffer, end, MAX_ACCOUNT_NUMBER_BYTES);
+        if (buffer.position() != end) {
+            throw new ProtocolException(String.format("Command %d has %d trailing bytes", correlationId, end - buffer.position()));
+        }
+        return new Command(correlationId, senderAccountNumber, receiverAccountNumber, amount);
+    }
+
+    public static void writeAck(ByteBuffer buffer, Ack ack) {
+        String text = ack.text.length() > MAX_TEXT_CHARS ? ack.text.substring(0, MAX_TEXT_CHARS) : ack.text;
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(8 + 1 + 8 + 2 + bytes.length);
+        buffer.putLong(ack.correlationId);
+        buffer.put(ack.status);
+        buffer.putLong(ack.sequence);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Reads the next ack if the buffer holds all of it, otherwise returns null and leaves the buffer as it was.
+     */
+    public static Ack readAck(ByteBuffer buffer) throws ProtocolException {
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length < 8 + 1 + 8 + 2 || length > MAX_ACK_LENGTH) {
+            throw new ProtocolException(String.format("Ack length %d out of range", length));
+        }
+        if (buffer.remaining() < 4 + length) {
+            return null;
+        }
+        int end = buffer.position() + 4 + length;
+        buffer.getInt();
+        long correlationId = buffer.getLong();
+        byte status = buffer.get();
+        long sequence = buffer.getLong();
+        String text = readString(buffer, end, MAX_TEXT_CHARS * 3);
+        return new Ack(correlationId, status, sequence, text);
+    }
+
+    private static String readString(ByteBuffer buffer, int end, int maxBytes) throws ProtocolException {
+        if (buffer.position() + Short.BYTES > end) {
+            throw new ProtocolException("String length past the end of the frame");
+        }
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > maxBytes || buffer.position() + length > end) {
+            throw new ProtocolException(String.format("String length %d out of range", length));
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Command {
+
+        private final long correlationId;
+
+        private final String senderAccountNumber;
+
+        private final String receiverAccountNumber;
+
+        private final long amount;
+
+        public Command(long correlationId, String senderAccountNumber, String receiverAccountNumber, long amount) {
+            this.correlationId = correlationId;
+            this.senderAccountNumber = senderAccountNumber;
+            this.receiverAccountNumber = receiverAccountNumber;
+            this.amount = amount;
+        }
+
+        public long getCorrelationId() {
+            return correlationId;
+        }
+
+        public String getSenderAccountNumber() {
+            return senderAccountNumber;
+        }
+
+        public String getReceiverAccountNumber() {
+            return receiverAccountNumber;
+        }
+
+        /**
+         * Amount in minor units of the sender's currency, e.g. cents.
+         */
+        public long getAmount() {
+            return amount;
+        }
+    }
+
+    public static class Ack {
+
+        private final long correlationId;
+
+        private final byte status;
+
+        private final long sequence;
+
+        private final String text;
+
+        public Ack(long correlationId, byte status, long sequence, String text) {
+            this.correlationId = correlationId;
+            this.status = status;
+            this.sequence = sequence;
+            this.text = text == null ? "" : text;
+        }
+
+        public long getCorrelationId() {
+            return correlationId;
+        }
+
+        public byte getStatus() {
+            return status;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Transfer id when committed, the error message otherwise.
+         */
+        public String getText() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.revolut.test.bankwire.tcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Ingestion of transfers over a transport other than the HTTP routes, executed through the same TransferDao.
+ */
+public interface TransferServer extends Closeable {
+
+    boolean isEnabled();
+
+    void start() throws IOException;
+
+    @Override
+    void close();
+
+}
@@ -0,0 +1,121 @@
+package com.revolut.account.test.backwire.async;
+
+import com.revolut.test.bankwire.async.ExecutorTransferSubmitter;
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.TransferStatus;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ExecutorTransferSubmitterTest {
+
+    private AccountDao accountDao;
+
+    private TransferDao transferDao;
+
+    private ExecutorTransferSubmitter transferSubmitter;
+
+    @Before
+    public void setUp() throws Exception {
+        accountDao = new AccountDaoImpl();
+        transferDao = new TransferDaoImpl(accountDao);
+        transferSubmitter = new ExecutorTransferSubmitter(transferDao, 2, 100, 1);
+        accountDao.createAccount(createAccountMock("abc"));
+        accountDao.createAccount(createAccountMock("xyz"));
+    }
+
+    @Test
+    public void submit_Valid_CommittedInBackground() {
+        //when
+        TransferStatus status = transferSubmitter.submit(createTransferMock("1", 10));
+        transferSubmitter.close();
+
+        //then
+        assertThat(status.getStatus(), is(TransferStatus.Status.PENDING));
+        assertThat(transferDao.findByTransferId("1").isPresent(), is(true));
+        assertThat(transferSubmitter.findStatus("1").isPresent(), is(false));
+        assertThat(accountDao.findByAccountNumber("xyz").get().getBalance(), is(11000L));
+    }
+
+    @Test
+    public void submit_InSufficientAccountBalance_OnlyNewestFailureKept() {
+        //when
+        transferSubmitter.submit(createTransferMock("1", 1000));
+        transferSubmitter.submit(createTransferMock("2", 1000));
+        transferSubmitter.close();
+
+        //then
+        assertThat(transferDao.findByTransferId("1").isPresent(), is(false));
+        assertThat(transferSubmitter.findStatus("1").isPresent() ^ transferSubmitter.findStatus("2").isPresent(), is(true));
+        TransferStatus status = transferSubmitter.findStatus("1").orElseGet(() -> transferSubmitter.findStatus("2").get());
+        assertThat(status.getStatus(), is(TransferStatus.Status.FAILED));
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(10000L));
+    }
+
+    @Test
+    public void submit_InFlightLimitReached_Rejected() throws Exception {
+        //given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        transferSubmitter = new ExecutorTransferSubmitter(transferDao, executor, 1, 1);
+        transferSubmitter.submit(createTransferMock("1", 10));
+
+        //when
+        try {
+            transferSubmitter.submit(createTransferMock("2", 10));
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException exception) {
+            //then
+            assertThat(transferSubmitter.getInFlight(), is(1));
+            assertThat(transferSubmitter.findStatus("2").isPresent(), is(false));
+        }
+        blocked.countDown();
+        transferSubmitter.close();
+        assertThat(transferDao.findByTransferId("1").isPresent(), is(true));
+        assertThat(transferSubmitter.getInFlight(), is(0));
+    }
+
+    private Account createAccountMock(String accountNumber) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String transferId, int money) {
+        return new TransferBuilder().setTransferId(transferId).setFromAccountNumber("abc")
+                .setToAccountNumber("xyz")
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, money))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
@@ -1,286 +1,483 @@
-package com.revolut.account.test.backwire.controller;
-
-
-import com.revolut.test.bankwire.context.ContextWrapper;
-import com.revolut.test.bankwire.controller.TransferController;
-import com.revolut.test.bankwire.dto.*;
-import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
-import com.revolut.test.bankwire.repo.AccountDao;
-import com.revolut.test.bankwire.repo.TransferDao;
-import com.revolut.test.bankwire.controller.TransferControllerImpl;
-import org.joda.money.CurrencyUnit;
-import org.joda.money.Money;
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.Mock;
-import org.mockito.runners.MockitoJUnitRunner;
-
-
-import static org.mockito.Mockito.*;
-
-import io.javalin.Context;
-
-import java.util.LinkedList;
-import java.util.Optional;
-import java.util.Queue;
-
-@RunWith(MockitoJUnitRunner.class)
-public class TransferControllerTest {
-
-    private TransferController transferController;
-
-    @Mock
-    private Context context;
-
-    @Mock
-    private ContextWrapper contextWrapper;
-
-    @Mock
-    private TransferDao transferDao;
-
-    @Mock
-    private AccountDao accountDao;
-
-    @Mock
-    private Transfer transfer;
-
-
-    @Before
-    public void setUp()  {
-        transferController = new TransferControllerImpl(contextWrapper, transferDao, accountDao);
-    }
-
-
-    @Test
-    public void findTransferById_Exists_Success() {
-        //given
-        String transferId = "1234";
-        when(contextWrapper.pathParam(context, "id")).thenReturn(transferId);
-        when(transferDao.findByTransferId(transferId)).thenReturn(Optional.of(transfer));
-
-        //when
-        transferController.findTransferById(context);
-
-        //then
-        verify(transferDao).findByTransferId(transferId);
-        verify(contextWrapper).json(context, transfer, 200);
-    }
-
-    @Test
-    public void findTransferById_Exists_Failure() {
-        //given
-        String transferId = "1234";
-        when(contextWrapper.pathParam(context, "id")).thenReturn(transferId);
-        when(transferDao.findByTransferId(transferId)).thenReturn(Optional.empty());
-
-        //when
-        transferController.findTransferById(context);
-
-        //then
-        verify(transferDao).findByTransferId(transferId);
-        verify(contextWrapper).json(context, String.format("transfer with id %s not found ", transferId), 404);
-    }
-
-    @Test
-    public void getAllTransfers_Success() {
-        //given
-        Queue<Transfer> transfers = new LinkedList<>();
-        when(transferDao.findAllTransfers()).thenReturn(transfers);
-
-        //when
-        transferController.getAllTransfers(context);
-
-        //then
-        verify(transferDao, atLeastOnce()).findAllTransfers();
-        verify(contextWrapper).json(context, transfers, 200);
-    }
-
-    @Test
-    public void transferMoney_Valid_Success() throws  Exception{
-        // given
-        String transferId = "9870";
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        Transfer transfer = new TransferBuilder().setTransferId(transferId).createTransfer();
-        when(transferDao.transferMoney(any(Transfer.class))).thenReturn(transfer);
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-        when(contextWrapper.formParam(context,"money")).thenReturn("10.00");
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao).transferMoney(any(Transfer.class));
-        verify(contextWrapper).json(context, transfer, 200);
-
-    }
-
-    @Test
-    public void transferMoney_TransferSenderAndReceiverAreSame_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "abc";
-        Optional<Account> senderAccount = new AccountBuilder().setAccountNumber(senderAccountNumber).createAccountOptional();
-        Optional<Account> receiverAccount = new AccountBuilder().setAccountNumber(receiverAccountNumber).createAccountOptional();
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(senderAccount);
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(receiverAccount);
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender are Receiver are identical", 400);
-    }
-
-    @Test
-    public void transferMoney_SenderDoesNotExist_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.empty());
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).createAccountOptional());
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Account does not exist", 400);
-    }
-
-    @Test
-    public void transferMoney_ReceiverDoesNotExist_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).createAccountOptional());
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( Optional.empty());
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Receiver Account does not exist", 400);
-    }
-
-    @Test
-    public void transferMoney_SenderReceiverCurrencyDoesNotMatch_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.USD).createAccountOptional());
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.JPY).createAccountOptional());
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Receiver Currencies don't match", 400);
-    }
-
-    @Test
-    public void transferMoney_SenderAccountNumberIsNull_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = null;
-        String receiverAccountNumber = "xyz";
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Account and Receiver Account Number are Mandatory", 400);
-    }
-
-    @Test
-    public void transferMoney_ReceiverAccountNumberIsNull_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = null;
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Account and Receiver Account Number are Mandatory", 400);
-    }
-
-    @Test
-    public void transferMoney_SenderReceiverAccountNumberIdentical_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "abc";
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender are Receiver are identical", 400);
-    }
-    @Test
-    public void transferMoney_InValidMoneyFormat_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String moneyStr = "InValid";
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-        when(contextWrapper.formParam(context,"money")).thenReturn(moneyStr);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao, never()).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, String.format("Money format invalid", moneyStr), 400);
-    }
-
-    @Test
-    public void transferMoney_InSufficientAccountBalance_Failure()throws  Exception{
-        // given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String moneyStr = "100";
-        Money senderMoney = Money.of(CurrencyUnit.EUR, 50);
-        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
-        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
-        when(contextWrapper.formParam(context,"money")).thenReturn(moneyStr);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).setMoney(senderMoney).createAccountOptional());
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
-        when(transferDao.transferMoney(any(Transfer.class))).thenThrow(new InSufficientAccountBalanceException(String.format("InSufficient Account Balance %s", senderMoney)));
-
-        //when
-        transferController.transferMoney(context);
-
-        //then
-        verify(transferDao).transferMoney(any(Transfer.class));
-        verify(contextWrapper, atLeastOnce()).json(context, String.format("InSufficient Account Balance %s", senderMoney), 400);
-    }
-
-
-}
+package com.revolut.account.test.backwire.controller;
+
+
+import com.revolut.test.bankwire.async.TransferSubmitter;
+import com.revolut.test.bankwire.context.ContextWrapper;
+import com.revolut.test.bankwire.controller.TransferController;
+import com.revolut.test.bankwire.dto.*;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.idempotency.IdempotencyCacheImpl;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.controller.TransferControllerImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+import io.javalin.Context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransferControllerTest {
+
+    private TransferController transferController;
+
+    @Mock
+    private Context context;
+
+    @Mock
+    private ContextWrapper contextWrapper;
+
+    @Mock
+    private TransferDao transferDao;
+
+    @Mock
+    private AccountDao accountDao;
+
+    @Mock
+    private Transfer transfer;
+
+    @Mock
+    private TransferSubmitter transferSubmitter;
+
+
+    @Before
+    public void setUp()  {
+        transferController = new TransferControllerImpl(contextWrapper, transferDao, accountDao);
+    }
+
+
+    @Test
+    public void findTransferById_Exists_Success() {
+        //given
+        String transferId = "1234";
+        when(contextWrapper.pathParam(context, "id")).thenReturn(transferId);
+        when(transferDao.findByTransferId(transferId)).thenReturn(Optional.of(transfer));
+
+        //when
+        transferController.findTransferById(context);
+
+        //then
+        verify(transferDao).findByTransferId(transferId);
+        verify(contextWrapper).json(context, transfer, 200);
+    }
+
+    @Test
+    public void findTransferById_Exists_Failure() {
+        //given
+        String transferId = "1234";
+        when(contextWrapper.pathParam(context, "id")).thenReturn(transferId);
+        when(transferDao.findByTransferId(transferId)).thenReturn(Optional.empty());
+
+        //when
+        transferController.findTransferById(context);
+
+        //then
+        verify(transferDao).findByTransferId(transferId);
+        verify(contextWrapper).json(context, String.format("transfer with id %s not found ", transferId), 404);
+    }
+
+    @Test
+    public void getAllTransfers_Success() {
+        //given
+        List<Transfer> transfers = new ArrayList<>();
+        when(transferDao.findTransfers(0, 100)).thenReturn(transfers);
+
+        //when
+        transferController.getAllTransfers(context);
+
+        //then
+        verify(transferDao).findTransfers(0, 100);
+        verify(contextWrapper).jsonPage(context, transfers, 0L, 200);
+    }
+
+    @Test
+    public void getAllTransfers_Cursor_NextCursorIsLastSequence() {
+        //given
+        Transfer last = new TransferBuilder().setTransferId("9870").createTransfer();
+        last.setSequence(42);
+        List<Transfer> transfers = new ArrayList<>();
+        transfers.add(last);
+        when(contextWrapper.queryParam(context, "cursor")).thenReturn("41");
+        when(contextWrapper.queryParam(context, "limit")).thenReturn("1");
+        when(transferDao.findTransfers(41, 1)).thenReturn(transfers);
+
+        //when
+        transferController.getAllTransfers(context);
+
+        //then
+        verify(contextWrapper).jsonPage(context, transfers, 42L, 200);
+    }
+
+    @Test
+    public void getAllTransfers_InValidLimit_Failure() {
+        //given
+        when(contextWrapper.queryParam(context, "limit")).thenReturn("100000");
+
+        //when
+        transferController.getAllTransfers(context);
+
+        //then
+        verify(transferDao, never()).findTransfers(anyLong(), anyInt());
+        verify(contextWrapper).json(context, "cursor must be a sequence number and limit between 1 and 1000", 400);
+    }
+
+    @Test
+    public void findAccountTransfers_Cursor_NextCursorCountsReadTransfers() {
+        //given
+        List<Transfer> transfers = Arrays.asList(transfer, transfer);
+        when(contextWrapper.pathParam(context, "id")).thenReturn("abc");
+        when(contextWrapper.queryParam(context, "cursor")).thenReturn("10");
+        when(contextWrapper.queryParam(context, "limit")).thenReturn("2");
+        when(accountDao.findByAccountNumber("abc")).thenReturn(Optional.of(mock(Account.class)));
+        when(transferDao.findAccountTransfers("abc", 10, 2)).thenReturn(transfers);
+
+        //when
+        transferController.findAccountTransfers(context);
+
+        //then
+        verify(contextWrapper).jsonPage(context, transfers, 12L, 200);
+    }
+
+    @Test
+    public void findAccountTransfers_AccountNotFound_Failure() {
+        //given
+        when(contextWrapper.pathParam(context, "id")).thenReturn("abc");
+        when(accountDao.findByAccountNumber("abc")).thenReturn(Optional.empty());
+
+        //when
+        transferController.findAccountTransfers(context);
+
+        //then
+        verify(transferDao, never()).findAccountTransfers(anyString(), anyLong(), anyInt());
+        verify(contextWrapper).json(context, "Account abc does not exist", 404);
+    }
+
+    @Test
+    public void transferMoney_Valid_Success() throws  Exception{
+        // given
+        String transferId = "9870";
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Transfer transfer = new TransferBuilder().setTransferId(transferId).createTransfer();
+        when(transferDao.transferMoney(any(Transfer.class))).thenReturn(transfer);
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(contextWrapper.formParam(context,"money")).thenReturn("10.00");
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao).transferMoney(any(Transfer.class));
+        verify(contextWrapper).json(context, transfer, 200);
+
+    }
+
+    @Test
+    public void transferMoney_JsonBody_FormNotRead() throws Exception {
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Transfer transfer = new TransferBuilder().setTransferId("9870").createTransfer();
+        when(transferDao.transferMoney(any(Transfer.class))).thenReturn(transfer);
+        when(contextWrapper.header(context, "Content-Type")).thenReturn("application/json; charset=UTF-8");
+        when(contextWrapper.bodyAsClass(context, TransferRequest.class)).thenReturn(new TransferRequest(senderAccountNumber, receiverAccountNumber, "10.00"));
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(contextWrapper, never()).formParam(any(Context.class), anyString());
+        verify(contextWrapper).json(context, transfer, 200);
+    }
+
+    @Test
+    public void transferMoney_TransferSenderAndReceiverAreSame_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "abc";
+        Optional<Account> senderAccount = new AccountBuilder().setAccountNumber(senderAccountNumber).createAccountOptional();
+        Optional<Account> receiverAccount = new AccountBuilder().setAccountNumber(receiverAccountNumber).createAccountOptional();
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(senderAccount);
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(receiverAccount);
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender are Receiver are identical", 400);
+    }
+
+    @Test
+    public void transferMoney_SenderDoesNotExist_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.empty());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).createAccountOptional());
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Account does not exist", 400);
+    }
+
+    @Test
+    public void transferMoney_ReceiverDoesNotExist_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( Optional.empty());
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Receiver Account does not exist", 400);
+    }
+
+    @Test
+    public void transferMoney_SenderReceiverCurrencyDoesNotMatch_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.USD).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.JPY).createAccountOptional());
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Receiver Currencies don't match", 400);
+    }
+
+    @Test
+    public void transferMoney_SenderAccountNumberIsNull_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = null;
+        String receiverAccountNumber = "xyz";
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Account and Receiver Account Number are Mandatory", 400);
+    }
+
+    @Test
+    public void transferMoney_ReceiverAccountNumberIsNull_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = null;
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender Account and Receiver Account Number are Mandatory", 400);
+    }
+
+    @Test
+    public void transferMoney_SenderReceiverAccountNumberIdentical_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "abc";
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, "Transfer UnSuccessfully Sender are Receiver are identical", 400);
+    }
+    @Test
+    public void transferMoney_InValidMoneyFormat_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String moneyStr = "InValid";
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(contextWrapper.formParam(context,"money")).thenReturn(moneyStr);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, String.format("Money format invalid", moneyStr), 400);
+    }
+
+    @Test
+    public void transferMoney_InSufficientAccountBalance_Failure()throws  Exception{
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String moneyStr = "100";
+        Money senderMoney = Money.of(CurrencyUnit.EUR, 50);
+        when(contextWrapper.formParam(context,"senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context,"receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(contextWrapper.formParam(context,"money")).thenReturn(moneyStr);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).setMoney(senderMoney).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn( new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(transferDao.transferMoney(any(Transfer.class))).thenThrow(new InSufficientAccountBalanceException(String.format("InSufficient Account Balance %s", senderMoney)));
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao).transferMoney(any(Transfer.class));
+        verify(contextWrapper, atLeastOnce()).json(context, String.format("InSufficient Account Balance %s", senderMoney), 400);
+    }
+
+    @Test
+    public void transferMoney_IdempotencyKeyRetried_ExecutedOnce() throws Exception {
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Transfer transfer = new TransferBuilder().setTransferId("9870").createTransfer();
+        when(transferDao.transferMoney(any(Transfer.class))).thenReturn(transfer);
+        when(contextWrapper.header(context, "Idempotency-Key")).thenReturn("7c1f0b52");
+        when(contextWrapper.formParam(context, "senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context, "receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(contextWrapper.formParam(context, "money")).thenReturn("10.00");
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+
+        //when
+        transferController.transferMoney(context);
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, times(1)).transferMoney(any(Transfer.class));
+        verify(contextWrapper, times(2)).json(context, transfer, 200);
+    }
+
+    @Test
+    public void transferMoney_Async_Accepted() throws Exception {
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        TransferStatus pending = TransferStatus.pending("9870");
+        transferController = new TransferControllerImpl(contextWrapper, transferDao, accountDao, new IdempotencyCacheImpl(10, 60), transferSubmitter);
+        when(transferSubmitter.isEnabled()).thenReturn(true);
+        when(transferSubmitter.submit(any(Transfer.class))).thenReturn(pending);
+        when(contextWrapper.formParam(context, "senderAccountNumber")).thenReturn(senderAccountNumber);
+        when(contextWrapper.formParam(context, "receiverAccountNumber")).thenReturn(receiverAccountNumber);
+        when(contextWrapper.formParam(context, "money")).thenReturn("10.00");
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+
+        //when
+        transferController.transferMoney(context);
+
+        //then
+        verify(transferDao, never()).transferMoney(any(Transfer.class));
+        verify(contextWrapper).json(context, pending, 202);
+    }
+
+    @Test
+    public void findTransferById_Pending_Accepted() {
+        //given
+        String transferId = "1234";
+        TransferStatus pending = TransferStatus.pending(transferId);
+        transferController = new TransferControllerImpl(contextWrapper, transferDao, accountDao, new IdempotencyCacheImpl(10, 60), transferSubmitter);
+        when(contextWrapper.pathParam(context, "id")).thenReturn(transferId);
+        when(transferDao.findByTransferId(transferId)).thenReturn(Optional.empty());
+        when(transferSubmitter.findStatus(transferId)).thenReturn(Optional.of(pending));
+
+        //when
+        transferController.findTransferById(context);
+
+        //then
+        verify(contextWrapper).json(context, pending, 202);
+    }
+
+    @Test
+    public void transferBatch_Valid_Success() throws Exception {
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Transfer transfer = new TransferBuilder().setTransferId("9870").createTransfer();
+        TransferRequest[] requests = {new TransferRequest(senderAccountNumber, receiverAccountNumber, "10.00"), new TransferRequest(receiverAccountNumber, senderAccountNumber, "5.00")};
+        when(contextWrapper.bodyAsClass(context, TransferRequest[].class)).thenReturn(requests);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(transferDao.transferBatch(anyListOf(Transfer.class))).thenReturn(Arrays.asList(transfer, transfer));
+
+        //when
+        transferController.transferBatch(context);
+
+        //then
+        ArgumentCaptor<List> results = ArgumentCaptor.forClass(List.class);
+        verify(transferDao).transferBatch(anyListOf(Transfer.class));
+        verify(contextWrapper).json(eq(context), results.capture(), eq(200));
+        assertEquals(2, results.getValue().size());
+        assertEquals(TransferResult.Status.COMMITTED, ((TransferResult) results.getValue().get(1)).getStatus());
+    }
+
+    @Test
+    public void transferBatch_ReceiverDoesNotExist_NothingExecuted() throws Exception {
+        // given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        TransferRequest[] requests = {new TransferRequest(senderAccountNumber, receiverAccountNumber, "10.00"), new TransferRequest(senderAccountNumber, "def", "5.00")};
+        when(contextWrapper.bodyAsClass(context, TransferRequest[].class)).thenReturn(requests);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(senderAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(new AccountBuilder().setAccountNumber(receiverAccountNumber).setCurrency(CurrencyUnit.EUR).createAccountOptional());
+        when(accountDao.findByAccountNumber("def")).thenReturn(Optional.empty());
+
+        //when
+        transferController.transferBatch(context);
+
+        //then
+        ArgumentCaptor<List> results = ArgumentCaptor.forClass(List.class);
+        verify(transferDao, never()).transferBatch(anyListOf(Transfer.class));
+        verify(contextWrapper).json(eq(context), results.capture(), eq(400));
+        assertEquals(TransferResult.Status.ABORTED, ((TransferResult) results.getValue().get(0)).getStatus());
+        assertEquals(TransferResult.Status.REJECTED, ((TransferResult) results.getValue().get(1)).getStatus());
+        assertEquals("Transfer UnSuccessfully Receiver Account does not exist", ((TransferResult) results.getValue().get(1)).getMessage());
+    }
+}
@@ -1,233 +1,443 @@
-package com.revolut.account.test.backwire.dao;
-
-import com.revolut.test.bankwire.dto.Account;
-import com.revolut.test.bankwire.dto.AccountBuilder;
-import com.revolut.test.bankwire.dto.User;
-import com.revolut.test.bankwire.exception.AccountAlreadyExistsException;
-import com.revolut.test.bankwire.exception.AccountNotFoundException;
-import com.revolut.test.bankwire.repo.AccountDao;
-import com.revolut.test.bankwire.repo.AccountDaoImpl;
-import org.jetbrains.annotations.TestOnly;
-import org.joda.money.CurrencyUnit;
-import org.joda.money.Money;
-import org.junit.After;
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.runners.MockitoJUnitRunner;
-
-import static org.hamcrest.CoreMatchers.*;
-
-import java.math.BigDecimal;
-import java.util.*;
-
-import static org.junit.Assert.*;
-
-@RunWith(MockitoJUnitRunner.class)
-public class AccountDaoTest {
-
-    private AccountDao accountDao;
-
-    @Before
-    public void setUp() {
-        accountDao = new AccountDaoImpl();
-    }
-
-    @After
-    public void tearDown() {
-        accountDao.clearAccounts();
-    }
-
-
-    @Test
-    public void findByAccountNumber_Exist_Failure() {
-        // given
-        String accountNumber = "123";
-
-        //when
-        Optional<Account> account = accountDao.findByAccountNumber(accountNumber);
-
-        //then
-        assertFalse("account not Exist", account.isPresent());
-    }
-
-    @Test
-    public void findByAccountNumber_Exist_Success() throws Exception {
-        // given
-        String accountNumber = "123";
-        accountDao.createAccount(createAccountMock(accountNumber));
-
-        //when
-        Optional<Account> accountOptional = accountDao.findByAccountNumber(accountNumber);
-
-        //then
-        assertTrue("Account Exist", accountOptional.isPresent());
-    }
-
-    @Test
-    public void findAllAccounts_Success() throws Exception {
-        //given
-        accountDao.createAccount(createAccountMock());
-        accountDao.createAccount(createAccountMock());
-
-        //when
-        List<Account> accounts = accountDao.findAllAccounts();
-
-        //then
-        assertThat(accounts.size(), is(2));
-    }
-
-    @Test
-    public void clearAccounts_DeleteAll_Success() throws Exception {
-        //given
-        accountDao.createAccount(createAccountMock());
-        accountDao.createAccount(createAccountMock());
-
-        //when
-        accountDao.clearAccounts();
-
-        //then
-        assertThat(accountDao.findAllAccounts().size(), is(0));
-    }
-    @Test
-    public void createAccount_Success() throws Exception {
-
-        //given
-        Account account = createAccountMock();
-
-        //when
-        accountDao.createAccount(account);
-        Optional<Account> accountOptional = accountDao.findByAccountNumber(account.getAccountNumber());
-
-        //verify
-        assertEquals(account, accountOptional.get());
-
-    }
-
-    @Test(expected = AccountAlreadyExistsException.class)
-    public void createAccount_AccountAlreadyExists_Exception() throws Exception {
-
-        //given
-        Account account = createAccountMock();
-        accountDao.createAccount(account);
-
-        //when
-        accountDao.createAccount(account);
-
-    }
-
-    @Test
-    public void deleteAccount_Success() throws Exception {
-
-        //given
-        String accountNumber = "9870";
-        accountDao.createAccount(createAccountMock(accountNumber));
-
-        //when
-        accountDao.deleteAccount(accountNumber);
-
-        //verify
-        assertFalse(accountDao.findByAccountNumber(accountNumber).isPresent());
-
-    }
-
-    @Test(expected = AccountNotFoundException.class)
-    public void deleteAccount_AccountNotFound_Exception() throws Exception {
-
-        //given
-        String accountNumber = "9870";
-
-        //when
-        accountDao.deleteAccount(accountNumber);
-
-        //verify
-
-
-    }
-
-    @Test
-    public void creditAccount_AccountCredited_Success() throws Exception {
-
-        //given
-        String accountNumber = "9870";
-        Account account = createAccountMock(accountNumber);
-        accountDao.createAccount(account);
-        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10"));
-        Money balanceAfterDeduct = Money.of(CurrencyUnit.EUR, new BigDecimal("110"));
-
-
-        //when
-        accountDao.creditAccount(account, money);
-
-        //verify
-        assertEquals(accountDao.findByAccountNumber("9870").get().getMoney(), balanceAfterDeduct);
-    }
-
-    @Test(expected = AccountNotFoundException.class)
-    public void creditAccount_AccountNotFound_Exception() throws Exception {
-
-        //given
-        String accountNumber = "9870";
-        Account account = createAccountMock(accountNumber);
-        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10"));
-
-
-        //when
-        accountDao.creditAccount(account, money);
-
-        //verify
-    }
-
-
-    @Test
-    public void deductAccount_AccountDeducted_Success() throws Exception {
-
-        //given
-        String accountNumber = "9870";
-        Account account = createAccountMock(accountNumber);
-        accountDao.createAccount(account);
-        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10.00"));
-        Money balanceAfterDeduct = Money.of(CurrencyUnit.EUR, new BigDecimal("90"));
-
-
-        //when
-        accountDao.deductAccount(account, money);
-
-        //verify
-        assertEquals(accountDao.findByAccountNumber(accountNumber).get().getMoney(), balanceAfterDeduct);
-    }
-
-    @Test(expected = AccountNotFoundException.class)
-    public void deductAccount_AccountNotFound_Exception() throws Exception {
-
-        //given
-        String accountNumber = "9870";
-        Account account = createAccountMock(accountNumber);
-        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10.00"));
-
-
-        //when
-        accountDao.deductAccount(account, money);
-
-        //verify
-    }
-
-
-    private Account createAccountMock() {
-        return new AccountBuilder().setUser(new User("test","test1"))
-                .setAccountNumber(UUID.randomUUID().toString())
-                .setCurrency(CurrencyUnit.EUR)
-                .setMoney(Money.of(CurrencyUnit.EUR, 100))
-                .setCreatedDate(new Date())
-                .createAccount();
-    }
-
-    private Account createAccountMock(String accountNumber) {
-        return new AccountBuilder().setUser(new User("test","test1"))
-                .setAccountNumber(accountNumber)
-                .setCurrency(CurrencyUnit.EUR)
-                .setMoney(Money.of(CurrencyUnit.EUR, 100))
-                .setCreatedDate(new Date())
-                .createAccount();
-    }
-}
+package com.revolut.account.test.backwire.dao;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.exception.AccountAlreadyExistsException;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import org.jetbrains.annotations.TestOnly;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.hamcrest.CoreMatchers.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AccountDaoTest {
+
+    private AccountDao accountDao;
+
+    @Before
+    public void setUp() {
+        accountDao = new AccountDaoImpl();
+    }
+
+    @After
+    public void tearDown() {
+        accountDao.clearAccounts();
+    }
+
+
+    @Test
+    public void findByAccountNumber_Exist_Failure() {
+        // given
+        String accountNumber = "123";
+
+        //when
+        Optional<Account> account = accountDao.findByAccountNumber(accountNumber);
+
+        //then
+        assertFalse("account not Exist", account.isPresent());
+    }
+
+    @Test
+    public void findByAccountNumber_Exist_Success() throws Exception {
+        // given
+        String accountNumber = "123";
+        accountDao.createAccount(createAccountMock(accountNumber));
+
+        //when
+        Optional<Account> accountOptional = accountDao.findByAccountNumber(accountNumber);
+
+        //then
+        assertTrue("Account Exist", accountOptional.isPresent());
+    }
+
+    @Test
+    public void findAllAccounts_Success() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock());
+        accountDao.createAccount(createAccountMock());
+
+        //when
+        List<Account> accounts = accountDao.findAllAccounts();
+
+        //then
+        assertThat(accounts.size(), is(2));
+    }
+
+    @Test
+    public void findAccounts_Cursor_ReturnsNextPageInAccountNumberOrder() throws Exception {
+        //given
+        for (int i = 0; i < 5; i++) {
+            accountDao.createAccount(createAccountMock(String.valueOf(i)));
+        }
+
+        //when
+        List<Account> firstPage = accountDao.findAccounts(null, null, 2);
+        List<Account> secondPage = accountDao.findAccounts(firstPage.get(1).getAccountNumber(), null, 2);
+        List<Account> lastPage = accountDao.findAccounts("3", null, 2);
+
+        //then
+        assertThat(firstPage.get(0).getAccountNumber(), is("0"));
+        assertThat(secondPage.get(0).getAccountNumber(), is("2"));
+        assertThat(secondPage.get(1).getAccountNumber(), is("3"));
+        assertThat(lastPage.size(), is(1));
+    }
+
+    @Test
+    public void findAccounts_CurrencyFilter_OnlyMatchingCurrency() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock("1"));
+        accountDao.createAccount(new AccountBuilder().setUser(new User("test","test1"))
+                .setAccountNumber("2")
+                .setCurrency(CurrencyUnit.USD)
+                .setMoney(Money.of(CurrencyUnit.USD, 100))
+                .setCreatedDate(new Date())
+                .createAccount());
+
+        //when
+        List<Account> accounts = accountDao.findAccounts(null, CurrencyUnit.USD, 10);
+
+        //then
+        assertThat(accounts.size(), is(1));
+        assertThat(accounts.get(0).getAccountNumber(), is("2"));
+    }
+
+    @Test
+    public void clearAccounts_DeleteAll_Success() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock());
+        accountDao.createAccount(createAccountMock());
+
+        //when
+        accountDao.clearAccounts();
+
+        //then
+        assertThat(accountDao.findAllAccounts().size(), is(0));
+    }
+    @Test
+    public void createAccount_Success() throws Exception {
+
+        //given
+        Account account = createAccountMock();
+
+        //when
+        accountDao.createAccount(account);
+        Optional<Account> accountOptional = accountDao.findByAccountNumber(account.getAccountNumber());
+
+        //verify
+        assertEquals(account, accountOptional.get());
+
+    }
+
+    @Test(expected = AccountAlreadyExistsException.class)
+    public void createAccount_AccountAlreadyExists_Exception() throws Exception {
+
+        //given
+        Account account = createAccountMock();
+        accountDao.createAccount(account);
+
+        //when
+        accountDao.createAccount(account);
+
+    }
+
+    @Test
+    public void deleteAccount_Success() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        accountDao.createAccount(createAccountMock(accountNumber));
+
+        //when
+        accountDao.deleteAccount(accountNumber);
+
+        //verify
+        assertFalse(accountDao.findByAccountNumber(accountNumber).isPresent());
+
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void deleteAccount_AccountNotFound_Exception() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+
+        //when
+        accountDao.deleteAccount(accountNumber);
+
+        //verify
+
+
+    }
+
+    @Test
+    public void creditAccount_AccountCredited_Success() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        accountDao.createAccount(account);
+        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10"));
+        Money balanceAfterDeduct = Money.of(CurrencyUnit.EUR, new BigDecimal("110"));
+
+
+        //when
+        accountDao.creditAccount(account, money);
+
+        //verify
+        assertEquals(accountDao.findByAccountNumber("9870").get().getMoney(), balanceAfterDeduct);
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void creditAccount_AccountNotFound_Exception() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10"));
+
+
+        //when
+        accountDao.creditAccount(account, money);
+
+        //verify
+    }
+
+
+    @Test
+    public void deductAccount_AccountDeducted_Success() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        accountDao.createAccount(account);
+        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10.00"));
+        Money balanceAfterDeduct = Money.of(CurrencyUnit.EUR, new BigDecimal("90"));
+
+
+        //when
+        accountDao.deductAccount(account, money);
+
+        //verify
+        assertEquals(accountDao.findByAccountNumber(accountNumber).get().getMoney(), balanceAfterDeduct);
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void deductAccount_AccountNotFound_Exception() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        Money money = Money.of(CurrencyUnit.EUR, new BigDecimal("10.00"));
+
+
+        //when
+        accountDao.deductAccount(account, money);
+
+        //verify
+    }
+
+
+    @Test
+    public void creditAccount_MinorUnits_Success() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        accountDao.createAccount(account);
+
+        //when
+        accountDao.creditAccount(account, 1050L);
+
+        //verify
+        assertThat(accountDao.findByAccountNumber(accountNumber).get().getBalance(), is(11050L));
+        assertEquals(Money.of(CurrencyUnit.EUR, new BigDecimal("110.50")), accountDao.findByAccountNumber(accountNumber).get().getMoney());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void creditAccount_BalanceOverflow_Exception() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        accountDao.createAccount(account);
+
+        //when
+        accountDao.creditAccount(account, Long.MAX_VALUE);
+
+        //verify
+    }
+
+    @Test
+    public void creditAccount_HotAccountBalanceOverflow_Exception() throws Exception {
+
+        //given
+        accountDao = new AccountDaoImpl(new DisabledJournal(), Collections.singleton("9870"), 0);
+        Account account = accountDao.createAccount(createAccountMock("9870"));
+        accountDao.creditAccount(account, Account.HOT_BALANCE_LIMIT - 20000L);
+
+        //when
+        try {
+            accountDao.creditAccount(account, 10001L);
+            fail("overflowing credit should be rejected");
+        } catch (ArithmeticException exception) {
+            // expected
+        }
+
+        //verify
+        assertThat(account.getBalance(), is(Account.HOT_BALANCE_LIMIT - 10000L));
+    }
+
+    @Test
+    public void creditAccount_HotAccountConcurrentCreditsAtLimit_OnlyFittingCreditedAndFolded() throws Exception {
+
+        //given
+        accountDao = new AccountDaoImpl(new DisabledJournal(), Collections.singleton("9870"), 0);
+        Account account = accountDao.createAccount(createAccountMock("9870"));
+        accountDao.creditAccount(account, Account.HOT_BALANCE_LIMIT - 10100L);
+        AtomicInteger successful = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        //when
+        for (int i = 0; i < 4000; i++) {
+            executorService.submit(() -> {
+                try {
+                    accountDao.creditAccount(account, 1L);
+                    successful.incrementAndGet();
+                } catch (ArithmeticException exception) {
+                    // limit reached
+                }
+                return null;
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+        //verify
+        assertTrue(successful.get() >= 100 && successful.get() < 104);
+        assertThat(account.getBalance(), is(Account.HOT_BALANCE_LIMIT - 100 + successful.get()));
+        accountDao.deductAccount(account, 1L);
+        assertThat(account.getBalance(), is(Account.HOT_BALANCE_LIMIT - 101 + successful.get()));
+    }
+
+    @Test(expected = CurrencyMismatchException.class)
+    public void deductAccount_CurrencyMismatch_Exception() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        accountDao.createAccount(account);
+
+        //when
+        accountDao.deductAccount(account, Money.of(CurrencyUnit.USD, 10));
+
+        //verify
+    }
+
+
+    @Test(expected = InSufficientAccountBalanceException.class)
+    public void deductAccount_BalanceBelowAmount_Exception() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        accountDao.createAccount(account);
+
+        //when
+        accountDao.deductAccount(account, 10001L);
+
+        //verify
+    }
+
+    @Test
+    public void deductAccount_ConcurrentDebits_NeverBelowZero() throws Exception {
+
+        //given
+        String accountNumber = "9870";
+        Account account = createAccountMock(accountNumber);
+        accountDao.createAccount(account);
+        AtomicInteger successful = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        //when
+        for (int i = 0; i < 400; i++) {
+            executorService.submit(() -> {
+                try {
+                    accountDao.deductAccount(account, 100L);
+                    successful.incrementAndGet();
+                } catch (Exception exception) {
+                    // insufficient balance once the 100 debits have gone through
+                }
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+        //verify
+        assertThat(successful.get(), is(100));
+        assertThat(account.getBalance(), is(0L));
+    }
+
+    @Test
+    public void creditAccount_HotAccountConcurrentCredits_FoldedOnDebit() throws Exception {
+
+        //given
+        accountDao = new AccountDaoImpl(new DisabledJournal(), Collections.singleton("9870"), 0);
+        Account account = accountDao.createAccount(createAccountMock("9870"));
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        //when
+        for (int i = 0; i < 4000; i++) {
+            executorService.submit(() -> {
+                accountDao.creditAccount(account, 1L);
+                return null;
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        accountDao.deductAccount(account, 14000L);
+
+        //verify
+        assertTrue(account.isHot());
+        assertThat(account.getBalance(), is(0L));
+    }
+
+
+    private Account createAccountMock() {
+        return new AccountBuilder().setUser(new User("test","test1"))
+                .setAccountNumber(UUID.randomUUID().toString())
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Account createAccountMock(String accountNumber) {
+        return new AccountBuilder().setUser(new User("test","test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+}
@@ -0,0 +1,204 @@
+package com.revolut.account.test.backwire.dao;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.exception.AccountAlreadyExistsException;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.OffHeapAccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import net.jodah.concurrentunit.Waiter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OffHeapAccountDaoTest {
+
+    private AccountDao accountDao;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        accountDao = new OffHeapAccountDao(1024);
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        accountDao.clearAccounts();
+    }
+
+    @Test
+    public void createAccount_DeletedAndCreatedAgain_ViewsFollowTheRecord() throws Exception {
+        //given
+        Account created = accountDao.createAccount(createAccountMock("abc", CurrencyUnit.EUR, "10"));
+        Account deleted = accountDao.findByAccountNumber("abc").get();
+
+        //when
+        try {
+            accountDao.createAccount(createAccountMock("abc", CurrencyUnit.EUR, "20"));
+            fail("duplicate account created");
+        } catch (AccountAlreadyExistsException expected) {
+        }
+        Account removed = accountDao.deleteAccount("abc");
+        Account recreated = accountDao.createAccount(createAccountMock("abc", CurrencyUnit.USD, "30"));
+
+        //then
+        assertThat(removed.getUser().getLastName(), is("test1"));
+        assertThat(removed.getMoney(), is(Money.of(CurrencyUnit.EUR, new BigDecimal("10"))));
+        assertFalse(created.equals(recreated));
+        assertFalse(deleted.equals(recreated));
+        assertThat(accountDao.findByAccountNumber("abc").get(), is(recreated));
+        assertThat(accountDao.findByAccountNumber("abc").get().getMoney(), is(Money.of(CurrencyUnit.USD, new BigDecimal("30"))));
+        assertThat(accountDao.countAccounts(), is(1L));
+        try {
+            accountDao.creditAccount(deleted, 100);
+            fail("deleted account credited");
+        } catch (AccountNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void createAccount_StoreFullOfDeletedAccounts_SlotsReusedOnceUnlocked() throws Exception {
+        //given
+        accountDao = new OffHeapAccountDao(2);
+        accountDao.createAccount(createAccountMock("abc", CurrencyUnit.EUR, "10"));
+        accountDao.createAccount(createAccountMock("xyz", CurrencyUnit.EUR, "10"));
+        Account held = accountDao.findByAccountNumber("abc").get();
+        held.getLock().lock();
+        accountDao.deleteAccount("xyz");
+        accountDao.deleteAccount("abc");
+
+        //when
+        Account first = accountDao.createAccount(createAccountMock("def", CurrencyUnit.EUR, "20"));
+        try {
+            accountDao.createAccount(createAccountMock("ghi", CurrencyUnit.EUR, "30"));
+            fail("account created in a held slot");
+        } catch (IllegalStateException expected) {
+        }
+        held.getLock().unlock();
+        Account second = accountDao.createAccount(createAccountMock("ghi", CurrencyUnit.EUR, "30"));
+
+        //then
+        assertThat(accountDao.countAccounts(), is(2L));
+        assertThat(accountDao.findByAccountNumber("def").get(), is(first));
+        assertThat(accountDao.findByAccountNumber("ghi").get().getBalance(), is(3000L));
+        assertThat(accountDao.findAllAccounts().stream().map(Account::getAccountNumber).sorted().collect(Collectors.toList()),
+                is(Arrays.asList("def", "ghi")));
+        try {
+            accountDao.deductAccount(held, 100);
+            fail("deleted account deducted");
+        } catch (AccountNotFoundException expected) {
+        }
+        assertThat(second.getBalance(), is(3000L));
+    }
+
+    @Test
+    public void findByAccountNumber_UuidAndOtherAccountNumbers_ExactTextMatches() throws Exception {
+        //given
+        String uuid = UUID.randomUUID().toString();
+        accountDao.createAccount(createAccountMock(uuid, CurrencyUnit.EUR, "1"));
+        accountDao.createAccount(createAccountMock(uuid.toUpperCase(), CurrencyUnit.EUR, "2"));
+        accountDao.createAccount(createAccountMock("abc", CurrencyUnit.EUR, "3"));
+
+        //when
+        Account lowerCase = accountDao.findByAccountNumber(uuid).get();
+        Account upperCase = accountDao.findByAccountNumber(uuid.toUpperCase()).get();
+        accountDao.deleteAccount(uuid);
+
+        //then
+        assertThat(lowerCase.getBalance(), is(100L));
+        assertThat(upperCase.getBalance(), is(200L));
+        assertFalse(accountDao.findByAccountNumber(uuid).isPresent());
+        assertThat(accountDao.findByAccountNumber(uuid.toUpperCase()).get(), is(upperCase));
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(300L));
+        assertThat(accountDao.findAllAccounts().stream().map(Account::getAccountNumber).sorted().collect(Collectors.toList()),
+                is(Arrays.asList(uuid.toUpperCase(), "abc")));
+    }
+
+    @Test
+    public void findAccounts_AfterCursorInCurrency_PageInAccountNumberOrder() throws Exception {
+        //given
+        for (String accountNumber : Arrays.asList("e", "b", "d", "a", "f", "c")) {
+            accountDao.createAccount(createAccountMock(accountNumber, "c".equals(accountNumber) ? CurrencyUnit.USD : CurrencyUnit.EUR, "1"));
+        }
+
+        //when
+        List<Account> page = accountDao.findAccounts("a", CurrencyUnit.EUR, 3);
+
+        //then
+        assertThat(page.stream().map(Account::getAccountNumber).collect(Collectors.toList()), is(Arrays.asList("b", "d", "e")));
+    }
+
+    @Test
+    public void transferMoney_ConcurrentTransfersAndBatches_BalancesAddUp() throws Throwable {
+        //given
+        TransferDao transferDao = new TransferDaoImpl(accountDao);
+        accountDao.createAccount(createAccountMock("abc", CurrencyUnit.EUR, "100"));
+        accountDao.createAccount(createAccountMock("xyz", CurrencyUnit.EUR, "100"));
+        Waiter waiter = new Waiter();
+
+        //when
+        for (int thread = 0; thread < 4; thread++) {
+            boolean forward = thread % 2 == 0;
+            executorService.submit(() -> {
+                try {
+                    for (int i = 0; i < 250; i++) {
+                        transferDao.transferMoney(createTransferMock(forward ? "abc" : "xyz", forward ? "xyz" : "abc"));
+                        transferDao.transferBatch(Arrays.asList(createTransferMock("abc", "xyz"), createTransferMock("xyz", "abc")));
+                    }
+                } catch (Exception exception) {
+                    waiter.fail(exception);
+                }
+                waiter.resume();
+            });
+        }
+        waiter.await(30, TimeUnit.SECONDS, 4);
+
+        //then
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(10_000L));
+        assertThat(accountDao.findByAccountNumber("xyz").get().getBalance(), is(10_000L));
+        assertThat(transferDao.countTransfers(), is(3_000L));
+    }
+
+    private Account createAccountMock(String accountNumber, CurrencyUnit currency, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(currency)
+                .setMoney(Money.of(currency, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString()).setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal("0.01")))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
@@ -1,293 +1,473 @@
-package com.revolut.account.test.backwire.dao;
-
-
-import com.revolut.test.bankwire.dto.*;
-import com.revolut.test.bankwire.exception.AccountNotFoundException;
-import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
-import com.revolut.test.bankwire.exception.SenderReceiverCurrencyMisMatchException;
-import com.revolut.test.bankwire.repo.AccountDao;
-import com.revolut.test.bankwire.repo.TransferDao;
-import com.revolut.test.bankwire.repo.TransferDaoImpl;
-import org.joda.money.CurrencyUnit;
-import org.joda.money.Money;
-import org.junit.After;
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.Mock;
-import org.mockito.runners.MockitoJUnitRunner;
-
-import java.math.BigDecimal;
-import java.util.Date;
-import java.util.Optional;
-import java.util.Queue;
-
-import static org.hamcrest.CoreMatchers.is;
-import static org.junit.Assert.*;
-
-import static org.mockito.Mockito.*;
-
-@RunWith(MockitoJUnitRunner.class)
-public class TransferDaoTest {
-
-    private TransferDao transferDao;
-
-    @Mock
-    private AccountDao accountDao;
-
-    @Before
-    public void setUp() {
-        transferDao = new TransferDaoImpl(accountDao);
-    }
-
-    @After
-    public void tearDown() {
-        transferDao.clearTransfers();
-    }
-
-    @Test
-    public void findByTransferId_Exists_Success() throws Exception {
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "abs";
-        Account senderAccount = createAccountMock(senderAccountNumber);
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-        transferDao.transferMoney(createTransferMock(transferId));
-
-        // when
-        Optional<Transfer> transferOptional = transferDao.findByTransferId(transferId);
-
-        //then
-        assertTrue(transferOptional.isPresent());
-    }
-
-    @Test
-    public void findByTransferId_Exists_Failure() {
-        //given
-        String transferId = "abs";
-
-        // when
-        Optional<Transfer> transferOptional = transferDao.findByTransferId(transferId);
-
-        //then
-        assertFalse(transferOptional.isPresent());
-    }
-
-    @Test(expected = InSufficientAccountBalanceException.class)
-    public void transferMoney_SenderBalanceBelowTransferAmount_Exception() throws Exception {
-
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "abs";
-        Account senderAccount = createAccountMock(senderAccountNumber, new BigDecimal("10"));
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-
-        // when
-        transferDao.transferMoney(createTransferMock(transferId));
-
-        //then
-
-    }
-
-    @Test(expected = AccountNotFoundException.class)
-    public void transferMoney_SenderAccountNotFound_Exception() throws Exception {
-
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "abs";
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.empty());
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-
-        // when
-        transferDao.transferMoney(createTransferMock(transferId));
-
-        //then
-
-    }
-
-    @Test(expected = AccountNotFoundException.class)
-    public void transferMoney_ReceiverBalanceBelowTransferAmount_Exception() throws Exception {
-
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "abs";
-        Account senderAccount = createAccountMock(senderAccountNumber, new BigDecimal("10"));
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.empty());
-
-        // when
-        transferDao.transferMoney(createTransferMock(transferId));
-
-        //then
-
-    }
-
-    @Test(expected = SenderReceiverCurrencyMisMatchException.class)
-    public void transferMoney_SenderReceiverCurrencyMisMatch_Exception() throws Exception {
-
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "abs";
-        Account senderAccount = createAccountMock(senderAccountNumber, new BigDecimal("10"), CurrencyUnit.USD);
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-
-        // when
-        transferDao.transferMoney(createTransferMock(transferId));
-
-        //then
-
-    }
-
-
-    @Test
-    public void findAllTransfers_Success() throws Exception {
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "123";
-        String transferAnotherId = "456";
-        Account senderAccount = createAccountMock(senderAccountNumber);
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-        transferDao.transferMoney(createTransferMock(transferId));
-        transferDao.transferMoney(createTransferMock(transferAnotherId));
-
-        // when
-        Queue<Transfer> transfers = transferDao.findAllTransfers();
-
-        //then
-        assertThat(transfers.size(), is(2));
-    }
-
-    @Test
-    public void clearTransfers_DeletedAll_Success() throws Exception {
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "123";
-        String transferAnotherId = "456";
-        Account senderAccount = createAccountMock(senderAccountNumber);
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-        transferDao.transferMoney(createTransferMock(transferId));
-        transferDao.transferMoney(createTransferMock(transferAnotherId));
-
-        // when
-        transferDao.clearTransfers();
-
-        //then
-        assertThat(transferDao.findAllTransfers().size(), is(0));
-    }
-
-    @Test
-    public void transferMoney_Success() throws Exception {
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "abs";
-        Account senderAccount = createAccountMock(senderAccountNumber);
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-
-        // when
-        transferDao.transferMoney(createTransferMock(transferId));
-
-        //then
-        assertTrue(transferDao.findByTransferId(transferId).isPresent());
-    }
-
-    @Test
-    public void transferMoney_SenderAccountDeducted_Success() throws Exception {
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "123";
-        Account senderAccount = createAccountMock(senderAccountNumber);
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-        Transfer transfer = createTransferMock(transferId);
-
-        // when
-        transferDao.transferMoney(transfer);
-
-
-        //then
-        assertTrue(transferDao.findByTransferId(transferId).isPresent());
-        verify(accountDao).deductAccount(senderAccount, transfer.getMoney());
-    }
-
-    @Test
-    public void transferMoney_ReceiverAccountCredited_Success() throws Exception {
-        //given
-        String senderAccountNumber = "abc";
-        String receiverAccountNumber = "xyz";
-        String transferId = "123";
-        Account senderAccount = createAccountMock(senderAccountNumber);
-        Account receiverAccount = createAccountMock(receiverAccountNumber);
-        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
-        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
-        Transfer transfer = createTransferMock(transferId);
-
-        // when
-        transferDao.transferMoney(transfer);
-
-        //then
-        assertTrue(transferDao.findByTransferId(transferId).isPresent());
-        verify(accountDao).creditAccount(receiverAccount, transfer.getMoney());
-    }
-
-
-    private Account createAccountMock(String accountNumber) {
-        return new AccountBuilder().setUser(new User("test","test1"))
-                .setAccountNumber(accountNumber)
-                .setCurrency(CurrencyUnit.EUR)
-                .setMoney(Money.of(CurrencyUnit.EUR, 100))
-                .setCreatedDate(new Date())
-                .createAccount();
-    }
-
-
-    private Account createAccountMock(String accountNumber, BigDecimal money) {
-        return new AccountBuilder().setUser(new User("test","test1"))
-                .setAccountNumber(accountNumber)
-                .setCurrency(CurrencyUnit.EUR)
-                .setMoney(Money.of(CurrencyUnit.EUR, money))
-                .setCreatedDate(new Date())
-                .createAccount();
-    }
-
-    private Account createAccountMock(String accountNumber, BigDecimal money, CurrencyUnit currencyUnit) {
-        return new AccountBuilder().setUser(new User("test","test1"))
-                .setAccountNumber(accountNumber)
-                .setCurrency(currencyUnit)
-                .setMoney(Money.of(currencyUnit, money))
-                .setCreatedDate(new Date())
-                .createAccount();
-    }
-
-    public Transfer createTransferMock(String transferId) {
-        return new TransferBuilder().setTransferId(transferId).setFromAccountNumber("abc")
-                .setToAccountNumber("xyz")
-                .setCurrency(CurrencyUnit.EUR)
-                .setMoney(Money.of(CurrencyUnit.EUR, 100))
-                .setCreatedDate(new Date())
-                .createTransfer();
-    }
-
-}
+package com.revolut.account.test.backwire.dao;
+
+
+import com.revolut.test.bankwire.dto.*;
+import com.revolut.test.bankwire.engine.CasTransferEngine;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.BatchTransferException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.exception.SenderReceiverCurrencyMisMatchException;
+import com.revolut.test.bankwire.journal.Journal;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransferDaoTest {
+
+    private TransferDao transferDao;
+
+    @Mock
+    private AccountDao accountDao;
+
+    @Mock
+    private Journal journal;
+
+    @Before
+    public void setUp() {
+        transferDao = new TransferDaoImpl(accountDao);
+    }
+
+    @After
+    public void tearDown() {
+        transferDao.clearTransfers();
+    }
+
+    @Test
+    public void findByTransferId_Exists_Success() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "abs";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        transferDao.transferMoney(createTransferMock(transferId));
+
+        // when
+        Optional<Transfer> transferOptional = transferDao.findByTransferId(transferId);
+
+        //then
+        assertTrue(transferOptional.isPresent());
+    }
+
+    @Test
+    public void findByTransferId_Exists_Failure() {
+        //given
+        String transferId = "abs";
+
+        // when
+        Optional<Transfer> transferOptional = transferDao.findByTransferId(transferId);
+
+        //then
+        assertFalse(transferOptional.isPresent());
+    }
+
+    @Test
+    public void findByTransferId_ManyTransfers_ReturnsMatchingTransfer() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Account senderAccount = createAccountMock(senderAccountNumber, new BigDecimal("100000"));
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        for (int i = 0; i < 1000; i++) {
+            transferDao.transferMoney(createTransferMock(String.valueOf(i)));
+        }
+
+        // when
+        Optional<Transfer> transferOptional = transferDao.findByTransferId("567");
+
+        //then
+        assertTrue(transferOptional.isPresent());
+        assertThat(transferOptional.get().getTransferId(), is("567"));
+    }
+
+    @Test
+    public void findByTransferId_AfterClearTransfers_Failure() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "abs";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        transferDao.transferMoney(createTransferMock(transferId));
+
+        // when
+        transferDao.clearTransfers();
+
+        //then
+        assertFalse(transferDao.findByTransferId(transferId).isPresent());
+    }
+
+    @Test(expected = InSufficientAccountBalanceException.class)
+    public void transferMoney_SenderBalanceBelowTransferAmount_Exception() throws Exception {
+
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "abs";
+        Account senderAccount = createAccountMock(senderAccountNumber, new BigDecimal("10"));
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+
+        // when
+        transferDao.transferMoney(createTransferMock(transferId));
+
+        //then
+
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void transferMoney_SenderAccountNotFound_Exception() throws Exception {
+
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "abs";
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.empty());
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+
+        // when
+        transferDao.transferMoney(createTransferMock(transferId));
+
+        //then
+
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void transferMoney_ReceiverBalanceBelowTransferAmount_Exception() throws Exception {
+
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "abs";
+        Account senderAccount = createAccountMock(senderAccountNumber, new BigDecimal("10"));
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.empty());
+
+        // when
+        transferDao.transferMoney(createTransferMock(transferId));
+
+        //then
+
+    }
+
+    @Test(expected = SenderReceiverCurrencyMisMatchException.class)
+    public void transferMoney_SenderReceiverCurrencyMisMatch_Exception() throws Exception {
+
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "abs";
+        Account senderAccount = createAccountMock(senderAccountNumber, new BigDecimal("10"), CurrencyUnit.USD);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+
+        // when
+        transferDao.transferMoney(createTransferMock(transferId));
+
+        //then
+
+    }
+
+
+    @Test
+    public void findAllTransfers_Success() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "123";
+        String transferAnotherId = "456";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        transferDao.transferMoney(createTransferMock(transferId));
+        transferDao.transferMoney(createTransferMock(transferAnotherId));
+
+        // when
+        Queue<Transfer> transfers = transferDao.findAllTransfers();
+
+        //then
+        assertThat(transfers.size(), is(2));
+    }
+
+    @Test
+    public void findTransfers_Cursor_ReturnsNextPageInCommitOrder() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        for (int i = 0; i < 5; i++) {
+            transferDao.transferMoney(createTransferMock(String.valueOf(i)));
+        }
+
+        // when
+        List<Transfer> firstPage = transferDao.findTransfers(0, 2);
+        List<Transfer> secondPage = transferDao.findTransfers(firstPage.get(1).getSequence(), 2);
+        List<Transfer> lastPage = transferDao.findTransfers(secondPage.get(1).getSequence(), 2);
+
+        //then
+        assertThat(firstPage.get(0).getTransferId(), is("0"));
+        assertThat(secondPage.get(0).getTransferId(), is("2"));
+        assertThat(secondPage.get(1).getTransferId(), is("3"));
+        assertThat(lastPage.size(), is(1));
+        assertThat(lastPage.get(0).getTransferId(), is("4"));
+    }
+
+    @Test
+    public void findAccountTransfers_SenderAndReceiverSides_OnlyTheAccountsTransfers() throws Exception {
+        //given
+        Account senderAccount = createAccountMock("abc");
+        Account receiverAccount = createAccountMock("xyz");
+        Account otherAccount = createAccountMock("def");
+        when(accountDao.findByAccountNumber("abc")).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber("xyz")).thenReturn(Optional.of(receiverAccount));
+        when(accountDao.findByAccountNumber("def")).thenReturn(Optional.of(otherAccount));
+        for (int i = 0; i < 3; i++) {
+            transferDao.transferMoney(createTransferMock(String.valueOf(i)));
+        }
+        transferDao.transferMoney(new TransferBuilder().setTransferId("3").setFromAccountNumber("def")
+                .setToAccountNumber("xyz")
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createTransfer());
+
+        // when
+        List<Transfer> senderPage = transferDao.findAccountTransfers("abc", 1, 10);
+        List<Transfer> receiverPage = transferDao.findAccountTransfers("xyz", 0, 10);
+        List<Transfer> otherPage = transferDao.findAccountTransfers("def", 0, 10);
+
+        //then
+        assertThat(senderPage.size(), is(2));
+        assertThat(senderPage.get(0).getTransferId(), is("1"));
+        assertThat(receiverPage.size(), is(4));
+        assertThat(receiverPage.get(3).getTransferId(), is("3"));
+        assertThat(otherPage.size(), is(1));
+        assertTrue(transferDao.findAccountTransfers("missing", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void clearTransfers_DeletedAll_Success() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "123";
+        String transferAnotherId = "456";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        transferDao.transferMoney(createTransferMock(transferId));
+        transferDao.transferMoney(createTransferMock(transferAnotherId));
+
+        // when
+        transferDao.clearTransfers();
+
+        //then
+        assertThat(transferDao.findAllTransfers().size(), is(0));
+    }
+
+    @Test
+    public void transferBatch_EngineCannotApplyBatches_WholeBatchRejected() throws Exception {
+        //given
+        TransferDao casTransferDao = new TransferDaoImpl(new CasTransferEngine(accountDao));
+
+        // when
+        try {
+            casTransferDao.transferBatch(Arrays.asList(createTransferMock("abs"), createTransferMock("123")));
+            fail("batch applied by an engine without batches");
+        } catch (BatchTransferException expected) {
+            //then
+            assertThat(expected.getLeg(), is(-1));
+        }
+        verify(accountDao, never()).deductAccount(any(Account.class), anyLong());
+        assertThat(casTransferDao.countTransfers(), is(0L));
+    }
+
+    @Test
+    public void transferMoney_Success() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "abs";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+
+        // when
+        transferDao.transferMoney(createTransferMock(transferId));
+
+        //then
+        assertTrue(transferDao.findByTransferId(transferId).isPresent());
+    }
+
+    @Test
+    public void transferMoney_SenderAccountDeducted_Success() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "123";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        Transfer transfer = createTransferMock(transferId);
+
+        // when
+        transferDao.transferMoney(transfer);
+
+
+        //then
+        assertTrue(transferDao.findByTransferId(transferId).isPresent());
+        verify(accountDao).deductAccount(senderAccount, transfer.getAmount());
+    }
+
+    @Test
+    public void transferMoney_ReceiverAccountCredited_Success() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        String transferId = "123";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        Transfer transfer = createTransferMock(transferId);
+
+        // when
+        transferDao.transferMoney(transfer);
+
+        //then
+        assertTrue(transferDao.findByTransferId(transferId).isPresent());
+        verify(accountDao).creditAccount(receiverAccount, transfer.getAmount());
+    }
+
+
+    @Test
+    public void transferMoney_JournalEnabled_ReturnsAfterRecordDurable() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        Transfer transfer = createTransferMock("abs");
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        when(journal.isEnabled()).thenReturn(true);
+        when(journal.appendTransfer(transfer, 10000L, 10000L)).thenReturn(42L);
+        transferDao = new TransferDaoImpl(new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3)), accountDao, journal);
+
+        // when
+        transferDao.transferMoney(transfer);
+
+        //then
+        verify(journal).appendTransfer(transfer, 10000L, 10000L);
+        verify(journal).awaitDurable(42L);
+        assertTrue(transferDao.findByTransferId("abs").isPresent());
+    }
+
+    @Test
+    public void transferMoney_JournalAppendFails_TransferReversed() throws Exception {
+        //given
+        String senderAccountNumber = "abc";
+        String receiverAccountNumber = "xyz";
+        Account senderAccount = createAccountMock(senderAccountNumber);
+        Account receiverAccount = createAccountMock(receiverAccountNumber);
+        Transfer transfer = createTransferMock("abs");
+        when(accountDao.findByAccountNumber(senderAccountNumber)).thenReturn(Optional.of(senderAccount));
+        when(accountDao.findByAccountNumber(receiverAccountNumber)).thenReturn(Optional.of(receiverAccount));
+        when(journal.isEnabled()).thenReturn(true);
+        when(journal.appendTransfer(transfer, 10000L, 10000L)).thenThrow(new IOException("disk full"));
+        transferDao = new TransferDaoImpl(new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3)), accountDao, journal);
+
+        // when
+        try {
+            transferDao.transferMoney(transfer);
+            fail("journal failure should fail the transfer");
+        } catch (UncheckedIOException exception) {
+            // expected
+        }
+
+        //then
+        verify(accountDao).deductAccount(receiverAccount, transfer.getAmount());
+        verify(accountDao).creditAccount(senderAccount, transfer.getAmount());
+        verify(journal, never()).awaitDurable(anyLong());
+        assertFalse(transferDao.findByTransferId("abs").isPresent());
+    }
+
+    private Account createAccountMock(String accountNumber) {
+        return new AccountBuilder().setUser(new User("test","test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+
+    private Account createAccountMock(String accountNumber, BigDecimal money) {
+        return new AccountBuilder().setUser(new User("test","test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, money))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Account createAccountMock(String accountNumber, BigDecimal money, CurrencyUnit currencyUnit) {
+        return new AccountBuilder().setUser(new User("test","test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(currencyUnit)
+                .setMoney(Money.of(currencyUnit, money))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    public Transfer createTransferMock(String transferId) {
+        return new TransferBuilder().setTransferId(transferId).setFromAccountNumber("abc")
+                .setToAccountNumber("xyz")
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+
+}
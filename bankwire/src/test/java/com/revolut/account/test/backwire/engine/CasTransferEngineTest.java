@@ -0,0 +1,181 @@
+package com.revolut.account.test.backwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.CasTransferEngine;
+import com.revolut.test.bankwire.engine.TransferEngine;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import net.jodah.concurrentunit.Waiter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CasTransferEngineTest {
+
+    private static final int POOL_SIZE = 4;
+
+    private static final int TRANSFERS_PER_THREAD = 500;
+
+    @Mock
+    private AccountDao mockAccountDao;
+
+    private AccountDao accountDao;
+
+    private Queue<Transfer> committed;
+
+    private ExecutorService executorService;
+
+    private Waiter waiter;
+
+    @Before
+    public void setUp() {
+        accountDao = new AccountDaoImpl();
+        committed = new ConcurrentLinkedQueue<>();
+        executorService = Executors.newFixedThreadPool(POOL_SIZE);
+        waiter = new Waiter();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        accountDao.clearAccounts();
+    }
+
+    @Test
+    public void execute_ConcurrentTransfers_BalancesConserved() throws Throwable {
+        //given
+        TransferEngine transferEngine = new CasTransferEngine(accountDao);
+        accountDao.createAccount(createAccountMock("abc", "1000"));
+        accountDao.createAccount(createAccountMock("xyz", "1000"));
+
+        // when
+        for (int thread = 0; thread < POOL_SIZE; thread++) {
+            boolean forward = thread % 2 == 0;
+            executorService.submit(() -> {
+                try {
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        transferEngine.execute(forward ? createTransferMock("abc", "xyz") : createTransferMock("xyz", "abc"), committed::add);
+                    }
+                } catch (Exception exception) {
+                    waiter.fail(exception);
+                }
+                waiter.resume();
+            });
+        }
+        waiter.await(20, TimeUnit.SECONDS, POOL_SIZE);
+
+        //then
+        assertThat(committed.size(), is(POOL_SIZE * TRANSFERS_PER_THREAD));
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(100000L));
+        assertThat(accountDao.findByAccountNumber("xyz").get().getBalance(), is(100000L));
+    }
+
+    @Test
+    public void execute_CreditFails_SenderRefunded() throws Exception {
+        //given
+        TransferEngine transferEngine = new CasTransferEngine(mockAccountDao);
+        Account senderAccount = createAccountMock("abc", "100");
+        Account receiverAccount = createAccountMock("xyz", "100");
+        Transfer transfer = createTransferMock("abc", "xyz");
+        when(mockAccountDao.findByAccountNumber("abc")).thenReturn(Optional.of(senderAccount));
+        when(mockAccountDao.findByAccountNumber("xyz")).thenReturn(Optional.of(receiverAccount));
+        doThrow(new AccountNotFoundException("Account xyz not Found")).when(mockAccountDao).creditAccount(receiverAccount, transfer.getAmount());
+
+        // when
+        try {
+            transferEngine.execute(transfer, committed::add);
+            fail("credit failure should fail the transfer");
+        } catch (AccountNotFoundException exception) {
+            // expected
+        }
+
+        //then
+        verify(mockAccountDao).deductAccount(senderAccount, transfer.getAmount());
+        verify(mockAccountDao).creditAccount(senderAccount, transfer.getAmount());
+        assertTrue(committed.isEmpty());
+    }
+
+    @Test
+    public void execute_CreditFailsAndSenderDeleted_RefundFailureEscalated() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock("abc", "100"));
+        Account receiverAccount = accountDao.createAccount(createAccountMock("xyz", "100"));
+        Transfer transfer = createTransferMock("abc", "xyz");
+        TransferEngine transferEngine = new CasTransferEngine(mockAccountDao);
+        when(mockAccountDao.findByAccountNumber("abc")).thenReturn(accountDao.findByAccountNumber("abc"));
+        when(mockAccountDao.findByAccountNumber("xyz")).thenReturn(Optional.of(receiverAccount));
+        Account senderAccount = accountDao.findByAccountNumber("abc").get();
+        doAnswer(invocation -> {
+            accountDao.deductAccount(senderAccount, transfer.getAmount());
+            return null;
+        }).when(mockAccountDao).deductAccount(senderAccount, transfer.getAmount());
+        doAnswer(invocation -> {
+            accountDao.deleteAccount("abc");
+            throw new AccountNotFoundException("Account xyz not Found");
+        }).when(mockAccountDao).creditAccount(receiverAccount, transfer.getAmount());
+        doAnswer(invocation -> {
+            accountDao.creditAccount(senderAccount, transfer.getAmount());
+            return null;
+        }).when(mockAccountDao).creditAccount(senderAccount, transfer.getAmount());
+
+        // when
+        try {
+            transferEngine.execute(transfer, committed::add);
+            fail("refund failure should be escalated");
+        } catch (IllegalStateException exception) {
+            //then
+            assertThat(exception.getCause() instanceof AccountNotFoundException, is(true));
+            assertThat(exception.getCause().getSuppressed().length, is(1));
+            assertThat(exception.getCause().getSuppressed()[0] instanceof AccountNotFoundException, is(true));
+        }
+        assertTrue(committed.isEmpty());
+        assertThat(accountDao.findByAccountNumber("abc").isPresent(), is(false));
+        assertThat(receiverAccount.getBalance(), is(10000L));
+    }
+
+    private Account createAccountMock(String accountNumber, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, BigDecimal.ONE))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
@@ -0,0 +1,201 @@
+package com.revolut.account.test.backwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.CombiningTransferEngine;
+import com.revolut.test.bankwire.engine.TransferEngine;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import net.jodah.concurrentunit.Waiter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class CombiningTransferEngineTest {
+
+    private static final int POOL_SIZE = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 500;
+
+    private AccountDao accountDao;
+
+    private TransferEngine transferEngine;
+
+    private Queue<Transfer> committed;
+
+    private ExecutorService executorService;
+
+    private Waiter waiter;
+
+    @Before
+    public void setUp() {
+        accountDao = new AccountDaoImpl();
+        transferEngine = new CombiningTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3), 16);
+        committed = new ConcurrentLinkedQueue<>();
+        executorService = Executors.newFixedThreadPool(POOL_SIZE + 1);
+        waiter = new Waiter();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        accountDao.clearAccounts();
+    }
+
+    @Test
+    public void execute_ConcurrentTransfersFromOneSender_AllApplied() throws Throwable {
+        //given
+        Account senderAccount = accountDao.createAccount(createAccountMock("b", "100000"));
+        accountDao.createAccount(createAccountMock("a", "0"));
+        accountDao.createAccount(createAccountMock("c", "0"));
+
+        // when
+        for (int thread = 0; thread < POOL_SIZE; thread++) {
+            String receiverAccountNumber = thread % 2 == 0 ? "a" : "c";
+            executorService.submit(() -> {
+                try {
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        transferEngine.execute(createTransferMock("b", receiverAccountNumber, "1"), committed::add);
+                    }
+                } catch (Exception exception) {
+                    waiter.fail(exception);
+                }
+                waiter.resume();
+            });
+        }
+        waiter.await(20, TimeUnit.SECONDS, POOL_SIZE);
+
+        //then
+        assertThat(committed.size(), is(POOL_SIZE * TRANSFERS_PER_THREAD));
+        assertThat(senderAccount.getBalance(), is(10000000L - POOL_SIZE * TRANSFERS_PER_THREAD * 100L));
+        assertThat(accountDao.findByAccountNumber("a").get().getBalance(), is(POOL_SIZE / 2 * TRANSFERS_PER_THREAD * 100L));
+        assertThat(accountDao.findByAccountNumber("c").get().getBalance(), is(POOL_SIZE / 2 * TRANSFERS_PER_THREAD * 100L));
+    }
+
+    @Test
+    public void execute_ConcurrentDebitsBeyondBalance_OnlyFundedApplied() throws Throwable {
+        //given
+        Account senderAccount = accountDao.createAccount(createAccountMock("b", "10"));
+        accountDao.createAccount(createAccountMock("c", "0"));
+        AtomicInteger rejected = new AtomicInteger();
+
+        // when
+        for (int thread = 0; thread < POOL_SIZE; thread++) {
+            executorService.submit(() -> {
+                for (int i = 0; i < 10; i++) {
+                    try {
+                        transferEngine.execute(createTransferMock("b", "c", "1"), committed::add);
+                    } catch (InSufficientAccountBalanceException exception) {
+                        rejected.incrementAndGet();
+                    } catch (Exception exception) {
+                        waiter.fail(exception);
+                    }
+                }
+                waiter.resume();
+            });
+        }
+        waiter.await(20, TimeUnit.SECONDS, POOL_SIZE);
+
+        //then
+        assertThat(committed.size(), is(10));
+        assertThat(rejected.get(), is(POOL_SIZE * 10 - 10));
+        assertThat(senderAccount.getBalance(), is(0L));
+    }
+
+    @Test
+    public void execute_LowerReceiverBusy_HandedBackToOrderedEngine() throws Exception {
+        //given
+        Account receiverAccount = accountDao.createAccount(createAccountMock("a", "0"));
+        accountDao.createAccount(createAccountMock("b", "10"));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executorService.submit(() -> {
+            receiverAccount.getLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } finally {
+                receiverAccount.getLock().unlock();
+            }
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // when
+        Future<Transfer> transfer = executorService.submit(() -> transferEngine.execute(createTransferMock("b", "a", "1"), committed::add));
+        TimeUnit.MILLISECONDS.sleep(100);
+        release.countDown();
+        transfer.get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(committed.size(), is(1));
+        assertThat(receiverAccount.getBalance(), is(100L));
+        assertThat(accountDao.findByAccountNumber("b").get().getBalance(), is(900L));
+    }
+
+    @Test
+    public void execute_CreditAndRefundFail_RefundFailureEscalated() throws Exception {
+        //given
+        AccountDao failingAccountDao = spy(accountDao);
+        TransferEngine failingTransferEngine = new CombiningTransferEngine(failingAccountDao, TimeUnit.SECONDS.toNanos(3), 16);
+        failingAccountDao.createAccount(createAccountMock("abc", "10"));
+        failingAccountDao.createAccount(createAccountMock("xyz", "0"));
+        doAnswer(invocation -> {
+            throw new ArithmeticException("long overflow");
+        }).when(failingAccountDao).creditAccount(any(Account.class), anyLong());
+
+        // when
+        try {
+            failingTransferEngine.execute(createTransferMock("abc", "xyz", "1"), committed::add);
+            fail("refund failure should be escalated");
+        } catch (IllegalStateException exception) {
+            //then
+            assertTrue(exception.getCause() instanceof ArithmeticException);
+            assertThat(exception.getCause().getSuppressed().length, is(1));
+        }
+        assertTrue(committed.isEmpty());
+    }
+
+    private Account createAccountMock(String accountNumber, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber, String money) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
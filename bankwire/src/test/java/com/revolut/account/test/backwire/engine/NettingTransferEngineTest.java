@@ -0,0 +1,209 @@
+package com.revolut.account.test.backwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.NettingTransferEngine;
+import com.revolut.test.bankwire.exception.AccountNotFoundException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NettingTransferEngineTest {
+
+    private AccountDao accountDao;
+
+    private Queue<Transfer> committed;
+
+    private ExecutorService executorService;
+
+    private NettingTransferEngine transferEngine;
+
+    @Before
+    public void setUp() {
+        accountDao = new AccountDaoImpl();
+        committed = new ConcurrentLinkedQueue<>();
+        executorService = Executors.newFixedThreadPool(4);
+        transferEngine = new NettingTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3), TimeUnit.HOURS.toNanos(1));
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        transferEngine.shutdown();
+        accountDao.clearAccounts();
+    }
+
+    @Test
+    public void execute_CircularTransfers_SettledInOneCycle() throws Exception {
+        //given
+        Account a = accountDao.createAccount(createAccountMock("a", "10"));
+        Account b = accountDao.createAccount(createAccountMock("b", "10"));
+        Account c = accountDao.createAccount(createAccountMock("c", "10"));
+
+        //when
+        List<Future<Transfer>> transfers = new ArrayList<>();
+        transfers.add(submit("a", "b", "10"));
+        transfers.add(submit("b", "c", "10"));
+        transfers.add(submit("c", "a", "4"));
+        awaitPending(3);
+        transferEngine.settle();
+
+        //then
+        for (Future<Transfer> transfer : transfers) {
+            transfer.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(committed.size(), is(3));
+        assertThat(a.getBalance(), is(400L));
+        assertThat(b.getBalance(), is(1000L));
+        assertThat(c.getBalance(), is(1600L));
+        assertThat(transferEngine.countPositions(), is(0));
+    }
+
+    @Test
+    public void execute_PendingDebitsExceedBalance_Rejected() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock("a", "10"));
+        accountDao.createAccount(createAccountMock("b", "10"));
+        Future<Transfer> first = submit("a", "b", "6");
+        awaitPending(1);
+
+        //when
+        try {
+            transferEngine.execute(createTransferMock("a", "b", "6"), committed::add);
+            fail("only 4.00 is left to spend");
+        } catch (InSufficientAccountBalanceException exception) {
+            //then
+            transferEngine.settle();
+            first.get(5, TimeUnit.SECONDS);
+            assertThat(accountDao.findByAccountNumber("a").get().getBalance(), is(400L));
+        }
+    }
+
+    @Test
+    public void execute_ReceiverDeletedBeforeSettlement_RefundedReservation() throws Exception {
+        //given
+        Account a = accountDao.createAccount(createAccountMock("a", "10"));
+        accountDao.createAccount(createAccountMock("b", "10"));
+        Future<Transfer> transfer = submit("a", "b", "10");
+        awaitPending(1);
+        accountDao.deleteAccount("b");
+
+        //when
+        transferEngine.settle();
+
+        //then
+        try {
+            transfer.get(5, TimeUnit.SECONDS);
+            fail("receiver was deleted");
+        } catch (ExecutionException exception) {
+            assertThat(exception.getCause(), instanceOf(AccountNotFoundException.class));
+        }
+        accountDao.createAccount(createAccountMock("c", "0"));
+        Future<Transfer> retried = submit("a", "c", "10");
+        awaitPending(1);
+        transferEngine.settle();
+        retried.get(5, TimeUnit.SECONDS);
+        assertThat(a.getBalance(), is(0L));
+        assertThat(transferEngine.countPositions(), is(0));
+    }
+
+    @Test
+    public void execute_ReceiverBalanceWouldOverflow_OnlyItsTransfersRejected() throws Exception {
+        //given
+        Account a = accountDao.createAccount(createAccountMock("a", "10"));
+        Account b = accountDao.createAccount(createAccountMock("b", "10"));
+        Account c = accountDao.createAccount(createAccountMock("c", "10"));
+        Account full = accountDao.createAccount(createAccountMock("full", "92233720368547757.57"));
+        Future<Transfer> overflowing = submit("c", "full", "1");
+        Future<Transfer> fitting = submit("a", "b", "1");
+        awaitPending(2);
+
+        //when
+        transferEngine.settle();
+
+        //then
+        fitting.get(5, TimeUnit.SECONDS);
+        try {
+            overflowing.get(5, TimeUnit.SECONDS);
+            fail("receiver balance would overflow");
+        } catch (ExecutionException exception) {
+            assertThat(exception.getCause(), instanceOf(ArithmeticException.class));
+        }
+        assertThat(committed.size(), is(1));
+        assertThat(a.getBalance(), is(900L));
+        assertThat(b.getBalance(), is(1100L));
+        assertThat(c.getBalance(), is(1000L));
+        assertThat(full.getBalance(), is(Long.MAX_VALUE - 50));
+        assertThat(transferEngine.countPositions(), is(0));
+    }
+
+    @Test(expected = TransferTimedOutException.class)
+    public void execute_NotSettled_TimedOut() throws Exception {
+        //given
+        transferEngine = new NettingTransferEngine(accountDao, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.HOURS.toNanos(1));
+        accountDao.createAccount(createAccountMock("a", "10"));
+        accountDao.createAccount(createAccountMock("b", "10"));
+
+        //when
+        transferEngine.execute(createTransferMock("a", "b", "10"), committed::add);
+    }
+
+    private Future<Transfer> submit(String senderAccountNumber, String receiverAccountNumber, String money) {
+        return executorService.submit(() -> transferEngine.execute(createTransferMock(senderAccountNumber, receiverAccountNumber, money), committed::add));
+    }
+
+    private void awaitPending(int pending) throws InterruptedException {
+        long stopTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (transferEngine.countPending() < pending) {
+            assertTrue(System.nanoTime() < stopTime);
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+
+    private Account createAccountMock(String accountNumber, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber, String money) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
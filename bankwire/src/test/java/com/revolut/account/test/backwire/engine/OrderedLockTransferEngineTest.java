@@ -0,0 +1,284 @@
+package com.revolut.account.test.backwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.BatchTransferEngine;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.engine.TransferEngine;
+import com.revolut.test.bankwire.exception.BatchTransferException;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.exception.TransferTimedOutException;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import net.jodah.concurrentunit.Waiter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OrderedLockTransferEngineTest {
+
+    private static final int POOL_SIZE = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 500;
+
+    private AccountDao accountDao;
+
+    private Queue<Transfer> committed;
+
+    private ExecutorService executorService;
+
+    private Waiter waiter;
+
+    @Before
+    public void setUp() {
+        accountDao = new AccountDaoImpl();
+        committed = new ConcurrentLinkedQueue<>();
+        executorService = Executors.newFixedThreadPool(POOL_SIZE);
+        waiter = new Waiter();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        accountDao.clearAccounts();
+    }
+
+    @Test
+    public void execute_OppositeDirectionTransfers_NoDeadlock() throws Throwable {
+        //given
+        TransferEngine transferEngine = new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3));
+        accountDao.createAccount(createAccountMock("abc", "100000"));
+        accountDao.createAccount(createAccountMock("xyz", "100000"));
+
+        // when
+        for (int thread = 0; thread < POOL_SIZE; thread++) {
+            boolean forward = thread % 2 == 0;
+            executorService.submit(() -> {
+                try {
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        Transfer transfer = forward ? createTransferMock("abc", "xyz") : createTransferMock("xyz", "abc");
+                        transferEngine.execute(transfer, committed::add);
+                    }
+                } catch (Exception exception) {
+                    waiter.fail(exception);
+                }
+                waiter.resume();
+            });
+        }
+        waiter.await(20, TimeUnit.SECONDS, POOL_SIZE);
+
+        //then
+        assertThat(committed.size(), is(POOL_SIZE * TRANSFERS_PER_THREAD));
+        assertEquals(accountDao.findByAccountNumber("abc").get().getMoney(), Money.of(CurrencyUnit.EUR, new BigDecimal("100000")));
+        assertEquals(accountDao.findByAccountNumber("xyz").get().getMoney(), Money.of(CurrencyUnit.EUR, new BigDecimal("100000")));
+    }
+
+    @Test(expected = TransferTimedOutException.class)
+    public void execute_AccountLockHeld_TimedOut() throws Exception {
+        //given
+        TransferEngine transferEngine = new OrderedLockTransferEngine(accountDao, TimeUnit.MILLISECONDS.toNanos(100));
+        Account senderAccount = createAccountMock("abc", "100");
+        accountDao.createAccount(senderAccount);
+        accountDao.createAccount(createAccountMock("xyz", "100"));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executorService.submit(() -> {
+            senderAccount.getLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } finally {
+                senderAccount.getLock().unlock();
+            }
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // when
+        try {
+            transferEngine.execute(createTransferMock("abc", "xyz"), committed::add);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void execute_HotReceiverLockHeld_Credited() throws Exception {
+        //given
+        accountDao = new AccountDaoImpl(new DisabledJournal(), Collections.singleton("xyz"), 0);
+        TransferEngine transferEngine = new OrderedLockTransferEngine(accountDao, TimeUnit.MILLISECONDS.toNanos(100));
+        accountDao.createAccount(createAccountMock("abc", "100"));
+        Account receiverAccount = accountDao.createAccount(createAccountMock("xyz", "100"));
+        CountDownLatch release = holdLock(receiverAccount);
+
+        // when
+        try {
+            transferEngine.execute(createTransferMock("abc", "xyz"), committed::add);
+        } finally {
+            release.countDown();
+        }
+
+        //then
+        assertThat(committed.size(), is(1));
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(9900L));
+        assertThat(receiverAccount.getBalance(), is(10100L));
+    }
+
+    @Test
+    public void execute_ReceiverContended_TurnsHot() throws Exception {
+        //given
+        accountDao = new AccountDaoImpl(new DisabledJournal(), Collections.emptySet(), 1);
+        TransferEngine transferEngine = new OrderedLockTransferEngine(accountDao, TimeUnit.MILLISECONDS.toNanos(100));
+        accountDao.createAccount(createAccountMock("abc", "100"));
+        Account receiverAccount = accountDao.createAccount(createAccountMock("xyz", "100"));
+        CountDownLatch release = holdLock(receiverAccount);
+
+        // when
+        try {
+            try {
+                transferEngine.execute(createTransferMock("abc", "xyz"), committed::add);
+                fail("receiver lock is held");
+            } catch (TransferTimedOutException exception) {
+                // the contended credit marks the receiver hot
+            }
+            transferEngine.execute(createTransferMock("abc", "xyz"), committed::add);
+        } finally {
+            release.countDown();
+        }
+
+        //then
+        assertTrue(receiverAccount.isHot());
+        assertThat(committed.size(), is(1));
+        assertThat(receiverAccount.getBalance(), is(10100L));
+    }
+
+    @Test
+    public void executeAll_ChainedTransfers_AllApplied() throws Exception {
+        //given
+        BatchTransferEngine transferEngine = new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3));
+        accountDao.createAccount(createAccountMock("abc", "100"));
+        accountDao.createAccount(createAccountMock("def", "0"));
+        accountDao.createAccount(createAccountMock("xyz", "0"));
+        List<Transfer> transfers = Arrays.asList(createTransferMock("abc", "def", "60"), createTransferMock("def", "xyz", "50"));
+
+        // when
+        transferEngine.executeAll(transfers, committed::add);
+
+        //then
+        assertThat(committed.size(), is(2));
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(4000L));
+        assertThat(accountDao.findByAccountNumber("def").get().getBalance(), is(1000L));
+        assertThat(accountDao.findByAccountNumber("xyz").get().getBalance(), is(5000L));
+    }
+
+    @Test
+    public void executeAll_LaterTransferInSufficientBalance_NothingApplied() throws Exception {
+        //given
+        BatchTransferEngine transferEngine = new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3));
+        accountDao.createAccount(createAccountMock("abc", "100"));
+        accountDao.createAccount(createAccountMock("def", "0"));
+        accountDao.createAccount(createAccountMock("xyz", "0"));
+        List<Transfer> transfers = Arrays.asList(createTransferMock("abc", "def", "60"), createTransferMock("def", "xyz", "70"));
+
+        // when
+        try {
+            transferEngine.executeAll(transfers, committed::add);
+            fail("second transfer should fail the batch");
+        } catch (BatchTransferException exception) {
+            assertThat(exception.getLeg(), is(1));
+            assertTrue(exception.getCause() instanceof InSufficientAccountBalanceException);
+        }
+
+        //then
+        assertTrue(committed.isEmpty());
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(10000L));
+        assertThat(accountDao.findByAccountNumber("def").get().getBalance(), is(0L));
+        assertThat(accountDao.findByAccountNumber("xyz").get().getBalance(), is(0L));
+    }
+
+    @Test
+    public void execute_CreditOverflows_SenderRefunded() throws Exception {
+        //given
+        TransferEngine transferEngine = new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3));
+        accountDao.createAccount(createAccountMock("abc", "100"));
+        accountDao.createAccount(createAccountMock("xyz", "92233720368547758.07"));
+
+        // when
+        try {
+            transferEngine.execute(createTransferMock("abc", "xyz"), committed::add);
+            fail("credit overflow should fail the transfer");
+        } catch (ArithmeticException exception) {
+            // expected
+        }
+
+        //then
+        assertTrue(committed.isEmpty());
+        assertThat(accountDao.findByAccountNumber("abc").get().getBalance(), is(10000L));
+        assertThat(accountDao.findByAccountNumber("xyz").get().getBalance(), is(Long.MAX_VALUE));
+    }
+
+    private CountDownLatch holdLock(Account account) throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executorService.submit(() -> {
+            account.getLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } finally {
+                account.getLock().unlock();
+            }
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private Account createAccountMock(String accountNumber, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber) {
+        return createTransferMock(senderAccountNumber, receiverAccountNumber, "1");
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber, String money) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
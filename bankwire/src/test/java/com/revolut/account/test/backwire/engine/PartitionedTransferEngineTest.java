@@ -0,0 +1,211 @@
+package com.revolut.account.test.backwire.engine;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.PartitionedTransferEngine;
+import com.revolut.test.bankwire.engine.TransferTicket;
+import com.revolut.test.bankwire.exception.InSufficientAccountBalanceException;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import net.jodah.concurrentunit.Waiter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PartitionedTransferEngineTest {
+
+    private static final int POOL_SIZE = 6;
+
+    private static final int ACCOUNTS = 8;
+
+    private static final int TRANSFERS_PER_THREAD = 1000;
+
+    @Mock
+    private AccountDao mockAccountDao;
+
+    private AccountDao accountDao;
+
+    private PartitionedTransferEngine transferEngine;
+
+    private Queue<Transfer> committed;
+
+    private ExecutorService executorService;
+
+    private Waiter waiter;
+
+    @Before
+    public void setUp() {
+        accountDao = new AccountDaoImpl();
+        transferEngine = new PartitionedTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3), 4, 64);
+        committed = new ConcurrentLinkedQueue<>();
+        executorService = Executors.newFixedThreadPool(POOL_SIZE);
+        waiter = new Waiter();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        transferEngine.shutdown();
+        accountDao.clearAccounts();
+    }
+
+    @Test
+    public void execute_CrossPartitionTransfers_BalancesConserved() throws Throwable {
+        //given
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountDao.createAccount(createAccountMock(String.valueOf(i), "1000000"));
+        }
+
+        // when
+        for (int thread = 0; thread < POOL_SIZE; thread++) {
+            executorService.submit(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        int from = random.nextInt(ACCOUNTS);
+                        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                        transferEngine.execute(createTransferMock(String.valueOf(from), String.valueOf(to), "1"), committed::add);
+                    }
+                } catch (Exception exception) {
+                    waiter.fail(exception);
+                }
+                waiter.resume();
+            });
+        }
+        waiter.await(30, TimeUnit.SECONDS, POOL_SIZE);
+
+        //then
+        assertThat(committed.size(), is(POOL_SIZE * TRANSFERS_PER_THREAD));
+        Money total = Money.zero(CurrencyUnit.EUR);
+        for (Account account : accountDao.findAllAccounts()) {
+            total = total.plus(account.getMoney());
+        }
+        assertEquals(Money.of(CurrencyUnit.EUR, new BigDecimal(1000000L * ACCOUNTS)), total);
+    }
+
+    @Test
+    public void submit_Valid_FutureCompleted() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock("abc", "100"));
+        accountDao.createAccount(createAccountMock("xyz", "100"));
+        Transfer transfer = createTransferMock("abc", "xyz", "40");
+
+        // when
+        TransferTicket ticket = transferEngine.submit(transfer, committed::add);
+
+        //then
+        assertEquals(transfer, ticket.get(5, TimeUnit.SECONDS));
+        assertEquals(Money.of(CurrencyUnit.EUR, new BigDecimal("60")), accountDao.findByAccountNumber("abc").get().getMoney());
+        assertEquals(Money.of(CurrencyUnit.EUR, new BigDecimal("140")), accountDao.findByAccountNumber("xyz").get().getMoney());
+    }
+
+    @Test(expected = InSufficientAccountBalanceException.class)
+    public void execute_SenderBalanceBelowTransferAmount_Exception() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock("abc", "10"));
+        accountDao.createAccount(createAccountMock("xyz", "10"));
+
+        // when
+        transferEngine.execute(createTransferMock("abc", "xyz", "20"), committed::add);
+    }
+
+    @Test
+    public void execute_CreditFails_SenderRefunded() throws Exception {
+        //given
+        PartitionedTransferEngine transferEngine = new PartitionedTransferEngine(mockAccountDao, TimeUnit.SECONDS.toNanos(3), 4, 64);
+        Account senderAccount = createAccountMock("abc", "100");
+        Account receiverAccount = createAccountMock("xyz", "100");
+        Transfer transfer = createTransferMock("abc", "xyz", "40");
+        when(mockAccountDao.findByAccountNumber("abc")).thenReturn(Optional.of(senderAccount));
+        when(mockAccountDao.findByAccountNumber("xyz")).thenReturn(Optional.of(receiverAccount));
+        doThrow(new ArithmeticException("long overflow")).when(mockAccountDao).creditAccount(receiverAccount, transfer.getAmount());
+
+        // when
+        try {
+            transferEngine.execute(transfer, committed::add);
+            fail("credit failure should fail the transfer");
+        } catch (ArithmeticException exception) {
+            // expected
+        } finally {
+            transferEngine.shutdown();
+        }
+
+        //then
+        verify(mockAccountDao).deductAccount(senderAccount, transfer.getAmount());
+        verify(mockAccountDao).creditAccount(senderAccount, transfer.getAmount());
+        assertTrue(committed.isEmpty());
+    }
+
+    @Test
+    public void execute_CreditFailsAndSenderDeleted_RefundFailureEscalated() throws Exception {
+        //given
+        PartitionedTransferEngine transferEngine = new PartitionedTransferEngine(mockAccountDao, TimeUnit.SECONDS.toNanos(3), 4, 64);
+        Account senderAccount = createAccountMock("abc", "100");
+        Account receiverAccount = createAccountMock("xyz", "100");
+        Transfer transfer = createTransferMock("abc", "xyz", "40");
+        when(mockAccountDao.findByAccountNumber("abc")).thenReturn(Optional.of(senderAccount), Optional.empty());
+        when(mockAccountDao.findByAccountNumber("xyz")).thenReturn(Optional.of(receiverAccount));
+        doThrow(new ArithmeticException("long overflow")).when(mockAccountDao).creditAccount(receiverAccount, transfer.getAmount());
+
+        // when
+        try {
+            transferEngine.execute(transfer, committed::add);
+            fail("refund failure should fail the transfer");
+        } catch (IllegalStateException exception) {
+
+            //then
+            assertTrue(exception.getCause() instanceof ArithmeticException);
+            assertThat(exception.getCause().getSuppressed().length, is(1));
+        } finally {
+            transferEngine.shutdown();
+        }
+        verify(mockAccountDao, never()).creditAccount(senderAccount, transfer.getAmount());
+        assertTrue(committed.isEmpty());
+    }
+
+    private Account createAccountMock(String accountNumber, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber, String money) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
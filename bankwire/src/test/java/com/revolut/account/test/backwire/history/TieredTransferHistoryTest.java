@@ -0,0 +1,205 @@
+package com.revolut.account.test.backwire.history;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.history.MappedTransferArchive;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TieredTransferHistoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MappedTransferArchive archive;
+
+    private TransferDao transferDao;
+
+    @Before
+    public void setUp() throws Exception {
+        AccountDao accountDao = new AccountDaoImpl();
+        for (String accountNumber : Arrays.asList("a", "b", "c")) {
+            accountDao.createAccount(createAccountMock(accountNumber));
+        }
+        archive = new MappedTransferArchive(temporaryFolder.getRoot().toPath());
+        transferDao = new TransferDaoImpl(new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3)), accountDao,
+                new DisabledJournal(), archive, 2, 3);
+    }
+
+    @Test
+    public void reads_ArchivedAndHeapTransfers_SeenAsOneHistory() throws Exception {
+        //given
+        for (int i = 0; i < 10; i++) {
+            transferDao.transferMoney(createTransferMock(String.valueOf(i), "a", i % 2 == 0 ? "b" : "c"));
+        }
+        awaitArchived(6);
+
+        // when
+        List<Transfer> all = transferDao.findTransfers(0, 100);
+        List<Transfer> acrossTiers = transferDao.findTransfers(4, 3);
+        List<Transfer> receiverPage = transferDao.findAccountTransfers("b", 3, 2);
+
+        //then
+        assertThat(ids(all), is(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9")));
+        assertThat(ids(new ArrayList<>(transferDao.findAllTransfers())), is(ids(all)));
+        assertThat(ids(acrossTiers), is(Arrays.asList("4", "5", "6")));
+        assertThat(ids(receiverPage), is(Arrays.asList("6", "8")));
+        assertThat(ids(transferDao.findAccountTransfers("a", 0, 100)).size(), is(10));
+        assertThat(transferDao.findByTransferId("1").get().getMoney(), is(Money.of(CurrencyUnit.EUR, 1)));
+        assertThat(transferDao.findByTransferId("1").get().getToAccountNumber(), is("c"));
+        assertThat(transferDao.findByTransferId("1").get().getSequence(), is(2L));
+        assertTrue(transferDao.findByTransferId("9").isPresent());
+        assertFalse(transferDao.findByTransferId("10").isPresent());
+        assertThat(transferDao.countTransfers(), is(10L));
+    }
+
+    @Test
+    public void clearTransfers_ArchivedTransfers_Deleted() throws Exception {
+        //given
+        for (int i = 0; i < 5; i++) {
+            transferDao.transferMoney(createTransferMock(String.valueOf(i), "b", "c"));
+        }
+        awaitArchived(3);
+
+        // when
+        transferDao.clearTransfers();
+
+        //then
+        assertThat(transferDao.countTransfers(), is(0L));
+        assertFalse(transferDao.findByTransferId("0").isPresent());
+        assertTrue(transferDao.findAccountTransfers("b", 0, 100).isEmpty());
+        assertThat(temporaryFolder.getRoot().list().length, is(0));
+    }
+
+    @Test
+    public void archive_EqualBatches_MergedIntoOneSegmentAndReopened() throws Exception {
+        //given
+        Path directory = temporaryFolder.newFolder("merged").toPath();
+        MappedTransferArchive mergingArchive = new MappedTransferArchive(directory);
+        for (int batch = 0; batch < 16; batch++) {
+            mergingArchive.archive(createBatch(batch * 3 + 1, 3));
+        }
+
+        // when
+        MappedTransferArchive reopened = new MappedTransferArchive(directory);
+
+        //then
+        assertThat(countSegments(directory), is(1L));
+        for (MappedTransferArchive merged : Arrays.asList(mergingArchive, reopened)) {
+            assertThat(merged.getLastSequence(), is(48L));
+            assertThat(merged.countTransfers(), is(48L));
+            assertThat(merged.findByTransferId("t17").get().getSequence(), is(17L));
+            assertFalse(merged.findByTransferId("t49").isPresent());
+            assertThat(merged.countAccountTransfers("a"), is(24L));
+            assertThat(merged.countAccountTransfers("b"), is(48L));
+            assertThat(ids(merged.findAccountTransfers("a", 10, 3)), is(Arrays.asList("t21", "t23", "t25")));
+            assertThat(ids(merged.findTransfers(40, 3)), is(Arrays.asList("t41", "t42", "t43")));
+        }
+    }
+
+    @Test
+    public void open_SegmentsLeftFromMerge_DeletedAndHistoryKept() throws Exception {
+        //given
+        Path directory = temporaryFolder.newFolder("merged").toPath();
+        Path leftovers = temporaryFolder.newFolder("leftovers").toPath();
+        MappedTransferArchive mergingArchive = new MappedTransferArchive(directory);
+        for (int batch = 0; batch < 3; batch++) {
+            mergingArchive.archive(createBatch(batch * 3 + 1, 3));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, leftovers.resolve(file.getFileName()));
+            }
+        }
+        mergingArchive.archive(createBatch(10, 3));
+        try (Stream<Path> files = Files.list(leftovers)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, directory.resolve(file.getFileName()));
+            }
+        }
+
+        // when
+        MappedTransferArchive reopened = new MappedTransferArchive(directory);
+
+        //then
+        assertThat(countSegments(directory), is(1L));
+        assertThat(reopened.countTransfers(), is(12L));
+        assertThat(reopened.findByTransferId("t5").get().getSequence(), is(5L));
+    }
+
+    private List<Transfer> createBatch(long firstSequence, int size) {
+        List<Transfer> batch = new ArrayList<>();
+        for (long sequence = firstSequence; sequence < firstSequence + size; sequence++) {
+            Transfer transfer = createTransferMock("t" + sequence, sequence % 2 == 0 ? "b" : "a", sequence % 2 == 0 ? "c" : "b");
+            transfer.setSequence(sequence);
+            batch.add(transfer);
+        }
+        return batch;
+    }
+
+    private long countSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private void awaitArchived(long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (archive.getLastSequence() < sequence && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(archive.getLastSequence(), is(sequence));
+    }
+
+    private List<String> ids(List<Transfer> transfers) {
+        return transfers.stream().map(Transfer::getTransferId).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private Account createAccountMock(String accountNumber) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 1000))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String transferId, String senderAccountNumber, String receiverAccountNumber) {
+        return new TransferBuilder().setTransferId(transferId)
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 1))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
@@ -0,0 +1,198 @@
+package com.revolut.account.test.backwire.idempotency;
+
+import com.revolut.test.bankwire.exception.IdempotencyKeyReusedException;
+import com.revolut.test.bankwire.idempotency.IdempotencyCacheImpl;
+import com.revolut.test.bankwire.idempotency.IdempotentResponse;
+import net.jodah.concurrentunit.Waiter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class IdempotencyCacheTest {
+
+    private AtomicLong clock;
+
+    private AtomicInteger executions;
+
+    private IdempotencyCacheImpl idempotencyCache;
+
+    @Before
+    public void setUp() {
+        clock = new AtomicLong();
+        executions = new AtomicInteger();
+        idempotencyCache = new IdempotencyCacheImpl(2, 60, clock::get);
+    }
+
+    @Test
+    public void execute_SameKey_ExecutedOnce() throws Exception {
+        //when
+        IdempotentResponse first = idempotencyCache.execute("key", "abc|xyz|10", this::respond);
+        IdempotentResponse second = idempotencyCache.execute("key", "abc|xyz|10", this::respond);
+
+        //then
+        assertThat(executions.get(), is(1));
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test(expected = IdempotencyKeyReusedException.class)
+    public void execute_SameKeyDifferentRequest_Failure() throws Exception {
+        //given
+        idempotencyCache.execute("key", "abc|xyz|10", this::respond);
+
+        //when
+        idempotencyCache.execute("key", "abc|xyz|20", this::respond);
+    }
+
+    @Test
+    public void execute_Retryable_ExecutedAgain() throws Exception {
+        //when
+        idempotencyCache.execute("key", "abc|xyz|10", () -> IdempotentResponse.retryable(400, executions.incrementAndGet()));
+        idempotencyCache.execute("key", "abc|xyz|10", this::respond);
+
+        //then
+        assertThat(executions.get(), is(2));
+    }
+
+    @Test
+    public void execute_Expired_ExecutedAgain() throws Exception {
+        //given
+        idempotencyCache.execute("key", "abc|xyz|10", this::respond);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        //when
+        idempotencyCache.execute("key", "abc|xyz|10", this::respond);
+
+        //then
+        assertThat(executions.get(), is(2));
+        assertThat(idempotencyCache.size(), is(1));
+    }
+
+    @Test
+    public void execute_MoreKeysThanMax_OldestEvicted() throws Exception {
+        //when
+        idempotencyCache.execute("first", "abc|xyz|10", this::respond);
+        idempotencyCache.execute("second", "abc|xyz|10", this::respond);
+        idempotencyCache.execute("third", "abc|xyz|10", this::respond);
+        idempotencyCache.execute("second", "abc|xyz|10", this::respond);
+
+        //then
+        assertThat(idempotencyCache.size(), is(2));
+        assertThat(executions.get(), is(3));
+    }
+
+    @Test
+    public void execute_MoreKeysThanMaxWhileOldestRunning_OldestExecutedOnce() throws Exception {
+        //given
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<IdempotentResponse> first = executorService.submit(() -> idempotencyCache.execute("first", "abc|xyz|10", () -> {
+            running.countDown();
+            await(release);
+            return respond();
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        //when
+        idempotencyCache.execute("second", "abc|xyz|10", this::respond);
+        idempotencyCache.execute("third", "abc|xyz|10", this::respond);
+        Future<IdempotentResponse> retry = executorService.submit(() -> idempotencyCache.execute("first", "abc|xyz|10", this::respond));
+        release.countDown();
+
+        //then
+        assertThat(retry.get(5, TimeUnit.SECONDS), sameInstance(first.get(5, TimeUnit.SECONDS)));
+        assertThat(executions.get(), is(3));
+        assertThat(idempotencyCache.size(), is(2));
+        executorService.shutdown();
+    }
+
+    @Test
+    public void execute_OldestRanPastEvictionThenExpired_ExpiredEvictedBeforeLive() throws Exception {
+        //given
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<IdempotentResponse> first = executorService.submit(() -> idempotencyCache.execute("first", "abc|xyz|10", () -> {
+            running.countDown();
+            await(release);
+            return respond();
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        clock.set(TimeUnit.SECONDS.toNanos(10));
+        idempotencyCache.execute("second", "abc|xyz|10", this::respond);
+        clock.set(TimeUnit.SECONDS.toNanos(20));
+        IdempotentResponse third = idempotencyCache.execute("third", "abc|xyz|10", this::respond);
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        //when
+        clock.set(TimeUnit.SECONDS.toNanos(65));
+        idempotencyCache.execute("fourth", "abc|xyz|10", this::respond);
+        IdempotentResponse retry = idempotencyCache.execute("third", "abc|xyz|10", this::respond);
+
+        //then
+        assertThat(retry, sameInstance(third));
+        assertThat(executions.get(), is(4));
+        executorService.shutdown();
+    }
+
+    @Test
+    public void execute_ConcurrentRetries_ExecutedOnce() throws Throwable {
+        //given
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        Waiter waiter = new Waiter();
+
+        //when
+        for (int i = 0; i < 20; i++) {
+            executorService.submit(() -> {
+                try {
+                    IdempotentResponse response = idempotencyCache.execute("key", "abc|xyz|10", () -> {
+                        sleep();
+                        return respond();
+                    });
+                    waiter.assertEquals(200, response.getStatus());
+                } catch (Exception exception) {
+                    waiter.fail(exception);
+                }
+                waiter.resume();
+            });
+        }
+
+        //then
+        waiter.await(5, TimeUnit.SECONDS, 20);
+        executorService.shutdown();
+        assertThat(executions.get(), is(1));
+    }
+
+    private IdempotentResponse respond() {
+        return IdempotentResponse.of(200, executions.incrementAndGet());
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
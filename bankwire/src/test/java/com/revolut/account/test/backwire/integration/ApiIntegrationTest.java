@@ -1,341 +1,455 @@
-package com.revolut.account.test.backwire.integration;
-
-import com.revolut.test.bankwire.Application;
-import io.restassured.RestAssured;
-import org.junit.Assert;
-import org.junit.BeforeClass;
-import org.junit.Test;
-
-import static io.restassured.RestAssured.delete;
-import static io.restassured.RestAssured.get;
-import static io.restassured.RestAssured.given;
-import static org.hamcrest.CoreMatchers.equalTo;
-
-
-public class ApiIntegrationTest {
-
-    @BeforeClass
-    public static void setUp() {
-        configureHost();
-        configurePort();
-        configureBasePath();
-        startServer();
-    }
-
-    private static void configureHost() {
-        String baseHost = System.getProperty("server.host");
-        if (baseHost == null) {
-            baseHost = "http://localhost";
-        }
-        RestAssured.baseURI = baseHost;
-    }
-
-    private static void configurePort() {
-        String port = System.getProperty("server.port");
-        if (port == null) {
-            RestAssured.port = Integer.parseInt("7000");
-        } else {
-            RestAssured.port = Integer.parseInt(port);
-        }
-    }
-
-    private static void configureBasePath() {
-        String basePath = System.getProperty("server.base");
-        if (basePath == null) {
-            basePath = "/";
-        }
-        RestAssured.basePath = basePath;
-    }
-
-    private static void startServer() {
-        Application.main(new String[]{});
-    }
-
-
-    @Test
-    public void findByAccountNumber_Exists_Success() {
-        String number = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        get("/account/".concat(number)).then().body("accountNumber", equalTo(number));
-    }
-
-    @Test
-    public void findByAccountNumber_Exists_Failure() {
-
-
-        get("/account/".concat("abc")).then().statusCode(404);
-    }
-
-    @Test
-    public void findAllAccounts_Success() {
-        given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        get("/accounts").then().statusCode(200);
-    }
-
-    @Test
-    public void createAccount_Success() {
-        given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().statusCode(200);
-    }
-
-    @Test
-    public void createAccount_InvalidMoneyFormat_Failure() {
-        given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "InValid")
-                .when().post("/account")
-                .then().statusCode(400);
-    }
-
-    @Test
-    public void deleteAccount_Exists_Success() {
-        String accountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        delete("/account/".concat(accountNumber)).then().assertThat()
-                .statusCode(200)
-                .extract()
-                .asString();
-
-    }
-
-    @Test
-    public void deleteAccount_Exists_Failure() {
-        String number = "9870";
-
-        delete("/account/".concat(number)).then().assertThat().statusCode(400);
-    }
-
-    @Test
-    public void findTransferById_Exists_Success() {
-        String senderAccountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String receiverAccountNumber = given()
-                .param("firstName", "rec first name")
-                .and().param("lastName", "rec last name")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String transferId = given()
-                .param("senderAccountNumber", senderAccountNumber)
-                .and().param("receiverAccountNumber", receiverAccountNumber)
-                .and().param("money", "10.00")
-                .when().post("/transfer")
-                .then().extract().path("transferId");
-
-        get("/transfer/".concat(transferId)).then().body("transferId", equalTo(transferId));
-
-
-    }
-
-    @Test
-    public void findTransferById_Exists_Failure() {
-        String transferId = "9870";
-
-        get("/transfer/".concat(transferId)).then().statusCode(404);
-
-
-    }
-
-    @Test
-    public void getAllTransfers_Success() {
-        String senderAccountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String receiverAccountNumber = given()
-                .param("firstName", "rec first name")
-                .and().param("lastName", "rec last name")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String transferId = given()
-                .param("senderAccountNumber", senderAccountNumber)
-                .and().param("receiverAccountNumber", receiverAccountNumber)
-                .and().param("money", "10.00")
-                .when().post("/transfer")
-                .then().extract().path("transferId");
-
-        get("/transfers").then().statusCode(200);
-
-    }
-
-
-    @Test
-    public void transferMoney_Valid_Success() {
-        String senderAccountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String receiverAccountNumber = given()
-                .param("firstName", "rec first name")
-                .and().param("lastName", "rec last name")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String transferId = given()
-                .param("senderAccountNumber", senderAccountNumber)
-                .and().param("receiverAccountNumber", receiverAccountNumber)
-                .and().param("money", "10.00")
-                .when().post("/transfer")
-                .then().extract().path("transferId");
-
-        Assert.assertNotNull(transferId);
-    }
-
-    @Test
-    public void transferMoney_TransferSenderAndReceiverAreSame_Failure(){
-        String accountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-
-
-        given()
-                .param("senderAccountNumber", accountNumber)
-                .and().param("receiverAccountNumber", accountNumber)
-                .and().param("money", "10.00")
-                .when().post("/transfer")
-                .then().statusCode(400);
-    }
-
-    @Test
-    public void transferMoney_SenderDoesNotExist_Failure(){
-        String accountNumber = "jio";
-
-        given()
-                .param("senderAccountNumber", accountNumber)
-                .and().param("receiverAccountNumber", accountNumber)
-                .and().param("money", "10.00")
-                .when().post("/transfer")
-                .then().statusCode(400);
-    }
-
-
-    @Test
-    public void transferMoney_SenderReceiverCurrencyDoesNotMatch_Failure(){
-        String senderAccountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "USD")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String receiverAccountNumber = given()
-                .param("firstName", "rec first name")
-                .and().param("lastName", "rec last name")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-         given()
-                .param("senderAccountNumber", senderAccountNumber)
-                .and().param("receiverAccountNumber", receiverAccountNumber)
-                .and().param("money", "10.00")
-                .when().post("/transfer")
-                .then().statusCode(400);
-    }
-
-    @Test
-    public void transferMoney_InValidMoneyFormat_Failure(){
-        String senderAccountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String receiverAccountNumber = given()
-                .param("firstName", "rec first name")
-                .and().param("lastName", "rec last name")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        given()
-                .param("senderAccountNumber", senderAccountNumber)
-                .and().param("receiverAccountNumber", receiverAccountNumber)
-                .and().param("money", "InValid")
-                .when().post("/transfer")
-                .then().statusCode(400);
-    }
-
-    @Test
-    public void transferMoney_InSufficientAccountBalance_Failure(){
-        String senderAccountNumber = given()
-                .param("firstName", "testName")
-                .and().param("lastName", "testSurname")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        String receiverAccountNumber = given()
-                .param("firstName", "rec first name")
-                .and().param("lastName", "rec last name")
-                .and().param("currencyCode", "EUR")
-                .and().param("money", "10.00")
-                .when().post("/account")
-                .then().extract().path("accountNumber");
-
-        given()
-                .param("senderAccountNumber", senderAccountNumber)
-                .and().param("receiverAccountNumber", receiverAccountNumber)
-                .and().param("money", "20.00")
-                .when().post("/transfer")
-                .then().statusCode(400);
-    }
-}
+package com.revolut.account.test.backwire.integration;
+
+import com.revolut.test.bankwire.Application;
+import io.restassured.RestAssured;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static io.restassured.RestAssured.delete;
+import static io.restassured.RestAssured.get;
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+
+public class ApiIntegrationTest {
+
+    @BeforeClass
+    public static void setUp() {
+        configureHost();
+        configurePort();
+        configureBasePath();
+        startServer();
+    }
+
+    private static void configureHost() {
+        String baseHost = System.getProperty("server.host");
+        if (baseHost == null) {
+            baseHost = "http://localhost";
+        }
+        RestAssured.baseURI = baseHost;
+    }
+
+    private static void configurePort() {
+        String port = System.getProperty("server.port");
+        if (port == null) {
+            RestAssured.port = Integer.parseInt("7000");
+        } else {
+            RestAssured.port = Integer.parseInt(port);
+        }
+    }
+
+    private static void configureBasePath() {
+        String basePath = System.getProperty("server.base");
+        if (basePath == null) {
+            basePath = "/";
+        }
+        RestAssured.basePath = basePath;
+    }
+
+    private static void startServer() {
+        Application.main(new String[]{});
+    }
+
+
+    @Test
+    public void findByAccountNumber_Exists_Success() {
+        String number = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        get("/account/".concat(number)).then().body("accountNumber", equalTo(number));
+    }
+
+    @Test
+    public void findByAccountNumber_Exists_Failure() {
+
+
+        get("/account/".concat("abc")).then().statusCode(404);
+    }
+
+    @Test
+    public void findAllAccounts_Success() {
+        given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        get("/accounts").then().statusCode(200);
+    }
+
+    @Test
+    public void findAllAccounts_NoMatch_EmptyPage() {
+        get("/accounts?currency=CHF").then().statusCode(200).body("items.size()", equalTo(0)).body("nextCursor", nullValue());
+    }
+
+    @Test
+    public void findAllAccounts_CurrencyFilter_Success() {
+        given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "GBP")
+                .and().param("money", "10.00")
+                .when().post("/account");
+
+        get("/accounts?currency=GBP&limit=1").then().statusCode(200).body("items.size()", equalTo(1));
+    }
+
+    @Test
+    public void metrics_Success() {
+        get("/accounts").then().statusCode(200);
+
+        get("/metrics").then().statusCode(200)
+                .body(containsString("bankwire_request_seconds_count{endpoint=\"GET /accounts\"}"))
+                .body(containsString("bankwire_accounts "));
+    }
+
+    @Test
+    public void createAccount_Success() {
+        given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().statusCode(200);
+    }
+
+    @Test
+    public void createAccount_InvalidMoneyFormat_Failure() {
+        given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "InValid")
+                .when().post("/account")
+                .then().statusCode(400);
+    }
+
+    @Test
+    public void deleteAccount_Exists_Success() {
+        String accountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        delete("/account/".concat(accountNumber)).then().assertThat()
+                .statusCode(200)
+                .extract()
+                .asString();
+
+    }
+
+    @Test
+    public void deleteAccount_Exists_Failure() {
+        String number = "9870";
+
+        delete("/account/".concat(number)).then().assertThat().statusCode(400);
+    }
+
+    @Test
+    public void findTransferById_Exists_Success() {
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String transferId = given()
+                .param("senderAccountNumber", senderAccountNumber)
+                .and().param("receiverAccountNumber", receiverAccountNumber)
+                .and().param("money", "10.00")
+                .when().post("/transfer")
+                .then().extract().path("transferId");
+
+        get("/transfer/".concat(transferId)).then().body("transferId", equalTo(transferId));
+
+
+    }
+
+    @Test
+    public void findTransferById_Exists_Failure() {
+        String transferId = "9870";
+
+        get("/transfer/".concat(transferId)).then().statusCode(404);
+
+
+    }
+
+    @Test
+    public void getAllTransfers_Success() {
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String transferId = given()
+                .param("senderAccountNumber", senderAccountNumber)
+                .and().param("receiverAccountNumber", receiverAccountNumber)
+                .and().param("money", "10.00")
+                .when().post("/transfer")
+                .then().extract().path("transferId");
+
+        get("/transfers").then().statusCode(200);
+
+    }
+
+
+    @Test
+    public void getAllTransfers_Limit_ReturnsPage() {
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        given()
+                .param("senderAccountNumber", senderAccountNumber)
+                .and().param("receiverAccountNumber", receiverAccountNumber)
+                .and().param("money", "10.00")
+                .when().post("/transfer");
+
+        get("/transfers?limit=1").then().statusCode(200).body("items.size()", equalTo(1));
+    }
+
+    @Test
+    public void transferMoney_Valid_Success() {
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String transferId = given()
+                .param("senderAccountNumber", senderAccountNumber)
+                .and().param("receiverAccountNumber", receiverAccountNumber)
+                .and().param("money", "10.00")
+                .when().post("/transfer")
+                .then().extract().path("transferId");
+
+        Assert.assertNotNull(transferId);
+    }
+
+    @Test
+    public void transferBatch_Valid_Success() {
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        given()
+                .body(String.format("[{\"senderAccountNumber\":\"%1$s\",\"receiverAccountNumber\":\"%2$s\",\"money\":\"10.00\"},"
+                        + "{\"senderAccountNumber\":\"%2$s\",\"receiverAccountNumber\":\"%1$s\",\"money\":\"15.00\"}]", senderAccountNumber, receiverAccountNumber))
+                .when().post("/transfers/batch")
+                .then().statusCode(200)
+                .body("status", equalTo(Arrays.asList("COMMITTED", "COMMITTED")));
+
+        get("/account/".concat(senderAccountNumber)).then().body("money.money.amount", equalTo(15.0f));
+    }
+
+    @Test
+    public void transferMoney_JsonBodies_Success() {
+        String senderAccountNumber = given()
+                .contentType("application/json")
+                .body("{\"firstName\":\"testName\",\"lastName\":\"testSurname\",\"currencyCode\":\"EUR\",\"money\":10.00}")
+                .when().post("/account")
+                .then().statusCode(200).extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .contentType("application/json")
+                .body("{\"firstName\":\"rec first name\",\"lastName\":\"rec last name\",\"currencyCode\":\"EUR\",\"money\":\"10.00\"}")
+                .when().post("/account")
+                .then().statusCode(200).extract().path("accountNumber");
+
+        given()
+                .contentType("application/json")
+                .body(String.format("{\"senderAccountNumber\":\"%s\",\"receiverAccountNumber\":\"%s\",\"money\":\"2.50\"}", senderAccountNumber, receiverAccountNumber))
+                .when().post("/transfer")
+                .then().statusCode(200).body("fromAccountNumber", equalTo(senderAccountNumber));
+
+        given()
+                .contentType("application/json")
+                .body("[]")
+                .when().post("/transfer")
+                .then().statusCode(400);
+
+        get("/account/".concat(receiverAccountNumber)).then().body("money.money.amount", equalTo(12.5f));
+    }
+
+    @Test
+    public void transferMoney_TransferSenderAndReceiverAreSame_Failure(){
+        String accountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+
+
+        given()
+                .param("senderAccountNumber", accountNumber)
+                .and().param("receiverAccountNumber", accountNumber)
+                .and().param("money", "10.00")
+                .when().post("/transfer")
+                .then().statusCode(400);
+    }
+
+    @Test
+    public void transferMoney_SenderDoesNotExist_Failure(){
+        String accountNumber = "jio";
+
+        given()
+                .param("senderAccountNumber", accountNumber)
+                .and().param("receiverAccountNumber", accountNumber)
+                .and().param("money", "10.00")
+                .when().post("/transfer")
+                .then().statusCode(400);
+    }
+
+
+    @Test
+    public void transferMoney_SenderReceiverCurrencyDoesNotMatch_Failure(){
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "USD")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+         given()
+                .param("senderAccountNumber", senderAccountNumber)
+                .and().param("receiverAccountNumber", receiverAccountNumber)
+                .and().param("money", "10.00")
+                .when().post("/transfer")
+                .then().statusCode(400);
+    }
+
+    @Test
+    public void transferMoney_InValidMoneyFormat_Failure(){
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        given()
+                .param("senderAccountNumber", senderAccountNumber)
+                .and().param("receiverAccountNumber", receiverAccountNumber)
+                .and().param("money", "InValid")
+                .when().post("/transfer")
+                .then().statusCode(400);
+    }
+
+    @Test
+    public void transferMoney_InSufficientAccountBalance_Failure(){
+        String senderAccountNumber = given()
+                .param("firstName", "testName")
+                .and().param("lastName", "testSurname")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        String receiverAccountNumber = given()
+                .param("firstName", "rec first name")
+                .and().param("lastName", "rec last name")
+                .and().param("currencyCode", "EUR")
+                .and().param("money", "10.00")
+                .when().post("/account")
+                .then().extract().path("accountNumber");
+
+        given()
+                .param("senderAccountNumber", senderAccountNumber)
+                .and().param("receiverAccountNumber", receiverAccountNumber)
+                .and().param("money", "20.00")
+                .when().post("/transfer")
+                .then().statusCode(400);
+    }
+}
@@ -0,0 +1,125 @@
+package com.revolut.account.test.backwire.journal;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.journal.AccountStoreRecovery;
+import com.revolut.test.bankwire.journal.JournalReader;
+import com.revolut.test.bankwire.journal.MappedJournal;
+import com.revolut.test.bankwire.journal.SnapshotStore;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public class AccountStoreRecoveryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    private MappedJournal journal;
+
+    private AccountDao accountDao;
+
+    private TransferDao transferDao;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.getRoot().toPath();
+        journal = new MappedJournal(directory, 1024 * 1024, 0, 1);
+        accountDao = new AccountDaoImpl(journal);
+        transferDao = new TransferDaoImpl(new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3)), accountDao, journal);
+    }
+
+    @Test
+    public void recover_SnapshotAndJournalTail_RestoresAccounts() throws Exception {
+        //given
+        SnapshotStore snapshotStore = new SnapshotStore(directory, 2);
+        accountDao.createAccount(createAccountMock("abc"));
+        accountDao.createAccount(createAccountMock("xyz"));
+        accountDao.createAccount(createAccountMock("def"));
+        for (int i = 0; i < 10; i++) {
+            transferDao.transferMoney(createTransferMock("abc", "xyz"));
+        }
+        snapshotStore.write(accountDao, journal);
+        for (int i = 0; i < 5; i++) {
+            transferDao.transferMoney(createTransferMock("xyz", "def"));
+        }
+        accountDao.deleteAccount("abc");
+        accountDao.createAccount(createAccountMock("ghi"));
+        journal.close();
+
+        // when
+        AccountDao recoveredAccountDao = new AccountDaoImpl();
+        new AccountStoreRecovery(snapshotStore, new JournalReader(directory), 2).recover(recoveredAccountDao);
+
+        //then
+        assertFalse(recoveredAccountDao.findByAccountNumber("abc").isPresent());
+        assertThat(recoveredAccountDao.findByAccountNumber("xyz").get().getBalance(), is(10500L));
+        assertThat(recoveredAccountDao.findByAccountNumber("def").get().getBalance(), is(10500L));
+        assertThat(recoveredAccountDao.findByAccountNumber("ghi").get().getBalance(), is(10000L));
+        assertThat(recoveredAccountDao.findByAccountNumber("ghi").get().getUser().getFirstName(), is("test"));
+    }
+
+    @Test
+    public void recover_NoSnapshot_ReplaysWholeJournal() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock("abc"));
+        accountDao.createAccount(createAccountMock("xyz"));
+        for (int i = 0; i < 10; i++) {
+            transferDao.transferMoney(createTransferMock("abc", "xyz"));
+        }
+        transferDao.transferBatch(Arrays.asList(createTransferMock("abc", "xyz"), createTransferMock("xyz", "abc"), createTransferMock("xyz", "abc")));
+        journal.close();
+
+        // when
+        AccountDao recoveredAccountDao = new AccountDaoImpl();
+        new AccountStoreRecovery(new SnapshotStore(directory, 2), new JournalReader(directory), 2).recover(recoveredAccountDao);
+
+        //then
+        assertThat(recoveredAccountDao.findByAccountNumber("abc").get().getBalance(), is(9100L));
+        assertThat(recoveredAccountDao.findByAccountNumber("xyz").get().getBalance(), is(10900L));
+        assertThat(recoveredAccountDao.findByAccountNumber("xyz").get().getCurrency(), is(CurrencyUnit.EUR));
+    }
+
+    private Account createAccountMock(String accountNumber) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, BigDecimal.ONE))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
@@ -0,0 +1,150 @@
+package com.revolut.account.test.backwire.journal;
+
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.journal.JournalReader;
+import com.revolut.test.bankwire.journal.JournalRecord;
+import com.revolut.test.bankwire.journal.MappedJournal;
+import net.jodah.concurrentunit.Waiter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MappedJournalTest {
+
+    private static final int POOL_SIZE = 4;
+
+    private static final int TRANSFERS_PER_THREAD = 250;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ExecutorService executorService;
+
+    private Waiter waiter;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(POOL_SIZE);
+        waiter = new Waiter();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void awaitDurable_ConcurrentAppends_ShareFlushes() throws Throwable {
+        //given
+        MappedJournal journal = new MappedJournal(temporaryFolder.getRoot().toPath(), 1024 * 1024, TimeUnit.MILLISECONDS.toNanos(2), 64);
+
+        // when
+        for (int thread = 0; thread < POOL_SIZE; thread++) {
+            executorService.submit(() -> {
+                try {
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        journal.awaitDurable(journal.appendTransfer(createTransferMock(), 100, 200));
+                    }
+                } catch (Exception exception) {
+                    waiter.fail(exception);
+                }
+                waiter.resume();
+            });
+        }
+        waiter.await(20, TimeUnit.SECONDS, POOL_SIZE);
+        journal.close();
+
+        //then
+        assertTrue(journal.getFlushCount() > 0);
+        assertTrue(journal.getFlushCount() < POOL_SIZE * TRANSFERS_PER_THREAD);
+    }
+
+    @Test
+    public void open_ExistingSegments_AppendsAfterLastRecord() throws Exception {
+        //given
+        Path directory = temporaryFolder.getRoot().toPath();
+        MappedJournal journal = new MappedJournal(directory, 512, 0, 1);
+        long lastPosition = 0;
+        for (int i = 0; i < 9; i++) {
+            lastPosition = journal.appendTransfer(createTransferMock(), 100, 200);
+        }
+        journal.awaitDurable(lastPosition);
+        journal.close();
+
+        // when
+        MappedJournal reopened = new MappedJournal(directory, 512, 0, 1);
+        long position = reopened.appendAccountDeleted("abc");
+        reopened.awaitDurable(position);
+        reopened.close();
+
+        //then
+        File[] segments = directory.toFile().listFiles();
+        assertTrue(segments.length > 1);
+        assertThat(position - lastPosition, is(8L + 1 + 2 + 3));
+    }
+
+    @Test
+    public void read_TransferAndBatch_FullTransfersDecoded() throws Exception {
+        //given
+        Path directory = temporaryFolder.getRoot().toPath();
+        MappedJournal journal = new MappedJournal(directory, 1024 * 1024, 0, 1);
+        Transfer transfer = createTransferMock();
+        Transfer batched = createTransferMock();
+        transfer.setSequence(7);
+        long position = journal.appendTransfer(transfer, 100, 200);
+        journal.awaitDurable(journal.appendTransfers(Arrays.asList(batched, batched), new long[]{300, 400}, new long[]{500, 600}));
+        journal.close();
+
+        // when
+        List<JournalRecord> records = new ArrayList<>();
+        new JournalReader(directory).read(0, records::add);
+
+        //then
+        assertThat(records.size(), is(3));
+        JournalRecord record = records.get(0);
+        assertThat(record.getTransferId(), is(transfer.getTransferId()));
+        assertThat(record.getSequence(), is(7L));
+        assertThat(record.getPosition(), is(position));
+        assertThat(record.getAccountNumber(), is("abc"));
+        assertThat(record.getToAccountNumber(), is("xyz"));
+        assertThat(record.getBalance(), is(100L));
+        assertThat(record.getToBalance(), is(200L));
+        assertThat(record.getAmount(), is(100L));
+        assertThat(record.getCurrency(), is(CurrencyUnit.EUR));
+        assertThat(record.getCreatedDate(), is(transfer.getCreatedDate()));
+        assertThat(records.get(2).getTransferId(), is(batched.getTransferId()));
+        assertThat(records.get(2).getBalance(), is(400L));
+        assertThat(records.get(2).getToBalance(), is(600L));
+    }
+
+    private Transfer createTransferMock() {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber("abc")
+                .setToAccountNumber("xyz")
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, BigDecimal.ONE))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
@@ -0,0 +1,197 @@
+package com.revolut.account.test.backwire.journal;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.engine.OrderedLockTransferEngine;
+import com.revolut.test.bankwire.history.DisabledTransferArchive;
+import com.revolut.test.bankwire.history.MappedTransferArchive;
+import com.revolut.test.bankwire.history.TransferArchive;
+import com.revolut.test.bankwire.journal.AccountStoreRecovery;
+import com.revolut.test.bankwire.journal.DisabledJournal;
+import com.revolut.test.bankwire.journal.JournalReader;
+import com.revolut.test.bankwire.journal.MappedJournal;
+import com.revolut.test.bankwire.journal.SnapshotScheduler;
+import com.revolut.test.bankwire.journal.SnapshotStore;
+import com.revolut.test.bankwire.journal.TransferHistoryRecovery;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.TransferDao;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TransferHistoryRecoveryTest {
+
+    private static final int HOT_TRANSFERS = 2;
+
+    private static final int SEGMENT_TRANSFERS = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    private Path archiveDirectory;
+
+    private MappedJournal journal;
+
+    private AccountDao accountDao;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder("journal").toPath();
+        archiveDirectory = temporaryFolder.newFolder("history").toPath();
+        journal = new MappedJournal(directory, 512, 0, 1);
+        accountDao = new AccountDaoImpl(journal);
+        accountDao.createAccount(createAccountMock("abc"));
+        accountDao.createAccount(createAccountMock("xyz"));
+    }
+
+    @Test
+    public void recover_ArchiveAndJournalTail_HistoryAndSequencesKept() throws Exception {
+        //given
+        TransferArchive archive = new MappedTransferArchive(archiveDirectory);
+        TransferDao transferDao = createTransferDao(archive);
+        Transfer first = transferDao.transferMoney(createTransferMock("abc", "xyz"));
+        for (int i = 0; i < 11; i++) {
+            transferDao.transferMoney(createTransferMock("abc", "xyz"));
+        }
+        List<Transfer> batch = transferDao.transferBatch(Arrays.asList(createTransferMock("abc", "xyz"), createTransferMock("xyz", "abc")));
+        awaitArchived(archive, 12);
+        long segmentsBefore = countSegments();
+        new SnapshotScheduler(new SnapshotStore(directory), accountDao, transferDao, journal, 0).snapshot();
+        journal.close();
+
+        // when
+        TransferArchive recoveredArchive = new MappedTransferArchive(archiveDirectory);
+        TransferDao recoveredTransferDao = recover(recoveredArchive);
+
+        //then
+        assertTrue(countSegments() < segmentsBefore);
+        assertThat(recoveredArchive.countTransfers(), is(12L));
+        assertThat(recoveredTransferDao.countTransfers(), is(14L));
+        assertThat(recoveredTransferDao.findByTransferId(first.getTransferId()).get().getSequence(), is(1L));
+        assertThat(recoveredTransferDao.findByTransferId(first.getTransferId()).get().getMoney(), is(Money.of(CurrencyUnit.EUR, BigDecimal.ONE)));
+        assertThat(recoveredTransferDao.findByTransferId(batch.get(1).getTransferId()).get().getSequence(), is(14L));
+        assertThat(recoveredTransferDao.findAllTransfers().size(), is(14));
+        assertThat(recoveredTransferDao.transferMoney(createTransferMock("abc", "xyz")).getSequence(), is(15L));
+    }
+
+    @Test
+    public void recover_NoArchiveAfterSnapshot_OnlyJournalTailRestored() throws Exception {
+        //given
+        TransferDao transferDao = createTransferDao(new DisabledTransferArchive());
+        Transfer compacted = transferDao.transferMoney(createTransferMock("abc", "xyz"));
+        for (int i = 0; i < 10; i++) {
+            transferDao.transferMoney(createTransferMock("abc", "xyz"));
+        }
+        new SnapshotScheduler(new SnapshotStore(directory), accountDao, transferDao, journal, 0).snapshot();
+        Transfer tail = transferDao.transferMoney(createTransferMock("xyz", "abc"));
+        journal.close();
+
+        // when
+        TransferDao recoveredTransferDao = recover(new DisabledTransferArchive());
+
+        //then
+        assertFalse(recoveredTransferDao.findByTransferId(compacted.getTransferId()).isPresent());
+        assertThat(recoveredTransferDao.findByTransferId(tail.getTransferId()).get().getSequence(), is(12L));
+        Queue<Transfer> restored = recoveredTransferDao.findAllTransfers();
+        assertTrue(restored.size() < 12);
+        assertThat(restored.peek().getSequence(), is(13L - restored.size()));
+        assertThat(recoveredTransferDao.transferMoney(createTransferMock("abc", "xyz")).getSequence(), is(13L));
+    }
+
+    @Test
+    public void recover_LongJournalTail_HeapBoundedByArchiver() throws Exception {
+        //given
+        TransferDao transferDao = createTransferDao(new DisabledTransferArchive());
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            transfers.add(transferDao.transferMoney(createTransferMock("abc", "xyz")));
+        }
+        journal.close();
+
+        // when
+        TransferArchive recoveredArchive = new MappedTransferArchive(archiveDirectory);
+        TransferDao recoveredTransferDao = recover(recoveredArchive);
+
+        //then
+        assertTrue(recoveredArchive.getLastSequence() >= 30 - HOT_TRANSFERS - 2 * SEGMENT_TRANSFERS);
+        assertThat(recoveredTransferDao.countTransfers(), is(30L));
+        for (Transfer transfer : transfers) {
+            assertThat(recoveredTransferDao.findByTransferId(transfer.getTransferId()).get().getSequence(), is(transfer.getSequence()));
+        }
+    }
+
+    private TransferDao createTransferDao(TransferArchive archive) {
+        return new TransferDaoImpl(new OrderedLockTransferEngine(accountDao, TimeUnit.SECONDS.toNanos(3)), accountDao, journal, archive,
+                HOT_TRANSFERS, SEGMENT_TRANSFERS);
+    }
+
+    private TransferDao recover(TransferArchive archive) throws Exception {
+        AccountDao recoveredAccountDao = new AccountDaoImpl();
+        new AccountStoreRecovery(new SnapshotStore(directory), new JournalReader(directory), 2).recover(recoveredAccountDao);
+        TransferDao recoveredTransferDao = new TransferDaoImpl(new OrderedLockTransferEngine(recoveredAccountDao, TimeUnit.SECONDS.toNanos(3)),
+                recoveredAccountDao, new DisabledJournal(), archive, HOT_TRANSFERS, SEGMENT_TRANSFERS);
+        new TransferHistoryRecovery(new JournalReader(directory)).recover(recoveredTransferDao);
+        return recoveredTransferDao;
+    }
+
+    private void awaitArchived(TransferArchive archive, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (archive.getLastSequence() < sequence && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(archive.getLastSequence(), is(sequence));
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+
+    private Account createAccountMock(String accountNumber) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, 100))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber) {
+        return new TransferBuilder().setTransferId(UUID.randomUUID().toString())
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, BigDecimal.ONE))
+                .setCreatedDate(new Date())
+                .createTransfer();
+    }
+}
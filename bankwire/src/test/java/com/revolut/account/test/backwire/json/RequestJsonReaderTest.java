@@ -0,0 +1,40 @@
+package com.revolut.account.test.backwire.json;
+
+import com.revolut.test.bankwire.dto.AccountRequest;
+import com.revolut.test.bankwire.dto.TransferRequest;
+import com.revolut.test.bankwire.json.RequestJsonReader;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RequestJsonReaderTest {
+
+    private final RequestJsonReader jsonReader = new RequestJsonReader();
+
+    @Test
+    public void fromJson_NumericMoneyAndUnknownFields_TextKept() {
+        //when
+        TransferRequest request = jsonReader.fromJson("{\"note\":{\"a\":[1,2]},\"senderAccountNumber\":\"a\",\"receiverAccountNumber\":\"b\",\"money\":10.10}",
+                TransferRequest.class);
+        AccountRequest accountRequest = jsonReader.fromJson("{\"firstName\":\"John\",\"lastName\":null,\"currencyCode\":\"EUR\",\"money\":\"1\"}",
+                AccountRequest.class);
+
+        //then
+        assertThat(request.getSenderAccountNumber(), is("a"));
+        assertThat(request.getReceiverAccountNumber(), is("b"));
+        assertThat(request.getMoney(), is("10.10"));
+        assertThat(accountRequest.getFirstName(), is("John"));
+        assertThat(accountRequest.getLastName(), nullValue());
+        assertThat(accountRequest.getCurrencyCode(), is("EUR"));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void fromJson_ArrayForTransfer_Rejected() {
+        //when
+        jsonReader.fromJson("[{\"senderAccountNumber\":\"a\"}]", TransferRequest.class);
+    }
+}
@@ -0,0 +1,121 @@
+package com.revolut.account.test.backwire.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.Transfer;
+import com.revolut.test.bankwire.dto.TransferBuilder;
+import com.revolut.test.bankwire.dto.TransferResult;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.json.ResponseJsonWriter;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ResponseJsonWriterTest {
+
+    private final ResponseJsonWriter jsonWriter = new ResponseJsonWriter();
+
+    private final Date createdDate = new Date(1_792_301_891_000L);
+
+    private final String formattedDate = new SimpleDateFormat("MMM d, yyyy h:mm:ss a", Locale.US).format(createdDate);
+
+    @Test
+    public void write_Account_FixedSchema() throws Exception {
+        //given
+        Account account = createAccountMock("1", CurrencyUnit.EUR, "60.05");
+
+        //when
+        String json = write(account);
+
+        //then
+        assertThat(json, is("{\"accountNumber\":\"1\",\"user\":{\"firstName\":\"test\",\"lastName\":\"test1\"},"
+                + "\"money\":{\"money\":{\"currency\":{\"code\":\"EUR\",\"numericCode\":978,\"decimalPlaces\":2},\"amount\":60.05}},"
+                + "\"currency\":{\"code\":\"EUR\",\"numericCode\":978,\"decimalPlaces\":2},"
+                + "\"createdDate\":\"" + formattedDate + "\"}"));
+    }
+
+    @Test
+    public void write_AmountsAtCurrencyScale() throws Exception {
+        //when
+        JsonObject cents = parse(write(createAccountMock("1", CurrencyUnit.EUR, "0.05")));
+        JsonObject yen = parse(write(createAccountMock("2", CurrencyUnit.JPY, "6000")));
+
+        //then
+        assertThat(cents.getAsJsonObject("money").getAsJsonObject("money").get("amount").getAsBigDecimal(), is(new BigDecimal("0.05")));
+        assertThat(yen.getAsJsonObject("money").getAsJsonObject("money").get("amount").getAsBigDecimal(), is(new BigDecimal("6000")));
+    }
+
+    @Test
+    public void write_Transfer_SameAsReflectiveOutput() throws Exception {
+        //given
+        Transfer transfer = createTransferMock("1", "2", "15.00");
+        transfer.setSequence(7);
+
+        //when
+        JsonObject json = parse(write(transfer));
+
+        //then
+        JsonObject reflective = parse(new Gson().toJson(transfer));
+        assertThat(json.remove("createdDate").getAsString(), is(formattedDate));
+        reflective.remove("createdDate");
+        assertThat(json, is(reflective));
+    }
+
+    @Test
+    public void write_BatchResults_NullFieldsLeftOut() throws Exception {
+        //given
+        Transfer transfer = createTransferMock("1", "2", "15.00");
+
+        //when
+        String json = write(Arrays.asList(TransferResult.aborted(0, null), TransferResult.rejected(1, "InSufficient Account Balance <EUR 1.00>")));
+        JsonElement committed = parse(write(TransferResult.committed(2, transfer)));
+
+        //then
+        assertThat(json, is("[{\"index\":0,\"status\":\"ABORTED\"},{\"index\":1,\"status\":\"REJECTED\",\"message\":\"InSufficient Account Balance <EUR 1.00>\"}]"));
+        assertThat(committed.getAsJsonObject().getAsJsonObject("transfer").get("transferId").getAsString(), is(transfer.getTransferId()));
+    }
+
+    private String write(Object body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsonWriter.write(body, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private JsonObject parse(String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+
+    private Account createAccountMock(String accountNumber, CurrencyUnit currency, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(currency)
+                .setMoney(Money.of(currency, new BigDecimal(money)))
+                .setCreatedDate(createdDate)
+                .createAccount();
+    }
+
+    private Transfer createTransferMock(String senderAccountNumber, String receiverAccountNumber, String money) {
+        return new TransferBuilder().setTransferId("c7a4a1c2-1f1e-4c36-9d0e-5b9f1b1d2e3f")
+                .setFromAccountNumber(senderAccountNumber)
+                .setToAccountNumber(receiverAccountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(createdDate)
+                .createTransfer();
+    }
+}
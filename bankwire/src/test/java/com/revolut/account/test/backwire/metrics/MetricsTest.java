@@ -0,0 +1,59 @@
+package com.revolut.account.test.backwire.metrics;
+
+import com.revolut.test.bankwire.metrics.Counter;
+import com.revolut.test.bankwire.metrics.LatencyHistogram;
+import com.revolut.test.bankwire.metrics.Metrics;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    @Test
+    public void histogram_Quantiles_WithinThreePercent() {
+        //given
+        LatencyHistogram histogram = Metrics.histogram("test_quantile_seconds", "test");
+
+        //when
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        //then
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount(), is(10_000L));
+        assertWithin(snapshot.valueAtQuantile(0.5), TimeUnit.MICROSECONDS.toNanos(5_000));
+        assertWithin(snapshot.valueAtQuantile(0.99), TimeUnit.MICROSECONDS.toNanos(9_900));
+        assertWithin(snapshot.valueAtQuantile(1.0), TimeUnit.MICROSECONDS.toNanos(10_000));
+    }
+
+    @Test
+    public void write_PrometheusTextFormat() throws Exception {
+        //given
+        Counter counter = Metrics.counter("test_events_total", "Test events", "kind", "a\"b");
+        counter.add(3);
+        Metrics.histogram("test_write_seconds", "Test latency", "stage", "x").record(TimeUnit.MILLISECONDS.toNanos(2));
+        Metrics.gauge("test_size", "Test size", () -> 42);
+
+        //when
+        StringWriter writer = new StringWriter();
+        Metrics.write(writer);
+
+        //then
+        String text = writer.toString();
+        assertThat(text, containsString("# TYPE test_events_total counter\ntest_events_total{kind=\"a\\\"b\"} 3\n"));
+        assertThat(text, containsString("# TYPE test_write_seconds summary\n"));
+        assertThat(text, containsString("test_write_seconds_count{stage=\"x\"} 1\n"));
+        assertThat(text, containsString("test_size 42\n"));
+    }
+
+    private void assertWithin(long actual, long expected) {
+        assertTrue(String.format("%d not within 3%% of %d", actual, expected), Math.abs(actual - expected) <= expected * 0.03);
+    }
+}
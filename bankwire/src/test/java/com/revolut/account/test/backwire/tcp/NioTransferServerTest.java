@@ -0,0 +1,144 @@
+package com.revolut.account.test.backwire.tcp;
+
+import com.revolut.test.bankwire.dto.Account;
+import com.revolut.test.bankwire.dto.AccountBuilder;
+import com.revolut.test.bankwire.dto.User;
+import com.revolut.test.bankwire.repo.AccountDao;
+import com.revolut.test.bankwire.repo.AccountDaoImpl;
+import com.revolut.test.bankwire.repo.TransferDaoImpl;
+import com.revolut.test.bankwire.tcp.NioTransferServer;
+import com.revolut.test.bankwire.tcp.TransferFrames;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NioTransferServerTest {
+
+    private AccountDao accountDao;
+
+    private NioTransferServer transferServer;
+
+    @Before
+    public void setUp() throws Exception {
+        accountDao = new AccountDaoImpl();
+        transferServer = new NioTransferServer(new TransferDaoImpl(accountDao), accountDao, Executors.newFixedThreadPool(4), 0, 16);
+        transferServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        transferServer.close();
+        accountDao.clearAccounts();
+    }
+
+    @Test(timeout = 10_000)
+    public void commands_PipelinedBeyondInFlightLimit_AllAcknowledged() throws Exception {
+        //given
+        Account senderAccount = accountDao.createAccount(createAccountMock("a", "10"));
+        Account receiverAccount = accountDao.createAccount(createAccountMock("b", "0"));
+        ByteBuffer commands = ByteBuffer.allocate(64 * 1024);
+        for (int id = 0; id < 100; id++) {
+            TransferFrames.writeCommand(commands, new TransferFrames.Command(id, "a", "b", 1));
+        }
+        TransferFrames.writeCommand(commands, new TransferFrames.Command(100, "a", "b", 1001));
+        TransferFrames.writeCommand(commands, new TransferFrames.Command(101, "a", "missing", 1));
+
+        //when
+        Map<Long, TransferFrames.Ack> acks;
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", transferServer.getPort()))) {
+            commands.flip();
+            while (commands.hasRemaining()) {
+                channel.write(commands);
+            }
+            acks = readAcks(channel, 102);
+        }
+
+        //then
+        for (long id = 0; id < 100; id++) {
+            assertThat(acks.get(id).getStatus(), is(TransferFrames.COMMITTED));
+        }
+        assertThat(acks.get(100L).getStatus(), is(TransferFrames.REJECTED));
+        assertThat(acks.get(101L).getText(), is("Transfer UnSuccessfully Receiver Account does not exist"));
+        assertThat(senderAccount.getBalance(), is(900L));
+        assertThat(receiverAccount.getBalance(), is(100L));
+    }
+
+    @Test(timeout = 10_000)
+    public void commands_MalformedFrame_ConnectionClosed() throws Exception {
+        //given
+        ByteBuffer frame = ByteBuffer.allocate(8).putInt(Integer.MAX_VALUE).putInt(0);
+        frame.flip();
+
+        //when
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", transferServer.getPort()))) {
+            channel.write(frame);
+
+            //then
+            assertThat(channel.read(ByteBuffer.allocate(16)), is(-1));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void commands_FieldPastFrameEnd_ConnectionClosedAndServerStillServing() throws Exception {
+        //given
+        accountDao.createAccount(createAccountMock("a", "10"));
+        accountDao.createAccount(createAccountMock("b", "0"));
+        ByteBuffer frame = ByteBuffer.allocate(24).putInt(20).putLong(1).putLong(1).putShort((short) 2).put((byte) 'a').put((byte) 'b');
+        frame.flip();
+        ByteBuffer command = ByteBuffer.allocate(64);
+        TransferFrames.writeCommand(command, new TransferFrames.Command(2, "a", "b", 1));
+        command.flip();
+
+        //when
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", transferServer.getPort()))) {
+            channel.write(frame);
+
+            //then
+            assertThat(channel.read(ByteBuffer.allocate(16)), is(-1));
+        }
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", transferServer.getPort()))) {
+            channel.write(command);
+            assertThat(readAcks(channel, 1).get(2L).getStatus(), is(TransferFrames.COMMITTED));
+        }
+    }
+
+    private Map<Long, TransferFrames.Ack> readAcks(SocketChannel channel, int count) throws Exception {
+        Map<Long, TransferFrames.Ack> acks = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (acks.size() < count) {
+            if (channel.read(buffer) < 0) {
+                throw new IllegalStateException("connection closed after " + acks.size() + " acks");
+            }
+            buffer.flip();
+            TransferFrames.Ack ack;
+            while ((ack = TransferFrames.readAck(buffer)) != null) {
+                acks.put(ack.getCorrelationId(), ack);
+            }
+            buffer.compact();
+        }
+        return acks;
+    }
+
+    private Account createAccountMock(String accountNumber, String money) {
+        return new AccountBuilder().setUser(new User("test", "test1"))
+                .setAccountNumber(accountNumber)
+                .setCurrency(CurrencyUnit.EUR)
+                .setMoney(Money.of(CurrencyUnit.EUR, new BigDecimal(money)))
+                .setCreatedDate(new Date())
+                .createAccount();
+    }
+}